@@ -0,0 +1,99 @@
+package codes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OSM compile time per {@link Main.OSMCompiler.Mode}.
+ *
+ * <p>Setup first checks that the mode builds the same network as
+ * {@code THREE_PASS}: same vertices, edges, attributes and geometry. For
+ * allocation per compile, run with {@code -prof gc}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompileBench {
+
+    /** OSM file path, or {@code synthetic} for a generated grid. */
+    @Param(SyntheticOsm.SYNTHETIC)
+    public String osm;
+
+    /** Streets per side of the synthetic grid. */
+    @Param("200")
+    public int gridSize;
+
+    /** Compile pipeline. */
+    @Param({"PARALLEL_SCAN", "SINGLE_PASS", "THREE_PASS"})
+    public Main.OSMCompiler.Mode mode;
+
+    private Path file;
+    private final Main.OSMCompiler compiler = new Main.OSMCompiler();
+
+    /**
+     * Resolves (and for the synthetic grid, writes) the input file and checks
+     * the mode against the three-pass reference.
+     */
+    @Setup
+    public void setUp() {
+        file = SyntheticOsm.resolve(osm, gridSize);
+        if (mode != Main.OSMCompiler.Mode.THREE_PASS) {
+            requireIdentical(compiler.compile(file, mode), compiler.compile(file, Main.OSMCompiler.Mode.THREE_PASS));
+        }
+    }
+
+    @Benchmark
+    public Main.OSMCompiler.BuildResult compile() {
+        return compiler.compile(file, mode);
+    }
+
+    /**
+     * Checks that two build results describe the same network.
+     *
+     * @param a the first result
+     * @param b the second result
+     * @throws IllegalStateException on the first difference
+     */
+    private static void requireIdentical(Main.OSMCompiler.BuildResult a, Main.OSMCompiler.BuildResult b) {
+        if (a.graph.V() != b.graph.V() || a.graph.E() != b.graph.E()) {
+            throw new IllegalStateException("Graph size mismatch");
+        }
+        for (int v = 0; v < a.graph.V(); v++) {
+            if (a.vertexStore.lat[v] != b.vertexStore.lat[v] || a.vertexStore.lon[v] != b.vertexStore.lon[v]) {
+                throw new IllegalStateException("Vertex mismatch at " + v);
+            }
+        }
+        for (int e = 0; e < a.graph.E(); e++) {
+            Edge ea = a.graph.edgeByID(e);
+            Edge eb = b.graph.edgeByID(e);
+            if (ea.firstEnd() != eb.firstEnd() || ea.otherEnd() != eb.otherEnd()
+                    || a.attrs.distanceMeters(e) != b.attrs.distanceMeters(e)
+                    || a.attrs.timeSeconds(e) != b.attrs.timeSeconds(e)
+                    || !Objects.equals(a.attrs.streetName(e), b.attrs.streetName(e))
+                    || a.edgeGeometry.startIndex(e) != b.edgeGeometry.startIndex(e)) {
+                throw new IllegalStateException("Edge mismatch at " + e);
+            }
+        }
+        for (int i = 0; i < a.edgeGeometry.size(); i++) {
+            if (a.edgeGeometry.x(i) != b.edgeGeometry.x(i) || a.edgeGeometry.y(i) != b.edgeGeometry.y(i)) {
+                throw new IllegalStateException("Geometry mismatch at point " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package codes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-source Dijkstra with the JDK {@link PriorityQueue} versus
+ * {@link IndexedDaryHeap}.
+ *
+ * <p>Every variant runs the same CSR relaxation loop from the same random
+ * sources, so the only difference is the priority queue:
+ * <ul>
+ *   <li><b>jdk:</b> one boxed entry per relaxation in a
+ *       {@code java.util.PriorityQueue}, stale entries skipped on removal
+ *       (the JDK queue has no decrease-key); new queue per query</li>
+ *   <li><b>dary2/4/8:</b> primitive keys, one queue of that arity reused via
+ *       {@link IndexedDaryHeap#clear()}</li>
+ * </ul>
+ * Setup checks that the d-ary distances are identical to the JDK ones.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeapBench {
+
+    /** Number of distinct sources cycled through. */
+    private static final int SOURCES = 64;
+
+    /** OSM file path, or {@code synthetic} for a generated grid. */
+    @Param(SyntheticOsm.SYNTHETIC)
+    public String osm;
+
+    /** Streets per side of the synthetic grid. */
+    @Param("200")
+    public int gridSize;
+
+    /** Priority queue: {@code jdk}, or {@code daryN} for an N-ary {@link IndexedDaryHeap}. */
+    @Param({"jdk", "dary2", "dary4", "dary8"})
+    public String queue;
+
+    private CsrDigraph csr;
+    private double[] cost;
+    private double[] dist;
+    private IndexedDaryHeap heap;
+    private int[] sources;
+    private int next;
+
+    /**
+     * Compiles the network, draws the sources and checks the queue against the JDK one.
+     */
+    @Setup
+    public void setUp() {
+        Main.OSMCompiler.BuildResult network = SyntheticOsm.network(osm, gridSize);
+        csr = network.graph.csr();
+        cost = new double[csr.E()];
+        for (int e = 0; e < csr.E(); e++) cost[e] = network.attrs.distanceMeters(e);
+        dist = new double[csr.V()];
+        heap = queue.equals("jdk") ? null : new IndexedDaryHeap(csr.V(), Integer.parseInt(queue.substring(4)));
+
+        Random rnd = new Random(42);
+        sources = new int[SOURCES];
+        for (int i = 0; i < SOURCES; i++) sources[i] = rnd.nextInt(csr.V());
+
+        if (heap != null) {
+            double[] expected = new double[csr.V()];
+            for (int s : sources) {
+                dijkstraJdk(csr, cost, s, expected);
+                dijkstraDary(csr, cost, s, dist, heap);
+                if (!Arrays.equals(expected, dist)) {
+                    throw new IllegalStateException("Distance mismatch from source " + s);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public double dijkstra() {
+        int s = sources[next];
+        next = (next + 1) % SOURCES;
+        return (heap == null) ? dijkstraJdk(csr, cost, s, dist) : dijkstraDary(csr, cost, s, dist, heap);
+    }
+
+    /**
+     * A queued vertex and the distance it was queued at.
+     *
+     * @param v    the vertex
+     * @param dist its tentative distance when queued
+     */
+    private record Entry(int v, double dist) {
+    }
+
+    /**
+     * Runs Dijkstra with the JDK boxed-entry queue.
+     *
+     * @param csr  the graph
+     * @param cost edge cost by edge ID
+     * @param s    the source vertex
+     * @param dist output distances (overwritten)
+     * @return sum of finite distances
+     */
+    private static double dijkstraJdk(CsrDigraph csr, double[] cost, int s, double[] dist) {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        PriorityQueue<Entry> pq = new PriorityQueue<>((a, b) -> Double.compare(a.dist(), b.dist()));
+
+        dist[s] = 0.0;
+        pq.add(new Entry(s, 0.0));
+
+        double sum = 0.0;
+        while (!pq.isEmpty()) {
+            Entry top = pq.poll();
+            int v = top.v();
+            if (top.dist() > dist[v]) continue;     // superseded by a shorter entry
+            sum += dist[v];
+            for (int i = csr.firstOut(v), end = csr.endOut(v); i < end; i++) {
+                int w = csr.head(i);
+                double candidate = dist[v] + cost[csr.edgeId(i)];
+                if (candidate < dist[w]) {
+                    dist[w] = candidate;
+                    pq.add(new Entry(w, candidate));
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Runs Dijkstra with a reused primitive-key d-ary heap.
+     *
+     * @param csr  the graph
+     * @param cost edge cost by edge ID
+     * @param s    the source vertex
+     * @param dist output distances (overwritten)
+     * @param pq   the heap to reuse (cleared before use)
+     * @return sum of finite distances
+     */
+    private static double dijkstraDary(CsrDigraph csr, double[] cost, int s, double[] dist, IndexedDaryHeap pq) {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        pq.clear();
+
+        dist[s] = 0.0;
+        pq.insert(s, 0.0);
+
+        double sum = 0.0;
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            sum += dist[v];
+            for (int i = csr.firstOut(v), end = csr.endOut(v); i < end; i++) {
+                int w = csr.head(i);
+                double candidate = dist[v] + cost[csr.edgeId(i)];
+                if (candidate < dist[w]) {
+                    dist[w] = candidate;
+                    if (pq.contains(w)) pq.decreaseKey(w, candidate);
+                    else pq.insert(w, candidate);
+                }
+            }
+        }
+        return sum;
+    }
+}
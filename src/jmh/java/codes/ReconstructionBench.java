@@ -0,0 +1,138 @@
+package codes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Post-processing of a found route: geometry reconstruction, turn-by-turn
+ * instruction generation and response serialization per
+ * {@link RouteServer.Format}.
+ *
+ * <p>Routes between fixed random snapped points are computed once in setup;
+ * the benchmarks only measure the work done after the search. Serialization
+ * writes into a reused in-memory stream.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReconstructionBench {
+
+    /** Number of distinct routes cycled through. */
+    private static final int ROUTES = 128;
+
+    /** OSM file path, or {@code synthetic} for a generated grid. */
+    @Param(SyntheticOsm.SYNTHETIC)
+    public String osm;
+
+    /** Streets per side of the synthetic grid. */
+    @Param("200")
+    public int gridSize;
+
+    private Main.OSMCompiler.BuildResult network;
+    private EdgeGeometry projectedGeometry;
+    private final List<SegmentSnapper.SegmentSnapResult[]> snaps = new ArrayList<>();
+    private final List<RoutingEngine.Route> routes = new ArrayList<>();
+    private final List<List<Point>> geometries = new ArrayList<>();
+    private final List<List<Instruction>> instructions = new ArrayList<>();
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(1 << 16);
+    private int next;
+
+    /**
+     * Compiles the network and routes between random snapped points.
+     */
+    @Setup
+    public void setUp() {
+        network = SyntheticOsm.network(osm, gridSize);
+        RoutingContext ctx = network.routingContext();
+        projectedGeometry = ctx.projectedGeometry();
+
+        Random rnd = new Random(42);
+        int V = network.graph.V();
+        double[] lat = network.vertexStore.lat;
+        double[] lon = network.vertexStore.lon;
+
+        while (routes.size() < ROUTES) {
+            int a = rnd.nextInt(V);
+            int b = rnd.nextInt(V);
+
+            // Nudge off the vertex so the snap lands part-way along an edge
+            SegmentSnapper.SegmentSnapResult[] s = RouteCLI.snapEnds(
+                    lat[a] + 2e-4, lon[a] + 1e-4, lat[b] - 2e-4, lon[b] - 1e-4, ctx);
+            if (s == null) continue;
+
+            RoutingResult rr = RouteCLI.routeSnapped(s[0], s[1], ctx);
+            if (rr == null || rr.route().edgeIds.length < 2) continue;
+
+            snaps.add(s);
+            routes.add(rr.route());
+            geometries.add(rr.geometry());
+            instructions.add(InstructionGenerator.generate(rr.route(), network.edgeGeometry, network.attrs, true));
+        }
+    }
+
+    /**
+     * Returns the index of the next route.
+     *
+     * @return the route index
+     */
+    private int nextRoute() {
+        int i = next;
+        next = (i + 1) % ROUTES;
+        return i;
+    }
+
+    @Benchmark
+    public List<Point> reconstruct() {
+        int i = nextRoute();
+        SegmentSnapper.SegmentSnapResult[] s = snaps.get(i);
+        return Reconstruction.reconstruct(routes.get(i), projectedGeometry, s[0], s[1]);
+    }
+
+    @Benchmark
+    public List<Instruction> instructions() {
+        return InstructionGenerator.generate(routes.get(nextRoute()), network.edgeGeometry, network.attrs, true);
+    }
+
+    @Benchmark
+    public int geojson() throws IOException {
+        int i = nextRoute();
+        sink.reset();
+        new GeoJsonWriter(sink, GeoJsonWriter.DEFAULT_DECIMALS).writeRoute(geometries.get(i), instructions.get(i));
+        return sink.size();
+    }
+
+    @Benchmark
+    public int polyline() throws IOException {
+        int i = nextRoute();
+        sink.reset();
+        new GeoJsonWriter(sink, GeoJsonWriter.DEFAULT_DECIMALS).writePolylineRoute(geometries.get(i), 5, instructions.get(i));
+        return sink.size();
+    }
+
+    @Benchmark
+    public int binary() throws IOException {
+        int i = nextRoute();
+        sink.reset();
+        new BinaryRouteWriter(sink, GeoJsonWriter.DEFAULT_DECIMALS).writeRoute(geometries.get(i), instructions.get(i));
+        return sink.size();
+    }
+}
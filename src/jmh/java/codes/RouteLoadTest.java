@@ -0,0 +1,154 @@
+package codes;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for {@link RouteServer} measuring request throughput per executor.
+ *
+ * <p>Starts the server on a free local port once per executor spec
+ * ({@code platform:1}, {@code platform:2}, ... up to the core count, then
+ * {@code virtual}) and replays the same random {@code /route} queries from
+ * many concurrent clients. Reports requests per second and median and
+ * 99th-percentile latency per executor, so throughput scaling with cores is
+ * visible directly. Queries run over the distance contraction hierarchy, as
+ * on the real server.</p>
+ *
+ * <p>Lives with the JMH benchmarks, outside the application jar. Example usage:
+ * <pre>
+ *     gradle loadTest -PloadTestArgs="[osmFile] [requests] [clients]"
+ * </pre>
+ * </p>
+ */
+public class RouteLoadTest {
+
+    /**
+     * Runs the load test.
+     *
+     * @param args optional OSM path (default {@code data/pei.osm}), requests per
+     *             executor (default 2000) and concurrent clients (default 4 per core)
+     * @throws Exception if the server cannot start or a client fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path osmFile = Path.of(args.length > 0 ? args[0] : "data/pei.osm");
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 4 * cores;
+
+        Main.OSMCompiler.BuildResult network = GraphSnapshot.loadOrCompile(osmFile, GraphSnapshot.defaultPathFor(osmFile));
+        RoutingContext ctx = network.routingContext();
+        ctx.engine().attachHierarchy(new ContractionHierarchy(network.graph, network.attrs, RoutingEngine.Metric.DISTANCE));
+        System.out.printf("Graph: V=%d, E=%d, %d cores, %d clients, %d requests per executor%n",
+                network.graph.V(), network.graph.E(), cores, clients, requests);
+
+        String[] queries = randomQueries(network, requests, new Random(42));
+
+        List<String> specs = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) specs.add("platform:" + t);
+        specs.add("platform:" + cores);
+        specs.add("virtual");
+
+        // Warm up the JIT on the first executor before timing anything
+        run(network, specs.get(0), queries, clients);
+
+        for (String spec : specs) {
+            long[] latencies = run(network, spec, queries, clients);
+            long wallNanos = latencies[latencies.length - 1];
+            long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+            Arrays.sort(sorted);
+
+            System.out.printf("%-12s %8.0f req/s  p50 %6.2f ms  p99 %6.2f ms%n",
+                    spec,
+                    sorted.length / (wallNanos / 1e9),
+                    sorted[sorted.length / 2] / 1e6,
+                    sorted[(int) (sorted.length * 0.99)] / 1e6);
+        }
+    }
+
+    /**
+     * Serves {@code queries} with one executor and returns the latencies.
+     *
+     * @param network the network to route on
+     * @param spec    the executor spec (see {@link RouteServer#newExecutor})
+     * @param queries request paths with query strings
+     * @param clients number of concurrent clients
+     * @return per-request latency in nanoseconds, followed by the total wall time
+     * @throws Exception if a request fails or returns an error status
+     */
+    private static long[] run(Main.OSMCompiler.BuildResult network, String spec,
+                              String[] queries, int clients) throws Exception {
+        // Every executor starts cold so cached responses don't flatter later runs
+        network.routingContext().routeCache().invalidate();
+
+        ExecutorService executor = RouteServer.newExecutor(spec);
+        HttpServer server = RouteServer.start(network, new InetSocketAddress("127.0.0.1", 0), executor);
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long[] latencies = new long[queries.length + 1];
+        AtomicInteger next = new AtomicInteger();
+
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            long t0 = System.nanoTime();
+
+            List<Future<?>> done = new ArrayList<>(clients);
+            for (int c = 0; c < clients; c++) {
+                done.add(clientThreads.submit(() -> {
+                    for (int i; (i = next.getAndIncrement()) < queries.length; ) {
+                        HttpRequest req = HttpRequest.newBuilder(URI.create(base + queries[i])).GET().build();
+                        long start = System.nanoTime();
+                        HttpResponse<String> res = http.send(req, HttpResponse.BodyHandlers.ofString());
+                        latencies[i] = System.nanoTime() - start;
+                        if (res.statusCode() != 200) {
+                            throw new IllegalStateException("HTTP " + res.statusCode() + " for " + queries[i]);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) f.get();
+
+            latencies[queries.length] = System.nanoTime() - t0;
+        } finally {
+            server.stop(0);
+            executor.shutdown();
+        }
+        return latencies;
+    }
+
+    /**
+     * Builds random {@code /route} requests between vertex locations.
+     *
+     * @param network the network the queries are for
+     * @param n       number of queries
+     * @param rnd     random source
+     * @return request paths with query strings
+     */
+    private static String[] randomQueries(Main.OSMCompiler.BuildResult network, int n, Random rnd) {
+        int V = network.graph.V();
+        double[] lat = network.vertexStore.lat;
+        double[] lon = network.vertexStore.lon;
+
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) {
+            int a = rnd.nextInt(V);
+            int b = rnd.nextInt(V);
+            out[i] = "/route?lat1=" + lat[a] + "&lon1=" + lon[a] + "&lat2=" + lat[b] + "&lon2=" + lon[b];
+        }
+        return out;
+    }
+}
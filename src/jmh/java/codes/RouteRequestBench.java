@@ -0,0 +1,120 @@
+package codes;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@code /route} request handling over loopback HTTP.
+ *
+ * <p>Covers parsing, snapping, routing over the distance contraction
+ * hierarchy, reconstruction, instructions and GeoJSON serialization, as
+ * served by {@link RouteServer}. With {@code cached=false} the route cache
+ * is cleared before every request; with {@code cached=true} the query set
+ * fits in the cache, so after warmup every request is a hit.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteRequestBench {
+
+    /** Number of distinct requests cycled through. */
+    private static final int QUERIES = 256;
+
+    /** OSM file path, or {@code synthetic} for a generated grid. */
+    @Param(SyntheticOsm.SYNTHETIC)
+    public String osm;
+
+    /** Streets per side of the synthetic grid. */
+    @Param("200")
+    public int gridSize;
+
+    /** Whether repeated requests may be answered from the route cache. */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private RoutingContext ctx;
+    private ExecutorService executor;
+    private HttpServer server;
+    private HttpClient http;
+    private HttpRequest[] requests;
+    private int next;
+
+    /**
+     * Compiles the network, builds the hierarchy and starts the server on a free port.
+     *
+     * @throws IOException if the server cannot start
+     */
+    @Setup
+    public void setUp() throws IOException {
+        Main.OSMCompiler.BuildResult network = SyntheticOsm.network(osm, gridSize);
+        ctx = network.routingContext();
+        ctx.engine().attachHierarchy(new ContractionHierarchy(network.graph, network.attrs, RoutingEngine.Metric.DISTANCE));
+
+        executor = RouteServer.newExecutor("virtual");
+        server = RouteServer.start(network, new InetSocketAddress("127.0.0.1", 0), executor);
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/route";
+        Random rnd = new Random(42);
+        int V = network.graph.V();
+        double[] lat = network.vertexStore.lat;
+        double[] lon = network.vertexStore.lon;
+
+        requests = new HttpRequest[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int a = rnd.nextInt(V);
+            int b = rnd.nextInt(V);
+            URI uri = URI.create(base + "?lat1=" + lat[a] + "&lon1=" + lon[a] + "&lat2=" + lat[b] + "&lon2=" + lon[b]);
+            requests[i] = HttpRequest.newBuilder(uri).GET().build();
+        }
+    }
+
+    /**
+     * Empties the route cache before each request when caching is off.
+     */
+    @Setup(Level.Invocation)
+    public void coldCache() {
+        if (!cached) ctx.routeCache().invalidate();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public String route() throws IOException, InterruptedException {
+        int i = next;
+        next = (i + 1) % QUERIES;
+        return http.send(requests[i], HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
@@ -0,0 +1,99 @@
+package codes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-to-point search on fixed random vertex pairs.
+ *
+ * <p>Each invocation routes the next of {@link #PAIRS} pairs drawn with a
+ * fixed seed, so every run and every algorithm sees the same queries.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBench {
+
+    /** Number of distinct query pairs cycled through. */
+    private static final int PAIRS = 256;
+
+    /** OSM file path, or {@code synthetic} for a generated grid. */
+    @Param(SyntheticOsm.SYNTHETIC)
+    public String osm;
+
+    /** Streets per side of the synthetic grid. */
+    @Param("200")
+    public int gridSize;
+
+    /** Routing metric. */
+    @Param({"DISTANCE", "TIME"})
+    public RoutingEngine.Metric metric;
+
+    private RoutingEngine engine;
+    private int[] sources;
+    private int[] targets;
+    private int next;
+
+    /**
+     * Compiles the network and draws the query pairs.
+     */
+    @Setup
+    public void setUp() {
+        Main.OSMCompiler.BuildResult network = SyntheticOsm.network(osm, gridSize);
+        RoutingContext ctx = network.routingContext();
+        engine = ctx.engine();
+
+        Random rnd = new Random(42);
+        int V = network.graph.V();
+        sources = new int[PAIRS];
+        targets = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            sources[i] = rnd.nextInt(V);
+            targets[i] = rnd.nextInt(V);
+        }
+    }
+
+    /**
+     * Returns the index of the next query pair.
+     *
+     * @return the pair index
+     */
+    private int nextPair() {
+        int i = next;
+        next = (i + 1) % PAIRS;
+        return i;
+    }
+
+    @Benchmark
+    public RoutingEngine.Route dijkstra() {
+        int i = nextPair();
+        return engine.route(sources[i], targets[i], metric, RoutingEngine.Algorithm.DIJKSTRA);
+    }
+
+    @Benchmark
+    public RoutingEngine.Route astar() {
+        int i = nextPair();
+        return engine.route(sources[i], targets[i], metric, RoutingEngine.Algorithm.ASTAR);
+    }
+
+    @Benchmark
+    public RoutingEngine.Route bidirectionalAstar() {
+        int i = nextPair();
+        return engine.route(sources[i], targets[i], metric, RoutingEngine.Algorithm.BIDIRECTIONAL_ASTAR);
+    }
+}
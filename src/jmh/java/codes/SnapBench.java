@@ -0,0 +1,77 @@
+package codes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segment snapping throughput.
+ *
+ * <p>Query points are drawn uniformly from the network's projected bounding
+ * box, so some land on dense streets and some in empty cells where the ring
+ * search has to widen.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapBench {
+
+    /** Number of distinct query points cycled through (a power of two). */
+    private static final int POINTS = 4096;
+
+    /** OSM file path, or {@code synthetic} for a generated grid. */
+    @Param(SyntheticOsm.SYNTHETIC)
+    public String osm;
+
+    /** Streets per side of the synthetic grid. */
+    @Param("200")
+    public int gridSize;
+
+    private SegmentSnapper snapper;
+    private double[] qx;
+    private double[] qy;
+    private int next;
+
+    /**
+     * Compiles the network and draws the query points.
+     */
+    @Setup
+    public void setUp() {
+        RoutingContext ctx = SyntheticOsm.network(osm, gridSize).routingContext();
+        snapper = ctx.snapper();
+
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (double x : ctx.vertexX()) { minX = Math.min(minX, x); maxX = Math.max(maxX, x); }
+        for (double y : ctx.vertexY()) { minY = Math.min(minY, y); maxY = Math.max(maxY, y); }
+
+        Random rnd = new Random(42);
+        qx = new double[POINTS];
+        qy = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            qx[i] = minX + rnd.nextDouble() * (maxX - minX);
+            qy[i] = minY + rnd.nextDouble() * (maxY - minY);
+        }
+    }
+
+    @Benchmark
+    public SegmentSnapper.SegmentSnapResult snap() {
+        int i = next;
+        next = (i + 1) & (POINTS - 1);
+        return snapper.snap(qx[i], qy[i]);
+    }
+}
@@ -0,0 +1,133 @@
+package codes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Networks for the JMH benchmarks.
+ *
+ * <p>Benchmarks take an {@code osm} parameter: either a path to an OSM file
+ * or {@code "synthetic"}, which writes a jittered {@code n × n} street grid
+ * (about 100 m blocks, mixed highway classes and speed limits, a one-way
+ * every fifth street) to a temporary file. The grid is deterministic, so the
+ * benchmarks run the same without the PEI extract.</p>
+ */
+final class SyntheticOsm {
+
+    /** The {@code osm} parameter value that selects the generated grid. */
+    static final String SYNTHETIC = "synthetic";
+
+    /** Grid spacing in degrees of latitude (~100 m). */
+    private static final double STEP_DEG = 0.0009;
+
+    private SyntheticOsm() { }
+
+    /**
+     * Returns the OSM file a benchmark should use.
+     *
+     * @param osm      a file path, or {@link #SYNTHETIC}
+     * @param gridSize streets per side of the synthetic grid
+     * @return the path to read
+     */
+    static Path resolve(String osm, int gridSize) {
+        return SYNTHETIC.equals(osm) ? grid(gridSize) : Path.of(osm);
+    }
+
+    /**
+     * Compiles the network a benchmark should use.
+     *
+     * @param osm      a file path, or {@link #SYNTHETIC}
+     * @param gridSize streets per side of the synthetic grid
+     * @return the compiled network
+     */
+    static Main.OSMCompiler.BuildResult network(String osm, int gridSize) {
+        return new Main.OSMCompiler().compile(resolve(osm, gridSize));
+    }
+
+    /**
+     * Writes an {@code n × n} grid to a temporary OSM file (deleted on exit).
+     *
+     * @param n streets per side
+     * @return the file
+     */
+    static Path grid(int n) {
+        try {
+            Path file = Files.createTempFile("grid" + n + "-", ".osm");
+            file.toFile().deleteOnExit();
+
+            Random rnd = new Random(n);
+            double lonStep = STEP_DEG / Math.cos(Math.toRadians(46.25));
+
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<osm version=\"0.6\" generator=\"SyntheticOsm\">\n");
+
+                for (int r = 0; r < n; r++) {
+                    for (int c = 0; c < n; c++) {
+                        double lat = 46.2 + r * STEP_DEG + (rnd.nextDouble() - 0.5) * STEP_DEG * 0.2;
+                        double lon = -63.2 + c * lonStep + (rnd.nextDouble() - 0.5) * lonStep * 0.2;
+                        w.write(String.format(Locale.ROOT, " <node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\"/>%n",
+                                nodeId(n, r, c), lat, lon));
+                    }
+                }
+
+                long wayId = 1;
+                for (int r = 0; r < n; r++) {
+                    writeWay(w, wayId++, n, r, true, "Row " + r);
+                }
+                for (int c = 0; c < n; c++) {
+                    writeWay(w, wayId++, n, c, false, "Column " + c);
+                }
+
+                w.write("</osm>\n");
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes one grid street.
+     *
+     * @param w     the output
+     * @param id    the way ID
+     * @param n     streets per side
+     * @param line  the row or column index
+     * @param row   {@code true} for a row (west to east), {@code false} for a column
+     * @param name  the street name
+     * @throws IOException if writing fails
+     */
+    private static void writeWay(BufferedWriter w, long id, int n, int line, boolean row, String name)
+            throws IOException {
+        w.write(" <way id=\"" + id + "\">\n");
+        for (int k = 0; k < n; k++) {
+            long ref = row ? nodeId(n, line, k) : nodeId(n, k, line);
+            w.write("  <nd ref=\"" + ref + "\"/>\n");
+        }
+
+        String highway = (line % 10 == 0) ? "primary" : (line % 5 == 0) ? "secondary" : "residential";
+        w.write("  <tag k=\"highway\" v=\"" + highway + "\"/>\n");
+        w.write("  <tag k=\"name\" v=\"" + name + "\"/>\n");
+        if (line % 5 == 2) w.write("  <tag k=\"oneway\" v=\"yes\"/>\n");
+        if (line % 7 == 3) w.write("  <tag k=\"maxspeed\" v=\"30\"/>\n");
+        w.write(" </way>\n");
+    }
+
+    /**
+     * Returns the OSM node ID of a grid intersection.
+     *
+     * @param n streets per side
+     * @param r row
+     * @param c column
+     * @return the node ID
+     */
+    private static long nodeId(int n, int r, int c) {
+        return 1 + (long) r * n + c;
+    }
+}
@@ -0,0 +1,424 @@
+package codes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams routes in a compact binary format for bandwidth-constrained clients.
+ *
+ * <p>Layout (all counts and values are LEB128 varints; signed values are
+ * zigzag-encoded first):
+ * <pre>
+ *     'R' 'T'                       magic
+ *     version                       1 byte, currently 1
+ *     decimals                      1 byte, coordinate precision
+ *     pointCount
+ *       dLat dLon                   signed, per point: latitude/longitude scaled by
+ *                                   10^decimals, delta to the previous point
+ *     streetCount
+ *       length utf8Bytes            per distinct street name
+ *     instructionCount
+ *       type street distance        per instruction: 1-byte {@link Instruction.Type} ordinal,
+ *                                   street index + 1 (0 = unnamed), whole meters
+ * </pre>
+ * </p>
+ *
+ * <p>{@link #writeMatrix} writes {@code /matrix} results in a related
+ * layout.</p>
+ *
+ * <p>Like {@link GeoJsonWriter}, bytes are produced directly into a buffer
+ * borrowed from {@link OutputBuffers} that is flushed whenever it fills. A typical point costs 2 to 4
+ * bytes instead of about 25 in GeoJSON. {@link #decode} reads the format
+ * back.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     try (OutputStream body = exchange.getResponseBody()) {
+ *         new BinaryRouteWriter(body, 6).writeRoute(points, instructions);
+ *     }
+ * </pre>
+ * </p>
+ */
+public final class BinaryRouteWriter {
+
+    /** Format version written after the magic bytes. */
+    public static final int VERSION = 1;
+
+    /** Most bytes one varint can take. */
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private static final Instruction.Type[] TYPES = Instruction.Type.values();
+
+    /**
+     * A decoded binary route.
+     *
+     * @param decimals     coordinate precision the route was written with
+     * @param points       the route points ({@code x} = longitude, {@code y} = latitude)
+     * @param instructions the instructions, distances in whole meters
+     */
+    public record Decoded(int decimals, List<Point> points, List<Instruction> instructions) {
+    }
+
+    /** The destination stream. */
+    private final OutputStream out;
+
+    /** Optional second destination receiving the same bytes (may be null). */
+    private final ByteArrayOutputStream copy;
+
+    /** Decimals written per coordinate. */
+    private final int decimals;
+
+    /** Buffer taken from {@link OutputBuffers} for the duration of each write call. */
+    private byte[] buf;
+    private int pos;
+
+    /**
+     * Creates a writer.
+     *
+     * @param out      the destination stream
+     * @param decimals decimals per coordinate, {@code 0..GeoJsonWriter.MAX_DECIMALS}
+     * @throws IllegalArgumentException if {@code out} is null or {@code decimals} is out of range
+     */
+    public BinaryRouteWriter(OutputStream out, int decimals) {
+        this(out, decimals, null);
+    }
+
+    /**
+     * Creates a writer that also keeps a copy of everything it writes.
+     *
+     * @param out      the destination stream
+     * @param decimals decimals per coordinate, {@code 0..GeoJsonWriter.MAX_DECIMALS}
+     * @param copy     receives the same bytes as {@code out} (may be null)
+     * @throws IllegalArgumentException if {@code out} is null or {@code decimals} is out of range
+     */
+    public BinaryRouteWriter(OutputStream out, int decimals, ByteArrayOutputStream copy) {
+        if (out == null) throw new IllegalArgumentException("out cannot be null");
+        if (decimals < 0 || decimals > GeoJsonWriter.MAX_DECIMALS) {
+            throw new IllegalArgumentException("decimals must be between 0 and " + GeoJsonWriter.MAX_DECIMALS);
+        }
+        this.out = out;
+        this.copy = copy;
+        this.decimals = decimals;
+    }
+
+    /**
+     * Writes a route and flushes it.
+     *
+     * @param pts          the route points ({@code x} = longitude, {@code y} = latitude)
+     * @param instructions the turn-by-turn instructions (may be empty)
+     * @throws IOException if writing fails
+     */
+    public void writeRoute(List<Point> pts, List<Instruction> instructions) throws IOException {
+        begin();
+        try {
+            ensure(4);
+            buf[pos++] = 'R';
+            buf[pos++] = 'T';
+            buf[pos++] = VERSION;
+            buf[pos++] = (byte) decimals;
+
+            double scale = Math.pow(10, decimals);
+            varint(pts.size());
+            long prevLat = 0, prevLon = 0;
+            for (int i = 0, n = pts.size(); i < n; i++) {
+                Point p = pts.get(i);
+                long lat = Math.round(p.y * scale);
+                long lon = Math.round(p.x * scale);
+                signed(lat - prevLat);
+                signed(lon - prevLon);
+                prevLat = lat;
+                prevLon = lon;
+            }
+
+            // Street dictionary in first-use order; index 0 is reserved for unnamed
+            Map<String, Integer> index = new HashMap<>();
+            List<String> streets = new ArrayList<>();
+            int[] refs = new int[instructions.size()];
+            for (int i = 0; i < refs.length; i++) {
+                String street = instructions.get(i).street;
+                if (street == null) continue;
+                Integer idx = index.get(street);
+                if (idx == null) {
+                    idx = streets.size() + 1;
+                    index.put(street, idx);
+                    streets.add(street);
+                }
+                refs[i] = idx;
+            }
+
+            varint(streets.size());
+            for (String s : streets) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                varint(utf8.length);
+                bytes(utf8);
+            }
+
+            varint(refs.length);
+            for (int i = 0; i < refs.length; i++) {
+                Instruction ins = instructions.get(i);
+                ensure(1);
+                buf[pos++] = (byte) ins.type.ordinal();
+                varint(refs[i]);
+                varint(Math.max(0, Math.round(ins.distanceMeters)));
+            }
+            flush();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes a cost matrix and flushes it.
+     *
+     * <p>Layout:
+     * <pre>
+     *     'M' 'X'                       magic
+     *     version                       1 byte, currently 1
+     *     metric                        1 byte, {@link RoutingEngine.Metric} ordinal
+     *     rows cols                     varints
+     *     values                        rows × cols IEEE 754 floats, big-endian, row-major;
+     *                                   +Infinity where unreachable
+     * </pre>
+     * </p>
+     *
+     * @param m the matrix
+     * @throws IOException if writing fails
+     */
+    public void writeMatrix(DistanceMatrix m) throws IOException {
+        begin();
+        try {
+            ensure(4);
+            buf[pos++] = 'M';
+            buf[pos++] = 'X';
+            buf[pos++] = VERSION;
+            buf[pos++] = (byte) m.metric().ordinal();
+            varint(m.rows());
+            varint(m.cols());
+            for (float f : m.values()) {
+                ensure(4);
+                int bits = Float.floatToIntBits(f);
+                buf[pos++] = (byte) (bits >>> 24);
+                buf[pos++] = (byte) (bits >>> 16);
+                buf[pos++] = (byte) (bits >>> 8);
+                buf[pos++] = (byte) bits;
+            }
+            flush();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Reads a matrix written by {@link #writeMatrix}.
+     *
+     * @param data the encoded matrix
+     * @return the costs as {@code [row][col]}
+     * @throws IllegalArgumentException if {@code data} is not a valid version-1 matrix
+     */
+    public static float[][] decodeMatrix(byte[] data) {
+        if (data.length < 4 || data[0] != 'M' || data[1] != 'X') {
+            throw new IllegalArgumentException("Not a binary matrix");
+        }
+        if (data[2] != VERSION) throw new IllegalArgumentException("Unsupported version " + data[2]);
+
+        int[] pos = {4};
+        int rows = count(data, pos);
+        int cols = count(data, pos);
+        if ((long) rows * cols * 4 != data.length - pos[0]) {
+            throw new IllegalArgumentException("Matrix size does not match data");
+        }
+
+        float[][] out = new float[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int p = pos[0];
+                int bits = (data[p] & 0xFF) << 24 | (data[p + 1] & 0xFF) << 16 | (data[p + 2] & 0xFF) << 8 | (data[p + 3] & 0xFF);
+                out[i][j] = Float.intBitsToFloat(bits);
+                pos[0] = p + 4;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Takes a buffer from the pool for one write call.
+     */
+    private void begin() {
+        buf = OutputBuffers.take();
+        pos = 0;
+    }
+
+    /**
+     * Hands the buffer back to the pool; bytes not yet flushed are discarded.
+     */
+    private void end() {
+        OutputBuffers.give(buf);
+        buf = null;
+        pos = 0;
+    }
+
+    /**
+     * Writes buffered bytes to the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        if (pos == 0) return;
+        out.write(buf, 0, pos);
+        if (copy != null) copy.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    /**
+     * Reads a route written by {@link #writeRoute}.
+     *
+     * @param data the encoded route
+     * @return the decoded route
+     * @throws IllegalArgumentException if {@code data} is not a valid version-1 route
+     */
+    public static Decoded decode(byte[] data) {
+        if (data.length < 4 || data[0] != 'R' || data[1] != 'T') {
+            throw new IllegalArgumentException("Not a binary route");
+        }
+        if (data[2] != VERSION) throw new IllegalArgumentException("Unsupported version " + data[2]);
+        int decimals = data[3];
+        if (decimals < 0 || decimals > GeoJsonWriter.MAX_DECIMALS) {
+            throw new IllegalArgumentException("Invalid decimals " + decimals);
+        }
+
+        double scale = Math.pow(10, decimals);
+        int[] pos = {4};
+
+        int n = count(data, pos);
+        List<Point> pts = new ArrayList<>(n);
+        long lat = 0, lon = 0;
+        for (int i = 0; i < n; i++) {
+            lat += unzigzag(readVarint(data, pos));
+            lon += unzigzag(readVarint(data, pos));
+            pts.add(new Point(lon / scale, lat / scale));
+        }
+
+        int s = count(data, pos);
+        String[] streets = new String[s + 1];
+        for (int i = 1; i <= s; i++) {
+            int len = count(data, pos);
+            if (pos[0] + len > data.length) throw new IllegalArgumentException("Truncated street name");
+            streets[i] = new String(data, pos[0], len, StandardCharsets.UTF_8);
+            pos[0] += len;
+        }
+
+        int m = count(data, pos);
+        List<Instruction> instructions = new ArrayList<>(m);
+        for (int i = 0; i < m; i++) {
+            if (pos[0] >= data.length) throw new IllegalArgumentException("Truncated instruction");
+            int type = data[pos[0]++];
+            int ref = count(data, pos);
+            long meters = readVarint(data, pos);
+            if (type < 0 || type >= TYPES.length || ref > s) {
+                throw new IllegalArgumentException("Invalid instruction " + i);
+            }
+            instructions.add(new Instruction(TYPES[type], streets[ref], meters));
+        }
+        return new Decoded(decimals, pts, instructions);
+    }
+
+    /**
+     * Writes a zigzag-encoded signed varint.
+     *
+     * @param v the value
+     * @throws IOException if a flush fails
+     */
+    private void signed(long v) throws IOException {
+        varint((v << 1) ^ (v >> 63));
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param v the value, treated as unsigned
+     * @throws IOException if a flush fails
+     */
+    private void varint(long v) throws IOException {
+        ensure(MAX_VARINT_BYTES);
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    /**
+     * Writes raw bytes.
+     *
+     * @param b the bytes
+     * @throws IOException if a flush fails
+     */
+    private void bytes(byte[] b) throws IOException {
+        for (int off = 0; off < b.length; ) {
+            if (pos == buf.length) flush();
+            int n = Math.min(b.length - off, buf.length - pos);
+            System.arraycopy(b, off, buf, pos, n);
+            pos += n;
+            off += n;
+        }
+    }
+
+    /**
+     * Makes room for {@code n} more bytes in the buffer.
+     *
+     * @param n bytes needed ({@code <= OutputBuffers.BUFFER_BYTES})
+     * @throws IOException if a flush fails
+     */
+    private void ensure(int n) throws IOException {
+        if (pos + n > buf.length) flush();
+    }
+
+    /**
+     * Reads an unsigned varint, advancing {@code pos[0]}.
+     *
+     * @param data the encoded route
+     * @param pos  read offset holder
+     * @return the value
+     * @throws IllegalArgumentException if the varint is truncated or too long
+     */
+    private static long readVarint(byte[] data, int[] pos) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length) throw new IllegalArgumentException("Truncated varint");
+            byte b = data[pos[0]++];
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * Reads a varint count or index, advancing {@code pos[0]}.
+     *
+     * @param data the encoded route
+     * @param pos  read offset holder
+     * @return the value
+     * @throws IllegalArgumentException if it does not fit the remaining data
+     */
+    private static int count(byte[] data, int[] pos) {
+        long v = readVarint(data, pos);
+        if (v > data.length) throw new IllegalArgumentException("Invalid count " + v);
+        return (int) v;
+    }
+
+    /**
+     * Reverses zigzag encoding.
+     *
+     * @param z the encoded value
+     * @return the signed value
+     */
+    private static long unzigzag(long z) {
+        return (z >>> 1) ^ -(z & 1);
+    }
+}
@@ -0,0 +1,1318 @@
+package codes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A Contraction Hierarchy (CH) for fast point-to-point shortest path queries.
+ *
+ * <p>Preprocessing contracts vertices one at a time in order of importance.
+ * Contracting {@code v} removes it from the remaining graph and, for every
+ * pair of neighbors {@code u → v → w} whose shortest connection runs through
+ * {@code v}, adds a shortcut arc {@code u → w}. A bounded local Dijkstra
+ * (the witness search) skips shortcuts that an existing path already beats.
+ * The order in which vertices are contracted is their rank.</p>
+ *
+ * <p>Queries then run a bidirectional Dijkstra that only ever moves to
+ * higher-ranked vertices: forward over the upward graph from the source and
+ * backward over the downward graph from the target. Both searches stay
+ * tiny, which is what makes queries fast on large road networks.</p>
+ *
+ * <p>Arc IDs {@code 0..E-1} are the original graph edges; higher IDs are
+ * shortcuts, each remembering the two arcs it replaces. Found paths are
+ * unpacked back to original edge IDs, so routes can be fed to
+ * {@link Reconstruction} and {@link InstructionGenerator} unchanged.</p>
+ *
+ * <p>Storage layout (both graphs in CSR form, like {@link CsrDigraph}):
+ * <pre>
+ *     up:   arcs u → w with rank[u] &lt; rank[w], grouped by u
+ *     down: arcs u → w with rank[u] &gt; rank[w], grouped by w (for the backward search)
+ * </pre>
+ * </p>
+ *
+ * <p>A hierarchy is built for one {@link RoutingEngine.Metric}. Queries are
+ * thread-safe; search state comes from a shared {@link SearchWorkspace.Pool}.</p>
+ *
+ * <p>Contraction takes far longer than loading a {@link GraphSnapshot}, so a
+ * built hierarchy can be saved next to the snapshot ({@link #write},
+ * {@link #read}, {@link #loadOrBuild}). File layout (little-endian):
+ * <pre>
+ *     header (56 bytes):
+ *         int magic ("GMCH"), int version, int metric (ordinal),
+ *         int V, int E, int arcs, int upSlots, int downSlots,
+ *         long graphCrc32 (of each edge's tail, head and metric cost),
+ *         long payloadBytes, long payloadCrc32
+ *     payload:
+ *         double upWeight[upSlots], downWeight[downSlots]
+ *         int rank[V], arcTail[arcs], arcHead[arcs], arcChild1[arcs], arcChild2[arcs]
+ *         int firstUp[V + 1], upHead[upSlots], upArc[upSlots]
+ *         int firstDown[V + 1], downTail[downSlots], downArc[downSlots]
+ * </pre>
+ * A file whose graph checksum does not match the graph it is loaded for is
+ * rejected, so a hierarchy never outlives the network it was built on.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     ContractionHierarchy ch = new ContractionHierarchy(graph, attrs, RoutingEngine.Metric.DISTANCE);
+ *     RoutingEngine.Route route = ch.route(s, t);
+ * </pre>
+ * </p>
+ */
+public final class ContractionHierarchy {
+
+    /** File magic, "GMCH" in ASCII. */
+    static final int MAGIC = 0x474D4348;
+
+    /** Current file format version; bump whenever the layout changes. */
+    static final int VERSION = 1;
+
+    /** Size of the fixed file header in bytes. */
+    private static final int HEADER_BYTES = 56;
+
+    /** Maximum vertices a witness search may settle before giving up. */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    /** Smaller settle limit used when only estimating a vertex's priority. */
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+    /** The metric the arc weights were taken from. */
+    private final RoutingEngine.Metric metric;
+
+    /** Number of vertices. */
+    private final int V;
+
+    /** Number of original edges (arcs {@code 0..E-1}). */
+    private final int E;
+
+    /** Contraction order of each vertex (0 = contracted first). */
+    private final int[] rank;
+
+    /** Source vertex of each arc. */
+    private final int[] arcTail;
+
+    /** Target vertex of each arc. */
+    private final int[] arcHead;
+
+    /** First replaced arc of each shortcut (-1 for original edges). */
+    private final int[] arcChild1;
+
+    /** Second replaced arc of each shortcut (-1 for original edges). */
+    private final int[] arcChild2;
+
+    /** Upward graph row pointers (length V + 1). */
+    private final int[] firstUp;
+
+    /** Upward graph: target vertex per slot. */
+    private final int[] upHead;
+
+    /** Upward graph: arc ID per slot. */
+    private final int[] upArc;
+
+    /** Upward graph: arc weight per slot. */
+    private final double[] upWeight;
+
+    /** Downward graph row pointers, grouped by arc head (length V + 1). */
+    private final int[] firstDown;
+
+    /** Downward graph: source vertex per slot. */
+    private final int[] downTail;
+
+    /** Downward graph: arc ID per slot. */
+    private final int[] downArc;
+
+    /** Downward graph: arc weight per slot. */
+    private final double[] downWeight;
+
+    /** Query workspaces. */
+    private final SearchWorkspace.Pool workspaces;
+
+    /**
+     * Builds a hierarchy for the given graph and metric.
+     *
+     * <p>Time complexity depends on the graph; road networks typically need a
+     * few seconds per million vertices.</p>
+     *
+     * @param G      the weighted directed graph
+     * @param attrs  edge attributes containing distance/time information
+     * @param metric the metric to optimize
+     * @throws IllegalArgumentException if any argument is null or
+     *                                  {@code attrs.edgeCount() < G.E()}
+     */
+    public ContractionHierarchy(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric) {
+        if (G == null || attrs == null || metric == null) {
+            throw new IllegalArgumentException("graph, attributes and metric cannot be null");
+        }
+        if (attrs.edgeCount() < G.E()) throw new IllegalArgumentException("EdgeAttributes.edgeCount() < G.E()");
+
+        this.metric = metric;
+        this.V = G.V();
+        this.E = G.E();
+
+        Builder b = new Builder(G, attrs, metric);
+        b.contractAll();
+
+        this.rank = b.rank;
+        this.arcTail = Arrays.copyOf(b.tail, b.arcs);
+        this.arcHead = Arrays.copyOf(b.head, b.arcs);
+        this.arcChild1 = Arrays.copyOf(b.child1, b.arcs);
+        this.arcChild2 = Arrays.copyOf(b.child2, b.arcs);
+        double[] weight = b.weight;
+        int arcs = b.arcs;
+
+        // Split arcs into upward (grouped by tail) and downward (grouped by head)
+        this.firstUp = new int[V + 1];
+        this.firstDown = new int[V + 1];
+        for (int a = 0; a < arcs; a++) {
+            int u = arcTail[a], w = arcHead[a];
+            if (u == w) continue;
+            if (rank[u] < rank[w]) firstUp[u + 1]++;
+            else firstDown[w + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            firstUp[v + 1] += firstUp[v];
+            firstDown[v + 1] += firstDown[v];
+        }
+
+        this.upHead = new int[firstUp[V]];
+        this.upArc = new int[firstUp[V]];
+        this.upWeight = new double[firstUp[V]];
+        this.downTail = new int[firstDown[V]];
+        this.downArc = new int[firstDown[V]];
+        this.downWeight = new double[firstDown[V]];
+
+        int[] writeUp = Arrays.copyOf(firstUp, V);
+        int[] writeDown = Arrays.copyOf(firstDown, V);
+        for (int a = 0; a < arcs; a++) {
+            int u = arcTail[a], w = arcHead[a];
+            if (u == w) continue;
+            if (rank[u] < rank[w]) {
+                int slot = writeUp[u]++;
+                upHead[slot] = w;
+                upArc[slot] = a;
+                upWeight[slot] = weight[a];
+            } else {
+                int slot = writeDown[w]++;
+                downTail[slot] = u;
+                downArc[slot] = a;
+                downWeight[slot] = weight[a];
+            }
+        }
+
+        this.workspaces = new SearchWorkspace.Pool(V);
+    }
+
+    /**
+     * Adopts the arrays of a hierarchy read back by {@link #read}.
+     */
+    private ContractionHierarchy(RoutingEngine.Metric metric, int V, int E, int[] rank,
+                                 int[] arcTail, int[] arcHead, int[] arcChild1, int[] arcChild2,
+                                 int[] firstUp, int[] upHead, int[] upArc, double[] upWeight,
+                                 int[] firstDown, int[] downTail, int[] downArc, double[] downWeight) {
+        this.metric = metric;
+        this.V = V;
+        this.E = E;
+        this.rank = rank;
+        this.arcTail = arcTail;
+        this.arcHead = arcHead;
+        this.arcChild1 = arcChild1;
+        this.arcChild2 = arcChild2;
+        this.firstUp = firstUp;
+        this.upHead = upHead;
+        this.upArc = upArc;
+        this.upWeight = upWeight;
+        this.firstDown = firstDown;
+        this.downTail = downTail;
+        this.downArc = downArc;
+        this.downWeight = downWeight;
+        this.workspaces = new SearchWorkspace.Pool(V);
+    }
+
+    /**
+     * Returns the metric this hierarchy was built for.
+     *
+     * @return the metric
+     */
+    public RoutingEngine.Metric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return vertex count
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Returns the number of shortcut arcs added during preprocessing.
+     *
+     * @return shortcut count
+     */
+    public int shortcutCount() {
+        return arcTail.length - E;
+    }
+
+    /**
+     * Returns the contraction rank of vertex {@code v}.
+     *
+     * @param v the vertex
+     * @return the rank (0 = least important)
+     */
+    public int rank(int v) {
+        return rank[v];
+    }
+
+    /**
+     * Returns the first upward slot of vertex {@code v} (inclusive).
+     *
+     * @param v the vertex
+     * @return the first slot index
+     */
+    public int firstUp(int v) {
+        return firstUp[v];
+    }
+
+    /**
+     * Returns the slot after the last upward arc of vertex {@code v} (exclusive).
+     *
+     * @param v the vertex
+     * @return the end slot index
+     */
+    public int endUp(int v) {
+        return firstUp[v + 1];
+    }
+
+    /**
+     * Returns the higher-ranked target of an upward slot.
+     *
+     * @param slot the upward slot
+     * @return the target vertex
+     */
+    public int upHead(int slot) {
+        return upHead[slot];
+    }
+
+    /**
+     * Returns the arc ID of an upward slot.
+     *
+     * @param slot the upward slot
+     * @return the arc ID
+     */
+    public int upArc(int slot) {
+        return upArc[slot];
+    }
+
+    /**
+     * Returns the weight of an upward slot.
+     *
+     * @param slot the upward slot
+     * @return the arc weight
+     */
+    public double upWeight(int slot) {
+        return upWeight[slot];
+    }
+
+    /**
+     * Returns the first downward slot of vertex {@code v} (inclusive).
+     *
+     * <p>Downward slots of {@code v} are the arcs that end at {@code v} and
+     * start at a higher-ranked vertex.</p>
+     *
+     * @param v the vertex
+     * @return the first slot index
+     */
+    public int firstDown(int v) {
+        return firstDown[v];
+    }
+
+    /**
+     * Returns the slot after the last downward arc of vertex {@code v} (exclusive).
+     *
+     * @param v the vertex
+     * @return the end slot index
+     */
+    public int endDown(int v) {
+        return firstDown[v + 1];
+    }
+
+    /**
+     * Returns the higher-ranked source of a downward slot.
+     *
+     * @param slot the downward slot
+     * @return the source vertex
+     */
+    public int downTail(int slot) {
+        return downTail[slot];
+    }
+
+    /**
+     * Returns the arc ID of a downward slot.
+     *
+     * @param slot the downward slot
+     * @return the arc ID
+     */
+    public int downArc(int slot) {
+        return downArc[slot];
+    }
+
+    /**
+     * Returns the weight of a downward slot.
+     *
+     * @param slot the downward slot
+     * @return the arc weight
+     */
+    public double downWeight(int slot) {
+        return downWeight[slot];
+    }
+
+    /**
+     * Returns the source vertex of an arc.
+     *
+     * @param arc the arc ID
+     * @return the source vertex
+     */
+    public int arcTail(int arc) {
+        return arcTail[arc];
+    }
+
+    /**
+     * Returns the target vertex of an arc.
+     *
+     * @param arc the arc ID
+     * @return the target vertex
+     */
+    public int arcHead(int arc) {
+        return arcHead[arc];
+    }
+
+    /**
+     * Computes the shortest route from {@code s} to {@code t}.
+     *
+     * <p>Both searches use stall-on-demand and each stops once its queue
+     * minimum reaches the best meeting cost found so far.</p>
+     *
+     * @param s the source vertex
+     * @param t the destination vertex
+     * @return the route, with original edge IDs and {@link RoutingEngine.Algorithm#CH}
+     * @throws IllegalArgumentException if either vertex is invalid
+     */
+    public RoutingEngine.Route route(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+
+        if (s == t) {
+            return new RoutingEngine.Route(true, s, t, metric, RoutingEngine.Algorithm.CH, 0.0, new int[0], 0);
+        }
+        return route(new int[]{s}, new double[1], new int[]{t}, new double[1]);
+    }
+
+    /**
+     * Computes the cheapest route from any of {@code sources} to any of
+     * {@code targets}.
+     *
+     * <p>Each source enters the forward search at its offset and each target
+     * enters the backward search at its offset, so the returned cost includes
+     * both. Used for query points snapped onto the middle of an edge.</p>
+     *
+     * @param sources       the source vertices
+     * @param sourceOffsets the initial cost of each source
+     * @param targets       the target vertices
+     * @param targetOffsets the final cost added at each target
+     * @return the route from the chosen source to the chosen target, with
+     *         original edge IDs and {@link RoutingEngine.Algorithm#CH}
+     * @throws IllegalArgumentException if an endpoint array is null, empty, or its
+     *                                  offsets differ in length, a vertex is
+     *                                  invalid, or an offset is negative or NaN
+     */
+    public RoutingEngine.Route route(int[] sources, double[] sourceOffsets,
+                                     int[] targets, double[] targetOffsets) {
+        validateEndpoints(sources, sourceOffsets, "sources");
+        validateEndpoints(targets, targetOffsets, "targets");
+
+        SearchWorkspace fwd = workspaces.acquire();
+        SearchWorkspace bwd = workspaces.acquire();
+        try {
+            IndexedDaryHeap pf = fwd.heap();
+            IndexedDaryHeap pr = bwd.heap();
+
+            seed(fwd, sources, sourceOffsets);
+            seed(bwd, targets, targetOffsets);
+
+            double mu = Double.POSITIVE_INFINITY;
+            int meet = -1;
+            int settled = 0;
+
+            // Each side stops on its own once its queue minimum reaches mu
+            while (true) {
+                if (!pf.isEmpty() && pf.minKey() >= mu) pf.clear();
+                if (!pr.isEmpty() && pr.minKey() >= mu) pr.clear();
+                if (pf.isEmpty() && pr.isEmpty()) break;
+
+                boolean forward = !pf.isEmpty() && (pr.isEmpty() || pf.minKey() <= pr.minKey());
+                settled++;
+
+                if (forward) {
+                    int v = pf.delMin();
+                    double dv = fwd.dist(v);
+                    if (bwd.reached(v) && dv + bwd.dist(v) < mu) {
+                        mu = dv + bwd.dist(v);
+                        meet = v;
+                    }
+                    if (stalledForward(fwd, v, dv)) continue;
+                    for (int i = firstUp[v], end = firstUp[v + 1]; i < end; i++) {
+                        int w = upHead[i];
+                        double candidate = dv + upWeight[i];
+                        if (candidate < fwd.dist(w)) {
+                            fwd.set(w, candidate, upArc[i]);
+                            if (pf.contains(w)) pf.decreaseKey(w, candidate);
+                            else pf.insert(w, candidate);
+                        }
+                    }
+                } else {
+                    int v = pr.delMin();
+                    double dv = bwd.dist(v);
+                    if (fwd.reached(v) && dv + fwd.dist(v) < mu) {
+                        mu = dv + fwd.dist(v);
+                        meet = v;
+                    }
+                    if (stalledBackward(bwd, v, dv)) continue;
+                    for (int i = firstDown[v], end = firstDown[v + 1]; i < end; i++) {
+                        int u = downTail[i];
+                        double candidate = dv + downWeight[i];
+                        if (candidate < bwd.dist(u)) {
+                            bwd.set(u, candidate, downArc[i]);
+                            if (pr.contains(u)) pr.decreaseKey(u, candidate);
+                            else pr.insert(u, candidate);
+                        }
+                    }
+                }
+            }
+
+            if (meet == -1) {
+                return new RoutingEngine.Route(false, sources[0], targets[0], metric, RoutingEngine.Algorithm.CH,
+                        Double.POSITIVE_INFINITY, new int[0], settled);
+            }
+
+            int s = meet;
+            for (int a; (a = fwd.parentEdge(s)) != -1; ) s = arcTail[a];
+            int t = meet;
+            for (int a; (a = bwd.parentEdge(t)) != -1; ) t = arcHead[a];
+
+            int[] edgeIds = unpackPath(fwd, bwd, meet);
+            return new RoutingEngine.Route(true, s, t, metric, RoutingEngine.Algorithm.CH, mu, edgeIds, settled);
+        } finally {
+            workspaces.release(fwd);
+            workspaces.release(bwd);
+        }
+    }
+
+    /**
+     * Puts each endpoint into a search at its offset, keeping the smaller
+     * offset when a vertex is listed twice.
+     *
+     * @param ws       the search state
+     * @param vertices the endpoint vertices
+     * @param offsets  their offsets
+     */
+    private static void seed(SearchWorkspace ws, int[] vertices, double[] offsets) {
+        IndexedDaryHeap pq = ws.heap();
+        for (int i = 0; i < vertices.length; i++) {
+            int v = vertices[i];
+            if (offsets[i] >= ws.dist(v)) continue;
+            ws.set(v, offsets[i], -1);
+            if (pq.contains(v)) pq.decreaseKey(v, offsets[i]);
+            else pq.insert(v, offsets[i]);
+        }
+    }
+
+    /**
+     * Checks one endpoint set of a multi-endpoint query.
+     *
+     * @param vertices the endpoint vertices
+     * @param offsets  their offsets
+     * @param what     name used in error messages
+     * @throws IllegalArgumentException if the set is malformed
+     */
+    private void validateEndpoints(int[] vertices, double[] offsets, String what) {
+        if (vertices == null || offsets == null) throw new IllegalArgumentException(what + " cannot be null");
+        if (vertices.length == 0) throw new IllegalArgumentException(what + " cannot be empty");
+        if (vertices.length != offsets.length) {
+            throw new IllegalArgumentException(what + " and their offsets must have the same length");
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            validateVertex(vertices[i]);
+            if (!(offsets[i] >= 0.0)) throw new IllegalArgumentException(what + " offsets must be non-negative");
+        }
+    }
+
+    /**
+     * Stall-on-demand for the forward search: {@code v} need not be expanded
+     * if a higher-ranked vertex already reached reaches it more cheaply via
+     * a downward arc, because then {@code dv} is not its true distance.
+     *
+     * @param fwd forward search state
+     * @param v   the settled vertex
+     * @param dv  its tentative distance
+     * @return {@code true} if {@code v} is stalled
+     */
+    private boolean stalledForward(SearchWorkspace fwd, int v, double dv) {
+        for (int i = firstDown[v], end = firstDown[v + 1]; i < end; i++) {
+            if (fwd.dist(downTail[i]) + downWeight[i] < dv) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stall-on-demand for the backward search (mirror of {@link #stalledForward}).
+     *
+     * @param bwd backward search state
+     * @param v   the settled vertex
+     * @param dv  its tentative distance to the target
+     * @return {@code true} if {@code v} is stalled
+     */
+    private boolean stalledBackward(SearchWorkspace bwd, int v, double dv) {
+        for (int i = firstUp[v], end = firstUp[v + 1]; i < end; i++) {
+            if (bwd.dist(upHead[i]) + upWeight[i] < dv) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Expands the upward path {@code s → meet} and the downward path
+     * {@code meet → t} into original edge IDs.
+     *
+     * @param fwd  forward search state (parent arcs toward the source)
+     * @param bwd  backward search state (parent arcs toward the target)
+     * @param meet the vertex where both searches met
+     * @return original edge IDs in travel order
+     */
+    private int[] unpackPath(SearchWorkspace fwd, SearchWorkspace bwd, int meet) {
+        // Collect arcs in travel order: forward part is walked backwards first
+        int n = 0;
+        for (int cur = meet, a; (a = fwd.parentEdge(cur)) != -1; cur = arcTail[a]) n++;
+        int forwardArcs = n;
+        for (int cur = meet, a; (a = bwd.parentEdge(cur)) != -1; cur = arcHead[a]) n++;
+
+        int[] arcs = new int[n];
+        int k = forwardArcs;
+        for (int cur = meet, a; (a = fwd.parentEdge(cur)) != -1; cur = arcTail[a]) arcs[--k] = a;
+        k = forwardArcs;
+        for (int cur = meet, a; (a = bwd.parentEdge(cur)) != -1; cur = arcHead[a]) arcs[k++] = a;
+
+        // Replace each shortcut by its two children, depth first
+        int[] out = new int[Math.max(16, n)];
+        int len = 0;
+        int[] stack = new int[16];
+        for (int arc : arcs) {
+            int top = 0;
+            stack[top++] = arc;
+            while (top > 0) {
+                int a = stack[--top];
+                if (a < E) {
+                    if (len == out.length) out = Arrays.copyOf(out, len * 2);
+                    out[len++] = a;
+                } else {
+                    if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                    stack[top++] = arcChild2[a];
+                    stack[top++] = arcChild1[a];
+                }
+            }
+        }
+        return Arrays.copyOf(out, len);
+    }
+
+    /**
+     * Validates that a vertex index is within the legal range {@code 0..V-1}.
+     *
+     * @param v vertex index
+     * @throws IllegalArgumentException if {@code v} is outside the valid range
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V) throw new IllegalArgumentException("Vertex must be between 0 and " + (V - 1));
+    }
+
+    /**
+     * Returns the hierarchy file conventionally kept next to a snapshot
+     * ({@code map.osm.gsnap} → {@code map.osm.gsnap.distance.ch}).
+     *
+     * @param snapshotFile the graph snapshot
+     * @param metric       the hierarchy's metric
+     * @return the hierarchy path next to it
+     */
+    public static Path defaultPathFor(Path snapshotFile, RoutingEngine.Metric metric) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + "." + metric.name().toLowerCase() + ".ch");
+    }
+
+    /**
+     * Loads the hierarchy for {@code G} from {@code file}, contracting the
+     * graph and saving the result first if the file is missing, unreadable
+     * or was built for a different graph.
+     *
+     * <p>Failing to save the new hierarchy is not fatal; it is returned
+     * either way.</p>
+     *
+     * @param G      the weighted directed graph
+     * @param attrs  edge attributes containing distance/time information
+     * @param metric the metric to optimize
+     * @param file   where the hierarchy lives
+     * @return the hierarchy
+     * @throws IllegalArgumentException if any argument is null or
+     *                                  {@code attrs.edgeCount() < G.E()}
+     */
+    public static ContractionHierarchy loadOrBuild(WeightedDigraph G, EdgeAttributes attrs,
+                                                   RoutingEngine.Metric metric, Path file) {
+        if (file == null) throw new IllegalArgumentException("file cannot be null");
+        try {
+            if (Files.isRegularFile(file)) return read(file, G, attrs, metric);
+        } catch (IOException e) {
+            System.err.println("Ignoring hierarchy " + file + ": " + e.getMessage());
+        }
+
+        ContractionHierarchy ch = new ContractionHierarchy(G, attrs, metric);
+        try {
+            ch.write(file, G, attrs);
+        } catch (IOException e) {
+            System.err.println("Could not write hierarchy " + file + ": " + e.getMessage());
+        }
+        return ch;
+    }
+
+    /**
+     * Writes this hierarchy to {@code file}, replacing it atomically.
+     *
+     * @param file  the destination
+     * @param G     the graph this hierarchy was built on
+     * @param attrs the attributes this hierarchy was built with
+     * @throws IOException              if writing fails
+     * @throws IllegalArgumentException if {@code G} or {@code attrs} is null, or
+     *                                  {@code G} does not have this hierarchy's vertex and edge counts
+     */
+    public void write(Path file, WeightedDigraph G, EdgeAttributes attrs) throws IOException {
+        if (G == null || attrs == null) throw new IllegalArgumentException("graph and attributes cannot be null");
+        if (G.V() != V || G.E() != E) throw new IllegalArgumentException("graph does not match this hierarchy");
+
+        int arcs = arcTail.length;
+        int up = upHead.length;
+        int down = downTail.length;
+        long payload = payloadBytes(V, arcs, up, down);
+        if (HEADER_BYTES + payload > Integer.MAX_VALUE) {
+            throw new IOException("hierarchy too large for a single file buffer");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) (HEADER_BYTES + payload)).order(ByteOrder.LITTLE_ENDIAN);
+        buf.position(HEADER_BYTES);
+        buf.asDoubleBuffer().put(upWeight).put(downWeight);
+        buf.position(buf.position() + 8 * (up + down));
+        buf.asIntBuffer().put(rank).put(arcTail).put(arcHead).put(arcChild1).put(arcChild2)
+                .put(firstUp).put(upHead).put(upArc)
+                .put(firstDown).put(downTail).put(downArc);
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), HEADER_BYTES, (int) payload);
+
+        buf.position(0);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(metric.ordinal())
+                .putInt(V).putInt(E).putInt(arcs).putInt(up).putInt(down)
+                .putLong(graphChecksum(G, attrs, metric)).putLong(payload).putLong(crc.getValue());
+        buf.position(0);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a hierarchy written by {@link #write} for {@code G}.
+     *
+     * @param file   the hierarchy file
+     * @param G      the graph to route on
+     * @param attrs  its edge attributes
+     * @param metric the expected metric
+     * @return the hierarchy
+     * @throws IOException              if the file cannot be read, has the wrong magic,
+     *                                  version or metric, is truncated, fails its checksum,
+     *                                  is inconsistent, or was built for a different graph
+     * @throws IllegalArgumentException if any argument is null or
+     *                                  {@code attrs.edgeCount() < G.E()}
+     */
+    public static ContractionHierarchy read(Path file, WeightedDigraph G, EdgeAttributes attrs,
+                                            RoutingEngine.Metric metric) throws IOException {
+        if (file == null || G == null || attrs == null || metric == null) {
+            throw new IllegalArgumentException("file, graph, attributes and metric cannot be null");
+        }
+        if (attrs.edgeCount() < G.E()) throw new IllegalArgumentException("EdgeAttributes.edgeCount() < G.E()");
+
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) throw new IOException("hierarchy truncated: " + file);
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        ByteBuffer buf = map.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buf.getInt() != MAGIC) throw new IOException("not a contraction hierarchy: " + file);
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported hierarchy version " + version + " (expected " + VERSION + ")");
+        }
+        if (buf.getInt() != metric.ordinal()) throw new IOException("hierarchy is not for metric " + metric + ": " + file);
+
+        int V = buf.getInt();
+        int E = buf.getInt();
+        int arcs = buf.getInt();
+        int up = buf.getInt();
+        int down = buf.getInt();
+        long graphCrc = buf.getLong();
+        long payload = buf.getLong();
+        long expectedCrc = buf.getLong();
+
+        if (V != G.V() || E != G.E() || graphCrc != graphChecksum(G, attrs, metric)) {
+            throw new IOException("hierarchy was built for a different graph: " + file);
+        }
+        if (arcs < E || up < 0 || down < 0
+                || payload != payloadBytes(V, arcs, up, down)
+                || payload != buf.capacity() - (long) HEADER_BYTES) {
+            throw new IOException("hierarchy header does not match file size: " + file);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(HEADER_BYTES, (int) payload));
+        if (crc.getValue() != expectedCrc) throw new IOException("hierarchy checksum mismatch: " + file);
+
+        double[] upWeight = new double[up];
+        double[] downWeight = new double[down];
+        buf.asDoubleBuffer().get(upWeight).get(downWeight);
+        buf.position(buf.position() + 8 * (up + down));
+
+        int[] rank = new int[V];
+        int[] arcTail = new int[arcs];
+        int[] arcHead = new int[arcs];
+        int[] arcChild1 = new int[arcs];
+        int[] arcChild2 = new int[arcs];
+        int[] firstUp = new int[V + 1];
+        int[] upHead = new int[up];
+        int[] upArc = new int[up];
+        int[] firstDown = new int[V + 1];
+        int[] downTail = new int[down];
+        int[] downArc = new int[down];
+        buf.asIntBuffer().get(rank).get(arcTail).get(arcHead).get(arcChild1).get(arcChild2)
+                .get(firstUp).get(upHead).get(upArc)
+                .get(firstDown).get(downTail).get(downArc);
+
+        try {
+            checkStructure(V, E, rank, arcTail, arcHead, arcChild1, arcChild2,
+                    firstUp, upHead, upArc, upWeight, firstDown, downTail, downArc, downWeight);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupt hierarchy " + file + ": " + e.getMessage(), e);
+        }
+        return new ContractionHierarchy(metric, V, E, rank, arcTail, arcHead, arcChild1, arcChild2,
+                firstUp, upHead, upArc, upWeight, firstDown, downTail, downArc, downWeight);
+    }
+
+    /**
+     * Checks that arrays read from a file form a hierarchy queries can run on
+     * without leaving their bounds or looping: every index is in range, row
+     * pointers never decrease, weights are non-negative, original arcs have no
+     * children, and every shortcut {@code u → w} consists of arcs
+     * {@code u → x → w} with {@code x} ranked below both ends. Unpacking then
+     * terminates, since the lower-ranked end of an arc drops with every level.
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    private static void checkStructure(int V, int E, int[] rank,
+                                       int[] arcTail, int[] arcHead, int[] arcChild1, int[] arcChild2,
+                                       int[] firstUp, int[] upHead, int[] upArc, double[] upWeight,
+                                       int[] firstDown, int[] downTail, int[] downArc, double[] downWeight) {
+        for (int v = 0; v < V; v++) {
+            if (rank[v] < 0 || rank[v] >= V) throw new IllegalArgumentException("rank out of range at vertex " + v);
+        }
+        int arcs = arcTail.length;
+        for (int a = 0; a < arcs; a++) {
+            if (arcTail[a] < 0 || arcTail[a] >= V || arcHead[a] < 0 || arcHead[a] >= V) {
+                throw new IllegalArgumentException("arc " + a + " has an invalid end");
+            }
+        }
+        for (int a = 0; a < arcs; a++) {
+            int c1 = arcChild1[a], c2 = arcChild2[a];
+            boolean ok;
+            if (a < E) {
+                ok = c1 == -1 && c2 == -1;
+            } else {
+                ok = c1 >= 0 && c1 < arcs && c2 >= 0 && c2 < arcs
+                        && arcTail[c1] == arcTail[a] && arcHead[c2] == arcHead[a] && arcHead[c1] == arcTail[c2]
+                        && rank[arcHead[c1]] < Math.min(rank[arcTail[a]], rank[arcHead[a]]);
+            }
+            if (!ok) throw new IllegalArgumentException("arc " + a + " has invalid children");
+        }
+        checkRows("up", V, arcs, firstUp, upHead, upArc, upWeight);
+        checkRows("down", V, arcs, firstDown, downTail, downArc, downWeight);
+    }
+
+    /**
+     * Checks one CSR half of a hierarchy read from a file.
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    private static void checkRows(String what, int V, int arcs, int[] first, int[] end, int[] arc, double[] weight) {
+        if (first[0] != 0 || first[V] != end.length) throw new IllegalArgumentException(what + " rows do not cover all slots");
+        for (int v = 0; v < V; v++) {
+            if (first[v + 1] < first[v]) throw new IllegalArgumentException(what + " rows decrease at vertex " + v);
+        }
+        for (int i = 0; i < end.length; i++) {
+            if (end[i] < 0 || end[i] >= V || arc[i] < 0 || arc[i] >= arcs || !(weight[i] >= 0.0)) {
+                throw new IllegalArgumentException(what + " slot " + i + " is invalid");
+            }
+        }
+    }
+
+    /**
+     * Returns the payload size implied by the header counts.
+     *
+     * @param V     vertex count
+     * @param arcs  arc count (original edges plus shortcuts)
+     * @param up    upward slot count
+     * @param down  downward slot count
+     * @return the payload size in bytes
+     */
+    private static long payloadBytes(int V, int arcs, int up, int down) {
+        return 8L * ((long) up + down)
+                + 4L * (V + 4L * arcs + 2L * (V + 1L) + 2L * up + 2L * down);
+    }
+
+    /**
+     * Returns a CRC-32 of each edge's tail, head and cost under {@code metric},
+     * identifying the graph a hierarchy was contracted from.
+     *
+     * @param G      the graph
+     * @param attrs  its edge attributes
+     * @param metric the metric
+     * @return the checksum
+     */
+    private static long graphChecksum(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric) {
+        CsrDigraph csr = G.csr();
+        ByteBuffer edge = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        for (int e = 0; e < G.E(); e++) {
+            double c = (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(e) : attrs.timeSeconds(e);
+            edge.clear();
+            edge.putInt(csr.edgeTail(e)).putInt(csr.edgeHead(e)).putDouble(c);
+            crc.update(edge.array(), 0, 16);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns a string summary for debugging.
+     *
+     * @return summary with vertex, edge and shortcut counts
+     */
+    @Override
+    public String toString() {
+        return String.format("ContractionHierarchy[%s, %d vertices, %d edges, %d shortcuts]",
+                metric, V, E, shortcutCount());
+    }
+
+    /**
+     * Mutable state used while contracting; discarded once the hierarchy is built.
+     */
+    private static final class Builder {
+        private final int V;
+
+        // Growable arc arrays (arcs 0..E-1 are the original edges)
+        private int arcs;
+        private int[] tail;
+        private int[] head;
+        private double[] weight;
+        private int[] child1;
+        private int[] child2;
+
+        // Per-vertex arc lists of the remaining graph (compacted lazily)
+        private final int[][] outArcs;
+        private final int[] outCount;
+        private final int[][] inArcs;
+        private final int[] inCount;
+
+        private final boolean[] contracted;
+        private final int[] rank;
+
+        /** Number of original edges each arc stands for. */
+        private int[] hops;
+
+        /** Total hops of the shortcuts counted by the last {@link #contract} call. */
+        private int addedHops;
+
+        /** Hierarchy depth estimate (priority term). */
+        private final int[] depth;
+
+        // Scratch neighbor lists filled by collectNeighbors
+        private int nIn;
+        private int[] inNbr = new int[8];
+        private int[] inArc = new int[8];
+        private double[] inCost = new double[8];
+        private int nOut;
+        private int[] outNbr = new int[8];
+        private int[] outArc = new int[8];
+        private double[] outCost = new double[8];
+
+        /** Neighbor → index in the scratch lists, valid when {@code markStamp} matches. */
+        private final int[] markIndex;
+        private final int[] markStamp;
+        private int stamp;
+
+        /** Witness search state. */
+        private final SearchWorkspace witness;
+
+        /** Witness search targets, valid when equal to {@code targetStamp}. */
+        private final int[] targetMark;
+        private int targetStamp;
+
+        /** Number of original edges. */
+        private final int E;
+
+        Builder(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric) {
+            this.V = G.V();
+            this.E = G.E();
+            CsrDigraph csr = G.csr();
+
+            int cap = Math.max(16, E * 2);
+            this.tail = new int[cap];
+            this.head = new int[cap];
+            this.weight = new double[cap];
+            this.child1 = new int[cap];
+            this.child2 = new int[cap];
+            this.hops = new int[cap];
+
+            this.outArcs = new int[V][];
+            this.outCount = new int[V];
+            this.inArcs = new int[V][];
+            this.inCount = new int[V];
+            for (int v = 0; v < V; v++) {
+                outArcs[v] = new int[Math.max(2, csr.outdegree(v))];
+                inArcs[v] = new int[Math.max(2, csr.indegree(v))];
+            }
+
+            for (int e = 0; e < E; e++) {
+                double c = (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(e) : attrs.timeSeconds(e);
+                addArc(csr.edgeTail(e), csr.edgeHead(e), c, -1, -1);
+            }
+
+            this.contracted = new boolean[V];
+            this.rank = new int[V];
+            this.depth = new int[V];
+            this.markIndex = new int[V];
+            this.markStamp = new int[V];
+            this.witness = new SearchWorkspace(V);
+            this.targetMark = new int[V];
+        }
+
+        /**
+         * Contracts every vertex, always picking the one with the lowest
+         * priority. Priorities are refreshed lazily on extraction; neighbors
+         * of a contracted vertex only get their depth term bumped, since
+         * re-simulating them gets expensive once the remaining graph is dense.
+         */
+        void contractAll() {
+            IndexedDaryHeap order = new IndexedDaryHeap(V);
+            for (int v = 0; v < V; v++) order.insert(v, priority(v));
+
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = order.delMin();
+
+                // Lazy update: re-queue if v is no longer the cheapest
+                double p = priority(v);
+                if (!order.isEmpty() && p > order.minKey()) {
+                    order.insert(v, p);
+                    continue;
+                }
+
+                collectNeighbors(v);
+                int[] nbrs = neighborsOf(v);
+                contract(v, true);
+                contracted[v] = true;
+                rank[v] = next++;
+
+                for (int w : nbrs) {
+                    if (depth[w] > depth[v]) continue;
+                    int grow = depth[v] + 1 - depth[w];
+                    depth[w] += grow;
+                    if (order.contains(w)) order.changeKey(w, order.keyOf(w) + grow);
+                }
+            }
+        }
+
+        /**
+         * Returns the priority of {@code v}: depth plus the ratios of added to
+         * removed arcs and of added to removed original-edge hops. Lower values
+         * are contracted first. Ratios (rather than differences) keep the
+         * order balanced once the remaining graph gets dense.
+         */
+        private double priority(int v) {
+            collectNeighbors(v);
+            int removed = nIn + nOut;
+            int removedHops = 0;
+            for (int i = 0; i < nIn; i++) removedHops += hops[inArc[i]];
+            for (int j = 0; j < nOut; j++) removedHops += hops[outArc[j]];
+
+            int shortcuts = contract(v, false);
+            return depth[v]
+                    + (double) shortcuts / Math.max(1, removed)
+                    + (double) addedHops / Math.max(1, removedHops);
+        }
+
+        /**
+         * Returns the distinct remaining neighbors gathered by the last
+         * {@link #collectNeighbors} call.
+         */
+        private int[] neighborsOf(int v) {
+            int[] out = new int[nIn + nOut];
+            int n = 0;
+            stamp++;
+            for (int i = 0; i < nIn; i++) {
+                if (markStamp[inNbr[i]] != stamp) { markStamp[inNbr[i]] = stamp; out[n++] = inNbr[i]; }
+            }
+            for (int i = 0; i < nOut; i++) {
+                if (markStamp[outNbr[i]] != stamp) { markStamp[outNbr[i]] = stamp; out[n++] = outNbr[i]; }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        /**
+         * Fills the scratch lists with the remaining in- and out-neighbors of
+         * {@code v}, keeping only the cheapest arc per neighbor. Arcs to
+         * contracted vertices are dropped from {@code v}'s lists on the way.
+         */
+        private void collectNeighbors(int v) {
+            nIn = 0;
+            stamp++;
+            int[] list = inArcs[v];
+            int kept = 0;
+            for (int i = 0; i < inCount[v]; i++) {
+                int a = list[i];
+                int u = tail[a];
+                if (contracted[u]) continue;
+                list[kept++] = a;
+                if (u == v) continue;
+
+                if (markStamp[u] == stamp) {
+                    int j = markIndex[u];
+                    if (weight[a] < inCost[j]) { inCost[j] = weight[a]; inArc[j] = a; }
+                } else {
+                    markStamp[u] = stamp;
+                    if (nIn == inNbr.length) growIn();
+                    markIndex[u] = nIn;
+                    inNbr[nIn] = u; inArc[nIn] = a; inCost[nIn] = weight[a];
+                    nIn++;
+                }
+            }
+            inCount[v] = kept;
+
+            nOut = 0;
+            stamp++;
+            list = outArcs[v];
+            kept = 0;
+            for (int i = 0; i < outCount[v]; i++) {
+                int a = list[i];
+                int w = head[a];
+                if (contracted[w]) continue;
+                list[kept++] = a;
+                if (w == v) continue;
+
+                if (markStamp[w] == stamp) {
+                    int j = markIndex[w];
+                    if (weight[a] < outCost[j]) { outCost[j] = weight[a]; outArc[j] = a; }
+                } else {
+                    markStamp[w] = stamp;
+                    if (nOut == outNbr.length) growOut();
+                    markIndex[w] = nOut;
+                    outNbr[nOut] = w; outArc[nOut] = a; outCost[nOut] = weight[a];
+                    nOut++;
+                }
+            }
+            outCount[v] = kept;
+        }
+
+        /**
+         * Finds the shortcuts needed to contract {@code v}, using the
+         * neighbor lists from the last {@link #collectNeighbors} call.
+         *
+         * @param v     the vertex
+         * @param apply {@code true} to add the shortcuts, {@code false} to only count them
+         * @return the number of shortcuts
+         */
+        private int contract(int v, boolean apply) {
+            addedHops = 0;
+            if (nIn == 0 || nOut == 0) return 0;
+
+            int settleLimit = apply ? WITNESS_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT;
+
+            // Shortcuts for one in-neighbor are added only after its witness search
+            int count = 0;
+            int[] pendingTo = new int[nOut];
+            for (int i = 0; i < nIn; i++) {
+                int u = inNbr[i];
+                double cu = inCost[i];
+
+                double maxVia = 0.0;
+                for (int j = 0; j < nOut; j++) {
+                    if (outNbr[j] != u) maxVia = Math.max(maxVia, cu + outCost[j]);
+                }
+
+                witnessSearch(u, v, maxVia, settleLimit);
+
+                int pending = 0;
+                for (int j = 0; j < nOut; j++) {
+                    int w = outNbr[j];
+                    if (w == u) continue;
+                    if (witness.dist(w) > cu + outCost[j]) {
+                        pendingTo[pending++] = j;
+                        addedHops += hops[inArc[i]] + hops[outArc[j]];
+                    }
+                }
+
+                count += pending;
+                if (apply) {
+                    for (int k = 0; k < pending; k++) {
+                        int j = pendingTo[k];
+                        addShortcut(u, outNbr[j], cu + outCost[j], inArc[i], outArc[j]);
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Runs a bounded Dijkstra from {@code u} in the remaining graph without {@code v}.
+         *
+         * <p>Stops once the queue minimum exceeds {@code limit}, once every
+         * out-neighbor of {@code v} is settled, or after {@code settleLimit}
+         * vertices. Arcs to contracted vertices are dropped from the lists it
+         * walks.</p>
+         *
+         * @param u           the source
+         * @param v           the vertex being contracted (never entered)
+         * @param limit       the largest path cost worth looking for
+         * @param settleLimit the maximum number of vertices to settle
+         */
+        private void witnessSearch(int u, int v, double limit, int settleLimit) {
+            // Mark v's out-neighbors so the search can stop once all are settled
+            targetStamp++;
+            int targets = 0;
+            for (int j = 0; j < nOut; j++) {
+                int w = outNbr[j];
+                if (w != u && targetMark[w] != targetStamp) {
+                    targetMark[w] = targetStamp;
+                    targets++;
+                }
+            }
+
+            witness.reset();
+            IndexedDaryHeap pq = witness.heap();
+            witness.set(u, 0.0, -1);
+            pq.insert(u, 0.0);
+
+            int settled = 0;
+            while (!pq.isEmpty() && pq.minKey() <= limit && settled < settleLimit && targets > 0) {
+                int x = pq.delMin();
+                settled++;
+                if (targetMark[x] == targetStamp) targets--;
+                double dx = witness.dist(x);
+
+                int[] list = outArcs[x];
+                int kept = 0;
+                for (int i = 0, n = outCount[x]; i < n; i++) {
+                    int a = list[i];
+                    int y = head[a];
+                    if (contracted[y]) continue;
+                    list[kept++] = a;
+                    if (y == v) continue;
+
+                    double candidate = dx + weight[a];
+                    if (candidate < witness.dist(y)) {
+                        witness.set(y, candidate, -1);
+                        if (pq.contains(y)) pq.decreaseKey(y, candidate);
+                        else pq.insert(y, candidate);
+                    }
+                }
+                outCount[x] = kept;
+            }
+        }
+
+        /**
+         * Adds a shortcut {@code u → w}, or overwrites an existing costlier
+         * shortcut between the same vertices so arc lists don't fill up with
+         * parallel arcs.
+         */
+        private void addShortcut(int u, int w, double c, int c1, int c2) {
+            int[] list = outArcs[u];
+            for (int i = 0, n = outCount[u]; i < n; i++) {
+                int a = list[i];
+                if (a >= E && head[a] == w) {
+                    if (c < weight[a]) {
+                        weight[a] = c;
+                        child1[a] = c1;
+                        child2[a] = c2;
+                        hops[a] = hops[c1] + hops[c2];
+                    }
+                    return;
+                }
+            }
+            addArc(u, w, c, c1, c2);
+        }
+
+        /**
+         * Appends an arc and registers it in both endpoint lists.
+         */
+        private void addArc(int u, int w, double c, int c1, int c2) {
+            if (arcs == tail.length) {
+                int cap = tail.length * 2;
+                tail = Arrays.copyOf(tail, cap);
+                head = Arrays.copyOf(head, cap);
+                weight = Arrays.copyOf(weight, cap);
+                child1 = Arrays.copyOf(child1, cap);
+                child2 = Arrays.copyOf(child2, cap);
+                hops = Arrays.copyOf(hops, cap);
+            }
+            int a = arcs++;
+            tail[a] = u;
+            head[a] = w;
+            weight[a] = c;
+            child1[a] = c1;
+            child2[a] = c2;
+            hops[a] = (c1 < 0) ? 1 : hops[c1] + hops[c2];
+
+            if (outCount[u] == outArcs[u].length) outArcs[u] = Arrays.copyOf(outArcs[u], outCount[u] * 2);
+            outArcs[u][outCount[u]++] = a;
+            if (inCount[w] == inArcs[w].length) inArcs[w] = Arrays.copyOf(inArcs[w], inCount[w] * 2);
+            inArcs[w][inCount[w]++] = a;
+        }
+
+        private void growIn() {
+            int cap = inNbr.length * 2;
+            inNbr = Arrays.copyOf(inNbr, cap);
+            inArc = Arrays.copyOf(inArc, cap);
+            inCost = Arrays.copyOf(inCost, cap);
+        }
+
+        private void growOut() {
+            int cap = outNbr.length * 2;
+            outNbr = Arrays.copyOf(outNbr, cap);
+            outArc = Arrays.copyOf(outArc, cap);
+            outCost = Arrays.copyOf(outCost, cap);
+        }
+    }
+}
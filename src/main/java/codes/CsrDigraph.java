@@ -0,0 +1,299 @@
+package codes;
+
+/**
+ * An immutable directed graph stored in Compressed Sparse Row (CSR) format.
+ *
+ * <p>Built over the edge columns of a {@link WeightedDigraph}, this is the
+ * graph's adjacency: the outgoing edges of every vertex sit in contiguous
+ * primitive arrays, and no {@link Edge} objects exist. Shortest path searches
+ * iterate neighbors with plain index loops, which avoids iterator allocation
+ * and pointer chasing in the relaxation loop.</p>
+ *
+ * <p>Storage layout:
+ * <pre>
+ *     firstOut: [0, 2, 3, 5, ...]      (length V + 1)
+ *                │  │  │
+ *                │  │  └─ vertex 2's out-edges are slots 3..4
+ *                │  └──── vertex 1's out-edge is slot 2
+ *                └─────── vertex 0's out-edges are slots 0..1
+ *
+ *     head:     [w, w, w, w, w, ...]   (length E, target vertex per slot)
+ *     edgeId:   [e, e, e, e, e, ...]   (length E, original edge ID per slot)
+ * </pre>
+ * </p>
+ *
+ * <p>Within a vertex, slots are in insertion (edge ID) order. This is the
+ * reverse of the last-in-first-out order the old {@code Bag<Edge>} adjacency
+ * iterated in, so searches that break cost ties by visiting order may pick
+ * a different one of several equally short paths.</p>
+ *
+ * <p>The same layout is also kept for incoming edges ({@code firstIn},
+ * {@code tail}, {@code inEdgeId}), so backward searches can walk the reverse
+ * graph without building a second {@link WeightedDigraph}.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     CsrDigraph csr = graph.csr();
+ *     for (int i = csr.firstOut(v); i &lt; csr.endOut(v); i++) {
+ *         int w = csr.head(i);
+ *         int eid = csr.edgeId(i);
+ *     }
+ * </pre>
+ * </p>
+ *
+ * @see WeightedDigraph#csr()
+ */
+public final class CsrDigraph {
+
+    /** Number of vertices. */
+    private final int V;
+
+    /** Number of edges. */
+    private final int E;
+
+    /**
+     * CSR row pointers: out-edges of {@code v} occupy slots
+     * {@code firstOut[v]} to {@code firstOut[v+1] - 1}. Length is {@code V + 1}.
+     */
+    private final int[] firstOut;
+
+    /** Target vertex of each slot. */
+    private final int[] head;
+
+    /** Original edge ID of each slot. */
+    private final int[] edgeId;
+
+    /**
+     * Reverse row pointers: in-edges of {@code v} occupy in-slots
+     * {@code firstIn[v]} to {@code firstIn[v+1] - 1}. Length is {@code V + 1}.
+     */
+    private final int[] firstIn;
+
+    /** Source vertex of each in-slot. */
+    private final int[] tail;
+
+    /** Original edge ID of each in-slot. */
+    private final int[] inEdgeId;
+
+    /** Source vertex of each edge, indexed by edge ID; the graph's own column, shared. */
+    private final int[] edgeTail;
+
+    /** Target vertex of each edge, indexed by edge ID; the graph's own column, shared. */
+    private final int[] edgeHead;
+
+    /**
+     * Builds a CSR snapshot of the given graph.
+     *
+     * <p>Time complexity: O(V + E).</p>
+     *
+     * @param G the source graph
+     * @throws IllegalArgumentException if {@code G} is null
+     */
+    public CsrDigraph(WeightedDigraph G) {
+        if (G == null) throw new IllegalArgumentException("graph cannot be null");
+
+        this.V = G.V();
+        this.E = G.E();
+        this.firstOut = new int[V + 1];
+        this.head = new int[E];
+        this.edgeId = new int[E];
+        this.firstIn = new int[V + 1];
+        this.tail = new int[E];
+        this.inEdgeId = new int[E];
+        this.edgeTail = G.tailColumn();
+        this.edgeHead = G.headColumn();
+
+        // Count out- and in-degrees
+        for (int id = 0; id < E; id++) {
+            firstOut[edgeTail[id] + 1]++;
+            firstIn[edgeHead[id] + 1]++;
+        }
+
+        // Prefix sum → row pointers
+        for (int v = 0; v < V; v++) {
+            firstOut[v + 1] += firstOut[v];
+            firstIn[v + 1] += firstIn[v];
+        }
+
+        // Fill slots in edge ID order (stable counting sort by tail)
+        int[] write = new int[V];
+        System.arraycopy(firstOut, 0, write, 0, V);
+        for (int id = 0; id < E; id++) {
+            int slot = write[edgeTail[id]]++;
+            head[slot] = edgeHead[id];
+            edgeId[slot] = id;
+        }
+
+        // Same for in-edges, grouped by head
+        System.arraycopy(firstIn, 0, write, 0, V);
+        for (int id = 0; id < E; id++) {
+            int slot = write[edgeHead[id]]++;
+            tail[slot] = edgeTail[id];
+            inEdgeId[slot] = id;
+        }
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return vertex count
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return edge count
+     */
+    public int E() {
+        return E;
+    }
+
+    /**
+     * Returns the first out-edge slot of vertex {@code v} (inclusive).
+     *
+     * @param v the vertex
+     * @return the first slot index
+     * @throws ArrayIndexOutOfBoundsException if {@code v} is invalid
+     */
+    public int firstOut(int v) {
+        return firstOut[v];
+    }
+
+    /**
+     * Returns the slot index after the last out-edge of vertex {@code v} (exclusive).
+     *
+     * @param v the vertex
+     * @return the end slot index
+     * @throws ArrayIndexOutOfBoundsException if {@code v} is invalid
+     */
+    public int endOut(int v) {
+        return firstOut[v + 1];
+    }
+
+    /**
+     * Returns the number of outgoing edges of vertex {@code v}.
+     *
+     * @param v the vertex
+     * @return the out-degree
+     * @throws ArrayIndexOutOfBoundsException if {@code v} is invalid
+     */
+    public int outdegree(int v) {
+        return firstOut[v + 1] - firstOut[v];
+    }
+
+    /**
+     * Returns the target vertex stored in an out-edge slot.
+     *
+     * @param slot the slot index
+     * @return the target vertex
+     */
+    public int head(int slot) {
+        return head[slot];
+    }
+
+    /**
+     * Returns the original edge ID stored in an out-edge slot.
+     *
+     * @param slot the slot index
+     * @return the edge ID
+     */
+    public int edgeId(int slot) {
+        return edgeId[slot];
+    }
+
+    /**
+     * Returns the first in-edge slot of vertex {@code v} (inclusive).
+     *
+     * @param v the vertex
+     * @return the first in-slot index
+     * @throws ArrayIndexOutOfBoundsException if {@code v} is invalid
+     */
+    public int firstIn(int v) {
+        return firstIn[v];
+    }
+
+    /**
+     * Returns the in-slot index after the last in-edge of vertex {@code v} (exclusive).
+     *
+     * @param v the vertex
+     * @return the end in-slot index
+     * @throws ArrayIndexOutOfBoundsException if {@code v} is invalid
+     */
+    public int endIn(int v) {
+        return firstIn[v + 1];
+    }
+
+    /**
+     * Returns the number of incoming edges of vertex {@code v}.
+     *
+     * @param v the vertex
+     * @return the in-degree
+     * @throws ArrayIndexOutOfBoundsException if {@code v} is invalid
+     */
+    public int indegree(int v) {
+        return firstIn[v + 1] - firstIn[v];
+    }
+
+    /**
+     * Returns the source vertex stored in an in-edge slot.
+     *
+     * @param slot the in-slot index
+     * @return the source vertex
+     */
+    public int tail(int slot) {
+        return tail[slot];
+    }
+
+    /**
+     * Returns the original edge ID stored in an in-edge slot.
+     *
+     * @param slot the in-slot index
+     * @return the edge ID
+     */
+    public int inEdgeId(int slot) {
+        return inEdgeId[slot];
+    }
+
+    /**
+     * Returns the source vertex of an edge.
+     *
+     * @param edgeId the edge ID
+     * @return the source vertex
+     */
+    public int edgeTail(int edgeId) {
+        return edgeTail[edgeId];
+    }
+
+    /**
+     * Returns the target vertex of an edge.
+     *
+     * @param edgeId the edge ID
+     * @return the target vertex
+     */
+    public int edgeHead(int edgeId) {
+        return edgeHead[edgeId];
+    }
+
+    /**
+     * Validates that a vertex index is within the legal range {@code 0..V-1}.
+     *
+     * @param v vertex index
+     * @throws IllegalArgumentException if {@code v} is outside the valid range
+     */
+    void validateVertex(int v) {
+        if (v < 0 || v >= V) throw new IllegalArgumentException("Vertex must be between 0 and " + (V - 1));
+    }
+
+    /**
+     * Returns a string summary for debugging.
+     *
+     * @return summary with vertex and edge counts
+     */
+    @Override
+    public String toString() {
+        return String.format("CsrDigraph[%d vertices, %d edges]", V, E);
+    }
+}
@@ -0,0 +1,584 @@
+package codes;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A dense many-to-many matrix of route costs between snapped locations.
+ *
+ * <p>Cell {@code (i, j)} holds the cheapest cost (meters or seconds) from
+ * source {@code i} to target {@code j}, including the partial edges to and
+ * from the snap points, exactly as a single {@code /route} query would
+ * compute it. Unreachable pairs, and rows or columns whose location is
+ * {@code null}, are {@link Float#POSITIVE_INFINITY}.</p>
+ *
+ * <p>{@link #compute} picks one of two strategies:
+ * <ul>
+ *   <li>With a {@link ContractionHierarchy} for the metric: bucket-based
+ *       many-to-many. One backward upward search per target leaves
+ *       {@code (target, cost)} entries in a bucket at every vertex it
+ *       settles; one forward upward search per source then scans the
+ *       buckets of the vertices it settles. Each search only explores the
+ *       small upward search space, so an N×M matrix costs about N+M CH
+ *       queries instead of N·M.</li>
+ *   <li>Without one: one Dijkstra per source over the full graph, stopping
+ *       once every target endpoint is settled.</li>
+ * </ul>
+ * In both cases the per-source (and per-target) searches run in parallel on
+ * a {@link ForkJoinPool}, each with its own {@link SearchWorkspace} and each
+ * writing its own matrix row.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     DistanceMatrix.Location[] pts = ...;   // DistanceMatrix.Location.of(snap, graph)
+ *     DistanceMatrix m = engine.matrix(pts, pts, RoutingEngine.Metric.TIME, ForkJoinPool.commonPool());
+ *     float secondsFrom0To1 = m.get(0, 1);
+ * </pre>
+ * </p>
+ */
+public final class DistanceMatrix {
+
+    /**
+     * A point snapped onto an edge, usable as a matrix source or target.
+     *
+     * @param edgeId     the snapped edge
+     * @param t          position along the edge ({@code 0} at {@code fromVertex}, {@code 1} at {@code toVertex})
+     * @param fromVertex the edge's tail
+     * @param toVertex   the edge's head
+     * @param reversible whether the edge can also be travelled from {@code toVertex} to {@code fromVertex}
+     */
+    public record Location(int edgeId, double t, int fromVertex, int toVertex, boolean reversible) {
+
+        /**
+         * Creates a location from a snap result.
+         *
+         * @param snap  the snap result
+         * @param graph the routed graph (to find a reverse edge)
+         * @return the location
+         */
+        public static Location of(SegmentSnapper.SegmentSnapResult snap, WeightedDigraph graph) {
+            return new Location(snap.edgeId, snap.t, snap.fromVertex, snap.toVertex, RouteCLI.hasReverse(graph, snap));
+        }
+    }
+
+    /** Number of sources (rows). */
+    private final int rows;
+
+    /** Number of targets (columns). */
+    private final int cols;
+
+    /** Row-major costs. */
+    private final float[] values;
+
+    /** Metric the costs are in. */
+    private final RoutingEngine.Metric metric;
+
+    /** Whether the contraction hierarchy was used. */
+    private final boolean hierarchical;
+
+    private DistanceMatrix(int rows, int cols, float[] values, RoutingEngine.Metric metric, boolean hierarchical) {
+        this.rows = rows;
+        this.cols = cols;
+        this.values = values;
+        this.metric = metric;
+        this.hierarchical = hierarchical;
+    }
+
+    /**
+     * Computes the matrix between {@code sources} and {@code targets}.
+     *
+     * @param G          the routed graph
+     * @param attrs      edge attributes with distances and times
+     * @param metric     the cost metric
+     * @param ch         a hierarchy built for {@code metric}, or {@code null} to run Dijkstra
+     * @param workspaces search state pool for graphs of {@code G.V()} vertices
+     * @param sources    the row locations (entries may be null)
+     * @param targets    the column locations (entries may be null)
+     * @param pool       the pool running the searches
+     * @return the matrix
+     * @throws IllegalArgumentException if an argument is null, or {@code ch} was built for another metric
+     */
+    public static DistanceMatrix compute(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric,
+                                         ContractionHierarchy ch, SearchWorkspace.Pool workspaces,
+                                         Location[] sources, Location[] targets, ForkJoinPool pool) {
+        if (G == null || attrs == null || metric == null || workspaces == null || pool == null) {
+            throw new IllegalArgumentException("arguments cannot be null");
+        }
+        if (sources == null || targets == null) throw new IllegalArgumentException("locations cannot be null");
+        if (ch != null && ch.metric() != metric) {
+            throw new IllegalArgumentException("hierarchy is for " + ch.metric() + ", not " + metric);
+        }
+
+        int n = sources.length, m = targets.length;
+        float[] values = new float[n * m];
+        Arrays.fill(values, Float.POSITIVE_INFINITY);
+
+        Costs costs = new Costs(attrs, metric);
+        if (n > 0 && m > 0) {
+            if (ch != null) {
+                bucketManyToMany(ch, costs, workspaces, sources, targets, values, pool);
+            } else {
+                dijkstraManyToMany(G, costs, workspaces, sources, targets, values, pool);
+            }
+            sameEdge(costs, sources, targets, values);
+        }
+        return new DistanceMatrix(n, m, values, metric, ch != null);
+    }
+
+    /**
+     * Returns the number of sources.
+     *
+     * @return the row count
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of targets.
+     *
+     * @return the column count
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the cost from source {@code i} to target {@code j}.
+     *
+     * @param i the source index
+     * @param j the target index
+     * @return the cost; {@link Float#POSITIVE_INFINITY} if unreachable
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public float get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("(" + i + ", " + j + ") outside " + rows + "x" + cols);
+        }
+        return values[i * cols + j];
+    }
+
+    /**
+     * Returns the costs in row-major order. The array is not copied; do not modify it.
+     *
+     * @return the costs
+     */
+    public float[] values() {
+        return values;
+    }
+
+    /**
+     * Returns the metric the costs are in.
+     *
+     * @return the metric
+     */
+    public RoutingEngine.Metric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns whether the matrix was computed on a contraction hierarchy.
+     *
+     * @return {@code true} for bucket many-to-many, {@code false} for Dijkstra
+     */
+    public boolean hierarchical() {
+        return hierarchical;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DistanceMatrix(%dx%d, %s, %s)", rows, cols, metric, hierarchical ? "CH" : "Dijkstra");
+    }
+
+    /* ============================================================
+     * Endpoints
+     * ============================================================ */
+
+    /**
+     * Edge costs for one metric.
+     *
+     * @param attrs  edge attributes
+     * @param metric the metric
+     */
+    private record Costs(EdgeAttributes attrs, RoutingEngine.Metric metric) {
+
+        /**
+         * Returns the cost of traversing a whole edge.
+         *
+         * @param edgeId the edge
+         * @return meters or seconds
+         */
+        double of(int edgeId) {
+            return (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(edgeId) : attrs.timeSeconds(edgeId);
+        }
+    }
+
+    /**
+     * Seeds a search with the vertices a location can leave through: forward
+     * to {@code toVertex}, and back to {@code fromVertex} if the edge is
+     * reversible (same rule as {@link RouteCLI}).
+     *
+     * @param ws    the search state
+     * @param loc   the location
+     * @param costs edge costs
+     */
+    private static void seedDeparture(SearchWorkspace ws, Location loc, Costs costs) {
+        double len = costs.of(loc.edgeId());
+        seed(ws, loc.toVertex(), (1 - loc.t()) * len);
+        if (loc.reversible()) seed(ws, loc.fromVertex(), loc.t() * len);
+    }
+
+    /**
+     * Seeds a backward search with the vertices a location can be reached
+     * from: {@code fromVertex} continuing forward, and {@code toVertex} if
+     * the edge is reversible.
+     *
+     * @param ws    the search state
+     * @param loc   the location
+     * @param costs edge costs
+     */
+    private static void seedArrival(SearchWorkspace ws, Location loc, Costs costs) {
+        double len = costs.of(loc.edgeId());
+        seed(ws, loc.fromVertex(), loc.t() * len);
+        if (loc.reversible()) seed(ws, loc.toVertex(), (1 - loc.t()) * len);
+    }
+
+    /**
+     * Enters one vertex into a search, keeping the smaller cost if it is already queued.
+     *
+     * @param ws the search state
+     * @param v  the vertex
+     * @param d  its cost
+     */
+    private static void seed(SearchWorkspace ws, int v, double d) {
+        if (d >= ws.dist(v)) return;
+        ws.set(v, d, -1);
+        IndexedDaryHeap pq = ws.heap();
+        if (pq.contains(v)) pq.decreaseKey(v, d);
+        else pq.insert(v, d);
+    }
+
+    /**
+     * Lowers cells whose source and target share an edge and can be joined
+     * along it directly, without passing through either endpoint.
+     *
+     * @param costs   edge costs
+     * @param sources the row locations
+     * @param targets the column locations
+     * @param values  the matrix
+     */
+    private static void sameEdge(Costs costs, Location[] sources, Location[] targets, float[] values) {
+        int m = targets.length;
+        for (int i = 0; i < sources.length; i++) {
+            Location s = sources[i];
+            if (s == null) continue;
+            for (int j = 0; j < m; j++) {
+                Location t = targets[j];
+                if (t == null || t.edgeId() != s.edgeId()) continue;
+                double dt = t.t() - s.t();
+                if (dt < 0 && !s.reversible()) continue;
+                float direct = (float) (Math.abs(dt) * costs.of(s.edgeId()));
+                if (direct < values[i * m + j]) values[i * m + j] = direct;
+            }
+        }
+    }
+
+    /* ============================================================
+     * Dijkstra (no hierarchy)
+     * ============================================================ */
+
+    /**
+     * Fills the matrix with one target-pruned Dijkstra per source.
+     *
+     * @param G          the routed graph
+     * @param costs      edge costs
+     * @param workspaces search state pool
+     * @param sources    the row locations
+     * @param targets    the column locations
+     * @param values     the matrix to fill
+     * @param pool       the pool running the searches
+     */
+    private static void dijkstraManyToMany(WeightedDigraph G, Costs costs, SearchWorkspace.Pool workspaces,
+                                           Location[] sources, Location[] targets, float[] values,
+                                           ForkJoinPool pool) {
+        // Group target endpoints by vertex: arrival vertex -> (column, cost to the snap point)
+        int m = targets.length;
+        int[] vertex = new int[2 * m];
+        int[] column = new int[2 * m];
+        double[] offset = new double[2 * m];
+        int k = 0;
+        for (int j = 0; j < m; j++) {
+            Location t = targets[j];
+            if (t == null) continue;
+            double len = costs.of(t.edgeId());
+            vertex[k] = t.fromVertex(); column[k] = j; offset[k++] = t.t() * len;
+            if (t.reversible()) { vertex[k] = t.toVertex(); column[k] = j; offset[k++] = (1 - t.t()) * len; }
+        }
+        if (k == 0) return;
+        Endpoints ends = Endpoints.group(vertex, column, offset, k);
+        CsrDigraph csr = G.csr();
+
+        run(pool, sources.length, i -> {
+            Location s = sources[i];
+            if (s == null) return;
+            SearchWorkspace ws = workspaces.acquire();
+            try {
+                IndexedDaryHeap pq = ws.heap();
+                seedDeparture(ws, s, costs);
+                int remaining = ends.vertices.length;
+                int row = i * m;
+
+                while (!pq.isEmpty()) {
+                    int v = pq.delMin();
+                    double dv = ws.dist(v);
+
+                    int e = Arrays.binarySearch(ends.vertices, v);
+                    if (e >= 0) {
+                        for (int x = ends.first[e]; x < ends.first[e + 1]; x++) {
+                            float c = (float) (dv + ends.offsets[x]);
+                            if (c < values[row + ends.columns[x]]) values[row + ends.columns[x]] = c;
+                        }
+                        if (--remaining == 0) break;
+                    }
+
+                    for (int a = csr.firstOut(v), end = csr.endOut(v); a < end; a++) {
+                        int w = csr.head(a);
+                        double candidate = dv + costs.of(csr.edgeId(a));
+                        if (candidate < ws.dist(w)) {
+                            ws.set(w, candidate, csr.edgeId(a));
+                            if (pq.contains(w)) pq.decreaseKey(w, candidate);
+                            else pq.insert(w, candidate);
+                        }
+                    }
+                }
+            } finally {
+                workspaces.release(ws);
+            }
+        });
+    }
+
+    /**
+     * Target endpoints grouped by vertex in CSR form.
+     *
+     * @param vertices distinct vertices, sorted
+     * @param first    start of each vertex's entries (length {@code vertices.length + 1})
+     * @param columns  matrix column per entry
+     * @param offsets  cost from the vertex to the target's snap point per entry
+     */
+    private record Endpoints(int[] vertices, int[] first, int[] columns, double[] offsets) {
+
+        /**
+         * Groups endpoint entries by vertex.
+         *
+         * @param vertex arrival vertex per entry
+         * @param column matrix column per entry
+         * @param offset cost to the snap point per entry
+         * @param k      number of entries used
+         * @return the grouped endpoints
+         */
+        static Endpoints group(int[] vertex, int[] column, double[] offset, int k) {
+            Integer[] order = new Integer[k];
+            for (int x = 0; x < k; x++) order[x] = x;
+            Arrays.sort(order, (a, b) -> Integer.compare(vertex[a], vertex[b]));
+
+            int[] vertices = new int[k];
+            int[] first = new int[k + 1];
+            int[] columns = new int[k];
+            double[] offsets = new double[k];
+            int distinct = 0;
+            for (int x = 0; x < k; x++) {
+                int o = order[x];
+                if (distinct == 0 || vertices[distinct - 1] != vertex[o]) {
+                    vertices[distinct] = vertex[o];
+                    first[distinct++] = x;
+                }
+                columns[x] = column[o];
+                offsets[x] = offset[o];
+            }
+            first[distinct] = k;
+            return new Endpoints(Arrays.copyOf(vertices, distinct), Arrays.copyOf(first, distinct + 1), columns, offsets);
+        }
+    }
+
+    /* ============================================================
+     * Bucket many-to-many (hierarchy)
+     * ============================================================ */
+
+    /**
+     * Fills the matrix with backward searches into buckets, then forward
+     * searches scanning them.
+     *
+     * @param ch         the hierarchy for the metric
+     * @param costs      edge costs (for the partial snapped edges)
+     * @param workspaces search state pool
+     * @param sources    the row locations
+     * @param targets    the column locations
+     * @param values     the matrix to fill
+     * @param pool       the pool running the searches
+     */
+    private static void bucketManyToMany(ContractionHierarchy ch, Costs costs, SearchWorkspace.Pool workspaces,
+                                         Location[] sources, Location[] targets, float[] values,
+                                         ForkJoinPool pool) {
+        int m = targets.length;
+
+        // Phase 1: each target's backward upward search space
+        Space[] spaces = new Space[m];
+        run(pool, m, j -> {
+            Location t = targets[j];
+            if (t == null) return;
+            SearchWorkspace ws = workspaces.acquire();
+            try {
+                seedArrival(ws, t, costs);
+                spaces[j] = upwardSearch(ch, ws, false);
+            } finally {
+                workspaces.release(ws);
+            }
+        });
+
+        // Buckets in CSR form by vertex: (column, cost to the column's snap point)
+        int[] first = new int[ch.V() + 1];
+        for (Space sp : spaces) {
+            if (sp != null) for (int v : sp.vertices) first[v + 1]++;
+        }
+        for (int v = 0; v < ch.V(); v++) first[v + 1] += first[v];
+        int[] bucketColumn = new int[first[ch.V()]];
+        double[] bucketCost = new double[first[ch.V()]];
+        int[] fill = Arrays.copyOf(first, ch.V());
+        for (int j = 0; j < m; j++) {
+            Space sp = spaces[j];
+            if (sp == null) continue;
+            for (int x = 0; x < sp.vertices.length; x++) {
+                int slot = fill[sp.vertices[x]]++;
+                bucketColumn[slot] = j;
+                bucketCost[slot] = sp.costs[x];
+            }
+        }
+
+        // Phase 2: each source's forward upward search scans the buckets it meets
+        run(pool, sources.length, i -> {
+            Location s = sources[i];
+            if (s == null) return;
+            SearchWorkspace ws = workspaces.acquire();
+            try {
+                seedDeparture(ws, s, costs);
+                Space sp = upwardSearch(ch, ws, true);
+
+                int row = i * m;
+                for (int x = 0; x < sp.vertices.length; x++) {
+                    int v = sp.vertices[x];
+                    for (int b = first[v], end = first[v + 1]; b < end; b++) {
+                        float c = (float) (sp.costs[x] + bucketCost[b]);
+                        if (c < values[row + bucketColumn[b]]) values[row + bucketColumn[b]] = c;
+                    }
+                }
+            } finally {
+                workspaces.release(ws);
+            }
+        });
+    }
+
+    /**
+     * The vertices one upward search settled, with their costs.
+     *
+     * @param vertices settled, unstalled vertices
+     * @param costs    their costs from (forward) or to (backward) the location
+     */
+    private record Space(int[] vertices, double[] costs) {
+    }
+
+    /**
+     * Runs a seeded search to exhaustion over upward arcs (forward) or
+     * downward arcs against their direction (backward), with stall-on-demand,
+     * and records every settled, unstalled vertex with its cost.
+     *
+     * @param ch      the hierarchy
+     * @param ws      the seeded search state
+     * @param forward {@code true} for a forward search
+     * @return the search space
+     */
+    private static Space upwardSearch(ContractionHierarchy ch, SearchWorkspace ws, boolean forward) {
+        IndexedDaryHeap pq = ws.heap();
+        int[] vs = new int[16];
+        double[] ds = new double[16];
+        int n = 0;
+
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            double dv = ws.dist(v);
+            if (stalled(ch, ws, forward, v, dv)) continue;
+
+            if (n == vs.length) {
+                vs = Arrays.copyOf(vs, 2 * n);
+                ds = Arrays.copyOf(ds, 2 * n);
+            }
+            vs[n] = v;
+            ds[n++] = dv;
+
+            if (forward) {
+                for (int i = ch.firstUp(v), end = ch.endUp(v); i < end; i++) {
+                    relax(ws, pq, ch.upHead(i), dv + ch.upWeight(i), ch.upArc(i));
+                }
+            } else {
+                for (int i = ch.firstDown(v), end = ch.endDown(v); i < end; i++) {
+                    relax(ws, pq, ch.downTail(i), dv + ch.downWeight(i), ch.downArc(i));
+                }
+            }
+        }
+        return new Space(Arrays.copyOf(vs, n), Arrays.copyOf(ds, n));
+    }
+
+    /**
+     * Stall-on-demand: {@code v}'s tentative cost is not its true upward cost
+     * if an already reached higher-ranked neighbor reaches it more cheaply
+     * against the search direction.
+     *
+     * @param ch      the hierarchy
+     * @param ws      the search state
+     * @param forward {@code true} for a forward search
+     * @param v       the settled vertex
+     * @param dv      its tentative cost
+     * @return {@code true} if {@code v} is stalled
+     */
+    private static boolean stalled(ContractionHierarchy ch, SearchWorkspace ws, boolean forward, int v, double dv) {
+        if (forward) {
+            for (int i = ch.firstDown(v), end = ch.endDown(v); i < end; i++) {
+                if (ws.dist(ch.downTail(i)) + ch.downWeight(i) < dv) return true;
+            }
+        } else {
+            for (int i = ch.firstUp(v), end = ch.endUp(v); i < end; i++) {
+                if (ws.dist(ch.upHead(i)) + ch.upWeight(i) < dv) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lowers the tentative cost of {@code w} if {@code candidate} improves it.
+     *
+     * @param ws        the search state
+     * @param pq        its queue
+     * @param w         the vertex reached
+     * @param candidate the new cost
+     * @param arc       the arc used
+     */
+    private static void relax(SearchWorkspace ws, IndexedDaryHeap pq, int w, double candidate, int arc) {
+        if (candidate < ws.dist(w)) {
+            ws.set(w, candidate, arc);
+            if (pq.contains(w)) pq.decreaseKey(w, candidate);
+            else pq.insert(w, candidate);
+        }
+    }
+
+    /**
+     * Runs {@code task} for {@code 0..n-1} in parallel on {@code pool}.
+     *
+     * @param pool the pool
+     * @param n    the number of indices
+     * @param task the work per index
+     */
+    private static void run(ForkJoinPool pool, int n, IntConsumer task) {
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(task)).join();
+    }
+}
@@ -1,11 +1,21 @@
 package codes;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 /**
  * Stores distance, time, and street name attributes for edges in a weighted graph.
  *
  * <p>This class maintains parallel arrays for edge attributes, indexed by edge ID.
  * It supports dynamic resizing to accommodate graphs that grow over time.</p>
  *
+ * <p>Street names are dictionary encoded: each edge holds an {@code int} name
+ * ID into a table of distinct names stored once as UTF-8. The two directions
+ * of a road and the consecutive segments of one way share an ID, so they
+ * cost four bytes per edge rather than a {@code String} each, and comparing
+ * the names of two edges is an integer comparison
+ * ({@link #streetNameId(int)}).</p>
+ *
  * <p>Typical usage pattern:
  * <pre>
  *     EdgeAttributes attrs = new EdgeAttributes();
@@ -31,8 +41,29 @@ public class EdgeAttributes {
     /** Travel time in seconds for each edge. */
     private double[] timeSeconds;
 
-    /** Street name for each edge (may be null for unnamed roads). */
-    private String[] streetName;
+    /** Street name ID + 1 for each edge (0 for unnamed roads). */
+    private int[] nameRef;
+
+    /** Number of distinct street names. */
+    private int names;
+
+    /** UTF-8 bytes of every name, back to back. */
+    private byte[] nameBytes;
+
+    /** Start of each name in {@link #nameBytes} (length names + 1 used). */
+    private int[] nameOffset;
+
+    /** Hash of each name's bytes. */
+    private int[] nameHash;
+
+    /** Open-addressing table of name ID + 1 by hash (0 = empty); power-of-two length. */
+    private int[] nameSlots;
+
+    /** Decoded names, filled on first access; racy but safe, as strings are immutable. */
+    private String[] decoded;
+
+    /** Bumped by every setter, so caches of derived results can tell when to drop them. */
+    private long version;
 
     /**
      * Initializes an empty EdgeAttributes with default capacity of 4.
@@ -41,7 +72,8 @@ public class EdgeAttributes {
         this.edgeCount = 0;
         this.distanceMeters = new double[4];
         this.timeSeconds = new double[4];
-        this.streetName = new String[4];
+        this.nameRef = new int[4];
+        initDictionary();
     }
 
     /**
@@ -56,7 +88,84 @@ public class EdgeAttributes {
         this.edgeCount = 0;
         this.distanceMeters = new double[cap];
         this.timeSeconds = new double[cap];
-        this.streetName = new String[cap];
+        this.nameRef = new int[cap];
+        initDictionary();
+    }
+
+    /**
+     * Allocates an empty street-name dictionary.
+     */
+    private void initDictionary() {
+        this.nameBytes = new byte[64];
+        this.nameOffset = new int[8];
+        this.nameHash = new int[8];
+        this.decoded = new String[8];
+        this.nameSlots = new int[16];
+    }
+
+    /**
+     * Adopts complete attribute columns, as written by {@link GraphSnapshot}.
+     *
+     * <p>The arrays are used as they are, not copied, and the name table is
+     * indexed in one pass rather than interned name by name; names are
+     * decoded on first access as usual.</p>
+     *
+     * @param distance   distance in meters per edge
+     * @param time       travel time in seconds per edge
+     * @param nameId     street-name ID per edge ({@code -1} = unnamed); overwritten
+     * @param nameBytes  UTF-8 bytes of all names, back to back
+     * @param nameOffset start of each name in {@code nameBytes}, plus the end (length names + 1)
+     * @return attributes for {@code distance.length} edges
+     * @throws IllegalArgumentException if the columns differ in length, a cost is
+     *                                  negative or NaN, a name ID or offset is out of
+     *                                  range, or a name appears twice
+     */
+    static EdgeAttributes fromArrays(double[] distance, double[] time, int[] nameId,
+                                     byte[] nameBytes, int[] nameOffset) {
+        int E = distance.length;
+        if (time.length != E || nameId.length != E) throw new IllegalArgumentException("attribute columns differ in length");
+        if (nameOffset.length == 0 || nameOffset[0] != 0) throw new IllegalArgumentException("name offsets must start at 0");
+        int names = nameOffset.length - 1;
+        for (int i = 0; i < names; i++) {
+            if (nameOffset[i + 1] < nameOffset[i]) throw new IllegalArgumentException("name offsets must not decrease");
+        }
+        if (nameOffset[names] > nameBytes.length) throw new IllegalArgumentException("name offsets exceed name bytes");
+        for (int e = 0; e < E; e++) {
+            if (!(distance[e] >= 0.0)) throw new IllegalArgumentException("distance must be non-negative at edge " + e);
+            if (!(time[e] >= 0.0)) throw new IllegalArgumentException("time must be non-negative at edge " + e);
+            if (nameId[e] < -1 || nameId[e] >= names) throw new IllegalArgumentException("nameId out of range at edge " + e);
+            nameId[e]++;
+        }
+
+        EdgeAttributes attrs = new EdgeAttributes(0);
+        attrs.distanceMeters = distance;
+        attrs.timeSeconds = time;
+        attrs.nameRef = nameId;
+        attrs.edgeCount = E;
+
+        attrs.names = names;
+        attrs.nameBytes = nameBytes;
+        attrs.nameOffset = nameOffset;
+        attrs.nameHash = new int[nameOffset.length];
+        attrs.decoded = new String[nameOffset.length];
+        attrs.nameSlots = new int[Math.max(16, Integer.highestOneBit(Math.max(1, 2 * names)) << 1)];
+        for (int id = 0; id < names; id++) {
+            int from = nameOffset[id], to = nameOffset[id + 1];
+            int h = 1;
+            for (int i = from; i < to; i++) h = 31 * h + nameBytes[i];
+            attrs.nameHash[id] = h;
+
+            int mask = attrs.nameSlots.length - 1;
+            int slot = mix(h) & mask;
+            for (int other; (other = attrs.nameSlots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+                if (attrs.nameHash[other] == h
+                        && Arrays.equals(nameBytes, nameOffset[other], nameOffset[other + 1], nameBytes, from, to)) {
+                    throw new IllegalArgumentException("duplicate street name " + id);
+                }
+            }
+            attrs.nameSlots[slot] = id + 1;
+        }
+        return attrs;
     }
 
     /**
@@ -81,20 +190,20 @@ public class EdgeAttributes {
     public void ensureCapacity(int minEdgeCount) {
         if (minEdgeCount <= distanceMeters.length) return;
 
-        int newCap = distanceMeters.length;
+        int newCap = Math.max(4, distanceMeters.length);
         while (newCap < minEdgeCount) newCap *= 2;
 
         double[] newDist = new double[newCap];
         double[] newTime = new double[newCap];
-        String[] newStreet = new String[newCap];
+        int[] newName = new int[newCap];
 
         System.arraycopy(distanceMeters, 0, newDist, 0, distanceMeters.length);
         System.arraycopy(timeSeconds, 0, newTime, 0, timeSeconds.length);
-        System.arraycopy(streetName, 0, newStreet, 0, streetName.length);
+        System.arraycopy(nameRef, 0, newName, 0, nameRef.length);
 
         distanceMeters = newDist;
         timeSeconds = newTime;
-        streetName = newStreet;
+        nameRef = newName;
     }
 
     /**
@@ -111,6 +220,7 @@ public class EdgeAttributes {
         if (newEdgeCount < 0) throw new IllegalArgumentException("newEdgeCount < 0");
         ensureCapacity(newEdgeCount);
         this.edgeCount = newEdgeCount;
+        version++;
     }
 
     /**
@@ -137,19 +247,194 @@ public class EdgeAttributes {
      */
     public void setStreetName(int edgeId, String name) {
         validateEdgeId(edgeId);
-        streetName[edgeId] = name;
+        nameRef[edgeId] = internStreetName(name) + 1;
+        version++;
+    }
+
+    /**
+     * Sets the street name for the specified edge by dictionary ID.
+     *
+     * <p>Compilers that emit several edges per way intern the way's name once
+     * with {@link #internStreetName} and assign the ID to each edge.</p>
+     *
+     * @param edgeId the edge ID
+     * @param nameId the name ID, or {@code -1} for an unnamed road
+     * @throws IllegalArgumentException if {@code edgeId} or {@code nameId} is invalid
+     */
+    public void setStreetNameId(int edgeId, int nameId) {
+        validateEdgeId(edgeId);
+        if (nameId < -1 || nameId >= names) {
+            throw new IllegalArgumentException("nameId must be between -1 and " + (names - 1));
+        }
+        nameRef[edgeId] = nameId + 1;
+        version++;
     }
 
     /**
      * Returns the street name for the specified edge.
      *
+     * <p>Edges with the same name return the same {@code String} instance.</p>
+     *
      * @param edgeId the edge ID
      * @return the street name, or {@code null} if unnamed
      * @throws IllegalArgumentException if {@code edgeId} is invalid
      */
     public String streetName(int edgeId) {
         validateEdgeId(edgeId);
-        return streetName[edgeId];
+        int id = nameRef[edgeId] - 1;
+        return id < 0 ? null : decode(id);
+    }
+
+    /**
+     * Returns the dictionary ID of the street name of the specified edge.
+     *
+     * <p>Two edges have the same name exactly when their IDs are equal.</p>
+     *
+     * @param edgeId the edge ID
+     * @return the name ID, or {@code -1} if unnamed
+     * @throws IllegalArgumentException if {@code edgeId} is invalid
+     */
+    public int streetNameId(int edgeId) {
+        validateEdgeId(edgeId);
+        return nameRef[edgeId] - 1;
+    }
+
+    /**
+     * Returns the ID of {@code name}, adding it to the dictionary if new.
+     *
+     * @param name the street name (may be null)
+     * @return the name ID, or {@code -1} if {@code name} is null
+     */
+    public int internStreetName(String name) {
+        if (name == null) return -1;
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        int hash = Arrays.hashCode(utf8);
+        int mask = nameSlots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = nameSlots[slot] - 1;
+            if (id < 0) break;
+            if (nameHash[id] == hash && Arrays.equals(nameBytes, nameOffset[id], nameOffset[id + 1],
+                    utf8, 0, utf8.length)) {
+                return id;
+            }
+        }
+        return addName(utf8, hash);
+    }
+
+    /**
+     * Returns the number of distinct street names in the dictionary.
+     *
+     * <p>Valid name IDs are in the range [0, streetNameCount-1].</p>
+     *
+     * @return the number of names
+     */
+    public int streetNameCount() {
+        return names;
+    }
+
+    /**
+     * Returns the street name with the specified dictionary ID.
+     *
+     * @param nameId the name ID
+     * @return the street name
+     * @throws IllegalArgumentException if {@code nameId} is invalid
+     */
+    public String streetNameById(int nameId) {
+        if (nameId < 0 || nameId >= names) {
+            throw new IllegalArgumentException("nameId must be between 0 and " + (names - 1));
+        }
+        return decode(nameId);
+    }
+
+    /**
+     * Returns the UTF-8 bytes of all dictionary names back to back; name
+     * {@code i} spans {@code [streetNameOffsets()[i], streetNameOffsets()[i + 1])}.
+     * Not a copy, and may be longer than the names.
+     *
+     * @return the name bytes
+     */
+    byte[] streetNameBytes() {
+        return nameBytes;
+    }
+
+    /**
+     * Returns the start of each name in {@link #streetNameBytes()}. Not a
+     * copy; entries beyond {@code streetNameCount() + 1} are unused.
+     *
+     * @return the name offsets
+     */
+    int[] streetNameOffsets() {
+        return nameOffset;
+    }
+
+    /**
+     * Appends a name known not to be in the dictionary.
+     *
+     * @param utf8 the name's UTF-8 bytes
+     * @param hash {@code Arrays.hashCode(utf8)}
+     * @return the new name ID
+     */
+    private int addName(byte[] utf8, int hash) {
+        if (names + 2 > nameOffset.length) {
+            int cap = nameOffset.length * 2;
+            nameOffset = Arrays.copyOf(nameOffset, cap);
+            nameHash = Arrays.copyOf(nameHash, cap);
+            decoded = Arrays.copyOf(decoded, cap);
+        }
+        int start = nameOffset[names];
+        if (start + utf8.length > nameBytes.length) {
+            nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytes.length * 2, start + utf8.length));
+        }
+        System.arraycopy(utf8, 0, nameBytes, start, utf8.length);
+        int id = names++;
+        nameOffset[names] = start + utf8.length;
+        nameHash[id] = hash;
+
+        // Keep the table at most half full
+        if (2 * names > nameSlots.length) {
+            nameSlots = new int[nameSlots.length * 2];
+            for (int i = 0; i < id; i++) insertSlot(i);
+        }
+        insertSlot(id);
+        return id;
+    }
+
+    /**
+     * Places name {@code id} in the first free slot of its probe sequence.
+     *
+     * @param id the name ID
+     */
+    private void insertSlot(int id) {
+        int mask = nameSlots.length - 1;
+        int slot = mix(nameHash[id]) & mask;
+        while (nameSlots[slot] != 0) slot = (slot + 1) & mask;
+        nameSlots[slot] = id + 1;
+    }
+
+    /**
+     * Spreads hash bits so that masking by a power of two uses all of them.
+     *
+     * @param h the hash
+     * @return the mixed hash
+     */
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns name {@code id} as a string, decoding it on first access.
+     *
+     * @param id a valid name ID
+     * @return the name
+     */
+    private String decode(int id) {
+        String s = decoded[id];
+        if (s == null) {
+            s = new String(nameBytes, nameOffset[id], nameOffset[id + 1] - nameOffset[id], StandardCharsets.UTF_8);
+            decoded[id] = s;
+        }
+        return s;
     }
 
     /**
@@ -165,6 +450,7 @@ public class EdgeAttributes {
         if (Double.isNaN(meters)) throw new IllegalArgumentException("distance is NaN");
         if (meters < 0.0) throw new IllegalArgumentException("distance must be non-negative");
         distanceMeters[edgeId] = meters;
+        version++;
     }
 
     /**
@@ -192,6 +478,7 @@ public class EdgeAttributes {
         if (Double.isNaN(seconds)) throw new IllegalArgumentException("time is NaN");
         if (seconds < 0.0) throw new IllegalArgumentException("time must be non-negative");
         timeSeconds[edgeId] = seconds;
+        version++;
     }
 
     /**
@@ -206,6 +493,36 @@ public class EdgeAttributes {
         return timeSeconds[edgeId];
     }
 
+    /**
+     * Returns a counter that changes whenever any attribute or the edge count is set.
+     *
+     * <p>Results computed from these attributes (such as cached routes) are
+     * stale once the version differs from the one they were computed at.</p>
+     *
+     * @return the modification version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the highest speed any edge is travelled at.
+     *
+     * <p>This is the largest {@code distanceMeters / timeSeconds} over edges
+     * with a positive time, rounded up by one ulp. Dividing a straight-line
+     * distance by it never overestimates the travel time, so it is the
+     * tightest valid top speed for the TIME A* heuristic.</p>
+     *
+     * @return the top speed in m/s, or {@code 0} if no edge has a travel time
+     */
+    public double maxSpeedMetersPerSec() {
+        double max = 0.0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (timeSeconds[e] > 0.0) max = Math.max(max, distanceMeters[e] / timeSeconds[e]);
+        }
+        return (max > 0.0) ? Math.nextUp(max) : 0.0;
+    }
+
     /**
      * Returns a string summary for debugging.
      *
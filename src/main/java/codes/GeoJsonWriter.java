@@ -0,0 +1,498 @@
+package codes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streams route GeoJSON (or a JSON encoded polyline, see
+ * {@link #writePolylineRoute}, a cost matrix, see {@link #writeMatrix}, or
+ * an isochrone, see {@link #writeIsochrone}) straight to an output stream
+ * as UTF-8 bytes.
+ *
+ * <p>Coordinates are formatted as fixed-point decimals directly into a byte
+ * buffer that is flushed to the stream whenever it fills, so no
+ * {@link StringBuilder}, {@link String} or per-coordinate objects are created
+ * and memory use stays constant however long the route is. The buffer is
+ * taken from {@link OutputBuffers} for each write call and handed back
+ * afterwards, so writers are cheap to create per response. Trailing zeros
+ * are dropped and the output is compact (no indentation).</p>
+ *
+ * <p>The number of decimals sets the precision and the payload size: 6
+ * decimals (the default) resolve about 0.1 m, 5 about 1 m.</p>
+ *
+ * <p>Output format:
+ * <pre>
+ *     {"type":"Feature","geometry":{"type":"LineString","coordinates":[[-63.1311,46.2382],...]},
+ *      "properties":{"instructions":["Head north on Main St",...]}}
+ * </pre>
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     try (OutputStream body = exchange.getResponseBody()) {
+ *         new GeoJsonWriter(body, 6).writeRoute(points, instructions);
+ *     }
+ * </pre>
+ * </p>
+ */
+public final class GeoJsonWriter {
+
+    /** Default number of decimals written per coordinate. */
+    public static final int DEFAULT_DECIMALS = 6;
+
+    /** Largest supported number of decimals. */
+    public static final int MAX_DECIMALS = 9;
+
+    /** Powers of ten up to {@code 10^MAX_DECIMALS}. */
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    /** Above this scaled magnitude fixed-point formatting could overflow a long. */
+    private static final double MAX_SCALED = 1e17;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    /** The destination stream. */
+    private final OutputStream out;
+
+    /** Optional second destination receiving the same bytes (may be null). */
+    private final ByteArrayOutputStream copy;
+
+    /** Decimals written per coordinate. */
+    private final int decimals;
+
+    /** Buffer taken from {@link OutputBuffers} for the duration of each write call. */
+    private byte[] buf;
+    private int pos;
+
+    /** Bytes flushed so far. */
+    private long flushed;
+
+    /**
+     * Creates a writer.
+     *
+     * @param out      the destination stream
+     * @param decimals decimals per coordinate, {@code 0..MAX_DECIMALS}
+     * @throws IllegalArgumentException if {@code out} is null or {@code decimals} is out of range
+     */
+    public GeoJsonWriter(OutputStream out, int decimals) {
+        this(out, decimals, null);
+    }
+
+    /**
+     * Creates a writer that also keeps a copy of everything it writes, e.g.
+     * for a response cache.
+     *
+     * @param out      the destination stream
+     * @param decimals decimals per coordinate, {@code 0..MAX_DECIMALS}
+     * @param copy     receives the same bytes as {@code out} (may be null)
+     * @throws IllegalArgumentException if {@code out} is null or {@code decimals} is out of range
+     */
+    public GeoJsonWriter(OutputStream out, int decimals, ByteArrayOutputStream copy) {
+        if (out == null) throw new IllegalArgumentException("out cannot be null");
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("decimals must be between 0 and " + MAX_DECIMALS);
+        }
+        this.out = out;
+        this.copy = copy;
+        this.decimals = decimals;
+    }
+
+    /**
+     * Writes a route as a GeoJSON Feature and flushes it.
+     *
+     * @param pts          the route points ({@code x} = longitude, {@code y} = latitude)
+     * @param instructions the turn-by-turn instructions (may be empty)
+     * @throws IOException if writing fails
+     */
+    public void writeRoute(List<Point> pts, List<Instruction> instructions) throws IOException {
+        begin();
+        try {
+            ascii("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":");
+            coordinates(pts);
+
+            ascii("},\"properties\":{\"instructions\":[");
+            for (int i = 0, n = instructions.size(); i < n; i++) {
+                if (i > 0) put((byte) ',');
+                string(instructions.get(i).toText());
+            }
+            ascii("]}}");
+            flush();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes a route as an encoded polyline with instructions and flushes it.
+     *
+     * <p>Output format:
+     * <pre>
+     *     {"polyline":"_p~iF~ps|U_ulLnnqC","precision":5,"instructions":["Head north on Main St",...]}
+     * </pre>
+     * The polyline is encoded straight into the buffer (see {@link PolylineEncoder});
+     * the writer's own decimals setting does not apply.</p>
+     *
+     * @param pts          the route points ({@code x} = longitude, {@code y} = latitude)
+     * @param precision    polyline precision, usually 5 or 6
+     * @param instructions the turn-by-turn instructions (may be empty)
+     * @throws IOException              if writing fails
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    public void writePolylineRoute(List<Point> pts, int precision, List<Instruction> instructions) throws IOException {
+        begin();
+        try {
+            double scale = PolylineEncoder.scale(precision);
+            ascii("{\"polyline\":\"");
+            long prevLat = 0, prevLon = 0;
+            for (int i = 0, n = pts.size(); i < n; i++) {
+                Point p = pts.get(i);
+                long lat = Math.round(p.y * scale);
+                long lon = Math.round(p.x * scale);
+                polylineValue(lat - prevLat);
+                polylineValue(lon - prevLon);
+                prevLat = lat;
+                prevLon = lon;
+            }
+
+            ascii("\",\"precision\":");
+            digits(precision);
+            ascii(",\"instructions\":[");
+            for (int i = 0, n = instructions.size(); i < n; i++) {
+                if (i > 0) put((byte) ',');
+                string(instructions.get(i).toText());
+            }
+            ascii("]}");
+            flush();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes a cost matrix as JSON and flushes it.
+     *
+     * <p>Output format (unreachable cells are {@code null}):
+     * <pre>
+     *     {"metric":"distance","rows":2,"cols":2,"values":[[0,812.4],[790.1,null]]}
+     * </pre>
+     * Costs use the writer's number of decimals.</p>
+     *
+     * @param m the matrix
+     * @throws IOException if writing fails
+     */
+    public void writeMatrix(DistanceMatrix m) throws IOException {
+        begin();
+        try {
+            ascii("{\"metric\":\"");
+            ascii(m.metric().name().toLowerCase());
+            ascii("\",\"rows\":");
+            digits(m.rows());
+            ascii(",\"cols\":");
+            digits(m.cols());
+            ascii(",\"values\":[");
+            float[] v = m.values();
+            for (int i = 0, cols = m.cols(); i < m.rows(); i++) {
+                if (i > 0) put((byte) ',');
+                put((byte) '[');
+                for (int j = 0; j < cols; j++) {
+                    if (j > 0) put((byte) ',');
+                    number(v[i * cols + j]);
+                }
+                put((byte) ']');
+            }
+            ascii("]}");
+            flush();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes an isochrone as a GeoJSON FeatureCollection and flushes it.
+     *
+     * <p>Output format: the reached fragments as one MultiLineString feature,
+     * followed by the outline Polygon feature if {@code shape} has one:
+     * <pre>
+     *     {"type":"FeatureCollection","features":[
+     *      {"type":"Feature","geometry":{"type":"MultiLineString","coordinates":[[[-63.13,46.23],...],...]},
+     *       "properties":{"metric":"distance","limit":5000}},
+     *      {"type":"Feature","geometry":{"type":"Polygon","coordinates":[[[-63.18,46.21],...]]},
+     *       "properties":{"metric":"distance","limit":5000}}]}
+     * </pre>
+     * The limit uses the writer's number of decimals.</p>
+     *
+     * @param iso   the isochrone
+     * @param shape its geometry (see {@link Isochrone#shape})
+     * @throws IOException if writing fails
+     */
+    public void writeIsochrone(Isochrone iso, Isochrone.Shape shape) throws IOException {
+        begin();
+        try {
+            ascii("{\"type\":\"FeatureCollection\",\"features\":[");
+            ascii("{\"type\":\"Feature\",\"geometry\":{\"type\":\"MultiLineString\",\"coordinates\":[");
+            List<List<Point>> lines = shape.lines();
+            for (int i = 0, n = lines.size(); i < n; i++) {
+                if (i > 0) put((byte) ',');
+                coordinates(lines.get(i));
+            }
+            ascii("]},");
+            isochroneProperties(iso);
+
+            if (!shape.hull().isEmpty()) {
+                ascii(",{\"type\":\"Feature\",\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[");
+                coordinates(shape.hull());
+                ascii("]},");
+                isochroneProperties(iso);
+            }
+            ascii("]}");
+            flush();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Writes the properties member and closing brace of an isochrone feature.
+     *
+     * @param iso the isochrone
+     * @throws IOException if a flush fails
+     */
+    private void isochroneProperties(Isochrone iso) throws IOException {
+        ascii("\"properties\":{\"metric\":\"");
+        ascii(iso.metric().name().toLowerCase());
+        ascii("\",\"limit\":");
+        number(iso.limit());
+        ascii("}}");
+    }
+
+    /**
+     * Writes a coordinate array {@code [[x,y],...]}.
+     *
+     * @param pts the points ({@code x} = longitude, {@code y} = latitude)
+     * @throws IOException if a flush fails
+     */
+    private void coordinates(List<Point> pts) throws IOException {
+        put((byte) '[');
+        for (int i = 0, n = pts.size(); i < n; i++) {
+            Point p = pts.get(i);
+            if (i > 0) put((byte) ',');
+            put((byte) '[');
+            number(p.x);
+            put((byte) ',');
+            number(p.y);
+            put((byte) ']');
+        }
+        put((byte) ']');
+    }
+
+    /**
+     * Returns the number of bytes written so far (flushed or buffered).
+     *
+     * @return the byte count
+     */
+    public long bytesWritten() {
+        return flushed + pos;
+    }
+
+    /**
+     * Takes a buffer from the pool for one write call.
+     */
+    private void begin() {
+        buf = OutputBuffers.take();
+        pos = 0;
+    }
+
+    /**
+     * Hands the buffer back to the pool; bytes not yet flushed are discarded.
+     */
+    private void end() {
+        OutputBuffers.give(buf);
+        buf = null;
+        pos = 0;
+    }
+
+    /**
+     * Writes buffered bytes to the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        if (pos == 0) return;
+        out.write(buf, 0, pos);
+        if (copy != null) copy.write(buf, 0, pos);
+        flushed += pos;
+        pos = 0;
+    }
+
+    /**
+     * Writes a coordinate with the configured number of decimals, trailing
+     * zeros removed.
+     *
+     * @param v the value
+     * @throws IOException if a flush fails
+     */
+    void number(double v) throws IOException {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            ascii("null");
+            return;
+        }
+
+        double scaledAbs = Math.abs(v) * POW10[decimals];
+        if (scaledAbs >= MAX_SCALED) {
+            ascii(Double.toString(v));
+            return;
+        }
+
+        long scaled = Math.round(scaledAbs);
+        if (scaled == 0) {
+            put((byte) '0');
+            return;
+        }
+        if (v < 0) put((byte) '-');
+
+        long whole = scaled / POW10[decimals];
+        long frac = scaled % POW10[decimals];
+        digits(whole);
+
+        if (frac != 0) {
+            ensure(decimals + 1);
+            buf[pos++] = '.';
+            int start = pos;
+            for (int i = decimals - 1; i >= 0; i--) {
+                buf[start + i] = (byte) ('0' + frac % 10);
+                frac /= 10;
+            }
+            pos = start + decimals;
+            while (buf[pos - 1] == '0') pos--;
+        }
+    }
+
+    /**
+     * Writes one polyline value inside a JSON string, escaping the backslash
+     * (the only character of the polyline alphabet JSON reserves).
+     *
+     * @param v the value
+     * @throws IOException if a flush fails
+     */
+    private void polylineValue(long v) throws IOException {
+        ensure(2 * PolylineEncoder.MAX_VALUE_CHARS);
+        int start = pos;
+        pos = PolylineEncoder.writeValue(v, buf, start);
+        for (int i = start; i < pos; i++) {
+            if (buf[i] == '\\') {
+                System.arraycopy(buf, i, buf, i + 1, pos - i);
+                pos++;
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Writes a non-negative integer.
+     *
+     * @param x the value
+     * @throws IOException if a flush fails
+     */
+    private void digits(long x) throws IOException {
+        ensure(20);
+        if (x == 0) {
+            buf[pos++] = '0';
+            return;
+        }
+        int len = 0;
+        for (long t = x; t > 0; t /= 10) len++;
+        for (int i = pos + len - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + x % 10);
+            x /= 10;
+        }
+        pos += len;
+    }
+
+    /**
+     * Writes a JSON string literal, escaping quotes, backslashes and control
+     * characters and encoding everything else as UTF-8.
+     *
+     * @param s the string (null is written as an empty string)
+     * @throws IOException if a flush fails
+     */
+    void string(String s) throws IOException {
+        put((byte) '"');
+        if (s != null) {
+            for (int i = 0, n = s.length(); i < n; i++) {
+                char c = s.charAt(i);
+                ensure(6);
+                if (c == '"' || c == '\\') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x20) {
+                    buf[pos++] = '\\';
+                    switch (c) {
+                        case '\n' -> buf[pos++] = 'n';
+                        case '\r' -> buf[pos++] = 'r';
+                        case '\t' -> buf[pos++] = 't';
+                        default -> {
+                            buf[pos++] = 'u';
+                            buf[pos++] = '0';
+                            buf[pos++] = '0';
+                            buf[pos++] = HEX[c >> 4];
+                            buf[pos++] = HEX[c & 0xF];
+                        }
+                    }
+                } else if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buf[pos++] = '?';   // unpaired surrogate, as String.getBytes(UTF_8) does
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+        put((byte) '"');
+    }
+
+    /**
+     * Writes ASCII text as-is.
+     *
+     * @param s the text (ASCII only)
+     * @throws IOException if a flush fails
+     */
+    private void ascii(String s) throws IOException {
+        for (int i = 0, n = s.length(); i < n; i++) put((byte) s.charAt(i));
+    }
+
+    /**
+     * Writes one byte.
+     *
+     * @param b the byte
+     * @throws IOException if a flush fails
+     */
+    private void put(byte b) throws IOException {
+        if (pos == buf.length) flush();
+        buf[pos++] = b;
+    }
+
+    /**
+     * Makes room for {@code n} more bytes in the buffer.
+     *
+     * @param n bytes needed ({@code <= OutputBuffers.BUFFER_BYTES})
+     * @throws IOException if a flush fails
+     */
+    private void ensure(int n) throws IOException {
+        if (pos + n > buf.length) flush();
+    }
+}
@@ -0,0 +1,445 @@
+package codes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A compiled road network in a versioned binary file.
+ *
+ * <p>Compiling an OSM file takes several SAX passes; reading a snapshot is a
+ * handful of bulk copies out of a memory-mapped file
+ * ({@link FileChannel#map}), so servers can restart without re-parsing the
+ * map. A snapshot holds everything in a {@link Main.OSMCompiler.BuildResult}:
+ * graph topology and edge weights, {@link EdgeAttributes}, vertex
+ * coordinates and {@link EdgeGeometry}. Street names are stored once in a
+ * dictionary and referenced by index from each edge.</p>
+ *
+ * <p>File layout (little-endian):
+ * <pre>
+ *     header (48 bytes):
+ *         int magic ("GMSN"), int version,
+ *         int V, int E, int points, int names, int nameBytes, int reserved,
+ *         long payloadBytes, long payloadCrc32
+ *     payload:
+ *         double lat[V], lon[V]
+ *         double weight[E], distanceMeters[E], timeSeconds[E]
+ *         double geomX[points], geomY[points]
+ *         int tail[E], head[E], nameIndex[E] (-1 = unnamed), edgeStart[E + 1]
+ *         int nameOffset[names + 1]
+ *         byte nameUtf8[nameBytes]
+ * </pre>
+ * </p>
+ *
+ * <p>Readers reject files with the wrong magic, an unknown version, a
+ * truncated payload or a checksum mismatch, so a stale or damaged snapshot
+ * is never half-loaded. Snapshots are written to a temporary file first and
+ * moved into place, so a crash during writing leaves the old file intact.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     GraphSnapshot snap = new GraphSnapshot(graph, attrs, lat, lon, geometry);
+ *     snap.write(Path.of("pei.gsnap"));
+ *
+ *     GraphSnapshot loaded = GraphSnapshot.read(Path.of("pei.gsnap"));
+ *     WeightedDigraph graph = loaded.graph();
+ * </pre>
+ * </p>
+ */
+public final class GraphSnapshot {
+
+    /** File magic, "GMSN" in ASCII. */
+    static final int MAGIC = 0x474D534E;
+
+    /**
+     * Current format version; bump whenever the layout or the meaning of a
+     * field changes. Version 2: travel times come from {@link SpeedProfile}
+     * (version 1 snapshots hold zero times).
+     */
+    static final int VERSION = 2;
+
+    /** Size of the fixed header in bytes. */
+    private static final int HEADER_BYTES = 48;
+
+    /** File extension used by {@link #defaultPathFor}. */
+    private static final String EXTENSION = ".gsnap";
+
+    /** The routing graph. */
+    private final WeightedDigraph graph;
+
+    /** Edge attributes (distance, time, street names). */
+    private final EdgeAttributes attrs;
+
+    /** Latitude of each vertex (degrees, WGS84). */
+    private final double[] lat;
+
+    /** Longitude of each vertex (degrees, WGS84). */
+    private final double[] lon;
+
+    /** Polyline geometry for each edge. */
+    private final EdgeGeometry edgeGeometry;
+
+    /**
+     * Creates a snapshot of a compiled network.
+     *
+     * @param graph        the routing graph
+     * @param attrs        edge attributes
+     * @param lat          latitude of each vertex
+     * @param lon          longitude of each vertex
+     * @param edgeGeometry edge polylines
+     * @throws IllegalArgumentException if any argument is null or the parts
+     *                                  disagree on vertex or edge counts
+     */
+    public GraphSnapshot(WeightedDigraph graph, EdgeAttributes attrs,
+                         double[] lat, double[] lon, EdgeGeometry edgeGeometry) {
+        if (graph == null || attrs == null || lat == null || lon == null || edgeGeometry == null) {
+            throw new IllegalArgumentException("snapshot parts cannot be null");
+        }
+        if (lat.length != graph.V() || lon.length != graph.V()) {
+            throw new IllegalArgumentException("lat/lon length must equal graph.V()");
+        }
+        if (attrs.edgeCount() < graph.E()) throw new IllegalArgumentException("EdgeAttributes.edgeCount() < G.E()");
+        if (edgeGeometry.edgeCount() != graph.E()) {
+            throw new IllegalArgumentException("EdgeGeometry.edgeCount() must equal graph.E()");
+        }
+
+        this.graph = graph;
+        this.attrs = attrs;
+        this.lat = lat;
+        this.lon = lon;
+        this.edgeGeometry = edgeGeometry;
+    }
+
+    /**
+     * Creates a snapshot of a compiler build result.
+     *
+     * @param result the build result
+     * @return the snapshot
+     */
+    static GraphSnapshot of(Main.OSMCompiler.BuildResult result) {
+        return new GraphSnapshot(result.graph, result.attrs,
+                result.vertexStore.lat, result.vertexStore.lon, result.edgeGeometry);
+    }
+
+    /**
+     * Returns this snapshot as a compiler build result.
+     *
+     * @return a build result sharing this snapshot's data
+     */
+    Main.OSMCompiler.BuildResult toBuildResult() {
+        return new Main.OSMCompiler.BuildResult(graph, attrs,
+                new Main.OSMCompiler.LatLonVertexStore(lat, lon), edgeGeometry);
+    }
+
+    /**
+     * Returns the routing graph.
+     *
+     * @return the graph
+     */
+    public WeightedDigraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the edge attributes.
+     *
+     * @return the edge attributes
+     */
+    public EdgeAttributes attrs() {
+        return attrs;
+    }
+
+    /**
+     * Returns the vertex latitudes.
+     *
+     * @return latitude per vertex (not a copy)
+     */
+    public double[] lat() {
+        return lat;
+    }
+
+    /**
+     * Returns the vertex longitudes.
+     *
+     * @return longitude per vertex (not a copy)
+     */
+    public double[] lon() {
+        return lon;
+    }
+
+    /**
+     * Returns the edge geometry.
+     *
+     * @return the edge geometry
+     */
+    public EdgeGeometry edgeGeometry() {
+        return edgeGeometry;
+    }
+
+    /**
+     * Returns the snapshot path conventionally used for an OSM file
+     * ({@code map.osm} → {@code map.osm.gsnap}).
+     *
+     * @param osmFile the OSM file
+     * @return the snapshot path next to it
+     */
+    public static Path defaultPathFor(Path osmFile) {
+        return osmFile.resolveSibling(osmFile.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Loads the snapshot for {@code osmFile}, compiling and saving it first if
+     * it is missing, older than the OSM file, or unreadable.
+     *
+     * <p>Failing to save the new snapshot is not fatal; the compiled result is
+     * returned either way.</p>
+     *
+     * @param osmFile      the OSM source
+     * @param snapshotFile where the snapshot lives
+     * @return the build result
+     * @throws RuntimeException if the OSM file has to be compiled and parsing fails
+     */
+    static Main.OSMCompiler.BuildResult loadOrCompile(Path osmFile, Path snapshotFile) {
+        try {
+            if (Files.isRegularFile(snapshotFile)
+                    && (!Files.exists(osmFile)
+                    || !Files.getLastModifiedTime(snapshotFile).toInstant()
+                    .isBefore(Files.getLastModifiedTime(osmFile).toInstant()))) {
+                return read(snapshotFile).toBuildResult();
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+
+        Main.OSMCompiler.BuildResult result = new Main.OSMCompiler().compile(osmFile);
+        try {
+            of(result).write(snapshotFile);
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Writes this snapshot to {@code file}, replacing it atomically.
+     *
+     * @param file the destination
+     * @throws IOException if writing fails
+     */
+    public void write(Path file) throws IOException {
+        int V = graph.V();
+        int E = graph.E();
+        int points = edgeGeometry.size();
+        int[] edgeStart = edgeGeometry.edgeStart();
+
+        // Street-name dictionary, written as the attributes hold it
+        int[] nameIndex = new int[E];
+        for (int e = 0; e < E; e++) nameIndex[e] = attrs.streetNameId(e);
+        int names = attrs.streetNameCount();
+        int[] nameOffset = Arrays.copyOf(attrs.streetNameOffsets(), names + 1);
+        int nameBytes = nameOffset[names];
+
+        long payload = payloadBytes(V, E, points, names, nameBytes);
+        if (HEADER_BYTES + payload > Integer.MAX_VALUE) {
+            throw new IOException("network too large for a single snapshot buffer");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) (HEADER_BYTES + payload)).order(ByteOrder.LITTLE_ENDIAN);
+        buf.position(HEADER_BYTES);
+
+        putDoubles(buf, lat);
+        putDoubles(buf, lon);
+
+        double[] column = new double[E];
+        for (int e = 0; e < E; e++) column[e] = graph.edgeWeight(e);
+        putDoubles(buf, column);
+        for (int e = 0; e < E; e++) column[e] = attrs.distanceMeters(e);
+        putDoubles(buf, column);
+        for (int e = 0; e < E; e++) column[e] = attrs.timeSeconds(e);
+        putDoubles(buf, column);
+
+        double[] coords = new double[points];
+        for (int i = 0; i < points; i++) coords[i] = edgeGeometry.x(i);
+        putDoubles(buf, coords);
+        for (int i = 0; i < points; i++) coords[i] = edgeGeometry.y(i);
+        putDoubles(buf, coords);
+
+        int[] ends = new int[E];
+        for (int e = 0; e < E; e++) ends[e] = graph.edgeTail(e);
+        putInts(buf, ends);
+        for (int e = 0; e < E; e++) ends[e] = graph.edgeHead(e);
+        putInts(buf, ends);
+        putInts(buf, nameIndex);
+        putInts(buf, edgeStart);
+
+        putInts(buf, nameOffset);
+        buf.put(attrs.streetNameBytes(), 0, nameBytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), HEADER_BYTES, (int) payload);
+
+        buf.position(0);
+        buf.putInt(MAGIC).putInt(VERSION)
+                .putInt(V).putInt(E).putInt(points).putInt(names).putInt(nameBytes).putInt(0)
+                .putLong(payload).putLong(crc.getValue());
+        buf.position(0);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write}.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read, has the wrong magic or
+     *                     version, is truncated, or fails its checksum
+     */
+    public static GraphSnapshot read(Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) throw new IOException("snapshot truncated: " + file);
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        ByteBuffer buf = map.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buf.getInt() != MAGIC) throw new IOException("not a graph snapshot: " + file);
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version " + version + " (expected " + VERSION + ")");
+        }
+
+        int V = buf.getInt();
+        int E = buf.getInt();
+        int points = buf.getInt();
+        int names = buf.getInt();
+        int nameBytes = buf.getInt();
+        buf.getInt();
+        long payload = buf.getLong();
+        long expectedCrc = buf.getLong();
+
+        if (V < 0 || E < 0 || points < 0 || names < 0 || nameBytes < 0
+                || payload != payloadBytes(V, E, points, names, nameBytes)
+                || payload != buf.capacity() - (long) HEADER_BYTES) {
+            throw new IOException("snapshot header does not match file size: " + file);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(HEADER_BYTES, (int) payload));
+        if (crc.getValue() != expectedCrc) throw new IOException("snapshot checksum mismatch: " + file);
+
+        double[] lat = getDoubles(buf, V);
+        double[] lon = getDoubles(buf, V);
+        double[] weight = getDoubles(buf, E);
+        double[] distance = getDoubles(buf, E);
+        double[] time = getDoubles(buf, E);
+        double[] geomX = getDoubles(buf, points);
+        double[] geomY = getDoubles(buf, points);
+        int[] tail = getInts(buf, E);
+        int[] head = getInts(buf, E);
+        int[] nameIndex = getInts(buf, E);
+        int[] edgeStart = getInts(buf, E + 1);
+        int[] nameOffset = getInts(buf, names + 1);
+
+        byte[] nameUtf8 = new byte[nameBytes];
+        buf.get(nameUtf8);
+
+        try {
+            WeightedDigraph graph = WeightedDigraph.fromEdgeArrays(V, tail, head, weight);
+            EdgeAttributes attrs = EdgeAttributes.fromArrays(distance, time, nameIndex, nameUtf8, nameOffset);
+            return new GraphSnapshot(graph, attrs, lat, lon, new EdgeGeometry(edgeStart, geomX, geomY));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("corrupt snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the payload size implied by the header counts.
+     *
+     * @param V         vertex count
+     * @param E         edge count
+     * @param points    geometry point count
+     * @param names     dictionary size
+     * @param nameBytes total UTF-8 bytes of all names
+     * @return the payload size in bytes
+     */
+    private static long payloadBytes(int V, int E, int points, int names, int nameBytes) {
+        return 8L * (2L * V + 3L * E + 2L * points)
+                + 4L * (3L * E + (E + 1L) + (names + 1L))
+                + nameBytes;
+    }
+
+    /**
+     * Appends a double array at the buffer's position.
+     *
+     * @param buf the buffer
+     * @param a   the values
+     */
+    private static void putDoubles(ByteBuffer buf, double[] a) {
+        buf.asDoubleBuffer().put(a);
+        buf.position(buf.position() + 8 * a.length);
+    }
+
+    /**
+     * Appends an int array at the buffer's position.
+     *
+     * @param buf the buffer
+     * @param a   the values
+     */
+    private static void putInts(ByteBuffer buf, int[] a) {
+        buf.asIntBuffer().put(a);
+        buf.position(buf.position() + 4 * a.length);
+    }
+
+    /**
+     * Reads {@code n} doubles from the buffer's position.
+     *
+     * @param buf the buffer
+     * @param n   the count
+     * @return the values
+     */
+    private static double[] getDoubles(ByteBuffer buf, int n) {
+        double[] a = new double[n];
+        buf.asDoubleBuffer().get(a);
+        buf.position(buf.position() + 8 * n);
+        return a;
+    }
+
+    /**
+     * Reads {@code n} ints from the buffer's position.
+     *
+     * @param buf the buffer
+     * @param n   the count
+     * @return the values
+     */
+    private static int[] getInts(ByteBuffer buf, int n) {
+        int[] a = new int[n];
+        buf.asIntBuffer().get(a);
+        buf.position(buf.position() + 4 * n);
+        return a;
+    }
+
+    /**
+     * Returns a short description of the snapshot.
+     *
+     * @return a summary string
+     */
+    @Override
+    public String toString() {
+        return String.format("GraphSnapshot[V=%d, E=%d, points=%d]", graph.V(), graph.E(), edgeGeometry.size());
+    }
+}
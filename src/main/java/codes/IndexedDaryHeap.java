@@ -0,0 +1,315 @@
+package codes;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An indexed d-ary min-heap with primitive {@code double} keys.
+ *
+ * <p>Associates each integer index {@code 0..capacity-1} with a priority key and
+ * supports the operations shortest path searches need: insert, decrease-key,
+ * delete-min and membership tests. Unlike {@code IndexMinPQ<Double>}, keys are
+ * never boxed and all state lives in four primitive arrays.</p>
+ *
+ * <p>A wider fan-out (default 4) makes the heap shallower, which trades a few
+ * extra comparisons in {@code sink} for fewer levels and better cache locality
+ * in {@code swim}, the operation decrease-key-heavy searches use most.</p>
+ *
+ * <p>{@link #clear()} only touches the indices still in the heap, so one
+ * instance can be reused across queries without an O(capacity) reset.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     IndexedDaryHeap pq = new IndexedDaryHeap(graph.V());
+ *     pq.insert(s, 0.0);
+ *     while (!pq.isEmpty()) {
+ *         int v = pq.delMin();
+ *         ...
+ *     }
+ * </pre>
+ * </p>
+ */
+public final class IndexedDaryHeap {
+
+    /** Default number of children per heap node. */
+    public static final int DEFAULT_ARITY = 4;
+
+    /** Number of children per heap node. */
+    private final int d;
+
+    /** Number of indices currently in the heap. */
+    private int n;
+
+    /** Heap position → index. */
+    private final int[] heap;
+
+    /** Heap position → key (kept next to {@link #heap} for locality). */
+    private final double[] heapKeys;
+
+    /** Index → heap position, or -1 if the index is not in the heap. */
+    private final int[] pos;
+
+    /**
+     * Creates an empty 4-ary heap for indices {@code 0..capacity-1}.
+     *
+     * @param capacity the number of distinct indices
+     * @throws IllegalArgumentException if {@code capacity < 0}
+     */
+    public IndexedDaryHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates an empty d-ary heap for indices {@code 0..capacity-1}.
+     *
+     * @param capacity the number of distinct indices
+     * @param arity    the number of children per heap node (at least 2)
+     * @throws IllegalArgumentException if {@code capacity < 0} or {@code arity < 2}
+     */
+    public IndexedDaryHeap(int capacity, int arity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity < 0");
+        if (arity < 2) throw new IllegalArgumentException("arity must be at least 2");
+
+        this.d = arity;
+        this.n = 0;
+        this.heap = new int[capacity];
+        this.heapKeys = new double[capacity];
+        this.pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    /**
+     * Returns the maximum number of distinct indices.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return pos.length;
+    }
+
+    /**
+     * Returns true if the heap is empty.
+     *
+     * @return {@code true} if empty; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of indices in the heap.
+     *
+     * @return the heap size
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns true if index {@code i} is in the heap.
+     *
+     * @param i the index
+     * @return {@code true} if present; {@code false} otherwise
+     * @throws IllegalArgumentException if {@code i} is out of range
+     */
+    public boolean contains(int i) {
+        validateIndex(i);
+        return pos[i] != -1;
+    }
+
+    /**
+     * Inserts index {@code i} with the given key.
+     *
+     * @param i   the index
+     * @param key the priority key
+     * @throws IllegalArgumentException if {@code i} is out of range or already present
+     */
+    public void insert(int i, double key) {
+        validateIndex(i);
+        if (pos[i] != -1) throw new IllegalArgumentException("index is already in the priority queue");
+
+        int k = n++;
+        heap[k] = i;
+        heapKeys[k] = key;
+        pos[i] = k;
+        swim(k);
+    }
+
+    /**
+     * Decreases the key associated with index {@code i}.
+     *
+     * @param i   the index
+     * @param key the new key (must not exceed the current key)
+     * @throws IllegalArgumentException if {@code i} is out of range or {@code key}
+     *                                  is greater than the current key
+     * @throws NoSuchElementException   if {@code i} is not in the heap
+     */
+    public void decreaseKey(int i, double key) {
+        validateIndex(i);
+        int k = pos[i];
+        if (k == -1) throw new NoSuchElementException("index is not in the priority queue");
+        if (key > heapKeys[k]) throw new IllegalArgumentException("decreaseKey() called with a greater key");
+
+        heapKeys[k] = key;
+        swim(k);
+    }
+
+    /**
+     * Changes the key associated with index {@code i} in either direction.
+     *
+     * @param i   the index
+     * @param key the new key
+     * @throws IllegalArgumentException if {@code i} is out of range
+     * @throws NoSuchElementException   if {@code i} is not in the heap
+     */
+    public void changeKey(int i, double key) {
+        validateIndex(i);
+        int k = pos[i];
+        if (k == -1) throw new NoSuchElementException("index is not in the priority queue");
+
+        double old = heapKeys[k];
+        heapKeys[k] = key;
+        if (key < old) swim(k);
+        else sink(k);
+    }
+
+    /**
+     * Returns the key associated with index {@code i}.
+     *
+     * @param i the index
+     * @return the key
+     * @throws NoSuchElementException if {@code i} is not in the heap
+     */
+    public double keyOf(int i) {
+        validateIndex(i);
+        if (pos[i] == -1) throw new NoSuchElementException("index is not in the priority queue");
+        return heapKeys[pos[i]];
+    }
+
+    /**
+     * Returns the smallest key.
+     *
+     * @return the minimum key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public double minKey() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return heapKeys[0];
+    }
+
+    /**
+     * Returns the index associated with the smallest key.
+     *
+     * @return the index with the minimum key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int minIndex() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return heap[0];
+    }
+
+    /**
+     * Removes the smallest key and returns its index.
+     *
+     * @return the index that had the minimum key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+
+        int min = heap[0];
+        pos[min] = -1;
+        n--;
+
+        if (n > 0) {
+            heap[0] = heap[n];
+            heapKeys[0] = heapKeys[n];
+            pos[heap[0]] = 0;
+            sink(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all indices from the heap.
+     *
+     * <p>Runs in O(size), not O(capacity): only indices still in the heap
+     * need their position reset.</p>
+     */
+    public void clear() {
+        for (int k = 0; k < n; k++) pos[heap[k]] = -1;
+        n = 0;
+    }
+
+    /**
+     * Moves the entry at heap position {@code k} up until its parent is not larger.
+     *
+     * @param k the heap position
+     */
+    private void swim(int k) {
+        int item = heap[k];
+        double key = heapKeys[k];
+
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            if (heapKeys[parent] <= key) break;
+
+            heap[k] = heap[parent];
+            heapKeys[k] = heapKeys[parent];
+            pos[heap[k]] = k;
+            k = parent;
+        }
+
+        heap[k] = item;
+        heapKeys[k] = key;
+        pos[item] = k;
+    }
+
+    /**
+     * Moves the entry at heap position {@code k} down until no child is smaller.
+     *
+     * @param k the heap position
+     */
+    private void sink(int k) {
+        int item = heap[k];
+        double key = heapKeys[k];
+
+        while (true) {
+            int first = k * d + 1;
+            if (first >= n) break;
+
+            // Find the smallest child
+            int last = Math.min(first + d, n);
+            int best = first;
+            double bestKey = heapKeys[first];
+            for (int c = first + 1; c < last; c++) {
+                if (heapKeys[c] < bestKey) {
+                    best = c;
+                    bestKey = heapKeys[c];
+                }
+            }
+
+            if (bestKey >= key) break;
+
+            heap[k] = heap[best];
+            heapKeys[k] = bestKey;
+            pos[heap[k]] = k;
+            k = best;
+        }
+
+        heap[k] = item;
+        heapKeys[k] = key;
+        pos[item] = k;
+    }
+
+    /**
+     * Validates that {@code i} is a legal index.
+     *
+     * @param i the index
+     * @throws IllegalArgumentException if {@code i} is out of range
+     */
+    private void validateIndex(int i) {
+        if (i < 0) throw new IllegalArgumentException("index is negative: " + i);
+        if (i >= pos.length) throw new IllegalArgumentException("index >= capacity: " + i);
+    }
+}
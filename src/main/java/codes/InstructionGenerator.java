@@ -17,6 +17,9 @@ import java.util.List;
  * </ul>
  * </p>
  *
+ * <p>Street names are compared by their {@link EdgeAttributes} dictionary
+ * IDs, so a name change is an integer comparison per junction.</p>
+ *
  * <p>Turn direction is determined by computing the angle between consecutive
  * edge geometries using cross/dot product of direction vectors.</p>
  *
@@ -101,6 +104,7 @@ public class InstructionGenerator {
         List<Instruction> out = new ArrayList<>();
         if (r == null || r.edgeIds == null || r.edgeIds.length == 0) return out;
 
+        int currentId = attrs.streetNameId(r.edgeIds[0]);
         String currentStreet = safe(attrs.streetName(r.edgeIds[0]));
         out.add(new Instruction(Instruction.Type.START, currentStreet, 0));
 
@@ -112,16 +116,15 @@ public class InstructionGenerator {
 
             acc += attrs.distanceMeters(e0);
 
-            String nextStreet = safe(attrs.streetName(e1));
+            int nextId = attrs.streetNameId(e1);
             TurnInfo turn = turnBetweenEdges(g, e0, e1);
 
-            boolean nameChange = !nextStreet.equalsIgnoreCase(currentStreet);
-
             // Policy A: always emit on street-name change
-            if (nameChange) {
-                out.add(new Instruction(turn.turnType, nextStreet, acc));
+            if (nextId != currentId) {
+                currentId = nextId;
+                currentStreet = safe(attrs.streetName(e1));
+                out.add(new Instruction(turn.turnType, currentStreet, acc));
                 acc = 0.0;
-                currentStreet = nextStreet;
                 continue;
             }
 
@@ -144,6 +147,22 @@ public class InstructionGenerator {
         return out;
     }
 
+    /**
+     * Returns whether an instruction may be emitted between two consecutive
+     * route edges: the street name changes, or the angle is a sharp bend
+     * (ignoring the spam guard distance).
+     *
+     * @param g     edge geometry for turn angle computation
+     * @param attrs edge attributes containing street names
+     * @param e0    the edge being exited
+     * @param e1    the edge being entered
+     * @return true if the junction is a turn point
+     */
+    static boolean isTurn(EdgeGeometry g, EdgeAttributes attrs, int e0, int e1) {
+        if (attrs.streetNameId(e0) != attrs.streetNameId(e1)) return true;
+        return turnBetweenEdges(g, e0, e1).isSharpBend;
+    }
+
     /**
      * Encapsulates turn analysis results.
      */
@@ -0,0 +1,523 @@
+package codes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The part of the road network reachable from a snapped location within a
+ * cost limit ("everything within 10 minutes / 5 km").
+ *
+ * <p>{@link #compute} runs a {@link ShortestPathAlgorithms.BoundedDijkstra}
+ * seeded with both endpoints of the origin edge at their partial edge costs
+ * (the same rule {@link DistanceMatrix} and {@code /route} use), then lists
+ * every reached edge as a fragment {@code [from, to]} of its length: whole
+ * edges where the limit reaches past the far end, and cut at the boundary
+ * elsewhere. A two-way road reached from both ends is reported once; if the
+ * two reaches overlap, the whole edge is reported.</p>
+ *
+ * <p>Fragments are geometry-free; {@link #shape} cuts the edge polylines
+ * with {@link Reconstruction#subEdge} and can add an outline polygon.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     DistanceMatrix.Location origin = DistanceMatrix.Location.of(snap, graph);
+ *     Isochrone iso = engine.isochrone(origin, 600, RoutingEngine.Metric.TIME);
+ *     Isochrone.Shape shape = iso.shape(ctx.projectedGeometry(), ctx.projection(), Isochrone.DEFAULT_SECTORS);
+ * </pre>
+ * </p>
+ */
+public final class Isochrone {
+
+    /** Default number of angular sectors in the outline polygon. */
+    public static final int DEFAULT_SECTORS = 72;
+
+    /** The location costs are measured from. */
+    private final DistanceMatrix.Location origin;
+
+    /** Metric of the limit. */
+    private final RoutingEngine.Metric metric;
+
+    /** The cost limit (meters or seconds). */
+    private final double limit;
+
+    /** Edge of each fragment. */
+    private final int[] edgeIds;
+
+    /** Start of each fragment along its edge, in {@code [0, 1]}. */
+    private final double[] from;
+
+    /** End of each fragment along its edge, in {@code [0, 1]}. */
+    private final double[] to;
+
+    /** Vertices within the limit. */
+    private final int settledCount;
+
+    private Isochrone(DistanceMatrix.Location origin, RoutingEngine.Metric metric, double limit,
+                      int[] edgeIds, double[] from, double[] to, int settledCount) {
+        this.origin = origin;
+        this.metric = metric;
+        this.limit = limit;
+        this.edgeIds = edgeIds;
+        this.from = from;
+        this.to = to;
+        this.settledCount = settledCount;
+    }
+
+    /**
+     * Computes the reachable fragments around {@code origin}.
+     *
+     * @param G          the routed graph
+     * @param attrs      edge attributes with distances and times
+     * @param metric     the cost metric
+     * @param workspaces search state pool for graphs of {@code G.V()} vertices
+     * @param origin     the start location
+     * @param limit      the largest cost to reach (meters or seconds)
+     * @return the isochrone
+     * @throws IllegalArgumentException if an argument is null, or {@code limit} is negative or NaN
+     */
+    public static Isochrone compute(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric,
+                                    SearchWorkspace.Pool workspaces, DistanceMatrix.Location origin, double limit) {
+        if (G == null || attrs == null || metric == null || workspaces == null || origin == null) {
+            throw new IllegalArgumentException("arguments cannot be null");
+        }
+        if (!(limit >= 0.0)) throw new IllegalArgumentException("limit must be non-negative");
+
+        CsrDigraph csr = G.csr();
+        int oe = origin.edgeId();
+        double t = origin.t();
+        double len = cost(attrs, metric, oe);
+
+        // Leave the origin forward to toVertex, and back to fromVertex if the edge is two-way
+        int[] sources = origin.reversible()
+                ? new int[]{origin.toVertex(), origin.fromVertex()}
+                : new int[]{origin.toVertex()};
+        double[] offsets = origin.reversible()
+                ? new double[]{(1 - t) * len, t * len}
+                : new double[]{(1 - t) * len};
+        int or = origin.reversible() ? reverseOf(csr, origin.fromVertex(), origin.toVertex()) : -1;
+
+        Fragments out = new Fragments();
+        SearchWorkspace ws = workspaces.acquire();
+        try {
+            ShortestPathAlgorithms.BoundedDijkstra sp =
+                    new ShortestPathAlgorithms.BoundedDijkstra(G, attrs, metric, sources, offsets, limit, ws);
+
+            for (int u : sp.settledVertices()) {
+                double du = ws.dist(u);
+                for (int i = csr.firstOut(u), end = csr.endOut(u); i < end; i++) {
+                    int e = csr.edgeId(i);
+                    if (e == oe || e == or) continue;
+
+                    // A two-way road is handled once, from the end with the smaller edge ID
+                    int w = csr.head(i);
+                    int r = reverseOf(csr, u, w);
+                    boolean wReached = ws.reached(w);
+                    if (r >= 0 && r < e && wReached) continue;
+
+                    double a = reach(limit - du, cost(attrs, metric, e));
+                    double b = (r >= 0 && wReached) ? reach(limit - ws.dist(w), cost(attrs, metric, r)) : 0.0;
+                    if (a + b >= 1.0) {
+                        out.add(e, 0.0, 1.0);
+                    } else {
+                        if (a > 0.0) out.add(e, 0.0, a);
+                        if (b > 0.0) out.add(r, 0.0, b);
+                    }
+                }
+            }
+
+            // Origin edge: outward from the snap point, plus any reach back onto it through its ends
+            double d = reach(limit, len);
+            double[][] spans = new double[3][];
+            spans[0] = new double[]{origin.reversible() ? Math.max(0.0, t - d) : t, Math.min(1.0, t + d)};
+            if (ws.reached(origin.fromVertex())) {
+                spans[1] = new double[]{0.0, reach(limit - ws.dist(origin.fromVertex()), len)};
+            }
+            if (or >= 0 && ws.reached(origin.toVertex())) {
+                spans[2] = new double[]{1.0 - reach(limit - ws.dist(origin.toVertex()), cost(attrs, metric, or)), 1.0};
+            }
+            addMerged(out, oe, spans);
+
+            return new Isochrone(origin, metric, limit, Arrays.copyOf(out.edges, out.n),
+                    Arrays.copyOf(out.from, out.n), Arrays.copyOf(out.to, out.n), sp.settledCount());
+        } finally {
+            workspaces.release(ws);
+        }
+    }
+
+    /**
+     * Returns the location costs are measured from.
+     *
+     * @return the origin
+     */
+    public DistanceMatrix.Location origin() {
+        return origin;
+    }
+
+    /**
+     * Returns the metric of the limit.
+     *
+     * @return the metric
+     */
+    public RoutingEngine.Metric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns the cost limit.
+     *
+     * @return the limit (meters or seconds)
+     */
+    public double limit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of reached edge fragments.
+     *
+     * @return the fragment count
+     */
+    public int size() {
+        return edgeIds.length;
+    }
+
+    /**
+     * Returns the edge of fragment {@code i}.
+     *
+     * @param i the fragment index
+     * @return the edge ID
+     */
+    public int edgeId(int i) {
+        return edgeIds[i];
+    }
+
+    /**
+     * Returns where fragment {@code i} starts along its edge.
+     *
+     * @param i the fragment index
+     * @return the position in {@code [0, 1]}
+     */
+    public double from(int i) {
+        return from[i];
+    }
+
+    /**
+     * Returns where fragment {@code i} ends along its edge.
+     *
+     * @param i the fragment index
+     * @return the position in {@code [0, 1]}, greater than {@link #from(int)}
+     */
+    public double to(int i) {
+        return to[i];
+    }
+
+    /**
+     * Returns the number of vertices within the limit.
+     *
+     * @return the settled vertex count
+     */
+    public int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Reached geometry in lon/lat.
+     *
+     * @param lines one polyline per fragment ({@code x} = longitude, {@code y} = latitude)
+     * @param hull  closed outline ring, counter-clockwise; empty if not requested or degenerate
+     */
+    public record Shape(List<List<Point>> lines, List<Point> hull) { }
+
+    /**
+     * Cuts the fragments out of the edge geometry and optionally outlines them.
+     *
+     * <p>The outline is a star-shaped polygon around the origin: the plane is
+     * split into {@code sectors} equal angles and the farthest reached point
+     * in each becomes a vertex. It follows inlets between reached roads that
+     * a convex hull would cover, at O(points) cost and without the failure
+     * modes of general concave-hull algorithms; its resolution is
+     * {@code 360 / sectors} degrees.</p>
+     *
+     * @param projected  edge geometry in projected meters (the snapper's geometry)
+     * @param projection projection to convert back to lon/lat
+     * @param sectors    outline sectors, or {@code 0} for no outline
+     * @return the geometry
+     * @throws IllegalArgumentException if {@code sectors} is negative
+     */
+    public Shape shape(EdgeGeometry projected, LocalProjection projection, int sectors) {
+        if (sectors < 0) throw new IllegalArgumentException("sectors must be non-negative");
+
+        Point c = Reconstruction.interpolateOnEdge(projected, origin.edgeId(), origin.t());
+        double[] farX = new double[sectors], farY = new double[sectors], farR2 = new double[sectors];
+
+        List<List<Point>> lines = new ArrayList<>(edgeIds.length);
+        double[] ll = new double[2];
+        for (int i = 0; i < edgeIds.length; i++) {
+            List<Point> xy = Reconstruction.subEdge(projected, edgeIds[i], from[i], to[i]);
+            List<Point> line = new ArrayList<>(xy.size());
+            for (Point p : xy) {
+                projection.inverse(p.x, p.y, ll);
+                line.add(new Point(ll[1], ll[0]));
+
+                if (sectors == 0) continue;
+                double dx = p.x - c.x, dy = p.y - c.y, r2 = dx * dx + dy * dy;
+                int k = Math.min(sectors - 1, (int) ((Math.atan2(dy, dx) + Math.PI) / (2 * Math.PI) * sectors));
+                if (r2 > farR2[k]) {
+                    farR2[k] = r2;
+                    farX[k] = p.x;
+                    farY[k] = p.y;
+                }
+            }
+            lines.add(line);
+        }
+
+        // Sectors in increasing angle give a counter-clockwise ring
+        List<Point> hull = new ArrayList<>();
+        for (int k = 0; k < sectors; k++) {
+            if (farR2[k] == 0.0) continue;
+            projection.inverse(farX[k], farY[k], ll);
+            hull.add(new Point(ll[1], ll[0]));
+        }
+        if (hull.size() < 3) hull.clear();
+        else hull.add(hull.get(0));
+
+        return new Shape(lines, hull);
+    }
+
+    /**
+     * Returns a string summary for debugging.
+     *
+     * @return summary with metric, limit and sizes
+     */
+    @Override
+    public String toString() {
+        return String.format("Isochrone(%s <= %.1f, %d fragments, %d vertices)",
+                metric, limit, edgeIds.length, settledCount);
+    }
+
+    /* ============================================================
+     * Fragments
+     * ============================================================ */
+
+    /**
+     * Growable fragment arrays.
+     */
+    private static final class Fragments {
+        int[] edges = new int[64];
+        double[] from = new double[64];
+        double[] to = new double[64];
+        int n;
+
+        void add(int edgeId, double t0, double t1) {
+            if (n == edges.length) {
+                edges = Arrays.copyOf(edges, n * 2);
+                from = Arrays.copyOf(from, n * 2);
+                to = Arrays.copyOf(to, n * 2);
+            }
+            edges[n] = edgeId;
+            from[n] = t0;
+            to[n] = t1;
+            n++;
+        }
+    }
+
+    /**
+     * Adds the union of up to a few spans along one edge, dropping empty ones.
+     *
+     * @param out    the fragments
+     * @param edgeId the edge
+     * @param spans  {@code [t0, t1]} spans (entries may be null)
+     */
+    private static void addMerged(Fragments out, int edgeId, double[][] spans) {
+        double[][] s = Arrays.stream(spans)
+                .filter(x -> x != null && x[1] > x[0])
+                .sorted((x, y) -> Double.compare(x[0], y[0]))
+                .toArray(double[][]::new);
+        for (int i = 0; i < s.length; ) {
+            double lo = s[i][0], hi = s[i][1];
+            for (i++; i < s.length && s[i][0] <= hi; i++) hi = Math.max(hi, s[i][1]);
+            out.add(edgeId, lo, hi);
+        }
+    }
+
+    /**
+     * Returns the fraction of an edge covered with {@code remaining} cost left at its tail.
+     *
+     * @param remaining cost left
+     * @param edgeCost  cost of the whole edge
+     * @return the fraction in {@code [0, 1]}
+     */
+    private static double reach(double remaining, double edgeCost) {
+        if (!(remaining > 0.0)) return 0.0;
+        if (!(edgeCost > remaining)) return 1.0;
+        return remaining / edgeCost;
+    }
+
+    /**
+     * Returns the cost of traversing a whole edge.
+     *
+     * @param attrs  edge attributes
+     * @param metric the metric
+     * @param edgeId the edge
+     * @return meters or seconds
+     */
+    private static double cost(EdgeAttributes attrs, RoutingEngine.Metric metric, int edgeId) {
+        return (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(edgeId) : attrs.timeSeconds(edgeId);
+    }
+
+    /**
+     * Finds the edge travelling {@code w → u}, the reverse of a {@code u → w} edge.
+     *
+     * @param csr the graph snapshot
+     * @param u   the forward edge's tail
+     * @param w   the forward edge's head
+     * @return the reverse edge ID, or -1 if the road is one-way
+     */
+    private static int reverseOf(CsrDigraph csr, int u, int w) {
+        for (int i = csr.firstOut(w), end = csr.endOut(w); i < end; i++) {
+            if (csr.head(i) == u) return csr.edgeId(i);
+        }
+        return -1;
+    }
+
+    /* ============================================================
+     * Cache
+     * ============================================================ */
+
+    /**
+     * Cache key: the origin's edge and quantized position (as in
+     * {@link RouteCache.Key}), the metric, the limit and whether an outline
+     * was requested.
+     *
+     * @param edgeId the origin edge
+     * @param t      the origin position along it, in {@code 0..RouteCache.T_STEPS}
+     * @param metric the metric
+     * @param limit  the cost limit
+     * @param hull   whether the cached body includes the outline
+     */
+    public record Key(int edgeId, int t, RoutingEngine.Metric metric, double limit, boolean hull) {
+
+        /**
+         * Builds the key for a query.
+         *
+         * @param origin the origin
+         * @param metric the metric
+         * @param limit  the cost limit
+         * @param hull   whether the outline is requested
+         * @return the key
+         */
+        public static Key of(DistanceMatrix.Location origin, RoutingEngine.Metric metric, double limit, boolean hull) {
+            int t = (int) Math.round(Math.max(0.0, Math.min(1.0, origin.t())) * RouteCache.T_STEPS);
+            return new Key(origin.edgeId(), t, metric, limit, hull);
+        }
+    }
+
+    /**
+     * A cached isochrone.
+     *
+     * @param isochrone the isochrone
+     * @param body      the serialized response for it (may be null)
+     * @param weight    the bytes charged against the budget
+     */
+    public record Entry(Isochrone isochrone, byte[] body, long weight) { }
+
+    /**
+     * A bounded, thread-safe LRU cache of isochrones: a {@link WeightedLruCache}
+     * charging each entry for its fragments and body, like {@link RouteCache}.
+     */
+    public static final class Cache {
+
+        /** Fixed charge per entry (bytes). */
+        private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+        /** Charge per fragment (bytes). */
+        private static final long FRAGMENT_BYTES = 20;
+
+        /** The cached isochrones. */
+        private final WeightedLruCache<Key, Entry> entries;
+
+        /**
+         * Creates an empty cache for isochrones on {@code graph}.
+         *
+         * @param graph          the routed graph
+         * @param attrs          the edge attributes isochrones are costed with
+         * @param maxWeightBytes the weight budget (bytes)
+         * @throws IllegalArgumentException if {@code graph} or {@code attrs} is null, or
+         *                                  {@code maxWeightBytes < 0}
+         */
+        public Cache(WeightedDigraph graph, EdgeAttributes attrs, long maxWeightBytes) {
+            this.entries = new WeightedLruCache<>(graph, attrs, maxWeightBytes, Entry::weight);
+        }
+
+        /**
+         * Returns the cached isochrone for {@code key}, marking it most recently used.
+         *
+         * @param key the key
+         * @return the entry, or {@code null} on a miss
+         */
+        public Entry get(Key key) {
+            return entries.get(key);
+        }
+
+        /**
+         * Caches an isochrone, then evicts least recently used entries until
+         * the cache fits its budget. An entry heavier than the whole budget is
+         * returned but not kept.
+         *
+         * @param key       the key
+         * @param isochrone the isochrone
+         * @param body      the serialized response (may be null)
+         * @return the entry now associated with {@code key}
+         * @throws IllegalArgumentException if {@code key} or {@code isochrone} is null
+         */
+        public Entry put(Key key, Isochrone isochrone, byte[] body) {
+            if (key == null || isochrone == null) throw new IllegalArgumentException("key and isochrone cannot be null");
+
+            long w = ENTRY_OVERHEAD_BYTES + FRAGMENT_BYTES * isochrone.size() + (body != null ? body.length : 0);
+            return entries.put(key, new Entry(isochrone, body, w));
+        }
+
+        /**
+         * Removes every entry.
+         */
+        public void invalidate() {
+            entries.invalidate();
+        }
+
+        /**
+         * Returns the number of cached isochrones.
+         *
+         * @return the entry count
+         */
+        public int size() {
+            return entries.size();
+        }
+
+        /**
+         * Returns the number of lookups that found an isochrone.
+         *
+         * @return the hit count
+         */
+        public long hits() {
+            return entries.hits();
+        }
+
+        /**
+         * Returns the number of lookups that found nothing.
+         *
+         * @return the miss count
+         */
+        public long misses() {
+            return entries.misses();
+        }
+
+        /**
+         * Returns the number of isochrones dropped to stay within the budget.
+         *
+         * @return the eviction count
+         */
+        public long evictions() {
+            return entries.evictions();
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package codes;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Landmark distance tables for the ALT (A*, Landmarks, Triangle inequality) heuristic.
+ *
+ * <p>For a landmark {@code L}, the triangle inequality gives two lower bounds
+ * on the cost of any path {@code v → t}:
+ * <pre>
+ *     d(v, t) ≥ d(v, L) - d(t, L)
+ *     d(v, t) ≥ d(L, t) - d(L, v)
+ * </pre>
+ * The heuristic is the largest of these over all landmarks. Unlike the
+ * straight-line bound, it follows the road network and the metric, so it
+ * stays tight for TIME routing where dividing by a global top speed makes
+ * the Euclidean estimate almost useless.</p>
+ *
+ * <p>Preprocessing picks the landmarks and then runs one full Dijkstra from
+ * each landmark over out-edges ({@code d(L, ·)}) and one over in-edges
+ * ({@code d(·, L)}). Independent searches run in parallel. Distances are
+ * stored as {@code float}, interleaved per vertex ({@code [v * K + i]}) so a
+ * heuristic evaluation reads one contiguous run per table. The rounding
+ * error is subtracted from every bound, so the heuristic stays admissible.</p>
+ *
+ * <p>Landmark selection strategies:
+ * <ul>
+ *   <li>{@link Selection#FARTHEST}: each new landmark is the vertex farthest
+ *       from all landmarks chosen so far.</li>
+ *   <li>{@link Selection#AVOID}: grows a shortest path tree from a random
+ *       root and places the landmark at a leaf of the subtree whose current
+ *       bounds are worst (Goldberg and Werneck).</li>
+ * </ul>
+ * </p>
+ *
+ * <p>Tables are built for one {@link RoutingEngine.Metric} and are read-only
+ * afterwards, so one instance can serve concurrent queries.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     Landmarks lm = new Landmarks(graph, attrs, RoutingEngine.Metric.TIME, 8, Landmarks.Selection.AVOID);
+ *     ShortestPathAlgorithms.Astar sp = new ShortestPathAlgorithms.Astar(graph, attrs, lm, lm.metric(), s, t);
+ * </pre>
+ * </p>
+ */
+public final class Landmarks implements ShortestPathAlgorithms.Heuristic {
+
+    /** Default number of landmarks. */
+    public static final int DEFAULT_COUNT = 8;
+
+    /** Seed for the random roots used during selection, so builds are reproducible. */
+    private static final long SEED = 20240601L;
+
+    /**
+     * Landmark selection strategies.
+     */
+    public enum Selection {
+        /** Repeatedly pick the vertex farthest from the landmarks chosen so far. */
+        FARTHEST,
+        /** Pick leaves of the shortest path subtree the current landmarks cover worst. */
+        AVOID
+    }
+
+    /** The metric the tables were computed for. */
+    private final RoutingEngine.Metric metric;
+
+    /** Number of vertices. */
+    private final int V;
+
+    /** Number of landmarks. */
+    private final int K;
+
+    /** Landmark vertices. */
+    private final int[] landmarks;
+
+    /** d(L_i, v) at {@code [v * K + i]} ({@code +Inf} if unreachable). */
+    private final float[] from;
+
+    /** d(v, L_i) at {@code [v * K + i]} ({@code +Inf} if unreachable). */
+    private final float[] to;
+
+    /**
+     * Selects {@code count} landmarks with the given strategy and builds their tables.
+     *
+     * @param G         the weighted directed graph
+     * @param attrs     edge attributes containing distance/time information
+     * @param metric    the metric to compute distances for
+     * @param count     the number of landmarks (at least 1, at most {@code G.V()})
+     * @param selection the selection strategy
+     * @throws IllegalArgumentException if any argument is null, {@code count} is out of
+     *                                  range, or {@code attrs.edgeCount() < G.E()}
+     */
+    public Landmarks(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric,
+                     int count, Selection selection) {
+        this(G, attrs, metric, count, selection, null);
+    }
+
+    /**
+     * Builds tables for caller-chosen landmark vertices.
+     *
+     * @param G         the weighted directed graph
+     * @param attrs     edge attributes containing distance/time information
+     * @param metric    the metric to compute distances for
+     * @param landmarks the landmark vertices (distinct, at least one)
+     * @throws IllegalArgumentException if any argument is null, {@code landmarks} is
+     *                                  empty or contains invalid or duplicate vertices,
+     *                                  or {@code attrs.edgeCount() < G.E()}
+     */
+    public Landmarks(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric, int[] landmarks) {
+        this(G, attrs, metric, landmarks == null ? 0 : landmarks.length, null, landmarks);
+    }
+
+    /**
+     * Shared constructor; selects landmarks when {@code chosen} is null.
+     *
+     * @param G         the weighted directed graph
+     * @param attrs     edge attributes containing distance/time information
+     * @param metric    the metric to compute distances for
+     * @param count     the number of landmarks
+     * @param selection the selection strategy (ignored if {@code chosen} is given)
+     * @param chosen    caller-chosen landmarks, or {@code null}
+     */
+    private Landmarks(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric,
+                      int count, Selection selection, int[] chosen) {
+        if (G == null || attrs == null || metric == null) {
+            throw new IllegalArgumentException("graph, attributes and metric cannot be null");
+        }
+        if (attrs.edgeCount() < G.E()) throw new IllegalArgumentException("EdgeAttributes.edgeCount() < G.E()");
+        if (count < 1 || count > G.V()) {
+            throw new IllegalArgumentException("landmark count must be in [1, " + G.V() + "]: " + count);
+        }
+        if (chosen == null && selection == null) throw new IllegalArgumentException("selection cannot be null");
+
+        this.metric = metric;
+        this.V = G.V();
+        this.K = count;
+        this.from = new float[V * K];
+        this.to = new float[V * K];
+
+        CsrDigraph csr = G.csr();
+        double[] cost = new double[G.E()];
+        for (int e = 0; e < cost.length; e++) {
+            cost[e] = (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(e) : attrs.timeSeconds(e);
+        }
+
+        if (chosen != null) {
+            this.landmarks = chosen.clone();
+            boolean[] seen = new boolean[V];
+            for (int l : landmarks) {
+                G.validateVertex(l);
+                if (seen[l]) throw new IllegalArgumentException("duplicate landmark: " + l);
+                seen[l] = true;
+            }
+
+            // Both tables of every landmark are independent
+            IntStream.range(0, 2 * K).parallel().forEach(j -> {
+                if (j < K) store(from, j, shortestPaths(csr, cost, landmarks[j], false, null, null));
+                else store(to, j - K, shortestPaths(csr, cost, landmarks[j - K], true, null, null));
+            });
+        } else {
+            // Selection needs the forward tables of earlier landmarks, so it runs
+            // in sequence; the backward tables are independent and run in parallel.
+            this.landmarks = (selection == Selection.FARTHEST)
+                    ? selectFarthest(csr, cost)
+                    : selectAvoid(csr, cost);
+            IntStream.range(0, K).parallel()
+                    .forEach(i -> store(to, i, shortestPaths(csr, cost, landmarks[i], true, null, null)));
+        }
+    }
+
+    /**
+     * Picks landmarks with {@link Selection#FARTHEST}, filling {@link #from}.
+     *
+     * @param csr  the graph
+     * @param cost edge costs
+     * @return the landmark vertices
+     */
+    private int[] selectFarthest(CsrDigraph csr, double[] cost) {
+        Random rnd = new Random(SEED);
+        int[] picked = new int[K];
+
+        // Start from the vertex farthest from a random root
+        double[] d = shortestPaths(csr, cost, randomRoot(csr, rnd), false, null, null);
+        double[] minDist = new double[V];
+        Arrays.fill(minDist, Double.POSITIVE_INFINITY);
+        int next = farthest(d);
+
+        for (int i = 0; i < K; i++) {
+            if (next == -1 || isPicked(picked, i, next)) next = randomUnpicked(picked, i, rnd);
+            picked[i] = next;
+
+            d = shortestPaths(csr, cost, next, false, null, null);
+            store(from, i, d);
+            for (int v = 0; v < V; v++) minDist[v] = Math.min(minDist[v], d[v]);
+            next = farthest(minDist);
+        }
+        return picked;
+    }
+
+    /**
+     * Picks landmarks with {@link Selection#AVOID}, filling {@link #from}.
+     *
+     * <p>For a random root {@code r}, each vertex in its shortest path tree is
+     * weighted by how far the current bound {@code lb(r, v)} falls short of
+     * {@code d(r, v)}. The size of a subtree is the sum of its weights, or zero
+     * if it already contains a landmark. The new landmark is a leaf reached by
+     * starting from the largest subtree and repeatedly stepping into its
+     * largest child subtree.</p>
+     *
+     * @param csr  the graph
+     * @param cost edge costs
+     * @return the landmark vertices
+     */
+    private int[] selectAvoid(CsrDigraph csr, double[] cost) {
+        Random rnd = new Random(SEED);
+        int[] picked = new int[K];
+
+        int[] parent = new int[V];
+        int[] order = new int[V];
+        double[] size = new double[V];
+        int[] bestChild = new int[V];
+        boolean[] covered = new boolean[V];
+
+        for (int i = 0; i < K; i++) {
+            int r = randomRoot(csr, rnd);
+            double[] d = shortestPaths(csr, cost, r, false, parent, order);
+            int n = 0;
+            for (double dv : d) if (dv < Double.POSITIVE_INFINITY) n++;
+
+            for (int k = 0; k < n; k++) {
+                int v = order[k];
+                size[v] = d[v] - treeBound(r, v, i);
+                bestChild[v] = -1;
+                covered[v] = isPicked(picked, i, v);
+            }
+
+            // Children are settled after their parents, so a reverse pass sees
+            // every subtree complete before it is added to its parent.
+            int best = -1;
+            for (int k = n - 1; k >= 0; k--) {
+                int v = order[k];
+                if (covered[v]) size[v] = 0.0;
+                if (best == -1 || size[v] > size[best]) best = v;
+
+                int p = parent[v];
+                if (p == -1) continue;
+                covered[p] |= covered[v];
+                size[p] += size[v];
+                if (bestChild[p] == -1 || size[v] > size[bestChild[p]]) bestChild[p] = v;
+            }
+
+            int next;
+            if (best == -1 || !(size[best] > 0.0)) {
+                next = randomUnpicked(picked, i, rnd);
+            } else {
+                next = best;
+                while (bestChild[next] != -1) next = bestChild[next];
+            }
+            if (isPicked(picked, i, next)) next = randomUnpicked(picked, i, rnd);
+            picked[i] = next;
+
+            store(from, i, shortestPaths(csr, cost, next, false, null, null));
+        }
+        return picked;
+    }
+
+    /**
+     * Returns the best bound on {@code d(r, v)} from the first {@code count}
+     * forward tables: {@code max_i d(L_i, v) - d(L_i, r)}.
+     *
+     * @param r     the tree root
+     * @param v     the vertex
+     * @param count the number of forward tables filled so far
+     * @return the bound (0 if none applies)
+     */
+    private double treeBound(int r, int v, int count) {
+        double lb = 0.0;
+        for (int i = 0; i < count; i++) {
+            double toV = from[v * K + i];
+            double toR = from[r * K + i];
+            if (toR < Double.POSITIVE_INFINITY && toV < Double.POSITIVE_INFINITY) lb = Math.max(lb, toV - toR);
+        }
+        return lb;
+    }
+
+    /**
+     * Returns a lower bound on the cost of the shortest path from {@code v} to {@code goal}.
+     *
+     * @param v    the vertex
+     * @param goal the destination vertex
+     * @return the bound, or {@code +Inf} if the tables prove {@code goal}
+     *         unreachable from {@code v}
+     */
+    @Override
+    public double lowerBound(int v, int goal) {
+        int bv = v * K;
+        int bt = goal * K;
+
+        double best = 0.0;
+        for (int i = 0; i < K; i++) {
+            // d(v, t) ≥ d(v, L) - d(t, L)
+            float vl = to[bv + i];
+            float tl = to[bt + i];
+            if (tl < Float.POSITIVE_INFINITY) {
+                if (vl == Float.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+                if (vl > tl) best = Math.max(best, (double) vl - tl - Math.ulp(vl));
+            }
+
+            // d(v, t) ≥ d(L, t) - d(L, v)
+            float lv = from[bv + i];
+            float lt = from[bt + i];
+            if (lv < Float.POSITIVE_INFINITY) {
+                if (lt == Float.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+                if (lt > lv) best = Math.max(best, (double) lt - lv - Math.ulp(lt));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the metric the tables were computed for.
+     *
+     * @return the metric
+     */
+    public RoutingEngine.Metric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Returns the number of landmarks.
+     *
+     * @return the number of landmarks
+     */
+    public int count() {
+        return K;
+    }
+
+    /**
+     * Returns the vertex of landmark {@code i}.
+     *
+     * @param i the landmark index
+     * @return the landmark vertex
+     * @throws IllegalArgumentException if {@code i} is out of range
+     */
+    public int landmark(int i) {
+        validateLandmark(i);
+        return landmarks[i];
+    }
+
+    /**
+     * Returns the stored cost from landmark {@code i} to vertex {@code v}.
+     *
+     * @param i the landmark index
+     * @param v the vertex
+     * @return the cost (rounded to float precision), or {@code +Inf} if unreachable
+     * @throws IllegalArgumentException if {@code i} or {@code v} is out of range
+     */
+    public double fromLandmark(int i, int v) {
+        validateLandmark(i);
+        validateVertex(v);
+        return from[v * K + i];
+    }
+
+    /**
+     * Returns the stored cost from vertex {@code v} to landmark {@code i}.
+     *
+     * @param i the landmark index
+     * @param v the vertex
+     * @return the cost (rounded to float precision), or {@code +Inf} if unreachable
+     * @throws IllegalArgumentException if {@code i} or {@code v} is out of range
+     */
+    public double toLandmark(int i, int v) {
+        validateLandmark(i);
+        validateVertex(v);
+        return to[v * K + i];
+    }
+
+    /**
+     * Runs a full Dijkstra from {@code src}.
+     *
+     * @param csr     the graph
+     * @param cost    edge costs
+     * @param src     the source vertex
+     * @param reverse {@code true} to follow in-edges (costs to {@code src})
+     * @param parent  if non-null, receives each vertex's tree parent (-1 for the
+     *                source and unreached vertices)
+     * @param order   if non-null, receives the reached vertices in settle order
+     * @return the distance of every vertex ({@code +Inf} if unreached)
+     */
+    private static double[] shortestPaths(CsrDigraph csr, double[] cost, int src, boolean reverse,
+                                          int[] parent, int[] order) {
+        int n = csr.V();
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        if (parent != null) Arrays.fill(parent, -1);
+
+        IndexedDaryHeap pq = new IndexedDaryHeap(n);
+        dist[src] = 0.0;
+        pq.insert(src, 0.0);
+
+        int settled = 0;
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            double dv = dist[v];
+            if (order != null) order[settled++] = v;
+
+            int first = reverse ? csr.firstIn(v) : csr.firstOut(v);
+            int end = reverse ? csr.endIn(v) : csr.endOut(v);
+            for (int i = first; i < end; i++) {
+                int w = reverse ? csr.tail(i) : csr.head(i);
+                double candidate = dv + cost[reverse ? csr.inEdgeId(i) : csr.edgeId(i)];
+                if (candidate < dist[w]) {
+                    dist[w] = candidate;
+                    if (parent != null) parent[w] = v;
+                    if (pq.contains(w)) pq.decreaseKey(w, candidate);
+                    else pq.insert(w, candidate);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Returns the reached vertex with the largest finite distance.
+     *
+     * <p>Picked landmarks are at distance 0 from themselves, so they never qualify.</p>
+     *
+     * @param dist the distances
+     * @return the vertex, or -1 if every reached vertex is at distance 0
+     */
+    private static int farthest(double[] dist) {
+        int best = -1;
+        double bestDist = 0.0;
+        for (int v = 0; v < dist.length; v++) {
+            double d = dist[v];
+            if (d < Double.POSITIVE_INFINITY && d > bestDist) {
+                best = v;
+                bestDist = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a random vertex with at least one out-edge (or any vertex if none has).
+     *
+     * @param csr the graph
+     * @param rnd the random source
+     * @return the vertex
+     */
+    private static int randomRoot(CsrDigraph csr, Random rnd) {
+        int n = csr.V();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            int v = rnd.nextInt(n);
+            if (csr.outdegree(v) > 0) return v;
+        }
+        return rnd.nextInt(n);
+    }
+
+    /**
+     * Returns a random vertex that is not among the first {@code count} picks.
+     *
+     * @param picked the picked landmarks
+     * @param count  the number of picks so far ({@code count < V})
+     * @param rnd    the random source
+     * @return the vertex
+     */
+    private int randomUnpicked(int[] picked, int count, Random rnd) {
+        int v;
+        do {
+            v = rnd.nextInt(V);
+        } while (isPicked(picked, count, v));
+        return v;
+    }
+
+    /**
+     * Returns true if {@code v} is among the first {@code count} picks.
+     *
+     * @param picked the picked landmarks
+     * @param count  the number of picks so far
+     * @param v      the vertex
+     * @return {@code true} if picked
+     */
+    private static boolean isPicked(int[] picked, int count, int v) {
+        for (int i = 0; i < count; i++) {
+            if (picked[i] == v) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies one landmark's distances into column {@code i} of a table.
+     *
+     * @param table the table
+     * @param i     the landmark index
+     * @param dist  the distances
+     */
+    private void store(float[] table, int i, double[] dist) {
+        for (int v = 0; v < V; v++) table[v * K + i] = (float) dist[v];
+    }
+
+    /**
+     * Validates a landmark index.
+     *
+     * @param i the landmark index
+     * @throws IllegalArgumentException if {@code i} is out of range
+     */
+    private void validateLandmark(int i) {
+        if (i < 0 || i >= K) throw new IllegalArgumentException("landmark " + i + " is not between 0 and " + (K - 1));
+    }
+
+    /**
+     * Validates a vertex.
+     *
+     * @param v the vertex
+     * @throws IllegalArgumentException if {@code v} is out of range
+     */
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V) throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Returns a short description of the landmark set.
+     *
+     * @return a summary string
+     */
+    @Override
+    public String toString() {
+        return String.format("Landmarks[V=%d, K=%d, metric=%s]", V, K, metric);
+    }
+}
@@ -93,6 +93,49 @@ public final class LocalProjection {
         return sum / lonDeg.length;
     }
 
+    /**
+     * Create a projection whose planar distances never exceed great-circle
+     * distances between points of the given set.
+     *
+     * <p>An equirectangular projection stretches east-west distances north of
+     * its reference latitude (south of it in the southern hemisphere), so
+     * straight lines between projected points can be longer than the road
+     * between them. Using the largest |latitude| in the set as the reference
+     * scales every east-west distance by the smallest cosine instead, which
+     * keeps them from above. The reference is pushed a little further
+     * poleward to cover the bulge of great circles towards the pole, which
+     * is at most {@code D² tan(lat) / 8R} for points {@code D} apart.</p>
+     *
+     * @param latDeg latitudes (degrees), at least one
+     * @param lonDeg longitudes (degrees), same length
+     * @return a projection for lower-bound (A*) distances
+     * @throws IllegalArgumentException if the arrays are empty or differ in length
+     */
+    public static LocalProjection lowerBound(double[] latDeg, double[] lonDeg) {
+        if (latDeg.length == 0 || latDeg.length != lonDeg.length) {
+            throw new IllegalArgumentException("need equally long, non-empty lat/lon arrays");
+        }
+
+        double maxAbsLat = 0.0;
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < latDeg.length; i++) {
+            maxAbsLat = max(maxAbsLat, abs(latDeg[i]));
+            minLat = min(minLat, latDeg[i]);
+            maxLat = max(maxLat, latDeg[i]);
+            minLon = min(minLon, lonDeg[i]);
+            maxLon = max(maxLon, lonDeg[i]);
+        }
+
+        // Generous extent: bounding-box diagonal measured at the equator scale
+        double extent = R * hypot(toRadians(maxLat - minLat), toRadians(maxLon - minLon));
+        double phi = toRadians(min(maxAbsLat, 89.0));
+        double bulge = 2.0 * extent * extent * tan(phi) / (8.0 * R * R);
+        double refLat = toDegrees(min(phi + bulge, toRadians(89.9)));
+
+        return new LocalProjection(refLat, meanLongitude(lonDeg));
+    }
+
     /**
      * computes the inverse projection
      * */
@@ -10,6 +10,7 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Main entry point for the routing application.
@@ -38,7 +39,12 @@ public class Main {
     /**
      * Compiles OpenStreetMap XML files into a weighted directed graph for routing.
      *
-     * <p>The compilation process uses three passes over the OSM file:
+     * <p>By default ({@link Mode#PARALLEL_SCAN}) the file is memory-mapped and
+     * scanned once, in parallel chunks, by {@link OsmXmlScanner}; nodes and
+     * routable ways are buffered in compact primitive arrays, and vertex
+     * identification and edge emission then run in memory.
+     * {@link Mode#SINGLE_PASS} does the same with a SAX parser. The original
+     * three-pass pipeline ({@link Mode#THREE_PASS}) re-reads the file instead:
      * <ol>
      *   <li><b>Pass 1:</b> Read all {@code <node>} elements and store lat/lon coordinates</li>
      *   <li><b>Pass 2:</b> Read all {@code <way>} elements to identify routing vertices
@@ -131,6 +137,9 @@ public class Main {
             /** Polyline geometry for each edge. */
             final EdgeGeometry edgeGeometry;
 
+            /** Prepared routing state, built on first use (see {@link #routingContext()}). */
+            private volatile RoutingContext routingContext;
+
             /**
              * Constructs a build result.
              *
@@ -148,6 +157,29 @@ public class Main {
                 this.vertexStore = vertexStore;
                 this.edgeGeometry = edgeGeometry;
             }
+
+            /**
+             * Returns the prepared routing context for this network.
+             *
+             * <p>The context (projection, projected geometry, snapper and routing
+             * engine) is built on the first call and reused afterwards, so
+             * concurrent callers share a single instance.</p>
+             *
+             * @return the routing context
+             */
+            RoutingContext routingContext() {
+                RoutingContext ctx = routingContext;
+                if (ctx == null) {
+                    synchronized (this) {
+                        ctx = routingContext;
+                        if (ctx == null) {
+                            ctx = new RoutingContext(this);
+                            routingContext = ctx;
+                        }
+                    }
+                }
+                return ctx;
+            }
         }
 
         // ========= Pass 1 data =========
@@ -311,19 +343,337 @@ public class Main {
         // ========= Public entry =========
 
         /**
-         * Compiles an OSM file into a routable graph.
+         * How {@link #compile(Path, Mode)} reads the OSM file.
+         */
+        public enum Mode {
+            /** Scan the memory-mapped file in parallel chunks with {@link OsmXmlScanner}. */
+            PARALLEL_SCAN,
+            /** Parse the file once with SAX, buffering routable ways in memory. */
+            SINGLE_PASS,
+            /** Parse the file three times (nodes, road usage, edges). */
+            THREE_PASS
+        }
+
+        /**
+         * Compiles an OSM file into a routable graph in {@link Mode#PARALLEL_SCAN} mode.
          *
          * @param osmFile path to the OSM XML file
          * @return the complete build result
          * @throws RuntimeException if parsing fails
          */
         public BuildResult compile(Path osmFile) {
+            return compile(osmFile, Mode.PARALLEL_SCAN);
+        }
+
+        /**
+         * Compiles an OSM file into a routable graph.
+         *
+         * <p>All modes produce identical results (same vertex and edge IDs).
+         * {@link Mode#SINGLE_PASS} saves two XML parses at the cost of holding
+         * the node references of routable ways in memory;
+         * {@link Mode#PARALLEL_SCAN} buffers the same data but replaces SAX
+         * with a byte-level scanner running on all cores.</p>
+         *
+         * <p>Files ending in {@code .pbf} are read with {@link OsmPbfReader}
+         * regardless of {@code mode}, and compile to the same result as their
+         * XML export.</p>
+         *
+         * @param osmFile path to the OSM XML or PBF file
+         * @param mode    how to read an XML file
+         * @return the complete build result
+         * @throws RuntimeException if parsing fails
+         */
+        public BuildResult compile(Path osmFile, Mode mode) {
+            if (OsmPbfReader.isPbf(osmFile)) {
+                Scan scan = pass_readPbf(osmFile);
+                return buildFromStores(scan.nodes, scan.ways);
+            }
+            if (mode == Mode.PARALLEL_SCAN) {
+                Scan scan = pass_scanParallel(osmFile);
+                return buildFromStores(scan.nodes, scan.ways);
+            }
+            if (mode == Mode.SINGLE_PASS) {
+                Scan scan = pass_readAll(osmFile);
+                return buildFromStores(scan.nodes, scan.ways);
+            }
+
             NodeStore ns = pass1_readNodes(osmFile);
             VertexSignals sig = pass2_countRoadUsage(osmFile, ns);
             VertexMapping vm = buildVertexMapping(ns, sig);
             return pass3_buildEdges(osmFile, ns, vm);
         }
 
+        // ========= Single pass: read nodes and ways together =========
+
+        /**
+         * Compact storage for the routable ways of an OSM file.
+         *
+         * <p>Node references of all ways live in one flat {@code long} array
+         * with CSR-style row pointers; tags are reduced to what edge emission
+         * needs (oneway direction, speed and a street-name ID). Names are
+         * interned straight into the {@link EdgeAttributes} the edges are
+         * later emitted into, so each way's name is encoded once.</p>
+         */
+        private static final class WayStore {
+
+            /** Number of ways stored. */
+            int size;
+
+            /** Node references of all ways, back to back. */
+            long[] refs = new long[1 << 16];
+
+            /** Number of used entries in {@link #refs}. */
+            int refCount;
+
+            /** Row pointers: way {@code w} uses {@code refs[refStart[w]..refStart[w+1]-1]}. */
+            int[] refStart = new int[1 << 12];
+
+            /** Oneway direction code per way. */
+            byte[] oneway = new byte[1 << 12];
+
+            /** Street-name ID in {@link #attrs} per way (-1 for unnamed). */
+            int[] nameId = new int[1 << 12];
+
+            /** Speed per way (km/h, see {@link SpeedProfile}). */
+            double[] speedKmh = new double[1 << 12];
+
+            /** Attributes for the edges of these ways; holds the street-name dictionary. */
+            final EdgeAttributes attrs = new EdgeAttributes();
+
+            /**
+             * Appends a way.
+             *
+             * @param wayRefs   node references
+             * @param offset    index of the way's first reference in {@code wayRefs}
+             * @param count     number of node references
+             * @param onewayDir oneway direction code
+             * @param name      street name (may be null)
+             * @param kmh       travel speed (km/h)
+             */
+            void add(long[] wayRefs, int offset, int count, int onewayDir, String name, double kmh) {
+                if (size + 1 >= refStart.length) {
+                    refStart = Arrays.copyOf(refStart, refStart.length * 2);
+                    oneway = Arrays.copyOf(oneway, oneway.length * 2);
+                    nameId = Arrays.copyOf(nameId, nameId.length * 2);
+                    speedKmh = Arrays.copyOf(speedKmh, speedKmh.length * 2);
+                }
+                if (refCount + count > refs.length) {
+                    refs = Arrays.copyOf(refs, Math.max(refs.length * 2, refCount + count));
+                }
+
+                System.arraycopy(wayRefs, offset, refs, refCount, count);
+                refStart[size] = refCount;
+                refCount += count;
+                refStart[size + 1] = refCount;
+                oneway[size] = (byte) onewayDir;
+                speedKmh[size] = kmh;
+                nameId[size] = attrs.internStreetName(name);
+                size++;
+            }
+        }
+
+        /**
+         * Everything the single-pass scan collects.
+         */
+        private static final class Scan {
+
+            /** All nodes of the file. */
+            final NodeStore nodes;
+
+            /** Routable ways with at least two nodes. */
+            final WayStore ways;
+
+            /**
+             * Constructs a scan result.
+             *
+             * @param nodes the node store
+             * @param ways  the way store
+             */
+            Scan(NodeStore nodes, WayStore ways) {
+                this.nodes = nodes;
+                this.ways = ways;
+            }
+        }
+
+        /**
+         * Single pass: Reads all nodes and routable ways in one parse.
+         *
+         * <p>Ways are kept with their raw OSM node references, so the file does
+         * not need to list nodes before ways.</p>
+         *
+         * @param osmFile path to the OSM file
+         * @return the node and way stores
+         * @throws RuntimeException if parsing fails
+         */
+        private Scan pass_readAll(Path osmFile) {
+            NodeStore ns = new NodeStore(1 << 20);  // ~1M initial capacity
+            WayStore ws = new WayStore();
+
+            try {
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                factory.setNamespaceAware(false);
+                SAXParser parser = factory.newSAXParser();
+
+                DefaultHandler handler = new DefaultHandler() {
+
+                    boolean inWay = false;
+                    final LongRefBuffer refs = new LongRefBuffer();
+                    String highway = null;
+                    String oneway = null;
+                    String name = null;
+                    String maxspeed = null;
+
+                    @Override
+                    public void startElement(String uri, String localName, String qName, Attributes atts) {
+                        if ("node".equals(qName)) {
+                            long id = Long.parseLong(atts.getValue("id"));
+                            double lat = Double.parseDouble(atts.getValue("lat"));
+                            double lon = Double.parseDouble(atts.getValue("lon"));
+
+                            ns.addNode(id, lat, lon);
+                            return;
+                        }
+                        if ("way".equals(qName)) {
+                            inWay = true;
+                            refs.clear();
+                            highway = null;
+                            oneway = null;
+                            name = null;
+                            maxspeed = null;
+                            return;
+                        }
+                        if (!inWay) return;
+
+                        if ("nd".equals(qName)) {
+                            long ref = Long.parseLong(atts.getValue("ref"));
+                            refs.add(ref);
+                        } else if ("tag".equals(qName)) {
+                            String k = atts.getValue("k");
+                            String v = atts.getValue("v");
+                            if ("highway".equals(k)) highway = v;
+                            else if ("oneway".equals(k)) oneway = v;
+                            else if ("name".equals(k)) name = v;
+                            else if ("maxspeed".equals(k)) maxspeed = v;
+                        }
+                    }
+
+                    @Override
+                    public void endElement(String uri, String localName, String qName) {
+                        if (!"way".equals(qName)) return;
+                        inWay = false;
+
+                        if (!isRoutableHighway(highway)) return;
+                        if (refs.size < 2) return;
+
+                        ws.add(refs.a, 0, refs.size, parseOnewayDirection(oneway), name,
+                                SpeedProfile.speedKmh(highway, maxspeed));
+                    }
+                };
+
+                parser.parse(osmFile.toFile(), handler);
+                return new Scan(ns, ws);
+
+            } catch (Exception e) {
+                throw new RuntimeException("Single pass failed: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Single pass: Reads all nodes and routable ways with {@link OsmXmlScanner}.
+         *
+         * <p>Chunks are parsed in parallel and merged here in file order, so
+         * node indices and way order match {@link #pass_readAll}.</p>
+         *
+         * @param osmFile path to the OSM file
+         * @return the node and way stores
+         * @throws RuntimeException if scanning fails
+         */
+        private Scan pass_scanParallel(Path osmFile) {
+            try {
+                return merge(OsmXmlScanner.scan(osmFile));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Parallel scan failed: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Single pass: Reads all nodes and routable ways of a PBF file with {@link OsmPbfReader}.
+         *
+         * @param pbfFile path to the PBF file
+         * @return the node and way stores
+         * @throws RuntimeException if reading fails
+         */
+        private Scan pass_readPbf(Path pbfFile) {
+            try {
+                return merge(OsmPbfReader.read(pbfFile));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("PBF read failed: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Merges scanned chunks in order into a node store and a way store.
+         *
+         * @param chunks the chunks in file order
+         * @return the node and way stores
+         * @throws IllegalArgumentException on a duplicate node ID
+         */
+        private static Scan merge(List<OsmXmlScanner.Chunk> chunks) {
+            int nodeCount = 0;
+            for (OsmXmlScanner.Chunk c : chunks) nodeCount += c.nodeCount;
+
+            NodeStore ns = new NodeStore(nodeCount);
+            WayStore ws = new WayStore();
+            for (OsmXmlScanner.Chunk c : chunks) {
+                for (int i = 0; i < c.nodeCount; i++) ns.addNode(c.nodeId[i], c.lat[i], c.lon[i]);
+                for (int w = 0; w < c.wayCount; w++) {
+                    int from = c.refStart[w];
+                    ws.add(c.refs, from, c.refStart[w + 1] - from, c.oneway[w], c.name[w], c.speedKmh[w]);
+                }
+            }
+            return new Scan(ns, ws);
+        }
+
+        /**
+         * Builds the graph from buffered nodes and ways without touching the file.
+         *
+         * <p>Does in memory what passes 2 and 3 do on the file: resolves node
+         * references, marks endpoints and intersections, assigns vertex IDs
+         * and emits edges, in the same order as the three-pass path.</p>
+         *
+         * @param ns the node store
+         * @param ws the routable ways
+         * @return the complete build result
+         * @throws IllegalArgumentException if a way references a missing node
+         */
+        private BuildResult buildFromStores(NodeStore ns, WayStore ws) {
+            // Resolve references to node indices once; the long refs are no longer needed
+            int[] nodeIdx = new int[ws.refCount];
+            for (int i = 0; i < ws.refCount; i++) nodeIdx[i] = ns.nodeIndexOf(ws.refs[i]);
+            ws.refs = null;
+
+            VertexSignals sig = new VertexSignals(ns.size());
+            for (int w = 0; w < ws.size; w++) {
+                int from = ws.refStart[w];
+                int to = ws.refStart[w + 1];
+
+                // Mark first and last nodes as endpoints
+                sig.isEndpoint[nodeIdx[from]] = true;
+                sig.isEndpoint[nodeIdx[to - 1]] = true;
+
+                // Increment use count for all nodes in this way
+                for (int i = from; i < to; i++) sig.useCount[nodeIdx[i]]++;
+            }
+
+            VertexMapping vm = buildVertexMapping(ns, sig);
+
+            EdgeEmitter emitter = new EdgeEmitter(ns, vm, ws.attrs);
+            for (int w = 0; w < ws.size; w++) {
+                emitter.emitWay(nodeIdx, ws.refStart[w], ws.refStart[w + 1], ws.oneway[w], ws.nameId[w], ws.speedKmh[w]);
+            }
+            return emitter.finish();
+        }
+
         // ========= Pass 1: read nodes =========
 
         /**
@@ -374,7 +724,7 @@ public class Main {
          * @param highway the highway tag value
          * @return {@code true} if routable; {@code false} otherwise
          */
-        private static boolean isRoutableHighway(String highway) {
+        static boolean isRoutableHighway(String highway) {
             if (highway == null) return false;
             return switch (highway) {
                 case "motorway", "trunk", "primary", "secondary", "tertiary",
@@ -540,7 +890,7 @@ public class Main {
          * @param onewayValue the tag value (may be null)
          * @return 1 for forward-only, -1 for reverse-only, 0 for bidirectional
          */
-        private static int parseOnewayDirection(String onewayValue) {
+        static int parseOnewayDirection(String onewayValue) {
             if (onewayValue == null) return 0;
             return switch (onewayValue) {
                 case "yes", "true", "1" -> 1;
@@ -565,16 +915,18 @@ public class Main {
          * @param fromV      source vertex ID
          * @param toV        destination vertex ID
          * @param distMeters edge distance in meters
+         * @param timeSeconds edge travel time in seconds
          * @param onewayDir  oneway direction code
-         * @param name       street name (may be null)
+         * @param nameId     street-name ID in {@code attrs} (-1 for unnamed)
          */
         private static void emitSegmentEdges(WeightedDigraph G,
                                              EdgeAttributes attrs,
                                              int fromV,
                                              int toV,
                                              double distMeters,
+                                             double timeSeconds,
                                              int onewayDir,
-                                             String name) {
+                                             int nameId) {
             if (fromV == toV) return;
             if (Double.isNaN(distMeters) || distMeters < 0.0) return;
 
@@ -582,23 +934,27 @@ public class Main {
                 int id = G.addEdge(fromV, toV, 0.0);
                 attrs.setEdgeCount(G.E());
                 attrs.setDistanceMeters(id, distMeters);
-                attrs.setStreetName(id, name);
+                attrs.setTimeSeconds(id, timeSeconds);
+                attrs.setStreetNameId(id, nameId);
             } else if (onewayDir == -1) {
                 int id = G.addEdge(toV, fromV, 0.0);
                 attrs.setEdgeCount(G.E());
                 attrs.setDistanceMeters(id, distMeters);
-                attrs.setStreetName(id, name);
+                attrs.setTimeSeconds(id, timeSeconds);
+                attrs.setStreetNameId(id, nameId);
             } else {
                 // Bidirectional: create both edges
                 int id1 = G.addEdge(fromV, toV, 0.0);
                 attrs.setEdgeCount(G.E());
                 attrs.setDistanceMeters(id1, distMeters);
-                attrs.setStreetName(id1, name);
+                attrs.setTimeSeconds(id1, timeSeconds);
+                attrs.setStreetNameId(id1, nameId);
 
                 int id2 = G.addEdge(toV, fromV, 0.0);
                 attrs.setEdgeCount(G.E());
                 attrs.setDistanceMeters(id2, distMeters);
-                attrs.setStreetName(id2, name);
+                attrs.setTimeSeconds(id2, timeSeconds);
+                attrs.setStreetNameId(id2, nameId);
             }
         }
 
@@ -607,14 +963,8 @@ public class Main {
         /**
          * Pass 3: Builds edges and geometry from routable ways.
          *
-         * <p>For each routable way:
-         * <ol>
-         *   <li>Iterates through nodes, accumulating distance</li>
-         *   <li>When a routing vertex is encountered, emits edge(s)</li>
-         *   <li>Stores the polyline geometry for each edge</li>
-         *   <li>Handles bidirectional roads by emitting reverse geometry</li>
-         * </ol>
-         * </p>
+         * <p>For each routable way, resolves its node references and hands
+         * them to an {@link EdgeEmitter}.</p>
          *
          * @param osmFile path to the OSM file
          * @param ns      node store from pass 1
@@ -623,16 +973,7 @@ public class Main {
          * @throws RuntimeException if parsing fails
          */
         private BuildResult pass3_buildEdges(Path osmFile, NodeStore ns, VertexMapping vm) {
-
-            IntArray edgeStart = new IntArray();
-            FloatArray geomX = new FloatArray();
-            FloatArray geomY = new FloatArray();
-
-            // edgeStart must start with 0, and then add one entry per emitted edge
-            edgeStart.add(0);
-
-            WeightedDigraph G = new WeightedDigraph(vm.V());
-            EdgeAttributes attrs = new EdgeAttributes();
+            EdgeEmitter emitter = new EdgeEmitter(ns, vm, new EdgeAttributes());
 
             try {
                 SAXParserFactory factory = SAXParserFactory.newInstance();
@@ -643,9 +984,11 @@ public class Main {
 
                     boolean inWay = false;
                     final LongRefBuffer refs = new LongRefBuffer();
+                    final IntArray nodeIdx = new IntArray();
                     String highway = null;
                     String oneway = null;
                     String name = null;
+                    String maxspeed = null;
 
                     @Override
                     public void startElement(String uri, String localName, String qName, Attributes atts) {
@@ -655,6 +998,7 @@ public class Main {
                             highway = null;
                             oneway = null;
                             name = null;
+                            maxspeed = null;
                             return;
                         }
                         if (!inWay) return;
@@ -668,6 +1012,7 @@ public class Main {
                             if ("highway".equals(k)) highway = v;
                             else if ("oneway".equals(k)) oneway = v;
                             else if ("name".equals(k)) name = v;
+                            else if ("maxspeed".equals(k)) maxspeed = v;
                         }
                     }
 
@@ -679,110 +1024,190 @@ public class Main {
                         if (!isRoutableHighway(highway)) return;
                         if (refs.size < 2) return;
 
-                        int onewayDir = parseOnewayDirection(oneway);
+                        nodeIdx.clear();
+                        for (int i = 0; i < refs.size; i++) nodeIdx.add(ns.nodeIndexOf(refs.a[i]));
+                        emitter.emitWay(nodeIdx.items, 0, nodeIdx.size, parseOnewayDirection(oneway),
+                                emitter.attrs.internStreetName(name), SpeedProfile.speedKmh(highway, maxspeed));
+                    }
+                };
+
+                parser.parse(osmFile.toFile(), handler);
+
+            } catch (Exception e) {
+                throw new RuntimeException("Pass 3 failed", e);
+            }
 
-                        int startVertexId = -1;
-                        int prevNodeIndex = -1;
-                        double accum = 0.0;
+            return emitter.finish();
+        }
 
-                        // current segment geometry (lon/lat order stored as x/y)
-                        FloatArray segX = new FloatArray();
-                        FloatArray segY = new FloatArray();
+        // ========= Edge emission (shared by both compile modes) =========
 
-                        for (int i = 0; i < refs.size; i++) {
-                            int nodeIndex = ns.nodeIndexOf(refs.a[i]);
-                            int vertexId = vm.nodeIndexToVertexId[nodeIndex];
-
-                            // Find first routing vertex of this way
-                            if (startVertexId == -1) {
-                                if (vertexId != -1) {
-                                    startVertexId = vertexId;
-                                    prevNodeIndex = nodeIndex;
-                                    accum = 0.0;
-                                    segX.clear(); segY.clear();
-                                    segX.add((float) ns.lon[nodeIndex]);
-                                    segY.add((float) ns.lat[nodeIndex]);
-                                }
-                                continue;
-                            }
-
-                            // accumulate distance from prev node -> current node
-                            accum += haversineMeters(
-                                    ns.lat[prevNodeIndex], ns.lon[prevNodeIndex],
-                                    ns.lat[nodeIndex],     ns.lon[nodeIndex]
-                            );
+        /**
+         * Turns routable ways into edges, attributes and geometry.
+         *
+         * <p>For each way:
+         * <ol>
+         *   <li>Iterates through nodes, accumulating distance</li>
+         *   <li>When a routing vertex is encountered, emits edge(s)</li>
+         *   <li>Stores the polyline geometry for each edge</li>
+         *   <li>Handles bidirectional roads by emitting reverse geometry</li>
+         * </ol>
+         * </p>
+         */
+        private static final class EdgeEmitter {
+
+            /** Node coordinates. */
+            final NodeStore ns;
+
+            /** Node index → routing vertex mapping. */
+            final VertexMapping vm;
+
+            /** The graph under construction. */
+            final WeightedDigraph G;
+
+            /** Attributes of the emitted edges; street names are interned by the caller. */
+            final EdgeAttributes attrs;
+
+            /** Geometry row pointers; starts with 0, then one entry per emitted edge. */
+            final IntArray edgeStart = new IntArray();
+
+            /** Geometry x-coordinates (longitude). */
+            final FloatArray geomX = new FloatArray();
+
+            /** Geometry y-coordinates (latitude). */
+            final FloatArray geomY = new FloatArray();
+
+            /** Current segment geometry (lon/lat order stored as x/y), reused across ways. */
+            final FloatArray segX = new FloatArray();
+            final FloatArray segY = new FloatArray();
+
+            /**
+             * Creates an emitter for a graph over the mapped vertices.
+             *
+             * @param ns    node store
+             * @param vm    vertex mapping
+             * @param attrs attributes to emit into, holding the ways' street names
+             */
+            EdgeEmitter(NodeStore ns, VertexMapping vm, EdgeAttributes attrs) {
+                this.ns = ns;
+                this.vm = vm;
+                this.attrs = attrs;
+                this.G = new WeightedDigraph(vm.V());
+                edgeStart.add(0);
+            }
+
+            /**
+             * Emits the edges of one routable way.
+             *
+             * @param nodeIdx   node indices of the way
+             * @param from      first position in {@code nodeIdx} (inclusive)
+             * @param to        last position in {@code nodeIdx} (exclusive)
+             * @param onewayDir oneway direction code (see {@link #parseOnewayDirection})
+             * @param nameId    street-name ID in {@link #attrs} (-1 for unnamed), interned once per way
+             * @param speedKmh  travel speed (km/h)
+             */
+            void emitWay(int[] nodeIdx, int from, int to, int onewayDir, int nameId, double speedKmh) {
+                int startVertexId = -1;
+                int prevNodeIndex = -1;
+                double accum = 0.0;
+
+                segX.clear();
+                segY.clear();
+
+                for (int i = from; i < to; i++) {
+                    int nodeIndex = nodeIdx[i];
+                    int vertexId = vm.nodeIndexToVertexId[nodeIndex];
+
+                    // Find first routing vertex of this way
+                    if (startVertexId == -1) {
+                        if (vertexId != -1) {
+                            startVertexId = vertexId;
                             prevNodeIndex = nodeIndex;
+                            accum = 0.0;
+                            segX.clear(); segY.clear();
+                            segX.add((float) ns.lon[nodeIndex]);
+                            segY.add((float) ns.lat[nodeIndex]);
+                        }
+                        continue;
+                    }
+
+                    // accumulate distance from prev node -> current node
+                    accum += haversineMeters(
+                            ns.lat[prevNodeIndex], ns.lon[prevNodeIndex],
+                            ns.lat[nodeIndex],     ns.lon[nodeIndex]
+                    );
+                    prevNodeIndex = nodeIndex;
+
+                    // add current point to segment geometry
+                    segX.add((float) ns.lon[nodeIndex]);
+                    segY.add((float) ns.lat[nodeIndex]);
 
-                            // add current point to segment geometry
+                    // if we reached a routing vertex, emit edges and geometry
+                    if (vertexId != -1) {
+
+                        // avoid degenerate "segment" that starts and ends at same vertex
+                        if (vertexId == startVertexId) {
+                            // restart segment from here
+                            segX.clear(); segY.clear();
                             segX.add((float) ns.lon[nodeIndex]);
                             segY.add((float) ns.lat[nodeIndex]);
+                            startVertexId = vertexId;
+                            accum = 0.0;
+                            continue;
+                        }
+
+                        int before = G.E();
+                        emitSegmentEdges(G, attrs, startVertexId, vertexId, accum,
+                                SpeedProfile.travelSeconds(accum, speedKmh), onewayDir, nameId);
+                        int after = G.E();
 
-                            // if we reached a routing vertex, emit edges and geometry
-                            if (vertexId != -1) {
-
-                                // avoid degenerate "segment" that starts and ends at same vertex
-                                if (vertexId == startVertexId) {
-                                    // restart segment from here
-                                    segX.clear(); segY.clear();
-                                    segX.add((float) ns.lon[nodeIndex]);
-                                    segY.add((float) ns.lat[nodeIndex]);
-                                    startVertexId = vertexId;
-                                    accum = 0.0;
-                                    continue;
-                                }
-
-                                int before = G.E();
-                                emitSegmentEdges(G, attrs, startVertexId, vertexId, accum, onewayDir, name);
-                                int after = G.E();
-
-                                // For each emitted directed edge, append geometry in the correct direction
-                                // relative to the way direction (startVertexId -> vertexId).
-                                for (int eid = before; eid < after; eid++) {
-                                    var ed = G.edgeByID(eid);
-
-                                    int from = ed.firstEnd();
-                                    int to   = ed.otherEnd();
-
-                                    boolean matchesWayDirection = (from == startVertexId && to == vertexId);
-                                    boolean reverse = !matchesWayDirection;
-
-                                    appendGeometry(geomX, geomY, segX, segY, reverse);
-                                    edgeStart.add(geomX.size);
-                                }
-
-                                // restart new segment from this vertex
-                                segX.clear();
-                                segY.clear();
-                                segX.add((float) ns.lon[nodeIndex]);
-                                segY.add((float) ns.lat[nodeIndex]);
-
-                                startVertexId = vertexId;
-                                accum = 0.0;
-                            }
+                        // For each emitted directed edge, append geometry in the correct direction
+                        // relative to the way direction (startVertexId -> vertexId).
+                        for (int eid = before; eid < after; eid++) {
+                            int edgeFrom = G.edgeTail(eid);
+                            int edgeTo   = G.edgeHead(eid);
+
+                            boolean matchesWayDirection = (edgeFrom == startVertexId && edgeTo == vertexId);
+                            boolean reverse = !matchesWayDirection;
+
+                            appendGeometry(geomX, geomY, segX, segY, reverse);
+                            edgeStart.add(geomX.size);
                         }
-                    }
-                };
 
-                parser.parse(osmFile.toFile(), handler);
+                        // restart new segment from this vertex
+                        segX.clear();
+                        segY.clear();
+                        segX.add((float) ns.lon[nodeIndex]);
+                        segY.add((float) ns.lat[nodeIndex]);
 
-            } catch (Exception e) {
-                throw new RuntimeException("Pass 3 failed", e);
+                        startVertexId = vertexId;
+                        accum = 0.0;
+                    }
+                }
             }
 
-            // Sanity: edgeStart length must be E+1
-            if (edgeStart.size != G.E() + 1) {
-                throw new IllegalStateException("edgeStart.size=" + edgeStart.size +
-                        " but expected E+1=" + (G.E() + 1));
-            }
+            /**
+             * Packages the emitted edges into a build result.
+             *
+             * @return the complete build result
+             * @throws IllegalStateException if geometry and edge counts disagree
+             */
+            BuildResult finish() {
+                // Sanity: edgeStart length must be E+1
+                if (edgeStart.size != G.E() + 1) {
+                    throw new IllegalStateException("edgeStart.size=" + edgeStart.size +
+                            " but expected E+1=" + (G.E() + 1));
+                }
 
-            EdgeGeometry edgeGeometry = new EdgeGeometry(
-                    edgeStart.toArray(),
-                    toDoubleArray(geomX),
-                    toDoubleArray(geomY)
-            );
+                EdgeGeometry edgeGeometry = new EdgeGeometry(
+                        edgeStart.toArray(),
+                        toDoubleArray(geomX),
+                        toDoubleArray(geomY)
+                );
 
-            LatLonVertexStore vs = new LatLonVertexStore(vm.vertexLat, vm.vertexLon);
-            return new BuildResult(G, attrs, vs, edgeGeometry);
+                LatLonVertexStore vs = new LatLonVertexStore(vm.vertexLat, vm.vertexLon);
+                return new BuildResult(G, attrs, vs, edgeGeometry);
+            }
         }
 
         /**
@@ -0,0 +1,538 @@
+package codes;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader for OpenStreetMap PBF files ({@code .osm.pbf}).
+ *
+ * <p>A PBF file is a sequence of blobs, each prefixed by a 4-byte big-endian
+ * header length and a {@code BlobHeader} message. The first blob is an
+ * {@code OSMHeader}; every other blob is an {@code OSMData} primitive block
+ * holding a string table and groups of nodes, dense nodes, ways and
+ * relations. Blobs are independent, so the file is read sequentially and
+ * each data blob is inflated (zlib) and decoded as a task on the common
+ * {@link java.util.concurrent.ForkJoinPool}.</p>
+ *
+ * <p>The protobuf wire format is decoded directly; only the fields the
+ * compiler needs are read (node IDs and coordinates, way node references
+ * and the {@code highway}, {@code oneway}, {@code name} and {@code maxspeed}
+ * tags). Each blob becomes one {@link OsmXmlScanner.Chunk} in file order, so
+ * the compiler merges PBF and XML input the same way. Coordinates are computed as
+ * {@code (offset + granularity * value) / 1e9}, which rounds exactly like
+ * parsing the equivalent decimal text, so a PBF file and its XML export
+ * compile to identical graphs.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     List&lt;OsmXmlScanner.Chunk&gt; chunks = OsmPbfReader.read(Path.of("map.osm.pbf"));
+ * </pre>
+ * </p>
+ */
+public final class OsmPbfReader {
+
+    /** Largest {@code BlobHeader} allowed by the format. */
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+    /** Largest blob (compressed or not) allowed by the format. */
+    private static final int MAX_BLOB_BYTES = 32 * 1024 * 1024;
+
+    /** Header features this reader understands. */
+    private static final Set<String> SUPPORTED_FEATURES = Set.of("OsmSchema-V0.6", "DenseNodes");
+
+    /** Protobuf wire types. */
+    private static final int VARINT = 0, FIXED64 = 1, LENGTH_DELIMITED = 2, FIXED32 = 5;
+
+    private OsmPbfReader() { }
+
+    /**
+     * Returns whether a path names a PBF file (by extension).
+     *
+     * @param file the path
+     * @return {@code true} if the file name ends with {@code .pbf}
+     */
+    public static boolean isPbf(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".pbf");
+    }
+
+    /**
+     * Reads a PBF file.
+     *
+     * @param pbfFile path to the PBF file
+     * @return one chunk per data blob, in file order
+     * @throws UncheckedIOException     if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed or needs unsupported features
+     */
+    public static List<OsmXmlScanner.Chunk> read(Path pbfFile) {
+        List<ForkJoinTask<OsmXmlScanner.Chunk>> tasks = new ArrayList<>();
+        boolean sawHeader = false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(pbfFile), 1 << 16))) {
+            while (true) {
+                int headerLength;
+                try {
+                    headerLength = in.readInt();
+                } catch (EOFException end) {
+                    break;
+                }
+                if (headerLength < 0 || headerLength > MAX_HEADER_BYTES) {
+                    throw new IllegalArgumentException("Bad blob header length: " + headerLength);
+                }
+
+                // BlobHeader: 1 = type, 3 = datasize
+                ProtoReader header = new ProtoReader(readFully(in, headerLength));
+                String type = null;
+                int dataSize = -1;
+                while (header.hasMore()) {
+                    int tag = header.readTag();
+                    switch (tag >>> 3) {
+                        case 1 -> type = header.readString();
+                        case 3 -> dataSize = (int) header.readVarint();
+                        default -> header.skip(tag);
+                    }
+                }
+                if (type == null || dataSize < 0 || dataSize > MAX_BLOB_BYTES) {
+                    throw new IllegalArgumentException("Bad blob header (type=" + type + ", size=" + dataSize + ")");
+                }
+
+                byte[] blob = readFully(in, dataSize);
+                if ("OSMHeader".equals(type)) {
+                    checkHeader(inflate(blob));
+                    sawHeader = true;
+                } else if ("OSMData".equals(type)) {
+                    if (!sawHeader) throw new IllegalArgumentException("OSMData blob before OSMHeader");
+                    tasks.add(ForkJoinTask.adapt((Callable<OsmXmlScanner.Chunk>) () -> decodeBlock(inflate(blob))).fork());
+                }
+                // Unknown blob types are skipped, as the format requires
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + pbfFile, e);
+        }
+        if (!sawHeader) throw new IllegalArgumentException("Not an OSM PBF file (no OSMHeader): " + pbfFile);
+
+        List<OsmXmlScanner.Chunk> chunks = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<OsmXmlScanner.Chunk> t : tasks) chunks.add(t.join());
+        return chunks;
+    }
+
+    /**
+     * Reads exactly {@code n} bytes.
+     *
+     * @param in the stream
+     * @param n  the number of bytes
+     * @return the bytes
+     * @throws IOException if the stream ends early
+     */
+    private static byte[] readFully(DataInputStream in, int n) throws IOException {
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return b;
+    }
+
+    // ========= Blobs =========
+
+    /**
+     * Returns the uncompressed contents of a {@code Blob} message.
+     *
+     * @param blob the encoded blob
+     * @return the raw data
+     * @throws IllegalArgumentException if the blob uses an unsupported compression or is corrupt
+     */
+    private static byte[] inflate(byte[] blob) {
+        // Blob: 1 = raw, 2 = raw_size, 3 = zlib_data, 4+ = other compressions
+        ProtoReader r = new ProtoReader(blob);
+        byte[] raw = null;
+        int rawSize = -1;
+        int zlibFrom = -1, zlibTo = -1;
+        while (r.hasMore()) {
+            int tag = r.readTag();
+            switch (tag >>> 3) {
+                case 1 -> { int len = r.readLength(); raw = Arrays.copyOfRange(blob, r.pos, r.pos + len); r.pos += len; }
+                case 2 -> rawSize = (int) r.readVarint();
+                case 3 -> { int len = r.readLength(); zlibFrom = r.pos; zlibTo = r.pos + len; r.pos += len; }
+                case 4, 5, 6, 7 -> throw new IllegalArgumentException("Unsupported blob compression (field " + (tag >>> 3) + ")");
+                default -> r.skip(tag);
+            }
+        }
+        if (raw != null) return raw;
+        if (zlibFrom < 0 || rawSize < 0 || rawSize > MAX_BLOB_BYTES) throw new IllegalArgumentException("Empty or oversized blob");
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob, zlibFrom, zlibTo - zlibFrom);
+            byte[] out = new byte[rawSize];
+            int n = 0;
+            while (n < rawSize && !inflater.finished()) {
+                int k = inflater.inflate(out, n, rawSize - n);
+                if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += k;
+            }
+            if (n != rawSize) throw new IllegalArgumentException("Blob inflated to " + n + " bytes, expected " + rawSize);
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt zlib data in blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Rejects files that need features this reader does not implement.
+     *
+     * @param headerBlock the decoded {@code HeaderBlock}
+     * @throws IllegalArgumentException on an unsupported required feature
+     */
+    private static void checkHeader(byte[] headerBlock) {
+        // HeaderBlock: 4 = required_features
+        ProtoReader r = new ProtoReader(headerBlock);
+        while (r.hasMore()) {
+            int tag = r.readTag();
+            if ((tag >>> 3) == 4) {
+                String feature = r.readString();
+                if (!SUPPORTED_FEATURES.contains(feature)) {
+                    throw new IllegalArgumentException("Unsupported PBF feature: " + feature);
+                }
+            } else {
+                r.skip(tag);
+            }
+        }
+    }
+
+    // ========= Primitive blocks =========
+
+    /**
+     * Decodes a {@code PrimitiveBlock} into a chunk.
+     *
+     * @param block the decoded block
+     * @return its nodes and routable ways
+     */
+    private static OsmXmlScanner.Chunk decodeBlock(byte[] block) {
+        // PrimitiveBlock: 1 = stringtable, 2 = primitivegroup, 17 = granularity,
+        // 19 = lat_offset, 20 = lon_offset. Groups may precede the settings,
+        // so remember where they are and decode them afterwards.
+        ProtoReader r = new ProtoReader(block);
+        String[] strings = new String[0];
+        List<int[]> groups = new ArrayList<>();
+        long granularity = 100, latOffset = 0, lonOffset = 0;
+        while (r.hasMore()) {
+            int tag = r.readTag();
+            switch (tag >>> 3) {
+                case 1 -> { int len = r.readLength(); strings = stringTable(block, r.pos, r.pos + len); r.pos += len; }
+                case 2 -> { int len = r.readLength(); groups.add(new int[]{r.pos, r.pos + len}); r.pos += len; }
+                case 17 -> granularity = r.readVarint();
+                case 19 -> latOffset = r.readVarint();
+                case 20 -> lonOffset = r.readVarint();
+                default -> r.skip(tag);
+            }
+        }
+
+        Block b = new Block(block, strings, granularity, latOffset, lonOffset);
+        for (int[] g : groups) b.group(g[0], g[1]);
+        return b.out;
+    }
+
+    /**
+     * Decodes a {@code StringTable}.
+     *
+     * @param buf  the block bytes
+     * @param from start of the table message
+     * @param to   end of the table message
+     * @return the strings (index 0 is the empty string by convention)
+     */
+    private static String[] stringTable(byte[] buf, int from, int to) {
+        ArrayList<String> strings = new ArrayList<>();
+        ProtoReader r = new ProtoReader(buf, from, to);
+        while (r.hasMore()) {
+            int tag = r.readTag();
+            if ((tag >>> 3) == 1) strings.add(r.readString());
+            else r.skip(tag);
+        }
+        return strings.toArray(new String[0]);
+    }
+
+    /**
+     * Decoding state for one primitive block.
+     */
+    private static final class Block {
+
+        /** The block bytes. */
+        final byte[] buf;
+
+        /** The block's string table. */
+        final String[] strings;
+
+        /** Coordinate scaling, in nanodegrees. */
+        final long granularity, latOffset, lonOffset;
+
+        /** String table indices of the keys the compiler needs ({@code -1} if absent). */
+        final int highwayKey, onewayKey, nameKey, maxspeedKey;
+
+        /** The result. */
+        final OsmXmlScanner.Chunk out = new OsmXmlScanner.Chunk();
+
+        /**
+         * Constructs the decoding state.
+         *
+         * @param buf         the block bytes
+         * @param strings     the string table
+         * @param granularity coordinate granularity
+         * @param latOffset   latitude offset
+         * @param lonOffset   longitude offset
+         */
+        Block(byte[] buf, String[] strings, long granularity, long latOffset, long lonOffset) {
+            this.buf = buf;
+            this.strings = strings;
+            this.granularity = granularity;
+            this.latOffset = latOffset;
+            this.lonOffset = lonOffset;
+
+            int h = -1, o = -1, n = -1, m = -1;
+            for (int i = 0; i < strings.length; i++) {
+                switch (strings[i]) {
+                    case "highway" -> h = i;
+                    case "oneway" -> o = i;
+                    case "name" -> n = i;
+                    case "maxspeed" -> m = i;
+                    default -> { }
+                }
+            }
+            this.highwayKey = h;
+            this.onewayKey = o;
+            this.nameKey = n;
+            this.maxspeedKey = m;
+        }
+
+        /**
+         * Decodes a {@code PrimitiveGroup}.
+         *
+         * @param from start of the group message
+         * @param to   end of the group message
+         */
+        void group(int from, int to) {
+            // PrimitiveGroup: 1 = nodes, 2 = dense, 3 = ways; relations and changesets are skipped
+            ProtoReader r = new ProtoReader(buf, from, to);
+            while (r.hasMore()) {
+                int tag = r.readTag();
+                int field = tag >>> 3;
+                if (field == 1 || field == 2 || field == 3) {
+                    int len = r.readLength();
+                    if (field == 1) node(r.pos, r.pos + len);
+                    else if (field == 2) denseNodes(r.pos, r.pos + len);
+                    else way(r.pos, r.pos + len);
+                    r.pos += len;
+                } else {
+                    r.skip(tag);
+                }
+            }
+        }
+
+        /**
+         * Decodes a plain {@code Node}.
+         *
+         * @param from start of the message
+         * @param to   end of the message
+         */
+        void node(int from, int to) {
+            // Node: 1 = id (sint64), 8 = lat (sint64), 9 = lon (sint64)
+            ProtoReader r = new ProtoReader(buf, from, to);
+            long id = 0, lat = 0, lon = 0;
+            while (r.hasMore()) {
+                int tag = r.readTag();
+                switch (tag >>> 3) {
+                    case 1 -> id = r.readSInt64();
+                    case 8 -> lat = r.readSInt64();
+                    case 9 -> lon = r.readSInt64();
+                    default -> r.skip(tag);
+                }
+            }
+            out.addNode(id, latitude(lat), longitude(lon));
+        }
+
+        /**
+         * Decodes a {@code DenseNodes} message (delta-coded parallel arrays).
+         *
+         * @param from start of the message
+         * @param to   end of the message
+         */
+        void denseNodes(int from, int to) {
+            // DenseNodes: 1 = id, 8 = lat, 9 = lon (packed, delta-coded sint64)
+            ProtoReader r = new ProtoReader(buf, from, to);
+            ProtoReader ids = null, lats = null, lons = null;
+            while (r.hasMore()) {
+                int tag = r.readTag();
+                int field = tag >>> 3;
+                if ((field == 1 || field == 8 || field == 9) && (tag & 7) == LENGTH_DELIMITED) {
+                    int len = r.readLength();
+                    ProtoReader packed = new ProtoReader(buf, r.pos, r.pos + len);
+                    if (field == 1) ids = packed;
+                    else if (field == 8) lats = packed;
+                    else lons = packed;
+                    r.pos += len;
+                } else {
+                    r.skip(tag);
+                }
+            }
+            if (ids == null) return;
+            if (lats == null || lons == null) throw new IllegalArgumentException("DenseNodes without coordinates");
+
+            long id = 0, lat = 0, lon = 0;
+            while (ids.hasMore()) {
+                if (!lats.hasMore() || !lons.hasMore()) throw new IllegalArgumentException("DenseNodes arrays differ in length");
+                id += ids.readSInt64();
+                lat += lats.readSInt64();
+                lon += lons.readSInt64();
+                out.addNode(id, latitude(lat), longitude(lon));
+            }
+        }
+
+        /**
+         * Decodes a {@code Way}, keeping it if it is routable.
+         *
+         * @param from start of the message
+         * @param to   end of the message
+         */
+        void way(int from, int to) {
+            // Way: 2 = keys, 3 = vals (packed uint32), 8 = refs (packed, delta-coded sint64)
+            ProtoReader r = new ProtoReader(buf, from, to);
+            ProtoReader keys = null, vals = null;
+            int firstRef = out.refCount;
+            while (r.hasMore()) {
+                int tag = r.readTag();
+                int field = tag >>> 3;
+                if ((field == 2 || field == 3 || field == 8) && (tag & 7) == LENGTH_DELIMITED) {
+                    int len = r.readLength();
+                    ProtoReader packed = new ProtoReader(buf, r.pos, r.pos + len);
+                    if (field == 2) keys = packed;
+                    else if (field == 3) vals = packed;
+                    else {
+                        long ref = 0;
+                        while (packed.hasMore()) out.addRef(ref += packed.readSInt64());
+                    }
+                    r.pos += len;
+                } else {
+                    r.skip(tag);
+                }
+            }
+
+            String highway = null, oneway = null, name = null, maxspeed = null;
+            if (keys != null && vals != null) {
+                while (keys.hasMore() && vals.hasMore()) {
+                    int k = (int) keys.readVarint();
+                    int v = (int) vals.readVarint();
+                    if (k == highwayKey) highway = string(v);
+                    else if (k == onewayKey) oneway = string(v);
+                    else if (k == nameKey) name = string(v);
+                    else if (k == maxspeedKey) maxspeed = string(v);
+                }
+            }
+            out.endWay(firstRef, highway, oneway, name, maxspeed);
+        }
+
+        private String string(int i) {
+            if (i < 0 || i >= strings.length) throw new IllegalArgumentException("String index out of range: " + i);
+            return strings[i];
+        }
+
+        private double latitude(long value) {
+            return (latOffset + granularity * value) / 1e9;
+        }
+
+        private double longitude(long value) {
+            return (lonOffset + granularity * value) / 1e9;
+        }
+    }
+
+    // ========= Protobuf wire format =========
+
+    /**
+     * Minimal reader for the protobuf wire format over a byte range.
+     */
+    private static final class ProtoReader {
+
+        /** The bytes. */
+        final byte[] buf;
+
+        /** Current position. */
+        int pos;
+
+        /** End of the range. */
+        final int limit;
+
+        ProtoReader(byte[] buf) {
+            this(buf, 0, buf.length);
+        }
+
+        ProtoReader(byte[] buf, int from, int to) {
+            this.buf = buf;
+            this.pos = from;
+            this.limit = to;
+        }
+
+        boolean hasMore() {
+            return pos < limit;
+        }
+
+        int readTag() {
+            return (int) readVarint();
+        }
+
+        long readVarint() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= limit) throw new IllegalArgumentException("Truncated varint");
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long readSInt64() {
+            long v = readVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        int readLength() {
+            long len = readVarint();
+            if (len < 0 || len > limit - pos) throw new IllegalArgumentException("Field length out of range: " + len);
+            return (int) len;
+        }
+
+        String readString() {
+            int len = readLength();
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+
+        /**
+         * Skips the value of a field.
+         *
+         * @param tag the field's tag
+         */
+        void skip(int tag) {
+            switch (tag & 7) {
+                case VARINT -> readVarint();
+                case FIXED64 -> pos += 8;
+                case LENGTH_DELIMITED -> pos += readLength();
+                case FIXED32 -> pos += 4;
+                default -> throw new IllegalArgumentException("Unsupported wire type " + (tag & 7));
+            }
+            if (pos > limit) throw new IllegalArgumentException("Truncated field");
+        }
+    }
+}
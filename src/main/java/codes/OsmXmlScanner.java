@@ -0,0 +1,755 @@
+package codes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A byte-level scanner for OSM XML that parses a file in parallel.
+ *
+ * <p>A general SAX parser builds an {@code Attributes} object and a
+ * {@code String} for every {@code id}, {@code lat}, {@code lon} and
+ * {@code ref}, which are then parsed again as numbers. This scanner only
+ * understands the small subset of XML that OSM exports use ({@code <node>},
+ * {@code <way>}, {@code <nd>} and {@code <tag>}, plus comments and processing
+ * instructions to skip) and decodes numbers straight from the bytes of a
+ * memory-mapped file.</p>
+ *
+ * <p>The file is cut into chunks at {@code <node} and {@code <way} element
+ * starts. Such a start can never occur inside a way, or inside an attribute
+ * value (where {@code <} must be escaped), so each chunk holds whole
+ * elements and can be parsed on its own. Chunks are parsed as tasks on the
+ * common {@link java.util.concurrent.ForkJoinPool}; concatenating their
+ * results in order gives exactly the elements of the file in document
+ * order.</p>
+ *
+ * <p>Only routable ways with at least two node references are kept (see
+ * {@link Main.OSMCompiler#isRoutableHighway}). Street names are decoded like
+ * an XML parser would (entities, character references and attribute
+ * whitespace normalization), so the compiler produces the same graph as
+ * with SAX.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     List&lt;OsmXmlScanner.Chunk&gt; chunks = OsmXmlScanner.scan(Path.of("map.osm"), 8);
+ *     for (OsmXmlScanner.Chunk c : chunks) {
+ *         for (int i = 0; i < c.nodeCount(); i++) store(c.nodeId(i), c.lat(i), c.lon(i));
+ *     }
+ * </pre>
+ * </p>
+ */
+public final class OsmXmlScanner {
+
+    /** Largest chunk the scanner maps at once (must fit in a {@code ByteBuffer}). */
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    /** Chunks smaller than this are not worth a task of their own. */
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+
+    /** Window size used when searching for chunk boundaries. */
+    private static final int SEARCH_WINDOW = 1 << 16;
+
+    /** Exact powers of ten for the fast double path. */
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10.0;
+    }
+
+    private OsmXmlScanner() { }
+
+    /**
+     * The nodes and routable ways of one chunk of the file, in document order.
+     *
+     * <p>{@link OsmPbfReader} produces the same structure, one per data blob.</p>
+     */
+    public static final class Chunk {
+
+        /** Number of nodes. */
+        int nodeCount;
+
+        /** OSM ID of each node. */
+        long[] nodeId = new long[1 << 10];
+
+        /** Latitude of each node. */
+        double[] lat = new double[1 << 10];
+
+        /** Longitude of each node. */
+        double[] lon = new double[1 << 10];
+
+        /** Number of routable ways. */
+        int wayCount;
+
+        /** Node references of all ways, back to back. */
+        long[] refs = new long[1 << 10];
+
+        /** Number of used entries in {@link #refs}. */
+        int refCount;
+
+        /** Row pointers: way {@code w} uses {@code refs[refStart[w]..refStart[w+1]-1]}. */
+        int[] refStart = new int[1 << 8];
+
+        /** Oneway direction code per way (1, -1 or 0). */
+        byte[] oneway = new byte[1 << 8];
+
+        /** Street name per way (null for unnamed). */
+        String[] name = new String[1 << 8];
+
+        /** Speed per way (km/h, see {@link SpeedProfile}). */
+        double[] speedKmh = new double[1 << 8];
+
+        /**
+         * Returns the number of nodes in this chunk.
+         *
+         * @return node count
+         */
+        public int nodeCount() { return nodeCount; }
+
+        /**
+         * Returns the OSM ID of node {@code i}.
+         *
+         * @param i the node index within this chunk
+         * @return the OSM node ID
+         */
+        public long nodeId(int i) { return nodeId[i]; }
+
+        /**
+         * Returns the latitude of node {@code i}.
+         *
+         * @param i the node index within this chunk
+         * @return latitude (degrees)
+         */
+        public double lat(int i) { return lat[i]; }
+
+        /**
+         * Returns the longitude of node {@code i}.
+         *
+         * @param i the node index within this chunk
+         * @return longitude (degrees)
+         */
+        public double lon(int i) { return lon[i]; }
+
+        /**
+         * Returns the number of routable ways in this chunk.
+         *
+         * @return way count
+         */
+        public int wayCount() { return wayCount; }
+
+        /**
+         * Returns the node references of way {@code w}.
+         *
+         * @param w the way index within this chunk
+         * @return a copy of its OSM node references
+         */
+        public long[] wayRefs(int w) { return Arrays.copyOfRange(refs, refStart[w], refStart[w + 1]); }
+
+        /**
+         * Returns the oneway direction of way {@code w}.
+         *
+         * @param w the way index within this chunk
+         * @return 1 for forward-only, -1 for reverse-only, 0 for bidirectional
+         */
+        public int oneway(int w) { return oneway[w]; }
+
+        /**
+         * Returns the street name of way {@code w}.
+         *
+         * @param w the way index within this chunk
+         * @return the name, or {@code null} if unnamed
+         */
+        public String name(int w) { return name[w]; }
+
+        /**
+         * Returns the travel speed of way {@code w}.
+         *
+         * @param w the way index within this chunk
+         * @return speed in km/h
+         */
+        public double speedKmh(int w) { return speedKmh[w]; }
+
+        /**
+         * Appends a node.
+         *
+         * @param id     OSM node ID
+         * @param nodeLat latitude
+         * @param nodeLon longitude
+         */
+        void addNode(long id, double nodeLat, double nodeLon) {
+            if (nodeCount == nodeId.length) {
+                nodeId = Arrays.copyOf(nodeId, nodeCount * 2);
+                lat = Arrays.copyOf(lat, nodeCount * 2);
+                lon = Arrays.copyOf(lon, nodeCount * 2);
+            }
+            nodeId[nodeCount] = id;
+            lat[nodeCount] = nodeLat;
+            lon[nodeCount] = nodeLon;
+            nodeCount++;
+        }
+
+        /**
+         * Appends a node reference to the way under construction.
+         *
+         * @param ref OSM node ID
+         */
+        void addRef(long ref) {
+            if (refCount == refs.length) refs = Arrays.copyOf(refs, refCount * 2);
+            refs[refCount++] = ref;
+        }
+
+        /**
+         * Ends the way under construction, keeping it only if it is routable.
+         *
+         * @param firstRef  index in {@link #refs} of the way's first reference
+         * @param highway   the highway tag (may be null)
+         * @param onewayTag the oneway tag (may be null)
+         * @param wayName   the name tag (may be null)
+         * @param maxspeed  the maxspeed tag (may be null)
+         */
+        void endWay(int firstRef, String highway, String onewayTag, String wayName, String maxspeed) {
+            if (!Main.OSMCompiler.isRoutableHighway(highway) || refCount - firstRef < 2) {
+                refCount = firstRef;
+                return;
+            }
+            if (wayCount + 1 >= refStart.length) {
+                refStart = Arrays.copyOf(refStart, refStart.length * 2);
+                oneway = Arrays.copyOf(oneway, oneway.length * 2);
+                name = Arrays.copyOf(name, name.length * 2);
+                speedKmh = Arrays.copyOf(speedKmh, speedKmh.length * 2);
+            }
+            refStart[wayCount] = firstRef;
+            refStart[wayCount + 1] = refCount;
+            oneway[wayCount] = (byte) Main.OSMCompiler.parseOnewayDirection(onewayTag);
+            name[wayCount] = wayName;
+            speedKmh[wayCount] = SpeedProfile.speedKmh(highway, maxspeed);
+            wayCount++;
+        }
+    }
+
+    /**
+     * Scans an OSM XML file using the common pool's parallelism.
+     *
+     * @param osmFile path to the OSM XML file
+     * @return the chunks in file order
+     * @throws UncheckedIOException     if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static List<Chunk> scan(Path osmFile) {
+        return scan(osmFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Scans an OSM XML file.
+     *
+     * @param osmFile     path to the OSM XML file
+     * @param parallelism the number of chunks to aim for (at least 1); the
+     *                    file is never cut into chunks smaller than 1 MB or
+     *                    larger than 1 GB
+     * @return the chunks in file order
+     * @throws UncheckedIOException     if the file cannot be read
+     * @throws IllegalArgumentException if {@code parallelism < 1} or the file is malformed
+     */
+    public static List<Chunk> scan(Path osmFile, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+
+        try (FileChannel ch = FileChannel.open(osmFile, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long[] bounds = chunkBounds(ch, size, parallelism);
+
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+            for (int c = 0; c + 1 < bounds.length; c++) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, bounds[c], bounds[c + 1] - bounds[c]);
+                long base = bounds[c];
+                tasks.add(ForkJoinTask.adapt((Callable<Chunk>) () -> new ChunkParser(buf, base).parse()));
+            }
+
+            ForkJoinTask.invokeAll(tasks);
+            List<Chunk> chunks = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<Chunk> t : tasks) chunks.add(t.join());
+            return chunks;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + osmFile, e);
+        }
+    }
+
+    // ========= Chunking =========
+
+    /**
+     * Cuts the file into chunks that start at element boundaries.
+     *
+     * @param ch          the file
+     * @param size        the file size
+     * @param parallelism the number of chunks to aim for
+     * @return chunk offsets, starting with 0 and ending with {@code size}
+     * @throws IOException if reading fails
+     */
+    private static long[] chunkBounds(FileChannel ch, long size, int parallelism) throws IOException {
+        long target = Math.max(MIN_CHUNK_BYTES, (size + parallelism - 1) / parallelism);
+        target = Math.min(target, MAX_CHUNK_BYTES / 2);
+
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long cut = target;
+        while (cut < size) {
+            long b = nextElementStart(ch, cut, size);
+            if (b >= size) break;
+            if (b - bounds.get(bounds.size() - 1) > MAX_CHUNK_BYTES) {
+                throw new IllegalArgumentException("No <node> or <way> element within 1 GB after offset " + cut);
+            }
+            bounds.add(b);
+            cut = b + target;
+        }
+        bounds.add(size);
+
+        long[] out = new long[bounds.size()];
+        for (int i = 0; i < out.length; i++) out[i] = bounds.get(i);
+        return out;
+    }
+
+    /**
+     * Finds the first {@code <node} or {@code <way} element start at or after {@code from}.
+     *
+     * @param ch   the file
+     * @param from the offset to search from
+     * @param size the file size
+     * @return the offset of the {@code <}, or {@code size} if there is none
+     * @throws IOException if reading fails
+     */
+    private static long nextElementStart(FileChannel ch, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(SEARCH_WINDOW);
+        long pos = from;
+        while (pos < size) {
+            window.clear();
+            int n = 0;
+            while (window.hasRemaining() && pos + n < size) {
+                int r = ch.read(window, pos + n);
+                if (r < 0) break;
+                n += r;
+            }
+
+            // Leave room for "<node " so a match straddling two windows is found in the next one
+            int last = (pos + n >= size) ? n : n - 6;
+            for (int i = 0; i < last; i++) {
+                if (window.get(i) != '<') continue;
+                if (matches(window, i + 1, n, "node") || matches(window, i + 1, n, "way")) return pos + i;
+            }
+            if (pos + n >= size) break;
+            pos += last;
+        }
+        return size;
+    }
+
+    /**
+     * Checks whether {@code name} followed by a name terminator occurs at {@code at}.
+     *
+     * @param b     the bytes
+     * @param at    where the name would start
+     * @param limit end of valid bytes
+     * @param name  the element name
+     * @return {@code true} if the element name matches exactly
+     */
+    private static boolean matches(ByteBuffer b, int at, int limit, String name) {
+        if (at + name.length() >= limit) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (b.get(at + i) != name.charAt(i)) return false;
+        }
+        return isNameEnd(b.get(at + name.length()));
+    }
+
+    /**
+     * Returns whether a byte ends an element or attribute name.
+     *
+     * @param c the byte
+     * @return {@code true} for whitespace, {@code /}, {@code >} or {@code =}
+     */
+    private static boolean isNameEnd(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '/' || c == '>' || c == '=';
+    }
+
+    // ========= Chunk parsing =========
+
+    /**
+     * Parses the elements of one chunk.
+     */
+    private static final class ChunkParser {
+
+        /** Element kinds the parser cares about. */
+        private static final int OTHER = 0, NODE = 1, WAY = 2, ND = 3, TAG = 4;
+
+        /** The chunk bytes. */
+        final ByteBuffer b;
+
+        /** File offset of the chunk, for error messages. */
+        final long base;
+
+        /** Chunk length. */
+        final int limit;
+
+        /** The result. */
+        final Chunk out = new Chunk();
+
+        /** Whether the parser is inside a {@code <way>}. */
+        boolean inWay;
+
+        /** Index in {@code out.refs} of the current way's first reference. */
+        int wayFirstRef;
+
+        /** Tags of the current way. */
+        String highway, onewayTag, wayName, maxspeed;
+
+        /** Attribute value bounds of the current element ({@code -1} if absent). */
+        int idFrom = -1, idTo, latFrom = -1, latTo, lonFrom = -1, lonTo, refFrom = -1, refTo,
+                kFrom = -1, kTo, vFrom = -1, vTo;
+
+        /**
+         * Constructs a parser.
+         *
+         * @param b    the chunk bytes
+         * @param base file offset of the chunk
+         */
+        ChunkParser(ByteBuffer b, long base) {
+            this.b = b;
+            this.base = base;
+            this.limit = b.limit();
+        }
+
+        /**
+         * Parses the whole chunk.
+         *
+         * @return the nodes and routable ways of the chunk
+         * @throws IllegalArgumentException if the chunk is malformed
+         */
+        Chunk parse() {
+            int p = 0;
+            while (true) {
+                p = indexOf((byte) '<', p);
+                if (p < 0) break;
+                p++;
+                if (p >= limit) break;
+
+                byte c = b.get(p);
+                if (c == '?') {
+                    p = skipPast("?>", p);
+                } else if (c == '!') {
+                    p = matchesAt("!--", p) ? skipPast("-->", p) : skipPast(">", p);
+                } else if (c == '/') {
+                    if (nameIs(p + 1, "way")) endWay();
+                    p = skipPast(">", p);
+                } else {
+                    p = element(p);
+                }
+            }
+            if (inWay) throw error(limit, "unterminated <way>");
+            return out;
+        }
+
+        /**
+         * Parses a start tag.
+         *
+         * @param p position of the element name
+         * @return position after the tag
+         */
+        private int element(int p) {
+            int kind = nameIs(p, "node") ? NODE
+                    : nameIs(p, "way") ? WAY
+                    : nameIs(p, "nd") ? ND
+                    : nameIs(p, "tag") ? TAG
+                    : OTHER;
+            if (kind == OTHER || (!inWay && (kind == ND || kind == TAG))) return skipPast(">", p);
+
+            idFrom = latFrom = lonFrom = refFrom = kFrom = vFrom = -1;
+            while (p < limit && !isNameEnd(b.get(p))) p++;
+
+            // Attributes
+            boolean selfClosing = false;
+            while (true) {
+                p = skipSpace(p);
+                if (p >= limit) throw error(p, "unterminated tag");
+                byte c = b.get(p);
+                if (c == '>') { p++; break; }
+                if (c == '/') { selfClosing = true; p++; continue; }
+
+                int nameFrom = p;
+                while (p < limit && !isNameEnd(b.get(p))) p++;
+                int nameTo = p;
+                p = skipSpace(p);
+                if (p >= limit || b.get(p) != '=') throw error(p, "expected '='");
+                p = skipSpace(p + 1);
+                if (p >= limit) throw error(p, "missing attribute value");
+                byte quote = b.get(p);
+                if (quote != '"' && quote != '\'') throw error(p, "unquoted attribute value");
+                int valueFrom = p + 1;
+                int valueTo = indexOf(quote, valueFrom);
+                if (valueTo < 0) throw error(p, "unterminated attribute value");
+                p = valueTo + 1;
+
+                attribute(kind, nameFrom, nameTo, valueFrom, valueTo);
+            }
+
+            switch (kind) {
+                case NODE -> {
+                    if (idFrom < 0 || latFrom < 0 || lonFrom < 0) throw error(p, "<node> needs id, lat and lon");
+                    out.addNode(parseLong(idFrom, idTo), parseDouble(latFrom, latTo), parseDouble(lonFrom, lonTo));
+                }
+                case WAY -> {
+                    inWay = true;
+                    wayFirstRef = out.refCount;
+                    highway = onewayTag = wayName = maxspeed = null;
+                    if (selfClosing) endWay();
+                }
+                case ND -> {
+                    if (refFrom < 0) throw error(p, "<nd> needs ref");
+                    out.addRef(parseLong(refFrom, refTo));
+                }
+                case TAG -> {
+                    if (kFrom < 0 || vFrom < 0) return p;
+                    if (rangeIs(kFrom, kTo, "highway")) highway = text(vFrom, vTo);
+                    else if (rangeIs(kFrom, kTo, "oneway")) onewayTag = text(vFrom, vTo);
+                    else if (rangeIs(kFrom, kTo, "name")) wayName = text(vFrom, vTo);
+                    else if (rangeIs(kFrom, kTo, "maxspeed")) maxspeed = text(vFrom, vTo);
+                }
+                default -> { }
+            }
+            return p;
+        }
+
+        /**
+         * Records the bounds of an attribute the current element needs.
+         *
+         * @param kind      the element kind
+         * @param nameFrom  start of the attribute name
+         * @param nameTo    end of the attribute name
+         * @param valueFrom start of the value
+         * @param valueTo   end of the value
+         */
+        private void attribute(int kind, int nameFrom, int nameTo, int valueFrom, int valueTo) {
+            switch (kind) {
+                case NODE -> {
+                    if (rangeIs(nameFrom, nameTo, "id")) { idFrom = valueFrom; idTo = valueTo; }
+                    else if (rangeIs(nameFrom, nameTo, "lat")) { latFrom = valueFrom; latTo = valueTo; }
+                    else if (rangeIs(nameFrom, nameTo, "lon")) { lonFrom = valueFrom; lonTo = valueTo; }
+                }
+                case ND -> {
+                    if (rangeIs(nameFrom, nameTo, "ref")) { refFrom = valueFrom; refTo = valueTo; }
+                }
+                case TAG -> {
+                    if (rangeIs(nameFrom, nameTo, "k")) { kFrom = valueFrom; kTo = valueTo; }
+                    else if (rangeIs(nameFrom, nameTo, "v")) { vFrom = valueFrom; vTo = valueTo; }
+                }
+                default -> { }
+            }
+        }
+
+        /** Ends the current way. */
+        private void endWay() {
+            if (!inWay) return;
+            inWay = false;
+            out.endWay(wayFirstRef, highway, onewayTag, wayName, maxspeed);
+        }
+
+        // ---- Byte helpers ----
+
+        private int indexOf(byte c, int from) {
+            for (int i = from; i < limit; i++) if (b.get(i) == c) return i;
+            return -1;
+        }
+
+        private int skipSpace(int p) {
+            while (p < limit) {
+                byte c = b.get(p);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') break;
+                p++;
+            }
+            return p;
+        }
+
+        private boolean matchesAt(String s, int p) {
+            if (p + s.length() > limit) return false;
+            for (int i = 0; i < s.length(); i++) if (b.get(p + i) != s.charAt(i)) return false;
+            return true;
+        }
+
+        private int skipPast(String s, int p) {
+            for (int i = p; i + s.length() <= limit; i++) {
+                if (matchesAt(s, i)) return i + s.length();
+            }
+            return limit;
+        }
+
+        private boolean nameIs(int p, String name) {
+            return matchesAt(name, p) && (p + name.length() >= limit || isNameEnd(b.get(p + name.length())));
+        }
+
+        private boolean rangeIs(int from, int to, String s) {
+            return to - from == s.length() && matchesAt(s, from);
+        }
+
+        // ---- Number decoding ----
+
+        /**
+         * Parses a decimal integer.
+         *
+         * @param from start of the digits
+         * @param to   end of the digits
+         * @return the value
+         * @throws IllegalArgumentException if the text is not an integer
+         */
+        private long parseLong(int from, int to) {
+            int p = from;
+            boolean negative = p < to && b.get(p) == '-';
+            if (negative) p++;
+            if (p == to || to - p > 18) return Long.parseLong(ascii(from, to));
+
+            long v = 0;
+            for (; p < to; p++) {
+                int d = b.get(p) - '0';
+                if (d < 0 || d > 9) throw error(from, "bad integer '" + ascii(from, to) + "'");
+                v = v * 10 + d;
+            }
+            return negative ? -v : v;
+        }
+
+        /**
+         * Parses a decimal floating-point number.
+         *
+         * <p>Numbers with at most 15 significant digits and a small decimal
+         * exponent (every OSM coordinate) are decoded exactly as
+         * {@code digits / 10^k}, which is correctly rounded because both
+         * operands are exact doubles. Anything else falls back to
+         * {@link Double#parseDouble}.</p>
+         *
+         * @param from start of the text
+         * @param to   end of the text
+         * @return the value
+         * @throws IllegalArgumentException if the text is not a number
+         */
+        private double parseDouble(int from, int to) {
+            int p = from;
+            boolean negative = false;
+            if (p < to && (b.get(p) == '-' || b.get(p) == '+')) negative = b.get(p++) == '-';
+
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean dot = false;
+            boolean any = false;
+            for (; p < to; p++) {
+                byte c = b.get(p);
+                if (c == '.' && !dot) { dot = true; continue; }
+                if (c < '0' || c > '9') break;
+                any = true;
+                if (mantissa == 0 && c == '0') { if (dot) scale--; continue; }
+                if (++digits > 15) return slowDouble(from, to);
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) scale--;
+            }
+            if (!any) throw error(from, "bad number '" + ascii(from, to) + "'");
+            if (p < to) {
+                byte c = b.get(p);
+                if (c != 'e' && c != 'E') throw error(from, "bad number '" + ascii(from, to) + "'");
+                return slowDouble(from, to);
+            }
+
+            double v;
+            if (mantissa == 0) v = 0.0;
+            else if (scale >= 0 && scale < POW10.length) v = mantissa * POW10[scale];
+            else if (scale < 0 && -scale < POW10.length) v = mantissa / POW10[-scale];
+            else return slowDouble(from, to);
+            return negative ? -v : v;
+        }
+
+        private double slowDouble(int from, int to) {
+            try {
+                return Double.parseDouble(ascii(from, to));
+            } catch (NumberFormatException e) {
+                throw error(from, "bad number '" + ascii(from, to) + "'");
+            }
+        }
+
+        // ---- Text decoding ----
+
+        private String ascii(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            b.get(from, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Decodes an attribute value the way an XML parser reports it.
+         *
+         * @param from start of the raw value
+         * @param to   end of the raw value
+         * @return the decoded text
+         * @throws IllegalArgumentException on an unknown entity
+         */
+        private String text(int from, int to) {
+            byte[] raw = new byte[to - from];
+            b.get(from, raw);
+
+            boolean plain = true;
+            for (byte c : raw) {
+                if (c == '&' || c == '\t' || c == '\n' || c == '\r') { plain = false; break; }
+            }
+            if (plain) return new String(raw, StandardCharsets.UTF_8);
+
+            StringBuilder sb = new StringBuilder(raw.length);
+            int run = 0;
+            for (int i = 0; i < raw.length; i++) {
+                byte c = raw[i];
+                if (c != '&' && c != '\t' && c != '\n' && c != '\r') continue;
+
+                sb.append(new String(raw, run, i - run, StandardCharsets.UTF_8));
+                if (c == '&') {
+                    int semi = i + 1;
+                    while (semi < raw.length && raw[semi] != ';') semi++;
+                    if (semi == raw.length) throw error(from + i, "unterminated entity");
+                    String entity = new String(raw, i + 1, semi - i - 1, StandardCharsets.ISO_8859_1);
+                    sb.append(switch (entity) {
+                        case "amp" -> "&";
+                        case "lt" -> "<";
+                        case "gt" -> ">";
+                        case "quot" -> "\"";
+                        case "apos" -> "'";
+                        default -> characterReference(entity, from + i);
+                    });
+                    i = semi;
+                } else {
+                    // Attribute-value normalization: CRLF, CR, LF and TAB each become one space
+                    sb.append(' ');
+                    if (c == '\r' && i + 1 < raw.length && raw[i + 1] == '\n') i++;
+                }
+                run = i + 1;
+            }
+            sb.append(new String(raw, run, raw.length - run, StandardCharsets.UTF_8));
+            return sb.toString();
+        }
+
+        private String characterReference(String entity, int at) {
+            try {
+                int cp;
+                if (entity.startsWith("#x")) cp = Integer.parseInt(entity.substring(2), 16);
+                else if (entity.startsWith("#")) cp = Integer.parseInt(entity.substring(1));
+                else throw error(at, "unknown entity &" + entity + ";");
+                return new String(Character.toChars(cp));
+            } catch (NumberFormatException e) {
+                throw error(at, "bad character reference &" + entity + ";");
+            }
+        }
+
+        private IllegalArgumentException error(int p, String message) {
+            return new IllegalArgumentException("Malformed OSM XML at byte " + (base + p) + ": " + message);
+        }
+    }
+}
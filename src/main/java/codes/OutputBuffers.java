@@ -0,0 +1,60 @@
+package codes;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small shared pool of the byte buffers that {@link GeoJsonWriter} and
+ * {@link BinaryRouteWriter} format into.
+ *
+ * <p>The server creates a writer for every response. Each write call takes a
+ * buffer from here and hands it back when done, so a steady stream of
+ * requests reuses a few buffers instead of allocating one per response. As
+ * with {@link SearchWorkspace.Pool}, at most one idle buffer per core is kept.
+ * The pool is not thread-local: with virtual threads every request runs on a
+ * fresh thread, so a per-thread buffer would never be reused.</p>
+ */
+final class OutputBuffers {
+
+    /** Size of every buffer; writers flush each time theirs fills. */
+    static final int BUFFER_BYTES = 8192;
+
+    /** Most idle buffers kept. */
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+    /** Idle buffers. */
+    private static final ConcurrentLinkedDeque<byte[]> IDLE = new ConcurrentLinkedDeque<>();
+
+    /** Size of {@link #IDLE} (the deque's own size() is linear). */
+    private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+
+    private OutputBuffers() {
+    }
+
+    /**
+     * Takes a buffer from the pool, allocating one if none is idle.
+     *
+     * @return a buffer of {@link #BUFFER_BYTES} bytes; its contents are undefined
+     */
+    static byte[] take() {
+        byte[] buf = IDLE.pollFirst();
+        if (buf == null) return new byte[BUFFER_BYTES];
+        IDLE_COUNT.decrementAndGet();
+        return buf;
+    }
+
+    /**
+     * Returns a buffer to the pool, dropping it if {@code MAX_IDLE} buffers
+     * are already idle. The caller must not touch it afterwards.
+     *
+     * @param buf a buffer from {@link #take()} (ignored if null)
+     */
+    static void give(byte[] buf) {
+        if (buf == null) return;
+        if (IDLE_COUNT.incrementAndGet() > MAX_IDLE) {
+            IDLE_COUNT.decrementAndGet();
+            return;
+        }
+        IDLE.offerFirst(buf);
+    }
+}
@@ -0,0 +1,436 @@
+package codes;
+
+import java.util.Arrays;
+
+/**
+ * One-to-all shortest path distances by PHAST sweeps over a
+ * {@link ContractionHierarchy}.
+ *
+ * <p>A hierarchy splits every shortest path into an upward part followed by
+ * a downward part. So the distances from {@code s} to all vertices are found
+ * in two phases:
+ * <ol>
+ *   <li>an ordinary Dijkstra from {@code s} over the upward graph only (a few
+ *       hundred vertices on road networks, fewer with stall-on-demand), then</li>
+ *   <li>one linear sweep over all vertices, highest level first (a vertex's
+ *       level is one more than the highest among its lower-ranked
+ *       neighbours), setting each vertex's distance from its incoming
+ *       downward arcs. Their tails are on higher levels, so their distances
+ *       are already final.</li>
+ * </ol>
+ * The sweep needs no priority queue. Vertices and arcs are renumbered into
+ * sweep order (position 0 is on the top level), so it streams through the
+ * distance and arc arrays front to back. That makes the run bound by memory
+ * bandwidth rather than heap operations and cache misses, as a full
+ * {@link ShortestPathAlgorithms.Dijkstra} is.</p>
+ *
+ * <p>{@link #manyToAll} runs up to {@link Workspace#width()} sources in one
+ * sweep. Their distances are interleaved per vertex, so each arc read
+ * serves every source. Every sweep writes every distance, so the arrays in a
+ * {@link Workspace} are reused without clearing.</p>
+ *
+ * <p>Only distances are computed; routes come from
+ * {@link ContractionHierarchy#route}. A {@code Phast} is immutable and may
+ * be shared between threads, each running sweeps in its own workspace.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     Phast phast = new Phast(ch);
+ *     Phast.Workspace ws = phast.newWorkspace(8);
+ *     for (int i = 0; i &lt; sources.length; i += 8) {
+ *         phast.manyToAll(Arrays.copyOfRange(sources, i, Math.min(i + 8, sources.length)), ws);
+ *         for (int p = 0; p &lt; phast.V(); p++) total += ws.distAtPosition(0, p);
+ *     }
+ * </pre>
+ * </p>
+ *
+ * @see <a href="https://www.microsoft.com/en-us/research/publication/phast-hardware-accelerated-shortest-path-trees/">
+ *      Delling et al., PHAST: Hardware-Accelerated Shortest Path Trees</a>
+ */
+public final class Phast {
+
+    /** The metric of the hierarchy. */
+    private final RoutingEngine.Metric metric;
+
+    /** Number of vertices. */
+    private final int V;
+
+    /** Sweep position of each vertex. */
+    private final int[] position;
+
+    /** Vertex at each sweep position. */
+    private final int[] vertex;
+
+    /** Upward graph row pointers by position (length V + 1). */
+    private final int[] firstUp;
+
+    /** Upward graph: head position per slot. */
+    private final int[] upHead;
+
+    /** Upward graph: weight per slot. */
+    private final double[] upWeight;
+
+    /** Downward graph row pointers by head position (length V + 1). */
+    private final int[] firstDown;
+
+    /** Downward graph: tail position per slot (always before the head). */
+    private final int[] downTail;
+
+    /** Downward graph: weight per slot. */
+    private final double[] downWeight;
+
+    /**
+     * Prepares sweeps over {@code ch}.
+     *
+     * @param ch the hierarchy
+     * @throws IllegalArgumentException if {@code ch} is null
+     */
+    public Phast(ContractionHierarchy ch) {
+        if (ch == null) throw new IllegalArgumentException("hierarchy cannot be null");
+        this.metric = ch.metric();
+        this.V = ch.V();
+
+        // A vertex's level is one more than that of its highest-level lower
+        // neighbour, so every downward arc leads to a lower level. Sweeping
+        // levels top down keeps tails before heads; within a level the input
+        // order is kept, which on OSM data keeps neighbouring vertices close.
+        int[] byRank = new int[V];
+        for (int v = 0; v < V; v++) byRank[ch.rank(v)] = v;
+        int[] level = new int[V];
+        int top = 0;
+        for (int r = 0; r < V; r++) {
+            int u = byRank[r];
+            int next = level[u] + 1;
+            top = Math.max(top, level[u]);
+            for (int i = ch.firstUp(u); i < ch.endUp(u); i++) {
+                int w = ch.upHead(i);
+                if (level[w] < next) level[w] = next;
+            }
+            for (int i = ch.firstDown(u); i < ch.endDown(u); i++) {
+                int w = ch.downTail(i);
+                if (level[w] < next) level[w] = next;
+            }
+        }
+        int[] next = new int[top + 2];
+        for (int v = 0; v < V; v++) next[top - level[v] + 1]++;
+        for (int l = 0; l <= top; l++) next[l + 1] += next[l];
+        this.position = new int[V];
+        this.vertex = new int[V];
+        for (int v = 0; v < V; v++) {
+            int p = next[top - level[v]]++;
+            position[v] = p;
+            vertex[p] = v;
+        }
+
+        this.firstUp = new int[V + 1];
+        this.firstDown = new int[V + 1];
+        for (int p = 0; p < V; p++) {
+            int v = vertex[p];
+            firstUp[p + 1] = firstUp[p] + (ch.endUp(v) - ch.firstUp(v));
+            firstDown[p + 1] = firstDown[p] + (ch.endDown(v) - ch.firstDown(v));
+        }
+
+        this.upHead = new int[firstUp[V]];
+        this.upWeight = new double[firstUp[V]];
+        this.downTail = new int[firstDown[V]];
+        this.downWeight = new double[firstDown[V]];
+        for (int p = 0; p < V; p++) {
+            int v = vertex[p];
+            for (int i = ch.firstUp(v), k = firstUp[p]; i < ch.endUp(v); i++, k++) {
+                upHead[k] = position[ch.upHead(i)];
+                upWeight[k] = ch.upWeight(i);
+            }
+            for (int i = ch.firstDown(v), k = firstDown[p]; i < ch.endDown(v); i++, k++) {
+                downTail[k] = position[ch.downTail(i)];
+                downWeight[k] = ch.downWeight(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the metric distances are in.
+     *
+     * @return the hierarchy's metric
+     */
+    public RoutingEngine.Metric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return vertex count
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Returns the sweep position of vertex {@code v}.
+     *
+     * @param v the vertex
+     * @return the position, {@code 0..V-1}
+     */
+    public int position(int v) {
+        return position[v];
+    }
+
+    /**
+     * Returns the vertex at sweep position {@code p}.
+     *
+     * @param p the position
+     * @return the vertex
+     */
+    public int vertexAt(int p) {
+        return vertex[p];
+    }
+
+    /**
+     * Creates a workspace holding distances for {@code width} sources per sweep.
+     *
+     * @param width sources per sweep
+     * @return a new workspace
+     * @throws IllegalArgumentException if {@code width < 1}
+     */
+    public Workspace newWorkspace(int width) {
+        return new Workspace(V, width);
+    }
+
+    /**
+     * Computes the distances from {@code s} to every vertex into lane 0 of {@code ws}.
+     *
+     * @param s  the source vertex
+     * @param ws the workspace (any width; other lanes become unreachable)
+     * @throws IllegalArgumentException if {@code s} is not a valid vertex or {@code ws}
+     *                                  was created by another {@code Phast}
+     */
+    public void oneToAll(int s, Workspace ws) {
+        manyToAll(new int[]{s}, ws);
+    }
+
+    /**
+     * Computes the distances from each of {@code sources} to every vertex in
+     * one sweep; lane {@code j} of {@code ws} receives source {@code j}.
+     * Lanes past {@code sources.length} become unreachable.
+     *
+     * @param sources the source vertices, at most {@code ws.width()}
+     * @param ws      the workspace
+     * @throws IllegalArgumentException if {@code sources} is null or longer than the
+     *                                  workspace is wide, a source is not a valid vertex,
+     *                                  or {@code ws} was created by another {@code Phast}
+     */
+    public void manyToAll(int[] sources, Workspace ws) {
+        if (sources == null) throw new IllegalArgumentException("sources cannot be null");
+        if (ws == null || ws.owner() != this) throw new IllegalArgumentException("workspace is not from this Phast");
+        if (sources.length > ws.width) {
+            throw new IllegalArgumentException(sources.length + " sources exceed workspace width " + ws.width);
+        }
+        for (int s : sources) {
+            if (s < 0 || s >= V) throw new IllegalArgumentException("vertex " + s + " is not between 0 and " + (V - 1));
+        }
+
+        for (int j = 0; j < sources.length; j++) upward(position[sources[j]], j, ws);
+        if (ws.width == 1) sweep(ws.seed, ws.dist);
+        else sweep(ws.seed, ws.dist, ws.width);
+
+        // Restore the seeds to infinity for the next query
+        for (int i = 0; i < ws.touchedCount; i++) {
+            int base = ws.touched[i] * ws.width;
+            Arrays.fill(ws.seed, base, base + ws.width, Double.POSITIVE_INFINITY);
+        }
+        ws.touchedCount = 0;
+    }
+
+    /**
+     * Phase 1: Dijkstra over the upward graph from one source, writing
+     * upper bounds into the seeds of lane {@code lane}.
+     *
+     * @param s    the source position
+     * @param lane the lane
+     * @param ws   the workspace
+     */
+    private void upward(int s, int lane, Workspace ws) {
+        int K = ws.width;
+        double[] seed = ws.seed;
+        IndexedDaryHeap pq = ws.heap;
+
+        ws.touch(s);
+        seed[s * K + lane] = 0.0;
+        pq.insert(s, 0.0);
+
+        while (!pq.isEmpty()) {
+            int u = pq.delMin();
+            double du = seed[u * K + lane];
+            if (stalled(seed, u, du, K, lane)) continue;
+            for (int i = firstUp[u], end = firstUp[u + 1]; i < end; i++) {
+                int w = upHead[i];
+                double candidate = du + upWeight[i];
+                int k = w * K + lane;
+                if (candidate < seed[k]) {
+                    if (seed[k] == Double.POSITIVE_INFINITY) ws.touch(w);
+                    seed[k] = candidate;
+                    if (pq.contains(w)) pq.decreaseKey(w, candidate);
+                    else pq.insert(w, candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stall-on-demand: {@code u} need not be relaxed if a higher-ranked
+     * vertex already reached by the search has a downward arc into it that
+     * gives a shorter path. Then no shortest path is upward up to {@code u},
+     * and the sweep sets its distance from that arc.
+     *
+     * @param seed the upward-search bounds
+     * @param u    the settled position
+     * @param du   its bound
+     * @param K    the lane count
+     * @param lane the lane
+     * @return {@code true} if {@code u} is stalled
+     */
+    private boolean stalled(double[] seed, int u, double du, int K, int lane) {
+        for (int i = firstDown[u], end = firstDown[u + 1]; i < end; i++) {
+            if (seed[downTail[i] * K + lane] + downWeight[i] < du) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Phase 2 for one source: sets every distance from the seed and the
+     * incoming downward arcs, in position order.
+     *
+     * @param seed upward-search bounds by position
+     * @param dist output distances by position
+     */
+    private void sweep(double[] seed, double[] dist) {
+        for (int p = 0; p < V; p++) {
+            double d = seed[p];
+            for (int i = firstDown[p], end = firstDown[p + 1]; i < end; i++) {
+                double candidate = dist[downTail[i]] + downWeight[i];
+                if (candidate < d) d = candidate;
+            }
+            dist[p] = d;
+        }
+    }
+
+    /**
+     * Phase 2 for {@code K} interleaved sources.
+     *
+     * @param seed upward-search bounds, {@code K} per position
+     * @param dist output distances, {@code K} per position
+     * @param K    the lane count
+     */
+    private void sweep(double[] seed, double[] dist, int K) {
+        for (int p = 0, base = 0; p < V; p++, base += K) {
+            System.arraycopy(seed, base, dist, base, K);
+            for (int i = firstDown[p], end = firstDown[p + 1]; i < end; i++) {
+                int from = downTail[i] * K;
+                double w = downWeight[i];
+                for (int j = 0; j < K; j++) {
+                    double candidate = dist[from + j] + w;
+                    if (candidate < dist[base + j]) dist[base + j] = candidate;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a string summary for debugging.
+     *
+     * @return summary with vertex and arc counts
+     */
+    @Override
+    public String toString() {
+        return String.format("Phast(%s, V=%d, up=%d, down=%d)", metric, V, upHead.length, downTail.length);
+    }
+
+    /**
+     * Reusable distance arrays for sweeps of up to {@link #width()} sources.
+     *
+     * <p>Distances are stored by sweep position with the lanes of each
+     * position adjacent. Read them with {@link #distAtPosition} in position
+     * order for streaming access, or with {@link #dist} by vertex. Values are
+     * valid until the next sweep in this workspace. A workspace is not
+     * thread-safe.</p>
+     */
+    public final class Workspace {
+
+        /** Sources per sweep. */
+        private final int width;
+
+        /** Distances, {@code width} per position. */
+        private final double[] dist;
+
+        /** Upward-search bounds, {@code width} per position; infinite between queries. */
+        private final double[] seed;
+
+        /** Positions whose seeds were written by the current query. */
+        private int[] touched = new int[256];
+        private int touchedCount;
+
+        /** Priority queue for the upward searches. */
+        private final IndexedDaryHeap heap;
+
+        private Workspace(int V, int width) {
+            if (width < 1) throw new IllegalArgumentException("width must be at least 1");
+            this.width = width;
+            this.dist = new double[Math.multiplyExact(V, width)];
+            this.seed = new double[dist.length];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Arrays.fill(seed, Double.POSITIVE_INFINITY);
+            this.heap = new IndexedDaryHeap(V);
+        }
+
+        /**
+         * Returns the number of sources per sweep.
+         *
+         * @return the width
+         */
+        public int width() {
+            return width;
+        }
+
+        /**
+         * Returns the distance from the source in {@code lane} to vertex {@code v}.
+         *
+         * @param lane the source's lane
+         * @param v    the vertex
+         * @return the distance, or {@code Double.POSITIVE_INFINITY} if unreachable
+         */
+        public double dist(int lane, int v) {
+            return dist[position[v] * width + lane];
+        }
+
+        /**
+         * Returns the distance from the source in {@code lane} to the vertex
+         * at sweep position {@code p} (see {@link Phast#vertexAt}).
+         *
+         * @param lane the source's lane
+         * @param p    the position
+         * @return the distance, or {@code Double.POSITIVE_INFINITY} if unreachable
+         */
+        public double distAtPosition(int lane, int p) {
+            return dist[p * width + lane];
+        }
+
+        /**
+         * Returns the {@code Phast} this workspace belongs to.
+         *
+         * @return the owner
+         */
+        private Phast owner() {
+            return Phast.this;
+        }
+
+        /**
+         * Records a position whose seeds must be reset after the sweep.
+         *
+         * @param p the position
+         */
+        private void touch(int p) {
+            if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+            touched[touchedCount++] = p;
+        }
+    }
+}
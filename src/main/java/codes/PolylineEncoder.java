@@ -0,0 +1,137 @@
+package codes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Google encoded polyline format.
+ *
+ * <p>Each point is written as latitude then longitude, rounded to
+ * {@code precision} decimals and delta-encoded against the previous point.
+ * Each delta is zigzag-encoded and emitted as 5-bit groups, least
+ * significant first, offset into the printable range {@code '?'..'~'}.
+ * Precision 5 is the classic Google format; precision 6 (as used by OSRM
+ * and Valhalla) resolves about 0.1 m.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     String line = PolylineEncoder.encode(points, 5);   // "_p~iF~ps|U_ulLnnqC..."
+ *     List&lt;Point&gt; back = PolylineEncoder.decode(line, 5);
+ * </pre>
+ * </p>
+ */
+public final class PolylineEncoder {
+
+    /** Most characters one encoded value can take (a zigzagged 64-bit long). */
+    static final int MAX_VALUE_CHARS = 13;
+
+    /** Powers of ten for the supported precisions. */
+    private static final double[] SCALE = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7};
+
+    private PolylineEncoder() {
+    }
+
+    /**
+     * Encodes points ({@code x} = longitude, {@code y} = latitude) as a polyline.
+     *
+     * @param pts       the points
+     * @param precision decimals kept, {@code 0..7}
+     * @return the encoded polyline
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    public static String encode(List<Point> pts, int precision) {
+        double scale = scale(precision);
+        byte[] out = new byte[pts.size() * 2 * MAX_VALUE_CHARS];
+        int pos = 0;
+        long prevLat = 0, prevLon = 0;
+        for (Point p : pts) {
+            long lat = Math.round(p.y * scale);
+            long lon = Math.round(p.x * scale);
+            pos = writeValue(lat - prevLat, out, pos);
+            pos = writeValue(lon - prevLon, out, pos);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return new String(out, 0, pos, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Decodes a polyline back into points ({@code x} = longitude, {@code y} = latitude).
+     *
+     * @param s         the encoded polyline
+     * @param precision decimals it was encoded with, {@code 0..7}
+     * @return the points
+     * @throws IllegalArgumentException if {@code precision} is out of range or {@code s} is malformed
+     */
+    public static List<Point> decode(String s, int precision) {
+        double scale = scale(precision);
+        List<Point> pts = new ArrayList<>();
+        long lat = 0, lon = 0;
+        int[] pos = {0};
+        while (pos[0] < s.length()) {
+            lat += readValue(s, pos);
+            lon += readValue(s, pos);
+            pts.add(new Point(lon / scale, lat / scale));
+        }
+        return pts;
+    }
+
+    /**
+     * Returns the scale factor for {@code precision}.
+     *
+     * @param precision decimals kept
+     * @return {@code 10^precision}
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    static double scale(int precision) {
+        if (precision < 0 || precision >= SCALE.length) {
+            throw new IllegalArgumentException("precision must be between 0 and " + (SCALE.length - 1));
+        }
+        return SCALE[precision];
+    }
+
+    /**
+     * Writes one signed value in polyline encoding.
+     *
+     * @param v   the value
+     * @param dst destination with room for {@link #MAX_VALUE_CHARS} bytes at {@code pos}
+     * @param pos write offset
+     * @return the offset after the value
+     */
+    static int writeValue(long v, byte[] dst, int pos) {
+        long z = (v << 1) ^ (v >> 63);
+        while (z >= 0x20) {
+            dst[pos++] = (byte) ((0x20 | (z & 0x1F)) + 63);
+            z >>>= 5;
+        }
+        dst[pos++] = (byte) (z + 63);
+        return pos;
+    }
+
+    /**
+     * Reads one signed value, advancing {@code pos[0]}.
+     *
+     * @param s   the encoded polyline
+     * @param pos read offset holder
+     * @return the value
+     * @throws IllegalArgumentException if the value is truncated or contains invalid characters
+     */
+    private static long readValue(String s, int[] pos) {
+        long z = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (pos[0] >= s.length() || shift > 63) {
+                throw new IllegalArgumentException("Truncated polyline at offset " + pos[0]);
+            }
+            b = s.charAt(pos[0]++) - 63;
+            if (b < 0 || b > 0x3F) {
+                throw new IllegalArgumentException("Invalid polyline character at offset " + (pos[0] - 1));
+            }
+            z |= (long) (b & 0x1F) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        return (z >>> 1) ^ -(z & 1);
+    }
+}
@@ -7,9 +7,10 @@ import java.util.List;
  * Command-line interface for routing between geographic coordinates.
  *
  * <p>Provides a high-level API for computing routes given latitude/longitude
- * coordinates. Handles the full pipeline:
+ * coordinates. The projection, projected geometry and snapping index come from
+ * a {@link RoutingContext} that is built once per network. Each query then:
  * <ol>
- *   <li>Projects coordinates to a local meter-based coordinate system</li>
+ *   <li>Projects the query coordinates to the local meter-based coordinate system</li>
  *   <li>Snaps start/goal points to the nearest road segments</li>
  *   <li>Computes the shortest path using A* search</li>
  *   <li>Reconstructs the route geometry</li>
@@ -56,6 +57,9 @@ public class RouteCLI {
     /**
      * Computes a route between two geographic points, returning both geometry and metadata.
      *
+     * <p>Uses the network's cached {@link RoutingContext}, so projection and
+     * snapper construction only happen on the first call.</p>
+     *
      * @param lat1   start latitude (degrees)
      * @param lon1   start longitude (degrees)
      * @param lat2   goal latitude (degrees)
@@ -68,7 +72,25 @@ public class RouteCLI {
             double lat2, double lon2,
             Main.OSMCompiler.BuildResult result
     ) {
-        return routeInternal(lat1, lon1, lat2, lon2, result);
+        return routeInternal(lat1, lon1, lat2, lon2, result.routingContext());
+    }
+
+    /**
+     * Computes a route between two geographic points using a prepared routing context.
+     *
+     * @param lat1 start latitude (degrees)
+     * @param lon1 start longitude (degrees)
+     * @param lat2 goal latitude (degrees)
+     * @param lon2 goal longitude (degrees)
+     * @param ctx  the prepared routing context
+     * @return the routing result containing geometry and route info; {@code null} if no route found
+     */
+    public static RoutingResult routeLatLonWithRoute(
+            double lat1, double lon1,
+            double lat2, double lon2,
+            RoutingContext ctx
+    ) {
+        return routeInternal(lat1, lon1, lat2, lon2, ctx);
     }
 
     /**
@@ -76,82 +98,105 @@ public class RouteCLI {
      *
      * <p>Pipeline:
      * <ol>
-     *   <li>Create local projection centered on the network</li>
-     *   <li>Project all vertices and edge geometry to meters</li>
-     *   <li>Build spatial index for segment snapping</li>
-     *   <li>Snap query points to nearest road segments</li>
-     *   <li>Handle same-edge short-circuit (trivial case)</li>
-     *   <li>Try all combinations of start/goal vertices (handles bidirectional snapping)</li>
-     *   <li>Reconstruct geometry and convert back to lat/lon</li>
+     *   <li>Project and snap the query points ({@link #snapEnds})</li>
+     *   <li>Return the context's cached route for the snapped pair, if any</li>
+     *   <li>Otherwise route between the snaps ({@link #routeSnapped}) and cache the result</li>
      * </ol>
      * </p>
      *
-     * @param lat1   start latitude (degrees)
-     * @param lon1   start longitude (degrees)
-     * @param lat2   goal latitude (degrees)
-     * @param lon2   goal longitude (degrees)
-     * @param result the compiled OSM network data
+     * @param lat1 start latitude (degrees)
+     * @param lon1 start longitude (degrees)
+     * @param lat2 goal latitude (degrees)
+     * @param lon2 goal longitude (degrees)
+     * @param ctx  the prepared routing context
      * @return the routing result; {@code null} if snapping fails or no route exists
      */
     private static RoutingResult routeInternal(
             double lat1, double lon1,
             double lat2, double lon2,
-            Main.OSMCompiler.BuildResult result
+            RoutingContext ctx
     ) {
-        // --- projection ---
-        // Center the projection on the network's mean lat/lon for minimal distortion
-        double lat0 = LocalProjection.meanLatitude(result.vertexStore.lat);
-        double lon0 = LocalProjection.meanLongitude(result.vertexStore.lon);
-        LocalProjection projection = new LocalProjection(lat0, lon0);
-
-        // --- project vertices ---
-        int V = result.vertexStore.V();
-        double[] vx = new double[V];
-        double[] vy = new double[V];
-        projection.projectAll(
-                result.vertexStore.lat,
-                result.vertexStore.lon,
-                vx, vy
-        );
+        SegmentSnapper.SegmentSnapResult[] snaps = snapEnds(lat1, lon1, lat2, lon2, ctx);
+        if (snaps == null) return null;
 
-        // --- project edge geometry ---
-        // Convert all edge polyline points from lat/lon to local meters
-        EdgeGeometry geo = result.edgeGeometry;
-        double[] gx = new double[geo.size()];
-        double[] gy = new double[geo.size()];
-        double[] tmp = new double[2];
+        RouteCache cache = ctx.routeCache();
+        RouteCache.Key key = RouteCache.Key.of(snaps[0], snaps[1], RoutingEngine.Metric.DISTANCE);
+        RouteCache.Entry hit = cache.get(key);
+        if (hit != null) return hit.result();
 
-        for (int i = 0; i < geo.size(); i++) {
-            // Note: geo stores (lon, lat) as (x, y), so we pass (y, x) to project
-            projection.project(geo.y(i), geo.x(i), tmp);
-            gx[i] = tmp[0];
-            gy[i] = tmp[1];
-        }
+        RoutingResult rr = routeSnapped(snaps[0], snaps[1], ctx);
+        return (rr == null) ? null : cache.put(key, rr, null).result();
+    }
 
-        EdgeGeometry projectedGeom =
-                new EdgeGeometry(geo.edgeStart(), gx, gy);
+    /**
+     * Projects both query points and snaps them to the nearest road segments.
+     *
+     * @param lat1 start latitude (degrees)
+     * @param lon1 start longitude (degrees)
+     * @param lat2 goal latitude (degrees)
+     * @param lon2 goal longitude (degrees)
+     * @param ctx  the prepared routing context
+     * @return the start and goal snaps; {@code null} if either point cannot be snapped
+     */
+    static SegmentSnapper.SegmentSnapResult[] snapEnds(
+            double lat1, double lon1,
+            double lat2, double lon2,
+            RoutingContext ctx
+    ) {
+        SegmentSnapper.SegmentSnapResult startSnap = snap(lat1, lon1, ctx);
+        SegmentSnapper.SegmentSnapResult goalSnap  = snap(lat2, lon2, ctx);
 
-        // Build spatial index with 1km cell size
-        SegmentSnapper snapper =
-                new SegmentSnapper(result.graph, projectedGeom, 1000.0);
+        if (startSnap == null || goalSnap == null) return null;
+        return new SegmentSnapper.SegmentSnapResult[]{startSnap, goalSnap};
+    }
 
-        // --- project query points ---
-        double[] q0 = new double[2];
-        double[] q1 = new double[2];
-        projection.project(lat1, lon1, q0);
-        projection.project(lat2, lon2, q1);
+    /**
+     * Projects one query point and snaps it to the nearest road segment.
+     *
+     * @param lat latitude (degrees)
+     * @param lon longitude (degrees)
+     * @param ctx the prepared routing context
+     * @return the snap; {@code null} if the point cannot be snapped
+     */
+    static SegmentSnapper.SegmentSnapResult snap(double lat, double lon, RoutingContext ctx) {
+        double[] q = new double[2];
+        ctx.projection().project(lat, lon, q);
 
-        // Snap to nearest road segments
-        SegmentSnapper.SegmentSnapResult startSnap = snapper.snap(q0[0], q0[1]);
-        SegmentSnapper.SegmentSnapResult goalSnap  = snapper.snap(q1[0], q1[1]);
+        SegmentSnapper.SegmentSnapResult snap = ctx.snapper().snap(q[0], q[1]);
+        return (snap == null || snap.edgeId < 0) ? null : snap;
+    }
 
-        // --- validation ---
-        if (startSnap == null || goalSnap == null) return null;
-        if (startSnap.edgeId < 0 || goalSnap.edgeId < 0) return null;
+    /**
+     * Routes between two snapped points.
+     *
+     * <p>Pipeline:
+     * <ol>
+     *   <li>Same-edge short-circuit: both points on one edge, and the goal ahead
+     *       of the start or the edge two-way; the cost is the span between them</li>
+     *   <li>Route from both ends of the start edge to both ends of the goal edge in one search</li>
+     *   <li>Reconstruct geometry and convert back to lat/lon</li>
+     * </ol>
+     * </p>
+     *
+     * @param startSnap the snapped start point
+     * @param goalSnap  the snapped goal point
+     * @param ctx       the prepared routing context
+     * @return the routing result; {@code null} if no route exists
+     */
+    static RoutingResult routeSnapped(
+            SegmentSnapper.SegmentSnapResult startSnap,
+            SegmentSnapper.SegmentSnapResult goalSnap,
+            RoutingContext ctx
+    ) {
+        LocalProjection projection = ctx.projection();
+        EdgeGeometry projectedGeom = ctx.projectedGeometry();
+        EdgeAttributes attrs = ctx.result().attrs;
 
         // --- same edge short-circuit ---
-        // If both points snap to the same edge, return direct line (no routing needed)
-        if (startSnap.edgeId == goalSnap.edgeId) {
+        // Both points on one edge: travel straight along it, unless that means driving
+        // a one-way edge backwards, in which case the search below finds the way round
+        if (startSnap.edgeId == goalSnap.edgeId
+                && (goalSnap.t >= startSnap.t || hasReverse(ctx.result().graph, startSnap))) {
 
             List<Point> xy = Reconstruction.subEdge(projectedGeom, startSnap.edgeId, startSnap.t, goalSnap.t);
 
@@ -169,7 +214,7 @@ public class RouteCLI {
                     goalSnap.toVertex,
                     RoutingEngine.Metric.DISTANCE,
                     RoutingEngine.Algorithm.ASTAR,
-                    result.attrs.distanceMeters(startSnap.edgeId),
+                    Math.abs(goalSnap.t - startSnap.t) * attrs.distanceMeters(startSnap.edgeId),
                     new int[]{ startSnap.edgeId }
             );
 
@@ -177,22 +222,13 @@ public class RouteCLI {
         }
 
         // --- routing ---
-        RoutingEngine engine =
-                new RoutingEngine(
-                        result.graph,
-                        result.attrs,
-                        new ShortestPathAlgorithms.VertexStore(
-                                result.vertexStore.lat,
-                                result.vertexStore.lon),
-                        1.0  // vmax = 1.0 m/s (placeholder for distance routing)
-                );
-
-        // Try all vertex combinations to find best route
+        // One search from both ends of the start edge to both ends of the goal edge
         RoutingEngine.Route r = tryRoute(
-                engine,
+                ctx.engine(),
+                ctx.result().graph,
                 startSnap,
                 goalSnap,
-                result.attrs
+                attrs
         );
 
         if (r == null || !r.found) return null;
@@ -205,7 +241,7 @@ public class RouteCLI {
 
         // --- inverse projection ---
         // Convert all route points back to lat/lon
-        List<Point> latLonRoute = new ArrayList<>();
+        List<Point> latLonRoute = new ArrayList<>(xyRoute.size());
         double[] ll = new double[2];
 
         for (Point p : xyRoute) {
@@ -218,68 +254,81 @@ public class RouteCLI {
     }
 
     /**
-     * Tries all combinations of start/goal vertices to find the best route.
+     * Routes from the start snap point to the goal snap point in one search.
      *
-     * <p>When snapping to a road segment, either endpoint of that segment could
-     * be the optimal entry/exit point. This method tries all four combinations
-     * (2 start vertices × 2 goal vertices) and returns the route with the
-     * lowest total cost, including partial edge distances from the snap points.</p>
+     * <p>A snap point lies part-way along an edge, so the route may leave it
+     * through either end of that edge. Both endpoints of the start edge are
+     * seeded with the partial edge length to reach them, and both endpoints of
+     * the goal edge finish with the partial length left to the goal point, as
+     * if virtual nodes sat on the snapped edges. The returned route's cost
+     * therefore includes the partial edges.</p>
      *
-     * <p>The total cost accounts for:
-     * <ul>
-     *   <li>Distance from the start snap point to the chosen start vertex</li>
-     *   <li>Graph distance between start and goal vertices</li>
-     *   <li>Distance from the chosen goal vertex to the goal snap point</li>
-     * </ul>
-     * </p>
+     * <p>An endpoint that can only be reached by travelling a one-way edge
+     * against its direction (no reverse twin) is left out.</p>
+     *
+     * <p>Uses the engine's contraction hierarchy when one is attached for
+     * DISTANCE, and A* otherwise.</p>
      *
      * @param engine    the routing engine
+     * @param graph     the routed graph
      * @param startSnap the snap result for the start point
      * @param goalSnap  the snap result for the goal point
      * @param attrs     edge attributes for distance lookups
-     * @return the best route found; {@code null} if no route exists
+     * @return the best route found (not found if the goal is unreachable)
      */
     private static RoutingEngine.Route tryRoute(
             RoutingEngine engine,
+            WeightedDigraph graph,
             SegmentSnapper.SegmentSnapResult startSnap,
             SegmentSnapper.SegmentSnapResult goalSnap,
             EdgeAttributes attrs
     ) {
-        RoutingEngine.Route best = null;
-        double bestTotalCost = Double.POSITIVE_INFINITY;
-
-        int s0 = startSnap.fromVertex;
-        int s1 = startSnap.toVertex;
-        int g0 = goalSnap.fromVertex;
-        int g1 = goalSnap.toVertex;
-
-        // Get edge lengths for partial distance calculation
         double startEdgeLen = attrs.distanceMeters(startSnap.edgeId);
         double goalEdgeLen = attrs.distanceMeters(goalSnap.edgeId);
 
-        for (int sv : new int[]{s0, s1}) {
-            for (int gv : new int[]{g0, g1}) {
-                RoutingEngine.Route r = engine.routeDistanceAStar(sv, gv);
-
-                if (!r.found) continue;
+        // Leaving forward through toVertex is always allowed; backward through fromVertex needs a twin
+        int[] starts;
+        double[] startOffsets;
+        if (hasReverse(graph, startSnap)) {
+            starts = new int[]{startSnap.toVertex, startSnap.fromVertex};
+            startOffsets = new double[]{(1 - startSnap.t) * startEdgeLen, startSnap.t * startEdgeLen};
+        } else {
+            starts = new int[]{startSnap.toVertex};
+            startOffsets = new double[]{(1 - startSnap.t) * startEdgeLen};
+        }
 
-                // Calculate actual total distance including partial edges
-                double partialStart = (sv == s0)
-                        ? startSnap.t * startEdgeLen           // distance from snap to s0
-                        : (1 - startSnap.t) * startEdgeLen;    // distance from snap to s1
+        // Arriving at fromVertex continues forward to the goal point; arriving at toVertex needs a twin
+        int[] goals;
+        double[] goalOffsets;
+        if (hasReverse(graph, goalSnap)) {
+            goals = new int[]{goalSnap.fromVertex, goalSnap.toVertex};
+            goalOffsets = new double[]{goalSnap.t * goalEdgeLen, (1 - goalSnap.t) * goalEdgeLen};
+        } else {
+            goals = new int[]{goalSnap.fromVertex};
+            goalOffsets = new double[]{goalSnap.t * goalEdgeLen};
+        }
 
-                double partialGoal = (gv == g0)
-                        ? goalSnap.t * goalEdgeLen             // distance from g0 to snap
-                        : (1 - goalSnap.t) * goalEdgeLen;      // distance from g1 to snap
+        RoutingEngine.Algorithm algorithm = (engine.hierarchy(RoutingEngine.Metric.DISTANCE) != null)
+                ? RoutingEngine.Algorithm.CH
+                : RoutingEngine.Algorithm.ASTAR;
 
-                double totalCost = partialStart + r.totalCost + partialGoal;
+        return engine.routeBetween(starts, startOffsets, goals, goalOffsets,
+                RoutingEngine.Metric.DISTANCE, algorithm);
+    }
 
-                if (totalCost < bestTotalCost) {
-                    bestTotalCost = totalCost;
-                    best = r;
-                }
-            }
+    /**
+     * Returns true if the snapped edge can also be travelled from its
+     * {@code toVertex} back to its {@code fromVertex}.
+     *
+     * @param graph the routed graph
+     * @param snap  the snap result
+     * @return {@code true} if a reverse edge exists
+     */
+    static boolean hasReverse(WeightedDigraph graph, SegmentSnapper.SegmentSnapResult snap) {
+        CsrDigraph csr = graph.csr();
+        for (int i = csr.firstOut(snap.toVertex), end = csr.endOut(snap.toVertex); i < end; i++) {
+            if (csr.head(i) == snap.fromVertex) return true;
         }
-        return best;
+        return false;
     }
 }
\ No newline at end of file
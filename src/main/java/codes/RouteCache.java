@@ -0,0 +1,218 @@
+package codes;
+
+import java.util.Collections;
+
+/**
+ * A bounded, thread-safe LRU cache of finished routes.
+ *
+ * <p>Entries are keyed on where the query points snapped to: the start and
+ * goal edge IDs, each with its position {@code t} along the edge quantized to
+ * {@link #T_STEPS} steps, plus the metric. Repeated origin/destination pairs
+ * (depots, popular destinations) then skip routing, {@link Reconstruction}
+ * and instruction generation, and a server can also skip serialization by
+ * caching the response body with the result.</p>
+ *
+ * <p>Storage is a {@link WeightedLruCache}: each entry is charged an estimate
+ * of its heap footprint (geometry points, edge IDs and body bytes), least
+ * recently used entries are dropped once the total exceeds the configured
+ * budget, and the cache empties itself when the graph gains edges or any
+ * edge attribute changes. {@link #invalidate()} clears it explicitly.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     RouteCache.Key key = RouteCache.Key.of(startSnap, goalSnap, RoutingEngine.Metric.DISTANCE);
+ *     RouteCache.Entry hit = cache.get(key);
+ *     RoutingResult rr = (hit != null) ? hit.result() : cache.put(key, compute(), null).result();
+ * </pre>
+ * </p>
+ */
+public final class RouteCache {
+
+    /** Steps a snap position {@code t ∈ [0, 1]} is quantized to in keys. */
+    public static final int T_STEPS = 4096;
+
+    /** Fixed charge per entry for the key, map node and result objects (bytes). */
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    /** Charge per geometry point (bytes). */
+    private static final long POINT_BYTES = 32;
+
+    /** The cached routes. */
+    private final WeightedLruCache<Key, Entry> entries;
+
+    /**
+     * Creates an empty cache for routes on {@code graph}.
+     *
+     * @param graph          the routed graph
+     * @param attrs          the edge attributes routes are costed with
+     * @param maxWeightBytes the weight budget (bytes)
+     * @throws IllegalArgumentException if {@code graph} or {@code attrs} is null, or
+     *                                  {@code maxWeightBytes < 0}
+     */
+    public RouteCache(WeightedDigraph graph, EdgeAttributes attrs, long maxWeightBytes) {
+        this.entries = new WeightedLruCache<>(graph, attrs, maxWeightBytes, Entry::weight);
+    }
+
+    /**
+     * Cache key: quantized snap positions of both query points plus the metric.
+     *
+     * @param startEdge the edge the start point snapped to
+     * @param startT    the start position along it, in {@code 0..T_STEPS}
+     * @param goalEdge  the edge the goal point snapped to
+     * @param goalT     the goal position along it, in {@code 0..T_STEPS}
+     * @param metric    the routing metric
+     */
+    public record Key(int startEdge, int startT, int goalEdge, int goalT, RoutingEngine.Metric metric) {
+
+        /**
+         * Builds the key for a pair of snap results.
+         *
+         * @param start  the start snap
+         * @param goal   the goal snap
+         * @param metric the routing metric
+         * @return the key
+         */
+        public static Key of(SegmentSnapper.SegmentSnapResult start,
+                             SegmentSnapper.SegmentSnapResult goal,
+                             RoutingEngine.Metric metric) {
+            return new Key(start.edgeId, quantize(start.t), goal.edgeId, quantize(goal.t), metric);
+        }
+
+        /**
+         * Rounds a position along an edge to the nearest step.
+         *
+         * @param t the position in {@code [0, 1]}
+         * @return the step in {@code 0..T_STEPS}
+         */
+        private static int quantize(double t) {
+            return (int) Math.round(Math.max(0.0, Math.min(1.0, t)) * T_STEPS);
+        }
+    }
+
+    /**
+     * A cached route.
+     *
+     * <p>Entries are shared between all readers: the geometry list is
+     * unmodifiable, and neither the route's edge IDs nor the body may be modified.</p>
+     *
+     * @param result the routing result
+     * @param body   the serialized response for it (may be null)
+     * @param weight the bytes charged against the budget
+     */
+    public record Entry(RoutingResult result, byte[] body, long weight) { }
+
+    /**
+     * Returns the cached route for {@code key}, marking it most recently used.
+     *
+     * @param key the key
+     * @return the entry, or {@code null} on a miss
+     */
+    public Entry get(Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches a route, replacing any entry for {@code key}, then evicts least
+     * recently used entries until the cache fits its budget. An entry heavier
+     * than the whole budget is returned but not kept.
+     *
+     * @param key    the key
+     * @param result the routing result
+     * @param body   the serialized response (may be null)
+     * @return the entry now associated with {@code key}
+     * @throws IllegalArgumentException if {@code key} or {@code result} is null
+     */
+    public Entry put(Key key, RoutingResult result, byte[] body) {
+        if (key == null || result == null) throw new IllegalArgumentException("key and result cannot be null");
+
+        RoutingResult shared = new RoutingResult(Collections.unmodifiableList(result.geometry()), result.route());
+        return entries.put(key, new Entry(shared, body, weigh(result, body)));
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void invalidate() {
+        entries.invalidate();
+    }
+
+    /**
+     * Estimates the heap footprint of a cached route.
+     *
+     * @param result the routing result
+     * @param body   the serialized response (may be null)
+     * @return the weight in bytes
+     */
+    private static long weigh(RoutingResult result, byte[] body) {
+        long w = ENTRY_OVERHEAD_BYTES + POINT_BYTES * result.geometry().size();
+        if (result.route() != null) w += 4L * result.route().edgeIds.length;
+        if (body != null) w += body.length;
+        return w;
+    }
+
+    /**
+     * Returns the number of cached routes.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached routes.
+     *
+     * @return the weight in bytes
+     */
+    public long weightBytes() {
+        return entries.weightBytes();
+    }
+
+    /**
+     * Returns the weight budget.
+     *
+     * @return the budget in bytes
+     */
+    public long maxWeightBytes() {
+        return entries.maxWeightBytes();
+    }
+
+    /**
+     * Returns the number of lookups that found a route.
+     *
+     * @return the hit count
+     */
+    public long hits() {
+        return entries.hits();
+    }
+
+    /**
+     * Returns the number of lookups that found nothing.
+     *
+     * @return the miss count
+     */
+    public long misses() {
+        return entries.misses();
+    }
+
+    /**
+     * Returns the number of routes dropped to stay within the budget.
+     *
+     * @return the eviction count
+     */
+    public long evictions() {
+        return entries.evictions();
+    }
+
+    /**
+     * Returns a string summary for debugging.
+     *
+     * @return summary with size, weight and counters
+     */
+    @Override
+    public String toString() {
+        return String.format("RouteCache[%d routes, %.1f/%.1f MB, %d hits, %d misses, %d evictions]",
+                size(), weightBytes() / (1024.0 * 1024.0), maxWeightBytes() / (1024.0 * 1024.0),
+                hits(), misses(), evictions());
+    }
+}
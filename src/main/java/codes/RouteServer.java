@@ -3,13 +3,23 @@ package codes;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A lightweight HTTP server providing a REST API for route computation.
@@ -20,7 +30,11 @@ import java.util.Map;
  * <p>Endpoints:
  * <ul>
  *   <li>{@code GET /} - Serves the web UI (index.html)</li>
- *   <li>{@code GET /route?lat1=&lon1=&lat2=&lon2=} - Computes a route and returns GeoJSON</li>
+ *   <li>{@code GET /route?lat1=&lon1=&lat2=&lon2=[&format=]} - Computes a route and returns GeoJSON,
+ *       an encoded polyline or the binary format (see {@link Format})</li>
+ *   <li>{@code POST /matrix[?metric=&format=]} - Computes a source × target cost matrix</li>
+ *   <li>{@code GET /isochrone?lat=&lon=&limit=[&metric=&hull=]} - Returns the roads reachable
+ *       within a cost limit as GeoJSON</li>
  * </ul>
  * </p>
  *
@@ -30,55 +44,269 @@ import java.util.Map;
  * </pre>
  * </p>
  *
- * <p>Example response:
+ * <p>Example response (compact, shown wrapped):
  * <pre>
- *     {
- *       "type": "Feature",
- *       "geometry": {
- *         "type": "LineString",
- *         "coordinates": [[-63.1311, 46.2382], [-63.1200, 46.2500], ...]
- *       },
- *       "properties": {
- *         "instructions": ["Head north on Main St", "Turn right onto Oak Ave", ...]
- *       }
- *     }
+ *     {"type":"Feature","geometry":{"type":"LineString","coordinates":[[-63.1311,46.2382],[-63.12,46.25],...]},
+ *      "properties":{"instructions":["Head north on Main St","Turn right onto Oak Ave",...]}}
  * </pre>
  * </p>
+ *
+ * <p>Route responses are streamed with chunked encoding through a
+ * {@link GeoJsonWriter}; coordinates carry {@value #DECIMALS_PROPERTY}
+ * decimals (default {@value GeoJsonWriter#DEFAULT_DECIMALS}).</p>
+ *
+ * <p>Finished responses are kept in the context's {@link RouteCache}, keyed on
+ * the snapped endpoints, so repeated origin/destination pairs skip routing
+ * and serialization; the {@code X-Route-Cache} header reports {@code HIT} or
+ * {@code MISS}. Isochrone responses are cached the same way per origin and
+ * limit ({@code X-Isochrone-Cache}).</p>
+ *
+ * <p>Requests are handled concurrently on the executor named by the
+ * {@value #EXECUTOR_PROPERTY} system property (see {@link #newExecutor}):
+ * a virtual thread per request by default, or a bounded pool of platform
+ * threads. Handlers only read the shared network and {@link RoutingContext};
+ * each search borrows its own workspace from the engine's pool. Searches
+ * themselves are limited to one per core ({@link #search}): the virtual
+ * executor has no bound of its own, and every concurrent search needs an
+ * O(V) workspace.</p>
  */
 public class RouteServer {
 
     /** The compiled OSM network, shared across all requests. */
     private static Main.OSMCompiler.BuildResult result;
 
+    /** Prepared projection, snapper and engine, shared across all requests. */
+    private static RoutingContext context;
+
+    /** Request failures that are the server's fault, and dropped streams. */
+    private static final System.Logger LOG = System.getLogger(RouteServer.class.getName());
+
     /** Default server port. */
     private static final int PORT = 8080;
 
+    /** System property selecting the request executor ({@code virtual}, {@code platform} or {@code platform:N}). */
+    public static final String EXECUTOR_PROPERTY = "routeserver.executor";
+
+    /** System property setting the decimals written per GeoJSON coordinate (see {@link GeoJsonWriter}). */
+    public static final String DECIMALS_PROPERTY = "routeserver.decimals";
+
+    /** Decimals written per coordinate, read from {@value #DECIMALS_PROPERTY} on start. */
+    private static int decimals = GeoJsonWriter.DEFAULT_DECIMALS;
+
+    /** Largest accepted {@code /matrix} request body (bytes). */
+    private static final int MAX_MATRIX_BODY = 1 << 20;
+
+    /** Largest {@code /matrix} result (sources × targets). */
+    private static final int MAX_MATRIX_CELLS = 1_000_000;
+
+    /**
+     * Largest {@code /isochrone} limit per metric: 50 km, or one hour. Beyond
+     * this an isochrone approaches the whole network, which would be settled,
+     * serialized and cached per request.
+     */
+    private static final Map<RoutingEngine.Metric, Double> MAX_ISOCHRONE_LIMIT = Map.of(
+            RoutingEngine.Metric.DISTANCE, 50_000.0,
+            RoutingEngine.Metric.TIME, 3_600.0);
+
+    /** Permits for concurrent searches, one per core; waiters are served in arrival order. */
+    private static final Semaphore SEARCHES = new Semaphore(Runtime.getRuntime().availableProcessors(), true);
+
+    /** A JSON number. */
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?");
+
+    /**
+     * Response formats for {@code /route}, chosen by the {@code format}
+     * parameter or else the first recognized {@code Accept} media type.
+     */
+    public enum Format {
+        /** GeoJSON Feature (default); cached as a finished body. */
+        GEOJSON("geojson", "application/geo+json", "application/json", 0),
+
+        /** JSON with a precision-5 encoded polyline. */
+        POLYLINE("polyline", "application/vnd.polyline+json", "application/json", 5),
+
+        /** JSON with a precision-6 encoded polyline. */
+        POLYLINE6("polyline6", "application/vnd.polyline6+json", "application/json", 6),
+
+        /** {@link BinaryRouteWriter} varint format. */
+        BINARY("binary", "application/octet-stream", "application/octet-stream", 0);
+
+        /** Value of the {@code format} query parameter. */
+        public final String param;
+
+        /** Media type recognized in the {@code Accept} header. */
+        public final String mediaType;
+
+        /** Content type of the response. */
+        public final String contentType;
+
+        /** Polyline precision (polyline formats only). */
+        final int precision;
+
+        Format(String param, String mediaType, String contentType, int precision) {
+            this.param = param;
+            this.mediaType = mediaType;
+            this.contentType = contentType;
+            this.precision = precision;
+        }
+
+        /**
+         * Selects the format for a request.
+         *
+         * <p>An explicit {@code format} parameter wins. Otherwise the first
+         * media type in {@code Accept} naming a format is used (quality values
+         * are not weighed); anything else, including {@code application/json}
+         * and wildcards, yields {@link #GEOJSON}.</p>
+         *
+         * @param param  the {@code format} parameter (may be null)
+         * @param accept the {@code Accept} header (may be null)
+         * @return the format
+         * @throws IllegalArgumentException if {@code param} names no format
+         */
+        public static Format select(String param, String accept) {
+            if (param != null) {
+                for (Format f : values()) {
+                    if (f.param.equalsIgnoreCase(param)) return f;
+                }
+                throw new IllegalArgumentException("Unknown format: " + param);
+            }
+            if (accept != null) {
+                for (String range : accept.split(",")) {
+                    int semi = range.indexOf(';');
+                    String type = (semi < 0 ? range : range.substring(0, semi)).trim();
+                    for (Format f : values()) {
+                        if (f.mediaType.equalsIgnoreCase(type)) return f;
+                    }
+                }
+            }
+            return GEOJSON;
+        }
+    }
+
+    static {
+        // The JDK server writes headers and body as separate small segments; with Nagle's
+        // algorithm on, the body waits for the client's delayed ACK (~40 ms per request).
+        // Read once when the server implementation loads, so it must be set before the first server.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
     /**
      * Starts the routing server.
      *
-     * <p>Compiles the OSM file on startup, then listens for HTTP requests.
-     * The server runs until terminated.</p>
+     * <p>Loads the graph snapshot and the distance contraction hierarchy saved
+     * next to it, compiling or contracting only when a file is missing or
+     * stale, then listens for HTTP requests on the executor chosen by
+     * {@value #EXECUTOR_PROPERTY}. The server runs until terminated.</p>
      *
      * @param args command-line arguments (currently ignored)
      * @throws Exception if server fails to start
      */
     public static void main(String[] args) throws Exception {
 
-        System.out.println("Compiling OSM...");
-        Main.OSMCompiler compiler = new Main.OSMCompiler();
-        result = compiler.compile(java.nio.file.Path.of("src/main/data/pei.osm"));
-        System.out.println("Graph ready: V=" + result.graph.V() + " E=" + result.graph.E());
+        // Load the precompiled snapshot; only re-parse the OSM file when it changed
+        System.out.println("Loading graph...");
+        Path osmFile = Path.of("src/main/data/pei.osm");
+        Path snapshotFile = GraphSnapshot.defaultPathFor(osmFile);
+        long loadStart = System.nanoTime();
+        result = GraphSnapshot.loadOrCompile(osmFile, snapshotFile);
+        System.out.printf("Graph ready: V=%d E=%d (%.0f ms)%n",
+                result.graph.V(), result.graph.E(), (System.nanoTime() - loadStart) / 1e6);
+
+        // Build projection, projected geometry and snapping index once, up front
+        RoutingContext ctx = result.routingContext();
+        System.out.println("Routing context ready: " + ctx);
+
+        // Load the saved hierarchy so every /route query can use CH; contract only if it is stale
+        long t0 = System.nanoTime();
+        ContractionHierarchy ch = ContractionHierarchy.loadOrBuild(result.graph, result.attrs, RoutingEngine.Metric.DISTANCE,
+                ContractionHierarchy.defaultPathFor(snapshotFile, RoutingEngine.Metric.DISTANCE));
+        ctx.engine().attachHierarchy(ch);
+        System.out.printf("%s ready in %.1f s%n", ch, (System.nanoTime() - t0) / 1e9);
+
+        String executor = System.getProperty(EXECUTOR_PROPERTY, "virtual");
+        start(result, new InetSocketAddress(PORT), newExecutor(executor));
+
+        System.out.println("Server running at http://localhost:" + PORT + " (" + executor + " executor)");
+    }
+
+    /**
+     * Registers the endpoints for {@code network} and starts serving.
+     *
+     * <p>The network, its routing context and the coordinate precision
+     * ({@value #DECIMALS_PROPERTY}) are published before the server starts, so
+     * every handler thread sees them fully built.</p>
+     *
+     * @param network  the compiled network to route on
+     * @param address  the address to listen on (port 0 picks a free port)
+     * @param executor runs the request handlers
+     * @return the running server
+     * @throws IOException              if the server cannot bind
+     * @throws IllegalArgumentException if {@value #DECIMALS_PROPERTY} is out of range
+     */
+    static HttpServer start(Main.OSMCompiler.BuildResult network,
+                            InetSocketAddress address,
+                            Executor executor) throws IOException {
+        int d = Integer.getInteger(DECIMALS_PROPERTY, GeoJsonWriter.DEFAULT_DECIMALS);
+        if (d < 0 || d > GeoJsonWriter.MAX_DECIMALS) {
+            throw new IllegalArgumentException(DECIMALS_PROPERTY + " must be between 0 and " + GeoJsonWriter.MAX_DECIMALS);
+        }
+
+        decimals = d;
+        result = network;
+        context = network.routingContext();
 
-        HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        HttpServer server = HttpServer.create(address, 0);
 
         // Register endpoints
         server.createContext("/route", RouteServer::handleRoute);
+        server.createContext("/matrix", RouteServer::handleMatrix);
+        server.createContext("/isochrone", RouteServer::handleIsochrone);
         server.createContext("/", RouteServer::handleIndex);
 
-        server.setExecutor(null);  // Use default executor
+        server.setExecutor(executor);
         server.start();
+        return server;
+    }
 
-        System.out.println("Server running at http://localhost:" + PORT);
+    /**
+     * Creates the executor that runs request handlers.
+     *
+     * <p>Accepted specs:
+     * <ul>
+     *   <li>{@code virtual} - one virtual thread per request; blocking I/O in one
+     *       request never holds up another</li>
+     *   <li>{@code platform} - a fixed pool with one platform thread per core</li>
+     *   <li>{@code platform:N} - a fixed pool of {@code N} platform threads</li>
+     * </ul>
+     * </p>
+     *
+     * @param spec the executor spec
+     * @return a new executor
+     * @throws IllegalArgumentException if {@code spec} is not recognised or {@code N < 1}
+     */
+    public static ExecutorService newExecutor(String spec) {
+        if (spec == null) throw new IllegalArgumentException("executor spec cannot be null");
+
+        if (spec.equals("virtual")) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("route-", 0).factory());
+        }
+
+        if (spec.equals("platform") || spec.startsWith("platform:")) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            if (spec.startsWith("platform:")) {
+                try {
+                    threads = Integer.parseInt(spec.substring("platform:".length()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid thread count in executor spec: " + spec);
+                }
+                if (threads < 1) throw new IllegalArgumentException("Executor needs at least one thread: " + spec);
+            }
+            return Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("route-", 0).factory());
+        }
+
+        throw new IllegalArgumentException("Unknown executor '" + spec + "' (expected virtual, platform or platform:N)");
     }
 
     /* ============================================================
@@ -105,7 +333,7 @@ public class RouteServer {
             ex.close();
 
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.log(System.Logger.Level.WARNING, "Serving index.html failed", e);
             try {
                 ex.sendResponseHeaders(500, -1);
             } catch (IOException ignored) {}
@@ -138,15 +366,24 @@ public class RouteServer {
      *   <li>{@code lon1} - Start longitude (degrees)</li>
      *   <li>{@code lat2} - Goal latitude (degrees)</li>
      *   <li>{@code lon2} - Goal longitude (degrees)</li>
+     *   <li>{@code format} - Optional {@link Format} name, overriding {@code Accept}</li>
+     *   <li>{@code tolerance} - Optional simplification tolerance (meters)</li>
+     *   <li>{@code zoom} - Optional map zoom level; simplifies to one pixel (ignored with {@code tolerance})</li>
      * </ul>
      * </p>
      *
-     * <p>Returns a GeoJSON Feature with:
+     * <p>By default returns a GeoJSON Feature with:
      * <ul>
      *   <li>LineString geometry representing the route</li>
      *   <li>Turn-by-turn instructions in properties</li>
      * </ul>
-     * </p>
+     * Polyline and binary responses carry the same geometry and instructions.
+     * With {@code tolerance} or {@code zoom} the geometry is simplified by
+     * {@link RouteSimplifier}. Only full GeoJSON bodies are cached; other
+     * responses reuse the cached route and are re-encoded, which costs
+     * microseconds. A malformed or out-of-range {@code tolerance} or
+     * {@code zoom} is rejected with a 400 naming the parameter, before any
+     * search runs.</p>
      *
      * @param ex the HTTP exchange
      * @throws IOException if response fails
@@ -167,12 +404,32 @@ public class RouteServer {
             double lon1 = Double.parseDouble(q.get("lon1"));
             double lat2 = Double.parseDouble(q.get("lat2"));
             double lon2 = Double.parseDouble(q.get("lon2"));
+            Format format = Format.select(q.get("format"), ex.getRequestHeaders().getFirst("Accept"));
+            double tolerance = tolerance(q.get("tolerance"));
+            int zoom = zoom(q.get("zoom"));
+            boolean simplify = !Double.isNaN(tolerance) || zoom >= 0;
+
+            SegmentSnapper.SegmentSnapResult[] snaps = RouteCLI.snapEnds(lat1, lon1, lat2, lon2, context);
+            if (snaps == null) {
+                sendJson(ex, 200, error("No route found"));
+                return;
+            }
 
-            // Compute route
-            RoutingResult rr =
-                    RouteCLI.routeLatLonWithRoute(
-                            lat1, lon1, lat2, lon2, result
-                    );
+            // Repeated snapped pairs reuse the finished GeoJSON response, or at least the route
+            RouteCache cache = context.routeCache();
+            RouteCache.Key key = RouteCache.Key.of(snaps[0], snaps[1], RoutingEngine.Metric.DISTANCE);
+            RouteCache.Entry hit = cache.get(key);
+            ex.getResponseHeaders().set("Vary", "Accept");
+            boolean cacheBody = format == Format.GEOJSON && !simplify;
+            if (hit != null && hit.body() != null && cacheBody) {
+                ex.getResponseHeaders().set("X-Route-Cache", "HIT");
+                sendJson(ex, 200, hit.body());
+                return;
+            }
+
+            // Compute route (or reuse one cached without a response body)
+            RoutingResult rr = (hit != null) ? hit.result()
+                    : search(() -> RouteCLI.routeSnapped(snaps[0], snaps[1], context));
 
             if (rr == null || rr.geometry().isEmpty()) {
                 sendJson(ex, 200, error("No route found"));
@@ -183,87 +440,333 @@ public class RouteServer {
             List<Instruction> instructions =
                     InstructionGenerator.generate(rr.route(), result.edgeGeometry, result.attrs, true);
 
-            // Return GeoJSON with embedded instructions
-            sendJson(ex, 200, geoJson(rr.geometry(), instructions));
+            // Drop shape points the client cannot see, keeping snap endpoints and turns exact
+            List<Point> geometry = rr.geometry();
+            if (simplify) {
+                double tol = !Double.isNaN(tolerance)
+                        ? tolerance
+                        : RouteSimplifier.toleranceForZoom(zoom, geometry.get(0).y);
+                boolean[] turns = RouteSimplifier.turnPoints(rr, context, result.edgeGeometry, result.attrs);
+                geometry = RouteSimplifier.simplify(geometry, turns, tol, context.projection());
+            }
+
+            // Stream the response (chunked), keeping a copy of full GeoJSON for the cache
+            ByteArrayOutputStream copy = cacheBody ? new ByteArrayOutputStream() : null;
+            ex.getResponseHeaders().set("X-Route-Cache", hit != null ? "HIT" : "MISS");
+            List<Point> line = geometry;
+            stream(ex, format.contentType, os -> {
+                switch (format) {
+                    case GEOJSON -> new GeoJsonWriter(os, decimals, copy).writeRoute(line, instructions);
+                    case POLYLINE, POLYLINE6 -> new GeoJsonWriter(os, decimals)
+                            .writePolylineRoute(line, format.precision, instructions);
+                    case BINARY -> new BinaryRouteWriter(os, decimals).writeRoute(line, instructions);
+                }
+            });
+            if (copy != null) cache.put(key, rr, copy.toByteArray());
+            else if (hit == null) cache.put(key, rr, null);
 
         } catch (NumberFormatException e) {
-            sendJson(ex, 400, error("Invalid coordinates: " + e.getMessage()));
+            fail(ex, 400, "Invalid coordinates: " + e.getMessage(), e);
         } catch (NullPointerException e) {
-            sendJson(ex, 400, error("Missing required parameters: lat1, lon1, lat2, lon2"));
+            fail(ex, 400, "Missing required parameters: lat1, lon1, lat2, lon2", e);
+        } catch (IllegalArgumentException e) {
+            fail(ex, 400, e.getMessage(), e);
         } catch (Exception e) {
-            e.printStackTrace();
-            sendJson(ex, 400, error(e.getMessage()));
+            fail(ex, 500, e.getMessage(), e);
         }
     }
 
-    /* ============================================================
-     * GeoJSON Formatting
-     * ============================================================ */
+    /**
+     * Handles {@code POST /matrix} requests for many-to-many costs.
+     *
+     * <p>The body lists {@code [lat, lon]} pairs; {@code targets} defaults to
+     * {@code sources}:
+     * <pre>
+     *     {"sources":[[46.2382,-63.1311],[46.25,-63.12]],"targets":[[46.24,-63.13]]}
+     * </pre>
+     * Query parameters: {@code metric} ({@code distance} (default) or
+     * {@code time}) and {@code format} ({@code json} (default) or
+     * {@code binary}, also chosen by {@code Accept: application/octet-stream}).</p>
+     *
+     * <p>Points are snapped like {@code /route} endpoints and the matrix is
+     * computed by {@link RoutingEngine#matrix} on the common
+     * {@link ForkJoinPool}. JSON responses carry meters or seconds with one
+     * decimal, {@code null} where unreachable or unsnapped:
+     * <pre>
+     *     {"metric":"distance","rows":2,"cols":1,"values":[[812.4],[null]]}
+     * </pre>
+     * Binary responses are described at {@link BinaryRouteWriter#writeMatrix}.</p>
+     *
+     * @param ex the HTTP exchange
+     * @throws IOException if response fails
+     */
+    private static void handleMatrix(HttpExchange ex) throws IOException {
+        if (!"POST".equals(ex.getRequestMethod())) {
+            sendJson(ex, 405, error("Method not allowed"));
+            return;
+        }
+
+        Map<String, String> q = parseQuery(ex.getRequestURI());
+
+        try {
+            RoutingEngine.Metric metric = metric(q.getOrDefault("metric", "distance"));
+            String f = q.get("format");
+            boolean binary = "binary".equalsIgnoreCase(f)
+                    || (f == null && Format.select(null, ex.getRequestHeaders().getFirst("Accept")) == Format.BINARY);
+            if (f != null && !binary && !"json".equalsIgnoreCase(f)) {
+                throw new IllegalArgumentException("Unknown format: " + f);
+            }
+
+            byte[] raw = ex.getRequestBody().readNBytes(MAX_MATRIX_BODY + 1);
+            if (raw.length > MAX_MATRIX_BODY) {
+                sendJson(ex, 413, error("Request body too large"));
+                return;
+            }
+            String body = new String(raw, StandardCharsets.UTF_8);
+            double[][] src = parseCoordinates(body, "sources");
+            double[][] dst = parseCoordinates(body, "targets");
+            if (src == null) throw new IllegalArgumentException("Missing sources");
+            if (dst == null) dst = src;
+            if ((long) src.length * dst.length > MAX_MATRIX_CELLS) {
+                sendJson(ex, 413, error("Matrix larger than " + MAX_MATRIX_CELLS + " cells"));
+                return;
+            }
+
+            DistanceMatrix.Location[] sources = locations(src);
+            DistanceMatrix.Location[] targets = (dst == src) ? sources : locations(dst);
+            DistanceMatrix matrix = search(() ->
+                    context.engine().matrix(sources, targets, metric, ForkJoinPool.commonPool()));
+
+            stream(ex, binary ? Format.BINARY.contentType : "application/json", os -> {
+                if (binary) new BinaryRouteWriter(os, decimals).writeMatrix(matrix);
+                else new GeoJsonWriter(os, 1).writeMatrix(matrix);
+            });
+
+        } catch (IllegalArgumentException e) {
+            fail(ex, 400, e.getMessage(), e);
+        } catch (Exception e) {
+            fail(ex, 500, e.getMessage(), e);
+        }
+    }
 
     /**
-     * Formats a route as a GeoJSON Feature with instructions.
+     * Handles {@code GET /isochrone} requests for the roads reachable within a cost limit.
      *
-     * <p>Produces a valid GeoJSON Feature object with:
+     * <p>Expects query parameters:
      * <ul>
-     *   <li>{@code type}: "Feature"</li>
-     *   <li>{@code geometry}: LineString with [lon, lat] coordinate pairs</li>
-     *   <li>{@code properties.instructions}: Array of turn-by-turn text</li>
+     *   <li>{@code lat}, {@code lon} - Origin (degrees), snapped like a {@code /route} endpoint</li>
+     *   <li>{@code limit} - Largest cost to reach: meters, or seconds with {@code metric=time};
+     *       at most {@link #MAX_ISOCHRONE_LIMIT} (50 km or 3600 s), else 413</li>
+     *   <li>{@code metric} - Optional {@code distance} (default) or {@code time}</li>
+     *   <li>{@code hull} - Optional {@code true} to add an outline polygon</li>
      * </ul>
      * </p>
      *
-     * @param pts          the route points (lon, lat order)
-     * @param instructions the turn-by-turn instructions
-     * @return GeoJSON string
+     * <p>Returns the GeoJSON FeatureCollection written by
+     * {@link GeoJsonWriter#writeIsochrone}: reached edges, cut at the limit,
+     * as a MultiLineString, plus the outline Polygon if requested. Responses
+     * are kept in the context's {@link Isochrone.Cache}.</p>
+     *
+     * @param ex the HTTP exchange
+     * @throws IOException if response fails
      */
-    private static String geoJson(
-            List<Point> pts,
-            List<Instruction> instructions
-    ) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("""
-            {
-              "type": "Feature",
-              "geometry": {
-                "type": "LineString",
-                "coordinates": [
-            """);
-
-        // Append coordinates as [lon, lat] pairs (GeoJSON order)
-        for (int i = 0; i < pts.size(); i++) {
-            Point p = pts.get(i);
-            sb.append("[")
-                    .append(p.x)   // longitude
-                    .append(", ")
-                    .append(p.y)   // latitude
-                    .append("]");
-            if (i < pts.size() - 1) sb.append(",");
+    private static void handleIsochrone(HttpExchange ex) throws IOException {
+        if (!"GET".equals(ex.getRequestMethod())) {
+            sendJson(ex, 405, error("Method not allowed"));
+            return;
         }
 
-        sb.append("""
-                ]
-              },
-              "properties": {
-                "instructions": [
-            """);
-
-        // Append instructions as JSON string array
-        for (int i = 0; i < instructions.size(); i++) {
-            sb.append("\"")
-                    .append(escapeJson(instructions.get(i).toText()))
-                    .append("\"");
-            if (i < instructions.size() - 1) sb.append(",");
-        }
+        Map<String, String> q = parseQuery(ex.getRequestURI());
 
-        sb.append("""
-                ]
-              }
+        try {
+            double lat = Double.parseDouble(q.get("lat"));
+            double lon = Double.parseDouble(q.get("lon"));
+            double limit = Double.parseDouble(q.get("limit"));
+            if (!(limit >= 0.0) || Double.isInfinite(limit)) {
+                throw new IllegalArgumentException("limit must be a non-negative number");
+            }
+            RoutingEngine.Metric metric = metric(q.getOrDefault("metric", "distance"));
+            double maxLimit = MAX_ISOCHRONE_LIMIT.get(metric);
+            if (limit > maxLimit) {
+                sendJson(ex, 413, error("limit larger than " + maxLimit + " for metric " + metric.name().toLowerCase()));
+                return;
+            }
+            boolean hull = Boolean.parseBoolean(q.get("hull"));
+
+            SegmentSnapper.SegmentSnapResult snap = RouteCLI.snap(lat, lon, context);
+            if (snap == null) {
+                sendJson(ex, 200, error("No road near origin"));
+                return;
+            }
+            DistanceMatrix.Location origin = DistanceMatrix.Location.of(snap, result.graph);
+
+            Isochrone.Cache cache = context.isochroneCache();
+            Isochrone.Key key = Isochrone.Key.of(origin, metric, limit, hull);
+            Isochrone.Entry hit = cache.get(key);
+            if (hit != null && hit.body() != null) {
+                ex.getResponseHeaders().set("X-Isochrone-Cache", "HIT");
+                sendJson(ex, 200, hit.body());
+                return;
             }
-            """);
 
-        return sb.toString();
+            Isochrone iso = search(() -> context.engine().isochrone(origin, limit, metric));
+            Isochrone.Shape shape = iso.shape(context.projectedGeometry(), context.projection(),
+                    hull ? Isochrone.DEFAULT_SECTORS : 0);
+
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            ex.getResponseHeaders().set("X-Isochrone-Cache", "MISS");
+            stream(ex, "application/json", os -> new GeoJsonWriter(os, decimals, copy).writeIsochrone(iso, shape));
+            cache.put(key, iso, copy.toByteArray());
+
+        } catch (NumberFormatException e) {
+            fail(ex, 400, "Invalid number: " + e.getMessage(), e);
+        } catch (NullPointerException e) {
+            fail(ex, 400, "Missing required parameters: lat, lon, limit", e);
+        } catch (IllegalArgumentException e) {
+            fail(ex, 400, e.getMessage(), e);
+        } catch (Exception e) {
+            fail(ex, 500, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs a search once one of the {@link #SEARCHES} permits is free.
+     *
+     * <p>Bounds the number of workspaces in use, and so the memory a burst
+     * of requests can claim, whichever executor runs the handlers.</p>
+     *
+     * @param task the search
+     * @param <T>  the result type
+     * @return the search result
+     * @throws Exception if the search fails or the wait is interrupted
+     */
+    private static <T> T search(Callable<T> task) throws Exception {
+        SEARCHES.acquire();
+        try {
+            return task.call();
+        } finally {
+            SEARCHES.release();
+        }
+    }
+
+    /**
+     * Parses a {@code tolerance} parameter.
+     *
+     * @param t the parameter value, or null if absent
+     * @return the tolerance in meters, or NaN if absent
+     * @throws IllegalArgumentException naming the parameter if {@code t} is not
+     *         a finite number {@code >= 0}
+     */
+    private static double tolerance(String t) {
+        if (t == null) return Double.NaN;
+        double tol;
+        try {
+            tol = Double.parseDouble(t);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid tolerance: " + t);
+        }
+        if (!(tol >= 0) || Double.isInfinite(tol)) {
+            throw new IllegalArgumentException("Invalid tolerance: " + t + " (must be >= 0 meters)");
+        }
+        return tol;
+    }
+
+    /**
+     * Parses a {@code zoom} parameter.
+     *
+     * @param z the parameter value, or null if absent
+     * @return the zoom level, or -1 if absent
+     * @throws IllegalArgumentException naming the parameter if {@code z} is not
+     *         an integer in {@code 0..RouteSimplifier.MAX_ZOOM}
+     */
+    private static int zoom(String z) {
+        if (z == null) return -1;
+        int zoom;
+        try {
+            zoom = Integer.parseInt(z);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid zoom: " + z);
+        }
+        if (zoom < 0 || zoom > RouteSimplifier.MAX_ZOOM) {
+            throw new IllegalArgumentException(
+                    "Invalid zoom: " + z + " (must be 0.." + RouteSimplifier.MAX_ZOOM + ")");
+        }
+        return zoom;
+    }
+
+    /**
+     * Parses a {@code metric} parameter.
+     *
+     * @param m the parameter value
+     * @return the metric
+     * @throws IllegalArgumentException if {@code m} names no metric
+     */
+    private static RoutingEngine.Metric metric(String m) {
+        return switch (m.toLowerCase()) {
+            case "distance" -> RoutingEngine.Metric.DISTANCE;
+            case "time" -> RoutingEngine.Metric.TIME;
+            default -> throw new IllegalArgumentException("Unknown metric: " + m);
+        };
+    }
+
+    /**
+     * Snaps matrix points onto the network.
+     *
+     * @param latLon {@code [lat, lon]} pairs
+     * @return one location per pair; {@code null} where a point cannot be snapped
+     */
+    private static DistanceMatrix.Location[] locations(double[][] latLon) {
+        DistanceMatrix.Location[] out = new DistanceMatrix.Location[latLon.length];
+        for (int i = 0; i < latLon.length; i++) {
+            SegmentSnapper.SegmentSnapResult snap = RouteCLI.snap(latLon[i][0], latLon[i][1], context);
+            if (snap != null) out[i] = DistanceMatrix.Location.of(snap, result.graph);
+        }
+        return out;
+    }
+
+    /**
+     * Reads a list of coordinate pairs from a JSON body, e.g. the value of
+     * {@code "sources": [[46.23, -63.13], [46.25, -63.12]]}.
+     *
+     * <p>Deliberately minimal: it locates the key, takes its bracketed value
+     * and reads the numbers in it, requiring exactly two per inner array.</p>
+     *
+     * @param json the request body
+     * @param key  the member name
+     * @return the pairs; {@code null} if the key is absent
+     * @throws IllegalArgumentException if the value is not a list of number pairs
+     */
+    static double[][] parseCoordinates(String json, String key) {
+        int k = json.indexOf("\"" + key + "\"");
+        if (k < 0) return null;
+
+        int open = json.indexOf('[', k);
+        if (open < 0) throw new IllegalArgumentException("Malformed " + key);
+        int depth = 0, close = -1, pairs = 0;
+        for (int i = open; i < json.length() && close < 0; i++) {
+            char c = json.charAt(i);
+            if (c == '[' && ++depth == 2) pairs++;
+            else if (c == '[' && depth > 2) throw new IllegalArgumentException("Malformed " + key);
+            else if (c == ']' && --depth == 0) close = i;
+        }
+        if (close < 0) throw new IllegalArgumentException("Malformed " + key);
+
+        Matcher m = NUMBER.matcher(json).region(open, close);
+        double[][] out = new double[pairs][2];
+        int n = 0;
+        while (m.find()) {
+            if (n >= 2 * pairs) throw new IllegalArgumentException(key + " must hold [lat, lon] pairs");
+            out[n / 2][n % 2] = Double.parseDouble(m.group());
+            n++;
+        }
+        if (n != 2 * pairs) throw new IllegalArgumentException(key + " must hold [lat, lon] pairs");
+        return out;
     }
 
+    /* ============================================================
+     * Error Formatting
+     * ============================================================ */
+
     /**
      * Formats an error message as JSON.
      *
@@ -307,10 +810,21 @@ public class RouteServer {
      */
     private static void sendJson(HttpExchange ex, int code, String json)
             throws IOException {
+        sendJson(ex, code, json.getBytes(StandardCharsets.UTF_8));
+    }
 
-        byte[] data = json.getBytes(StandardCharsets.UTF_8);
-        ex.getResponseHeaders().set("Content-Type", "application/json");
-        ex.getResponseHeaders().set("Access-Control-Allow-Origin", "*");  // Enable CORS
+    /**
+     * Sends an already serialized JSON response with the specified status code.
+     *
+     * @param ex   the HTTP exchange
+     * @param code the HTTP status code
+     * @param data the UTF-8 JSON response body
+     * @throws IOException if sending fails
+     */
+    private static void sendJson(HttpExchange ex, int code, byte[] data)
+            throws IOException {
+
+        setHeaders(ex, "application/json");
         ex.sendResponseHeaders(code, data.length);
 
         try (OutputStream os = ex.getResponseBody()) {
@@ -318,6 +832,83 @@ public class RouteServer {
         }
     }
 
+    /**
+     * Writes a streamed (chunked) 200 response.
+     *
+     * <p>The stream is closed only once {@code body} has written everything:
+     * closing ends the chunked body, which would present a partial response
+     * as complete. If writing fails, the exception propagates to
+     * {@link #fail}, which drops the connection.</p>
+     *
+     * @param ex          the HTTP exchange
+     * @param contentType the response media type
+     * @param body        writes the response body
+     * @throws IOException if the headers or body cannot be written
+     */
+    private static void stream(HttpExchange ex, String contentType, Body body) throws IOException {
+        setHeaders(ex, contentType);
+        ex.sendResponseHeaders(200, 0);
+        OutputStream os = ex.getResponseBody();
+        body.writeTo(os);
+        os.close();
+    }
+
+    /**
+     * Writes a response body to a stream.
+     */
+    @FunctionalInterface
+    private interface Body {
+
+        /**
+         * Writes the body.
+         *
+         * @param os the response stream
+         * @throws IOException if writing fails
+         */
+        void writeTo(OutputStream os) throws IOException;
+    }
+
+    /**
+     * Reports a failed request.
+     *
+     * <p>While no headers are out, sends {@code message} as a JSON error
+     * with status {@code code}; 5xx failures are logged. Once headers are
+     * sent, a status can no longer be reported: the cause is logged and
+     * rethrown, so the HTTP server closes the connection and the client sees
+     * a truncated response rather than a JSON error appended to it.</p>
+     *
+     * @param ex      the HTTP exchange
+     * @param code    the HTTP status code to send
+     * @param message the error message
+     * @param cause   the failure
+     * @throws IOException the cause (wrapped if unchecked) when headers are already sent,
+     *                     or if sending the error fails
+     */
+    private static void fail(HttpExchange ex, int code, String message, Exception cause) throws IOException {
+        if (ex.getResponseCode() < 0) {
+            if (code >= 500) LOG.log(System.Logger.Level.WARNING, ex.getRequestURI() + " failed", cause);
+            sendJson(ex, code, error(message));
+            return;
+        }
+        if (cause instanceof IOException io) {
+            LOG.log(System.Logger.Level.DEBUG, ex.getRequestURI() + " aborted while streaming", io);
+            throw io;
+        }
+        LOG.log(System.Logger.Level.WARNING, ex.getRequestURI() + " failed while streaming", cause);
+        throw new IOException("response aborted", cause);
+    }
+
+    /**
+     * Sets the content type and CORS headers.
+     *
+     * @param ex          the HTTP exchange
+     * @param contentType the response media type
+     */
+    private static void setHeaders(HttpExchange ex, String contentType) {
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.getResponseHeaders().set("Access-Control-Allow-Origin", "*");  // Enable CORS
+    }
+
     /**
      * Parses query parameters from a URI.
      *
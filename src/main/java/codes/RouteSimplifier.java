@@ -0,0 +1,208 @@
+package codes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Douglas–Peucker simplification of route geometry for display.
+ *
+ * <p>A route reconstructed from OSM shape points carries far more detail
+ * than a zoomed-out map can show. This drops every point that lies within
+ * a tolerance (in projected meters) of the simplified line, while keeping
+ * pinned points exactly: the snapped start and goal, and the junctions
+ * where an instruction may be given (street-name changes and sharp bends,
+ * see {@link InstructionGenerator}). Pinned points split the route into
+ * runs that are simplified independently, so the line still passes through
+ * every turn.</p>
+ *
+ * <p>Kept points are returned unchanged (no re-projection), so the output
+ * is a subset of the input.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     double tol = RouteSimplifier.toleranceForZoom(12, 46.2);
+ *     boolean[] pinned = RouteSimplifier.turnPoints(rr, ctx, result.edgeGeometry, result.attrs);
+ *     List&lt;Point&gt; display = RouteSimplifier.simplify(rr.geometry(), pinned, tol, ctx.projection());
+ * </pre>
+ * </p>
+ */
+public final class RouteSimplifier {
+
+    /** Highest supported web map zoom level. */
+    public static final int MAX_ZOOM = 22;
+
+    /** Meters per pixel at zoom 0 on the equator for 256 px Web Mercator tiles. */
+    private static final double METERS_PER_PIXEL_Z0 = 156_543.033_928;
+
+    /** Projected distance (meters) within which a route point matches a junction. */
+    private static final double JUNCTION_EPS = 1e-3;
+
+    private RouteSimplifier() {
+    }
+
+    /**
+     * Returns the tolerance that keeps the simplified line within one pixel
+     * of the original at a Web Mercator zoom level.
+     *
+     * @param zoom     the zoom level, {@code 0..MAX_ZOOM}
+     * @param latitude latitude of the route (degrees), for Mercator scale
+     * @return the tolerance in meters
+     * @throws IllegalArgumentException if {@code zoom} is out of range
+     */
+    public static double toleranceForZoom(int zoom, double latitude) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("zoom must be between 0 and " + MAX_ZOOM);
+        }
+        return METERS_PER_PIXEL_Z0 * Math.cos(Math.toRadians(latitude)) / (1L << zoom);
+    }
+
+    /**
+     * Simplifies a lon/lat polyline.
+     *
+     * @param pts             the points ({@code x} = longitude, {@code y} = latitude)
+     * @param pinned          points that must be kept (may be null); first and last are always kept
+     * @param toleranceMeters the maximum distance of a dropped point from the simplified line
+     * @param projection      projection to meters for the distance test
+     * @return the kept points in order; {@code pts} itself if nothing can be dropped
+     * @throws IllegalArgumentException if {@code toleranceMeters} is negative or NaN
+     */
+    public static List<Point> simplify(List<Point> pts, boolean[] pinned, double toleranceMeters,
+                                       LocalProjection projection) {
+        if (!(toleranceMeters >= 0)) throw new IllegalArgumentException("tolerance must be >= 0");
+        int n = pts.size();
+        if (n <= 2 || toleranceMeters == 0) return pts;
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] xy = new double[2];
+        for (int i = 0; i < n; i++) {
+            Point p = pts.get(i);
+            projection.project(p.y, p.x, xy);
+            x[i] = xy[0];
+            y[i] = xy[1];
+        }
+
+        boolean[] keep = (pinned != null) ? pinned.clone() : new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = douglasPeucker(x, y, keep, toleranceMeters);
+        if (kept == n) return pts;
+
+        List<Point> out = new ArrayList<>(kept);
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) out.add(pts.get(i));
+        }
+        return out;
+    }
+
+    /**
+     * Marks the route points that sit on turn junctions.
+     *
+     * <p>A junction between consecutive route edges is a turn when the street
+     * name changes or the angle is a sharp bend, the cases in which
+     * {@link InstructionGenerator} may emit an instruction. The route geometry
+     * is matched against the junction's projected vertex position.</p>
+     *
+     * @param rr    the routing result (lon/lat geometry and route)
+     * @param ctx   the routing context the result was computed in
+     * @param g     the edge geometry instructions are generated from
+     * @param attrs edge attributes with street names
+     * @return one flag per geometry point
+     */
+    public static boolean[] turnPoints(RoutingResult rr, RoutingContext ctx, EdgeGeometry g, EdgeAttributes attrs) {
+        List<Point> pts = rr.geometry();
+        boolean[] pinned = new boolean[pts.size()];
+        int[] edges = (rr.route() != null) ? rr.route().edgeIds : null;
+        if (edges == null || edges.length < 2 || pts.isEmpty()) return pinned;
+
+        LocalProjection projection = ctx.projection();
+        EdgeGeometry projected = ctx.projectedGeometry();
+        double[] xy = new double[2];
+        int i = 0;
+
+        for (int k = 1; k < edges.length; k++) {
+            if (!InstructionGenerator.isTurn(g, attrs, edges[k - 1], edges[k])) continue;
+
+            int s = projected.startIndex(edges[k]);
+            double jx = projected.x(s), jy = projected.y(s);
+
+            // Junctions appear in travel order; scan forward from the last match
+            for (int j = i; j < pts.size(); j++) {
+                Point p = pts.get(j);
+                projection.project(p.y, p.x, xy);
+                if (Math.abs(xy[0] - jx) <= JUNCTION_EPS && Math.abs(xy[1] - jy) <= JUNCTION_EPS) {
+                    pinned[j] = true;
+                    i = j;
+                    break;
+                }
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Runs Douglas–Peucker between each pair of consecutive kept points.
+     *
+     * @param x    projected x coordinates
+     * @param y    projected y coordinates
+     * @param keep in: pinned points (first and last set); out: all kept points
+     * @param tol  the tolerance in meters
+     * @return the number of kept points
+     */
+    static int douglasPeucker(double[] x, double[] y, boolean[] keep, double tol) {
+        int n = x.length;
+        double tol2 = tol * tol;
+
+        // Explicit stack of [from, to] runs; long routes would overflow recursion
+        int[] stack = new int[64];
+        int sp = 0;
+        for (int a = 0, b = 1; b < n; b++) {
+            if (!keep[b]) continue;
+            if (b - a > 1) {
+                if (sp + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[sp++] = a;
+                stack[sp++] = b;
+            }
+            a = b;
+        }
+
+        while (sp > 0) {
+            int b = stack[--sp];
+            int a = stack[--sp];
+
+            double ax = x[a], ay = y[a];
+            double dx = x[b] - ax, dy = y[b] - ay;
+            double len2 = dx * dx + dy * dy;
+
+            int far = -1;
+            double farD2 = tol2;
+            for (int i = a + 1; i < b; i++) {
+                double px = x[i] - ax, py = y[i] - ay;
+                double d2;
+                if (len2 == 0) {
+                    d2 = px * px + py * py;
+                } else {
+                    double t = Math.max(0, Math.min(1, (px * dx + py * dy) / len2));
+                    double ex = px - t * dx, ey = py - t * dy;
+                    d2 = ex * ex + ey * ey;
+                }
+                if (d2 > farD2) {
+                    farD2 = d2;
+                    far = i;
+                }
+            }
+
+            if (far >= 0) {
+                keep[far] = true;
+                if (sp + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                if (far - a > 1) { stack[sp++] = a; stack[sp++] = far; }
+                if (b - far > 1) { stack[sp++] = far; stack[sp++] = b; }
+            }
+        }
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        return kept;
+    }
+}
@@ -0,0 +1,214 @@
+package codes;
+
+/**
+ * Prepared, read-only routing state derived from a compiled network.
+ *
+ * <p>Everything in here depends only on the {@link Main.OSMCompiler.BuildResult}
+ * and not on the query, so it is built once and shared by all routing requests:
+ * <ul>
+ *   <li>The local projection centered on the network's mean lat/lon</li>
+ *   <li>Projected vertex coordinates and projected edge geometry (meters)</li>
+ *   <li>The segment snapper's spatial index</li>
+ *   <li>A reusable {@link RoutingEngine}</li>
+ *   <li>A {@link RouteCache} of finished routes</li>
+ *   <li>An {@link Isochrone.Cache} of computed isochrones</li>
+ * </ul>
+ * </p>
+ *
+ * <p>Per-request work is then limited to projecting the query points,
+ * snapping them and running the search.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     RoutingContext ctx = result.routingContext();
+ *     RoutingResult rr = RouteCLI.routeLatLonWithRoute(lat1, lon1, lat2, lon2, ctx);
+ * </pre>
+ * </p>
+ */
+public final class RoutingContext {
+
+    /** Grid cell size (meters) for the segment snapper's spatial index. */
+    private static final double SNAP_CELL_SIZE_METERS = 1000.0;
+
+    /** Weight budget of the route cache (bytes). */
+    static final long ROUTE_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /** Weight budget of the isochrone cache (bytes). */
+    static final long ISOCHRONE_CACHE_BYTES = 16L * 1024 * 1024;
+
+    /** The compiled network this context was prepared from. */
+    private final Main.OSMCompiler.BuildResult result;
+
+    /** Local projection centered on the network. */
+    private final LocalProjection projection;
+
+    /** Projected x-coordinate of each vertex (meters). */
+    private final double[] vertexX;
+
+    /** Projected y-coordinate of each vertex (meters). */
+    private final double[] vertexY;
+
+    /** Edge geometry in projected meters (same CSR layout as the source geometry). */
+    private final EdgeGeometry projectedGeometry;
+
+    /** Spatial index over the projected edge geometry. */
+    private final SegmentSnapper snapper;
+
+    /** Routing engine shared by all requests. */
+    private final RoutingEngine engine;
+
+    /** Finished routes keyed on snapped endpoints, shared by all requests. */
+    private final RouteCache routeCache;
+
+    /** Isochrones keyed on origin and limit, shared by all requests. */
+    private final Isochrone.Cache isochroneCache;
+
+    /**
+     * Prepares a routing context for a compiled network.
+     *
+     * <p>Prefer {@link Main.OSMCompiler.BuildResult#routingContext()}, which
+     * builds the context once and caches it.</p>
+     *
+     * @param result the compiled OSM network data
+     * @throws IllegalArgumentException if {@code result} is null
+     */
+    RoutingContext(Main.OSMCompiler.BuildResult result) {
+        if (result == null) throw new IllegalArgumentException("result cannot be null");
+        this.result = result;
+
+        // Center the projection on the network's mean lat/lon for minimal distortion
+        double lat0 = LocalProjection.meanLatitude(result.vertexStore.lat);
+        double lon0 = LocalProjection.meanLongitude(result.vertexStore.lon);
+        this.projection = new LocalProjection(lat0, lon0);
+
+        // --- project vertices ---
+        int V = result.vertexStore.V();
+        this.vertexX = new double[V];
+        this.vertexY = new double[V];
+        projection.projectAll(result.vertexStore.lat, result.vertexStore.lon, vertexX, vertexY);
+
+        // --- project edge geometry ---
+        // Note: geometry stores (lon, lat) as (x, y), so lat is passed from y
+        EdgeGeometry geo = result.edgeGeometry;
+        double[] gx = new double[geo.size()];
+        double[] gy = new double[geo.size()];
+        double[] tmp = new double[2];
+
+        for (int i = 0; i < geo.size(); i++) {
+            projection.project(geo.y(i), geo.x(i), tmp);
+            gx[i] = tmp[0];
+            gy[i] = tmp[1];
+        }
+
+        this.projectedGeometry = new EdgeGeometry(geo.edgeStart(), gx, gy);
+        this.snapper = new SegmentSnapper(result.graph, projectedGeometry, SNAP_CELL_SIZE_METERS);
+
+        // Build the CSR snapshot used by the searches now rather than on the first request
+        result.graph.csr();
+
+        // The fastest edge bounds the TIME heuristic; fall back to the profile's cap if no edge is timed
+        double vmax = result.attrs.maxSpeedMetersPerSec();
+        this.engine = new RoutingEngine(
+                result.graph,
+                result.attrs,
+                ShortestPathAlgorithms.VertexStore.fromLatLon(
+                        result.vertexStore.lat,
+                        result.vertexStore.lon),
+                vmax > 0.0 ? vmax : SpeedProfile.MAX_SPEED_KMH / 3.6
+        );
+
+        this.routeCache = new RouteCache(result.graph, result.attrs, ROUTE_CACHE_BYTES);
+        this.isochroneCache = new Isochrone.Cache(result.graph, result.attrs, ISOCHRONE_CACHE_BYTES);
+    }
+
+    /**
+     * Returns the compiled network this context was prepared from.
+     *
+     * @return the build result
+     */
+    Main.OSMCompiler.BuildResult result() {
+        return result;
+    }
+
+    /**
+     * Returns the local projection centered on the network.
+     *
+     * @return the projection
+     */
+    public LocalProjection projection() {
+        return projection;
+    }
+
+    /**
+     * Returns the projected x-coordinates of all vertices (meters).
+     *
+     * @return the x array (not a copy)
+     */
+    public double[] vertexX() {
+        return vertexX;
+    }
+
+    /**
+     * Returns the projected y-coordinates of all vertices (meters).
+     *
+     * @return the y array (not a copy)
+     */
+    public double[] vertexY() {
+        return vertexY;
+    }
+
+    /**
+     * Returns the edge geometry in projected meters.
+     *
+     * @return the projected geometry
+     */
+    public EdgeGeometry projectedGeometry() {
+        return projectedGeometry;
+    }
+
+    /**
+     * Returns the segment snapper built over the projected geometry.
+     *
+     * @return the snapper
+     */
+    public SegmentSnapper snapper() {
+        return snapper;
+    }
+
+    /**
+     * Returns the shared routing engine.
+     *
+     * @return the routing engine
+     */
+    public RoutingEngine engine() {
+        return engine;
+    }
+
+    /**
+     * Returns the cache of finished routes for this network.
+     *
+     * @return the route cache
+     */
+    public RouteCache routeCache() {
+        return routeCache;
+    }
+
+    /**
+     * Returns the cache of computed isochrones for this network.
+     *
+     * @return the isochrone cache
+     */
+    public Isochrone.Cache isochroneCache() {
+        return isochroneCache;
+    }
+
+    /**
+     * Returns a string summary for debugging.
+     *
+     * @return summary with vertex and geometry sizes
+     */
+    @Override
+    public String toString() {
+        return String.format("RoutingContext[V=%d, %s]", vertexX.length, projectedGeometry);
+    }
+}
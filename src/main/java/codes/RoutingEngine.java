@@ -1,12 +1,20 @@
 package codes;
 
-import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A routing engine that computes shortest paths on weighted directed graphs.
  *
- * <p>Provides a unified interface for computing routes using either Dijkstra's algorithm
- * or A* search, with support for both distance-based and time-based metrics.</p>
+ * <p>Provides a unified interface for computing routes using Dijkstra's algorithm,
+ * A* search or their bidirectional variants, with support for both distance-based
+ * and time-based metrics. Contraction hierarchies ({@link #attachHierarchy}) and
+ * landmark tables ({@link #attachLandmarks}) enable CH and ALT queries.</p>
+ *
+ * <p>An engine is safe to share between request threads, platform or virtual:
+ * the graph and attributes are only read, each query borrows its search state
+ * from a {@link SearchWorkspace.Pool}, and attached hierarchies and landmarks
+ * are read without locking.</p>
  *
  * <p>Example usage:
  * <pre>
@@ -23,10 +31,10 @@ import java.util.ArrayList;
 public class RoutingEngine {
 
     /** The underlying weighted directed graph. */
-    private WeightedDigraph digraph;
+    private final WeightedDigraph digraph;
 
     /** codes.Edge attributes containing distance and time information. */
-    private EdgeAttributes attrs;
+    private final EdgeAttributes attrs;
 
     /** Vertex coordinates for A* heuristic computation (may be null if A* not used). */
     private final ShortestPathAlgorithms.VertexStore vertexStore;
@@ -34,6 +42,18 @@ public class RoutingEngine {
     /** Maximum speed in meters/second for time-based A* heuristic. */
     private final double vmaxMetersPerSec;
 
+    /** Reusable search state, so concurrent queries don't allocate O(V) arrays each. */
+    private final SearchWorkspace.Pool workspaces;
+
+    /**
+     * Preprocessed hierarchies for {@link Algorithm#CH}, one per metric. Copied on
+     * attach and never modified after publication, so queries read it without locking.
+     */
+    private volatile EnumMap<Metric, ContractionHierarchy> hierarchies = new EnumMap<>(Metric.class);
+
+    /** Landmark tables for {@link Algorithm#ALT}, one per metric (copied on attach like {@link #hierarchies}). */
+    private volatile EnumMap<Metric, Landmarks> landmarks = new EnumMap<>(Metric.class);
+
     /**
      * Routing metric options.
      */
@@ -48,10 +68,18 @@ public class RoutingEngine {
      * Shortest path algorithm options.
      */
     public enum Algorithm {
-        /** Dijkstra's algorithm - computes shortest paths from source to all vertices. */
+        /** Dijkstra's algorithm - expands from the source until the goal is settled. */
         DIJKSTRA,
         /** A* search - uses heuristic to efficiently find path to a single goal. */
-        ASTAR
+        ASTAR,
+        /** Bidirectional Dijkstra - grows one search from each end until they meet. */
+        BIDIRECTIONAL_DIJKSTRA,
+        /** Bidirectional A* - bidirectional search guided by average straight-line potentials. */
+        BIDIRECTIONAL_ASTAR,
+        /** Contraction Hierarchies - upward bidirectional search on a preprocessed hierarchy. */
+        CH,
+        /** ALT - A* guided by precomputed landmark distances and the triangle inequality. */
+        ALT
     }
 
     /**
@@ -94,6 +122,59 @@ public class RoutingEngine {
         this.attrs = attrs;
         this.vertexStore = vertexStore;
         this.vmaxMetersPerSec = vmaxMetersPerSec;
+        this.workspaces = new SearchWorkspace.Pool(G.V());
+    }
+
+    /**
+     * Attaches a contraction hierarchy so {@link Algorithm#CH} queries for its
+     * metric can be answered. Replaces any hierarchy attached for that metric.
+     *
+     * @param ch the hierarchy (built from this engine's graph)
+     * @throws IllegalArgumentException if {@code ch} is null or its vertex count
+     *                                  doesn't match the graph
+     */
+    public synchronized void attachHierarchy(ContractionHierarchy ch) {
+        if (ch == null) throw new IllegalArgumentException("hierarchy cannot be null");
+        if (ch.V() != digraph.V()) throw new IllegalArgumentException("ContractionHierarchy.V() must match G.V()");
+        EnumMap<Metric, ContractionHierarchy> next = new EnumMap<>(hierarchies);
+        next.put(ch.metric(), ch);
+        hierarchies = next;
+    }
+
+    /**
+     * Returns the hierarchy attached for {@code metric}.
+     *
+     * @param metric the metric
+     * @return the hierarchy, or {@code null} if none is attached
+     */
+    public ContractionHierarchy hierarchy(Metric metric) {
+        return hierarchies.get(metric);
+    }
+
+    /**
+     * Attaches landmark tables so {@link Algorithm#ALT} queries for their
+     * metric can be answered. Replaces any tables attached for that metric.
+     *
+     * @param lm the landmark tables (built from this engine's graph)
+     * @throws IllegalArgumentException if {@code lm} is null or its vertex count
+     *                                  doesn't match the graph
+     */
+    public synchronized void attachLandmarks(Landmarks lm) {
+        if (lm == null) throw new IllegalArgumentException("landmarks cannot be null");
+        if (lm.V() != digraph.V()) throw new IllegalArgumentException("Landmarks.V() must match G.V()");
+        EnumMap<Metric, Landmarks> next = new EnumMap<>(landmarks);
+        next.put(lm.metric(), lm);
+        landmarks = next;
+    }
+
+    /**
+     * Returns the landmark tables attached for {@code metric}.
+     *
+     * @param metric the metric
+     * @return the landmark tables, or {@code null} if none are attached
+     */
+    public Landmarks landmarks(Metric metric) {
+        return landmarks.get(metric);
     }
 
     /**
@@ -148,71 +229,286 @@ public class RoutingEngine {
     }
 
     /**
-     * Core routing method that dispatches to the appropriate algorithm.
+     * Computes the shortest time route using ALT (landmark-guided A*).
      *
-     * @param start     the source vertex
-     * @param goal      the destination vertex
-     * @param metric    the optimization metric (DISTANCE or TIME)
-     * @param algorithm the algorithm to use (DIJKSTRA or ASTAR)
+     * @param start the source vertex
+     * @param goal  the destination vertex
      * @return the computed route
      * @throws IllegalArgumentException if either vertex is invalid
-     * @throws IllegalStateException    if A* prerequisites are not met
+     * @throws IllegalStateException    if no TIME landmarks are attached
      */
+    public Route routeTimeAlt(int start, int goal) {
+        return route(start, goal, Metric.TIME, Algorithm.ALT);
+    }
 
-    private Route route(int start, int goal, Metric metric, Algorithm algorithm) {
-        digraph.validateVertex(start);
-        digraph.validateVertex(goal);
+    /**
+     * Computes the shortest distance route using bidirectional Dijkstra.
+     *
+     * @param start the source vertex
+     * @param goal  the destination vertex
+     * @return the computed route
+     * @throws IllegalArgumentException if either vertex is invalid
+     */
+    public Route routeDistanceBidirectionalDijkstra(int start, int goal) {
+        return route(start, goal, Metric.DISTANCE, Algorithm.BIDIRECTIONAL_DIJKSTRA);
+    }
 
-        if (start == goal) {
-            return new Route(true, start, goal, metric, algorithm, 0.0, new int[0]);
-        }
+    /**
+     * Computes the shortest distance route using bidirectional A*.
+     *
+     * @param start the source vertex
+     * @param goal  the destination vertex
+     * @return the computed route
+     * @throws IllegalArgumentException if either vertex is invalid
+     * @throws IllegalStateException    if VertexStore was not provided at construction
+     */
+    public Route routeDistanceBidirectionalAStar(int start, int goal) {
+        return route(start, goal, Metric.DISTANCE, Algorithm.BIDIRECTIONAL_ASTAR);
+    }
 
-        boolean found;
-        double totalCost;
-        int[] edgeIds;
+    /**
+     * Computes routes from one source to several goals with a single Dijkstra search.
+     *
+     * <p>The search stops once every goal has been settled, so it is cheaper
+     * than running {@link #route} per goal whenever the goals lie near each
+     * other.</p>
+     *
+     * @param start  the source vertex
+     * @param goals  the destination vertices
+     * @param metric the optimization metric (DISTANCE or TIME)
+     * @return one route per goal, in the order given
+     * @throws IllegalArgumentException if {@code goals} is null or any vertex is invalid
+     */
+    public Route[] routeDijkstraToMany(int start, int[] goals, Metric metric) {
+        if (goals == null) throw new IllegalArgumentException("goals cannot be null");
+        digraph.validateVertex(start);
 
-        if (algorithm == Algorithm.DIJKSTRA) {
+        Route[] routes = new Route[goals.length];
+        SearchWorkspace ws = workspaces.acquire();
+        try {
             ShortestPathAlgorithms.Dijkstra sp =
-                    new ShortestPathAlgorithms.Dijkstra(digraph, attrs, metric, start);
+                    new ShortestPathAlgorithms.Dijkstra(digraph, attrs, metric, start, goals, ws);
+
+            for (int i = 0; i < goals.length; i++) {
+                int goal = goals[i];
+                boolean found = sp.hasPathTo(goal);
+                routes[i] = new Route(found, start, goal, metric, Algorithm.DIJKSTRA,
+                        found ? sp.distTo(goal) : Double.POSITIVE_INFINITY,
+                        found ? sp.pathEdgeIdArrayTo(goal) : new int[0],
+                        sp.settledCount());
+            }
+        } finally {
+            workspaces.release(ws);
+        }
+        return routes;
+    }
 
-            found = sp.hasPathTo(goal);
-            totalCost = found ? sp.distTo(goal) : Double.POSITIVE_INFINITY;
-            edgeIds = found ? toIntArray(sp.pathEdgeIdsTo(goal)) : new int[0];
+    /**
+     * Computes the cheapest route from any of several start vertices to any of
+     * several goal vertices with a single search.
+     *
+     * <p>Each start is entered at its offset and each goal adds its offset, so
+     * {@link Route#totalCost} includes both. Routing between two points snapped
+     * onto edges passes the endpoints of the start and goal edges with the
+     * partial edge costs to and from the snap points; the route's start and goal
+     * vertices are the endpoints it actually uses.</p>
+     *
+     * @param starts       the start vertices
+     * @param startOffsets the cost of reaching each start
+     * @param goals        the goal vertices
+     * @param goalOffsets  the cost from each goal to the destination
+     * @param metric       the optimization metric (DISTANCE or TIME)
+     * @param algorithm    {@link Algorithm#DIJKSTRA}, {@link Algorithm#ASTAR},
+     *                     {@link Algorithm#ALT} or {@link Algorithm#CH}
+     * @return the computed route
+     * @throws IllegalArgumentException if an endpoint array is null, empty, or its
+     *                                  offsets differ in length, a vertex is invalid,
+     *                                  an offset is negative or NaN, or the algorithm
+     *                                  is bidirectional
+     * @throws IllegalStateException    if A*, CH or ALT prerequisites are not met
+     */
+    public Route routeBetween(int[] starts, double[] startOffsets,
+                              int[] goals, double[] goalOffsets,
+                              Metric metric, Algorithm algorithm) {
+        if (algorithm == Algorithm.BIDIRECTIONAL_DIJKSTRA || algorithm == Algorithm.BIDIRECTIONAL_ASTAR) {
+            throw new IllegalArgumentException(algorithm + " does not support several start or goal vertices");
+        }
 
-        } else { // ASTAR
+        if (algorithm == Algorithm.CH) {
+            ContractionHierarchy ch = hierarchy(metric);
+            if (ch == null) {
+                throw new IllegalStateException("CH requires a ContractionHierarchy for " + metric + " (see attachHierarchy).");
+            }
+            return ch.route(starts, startOffsets, goals, goalOffsets);
+        }
+
+        ShortestPathAlgorithms.Heuristic heuristic = null;
+        if (algorithm == Algorithm.ALT) {
+            heuristic = landmarks(metric);
+            if (heuristic == null) {
+                throw new IllegalStateException("ALT requires Landmarks for " + metric + " (see attachLandmarks).");
+            }
+        } else if (algorithm == Algorithm.DIJKSTRA) {
+            heuristic = (v, goal) -> 0.0;
+        } else {
             if (vertexStore == null) {
                 throw new IllegalStateException("A* requires a VertexStore (construct codes.RoutingEngine with VertexStore).");
             }
             if (metric == Metric.TIME && !(vmaxMetersPerSec > 0.0)) {
                 throw new IllegalStateException("TIME A* requires vmaxMetersPerSec > 0.");
             }
+        }
 
-            double vmax = (metric == Metric.TIME) ? vmaxMetersPerSec : 1.0;
+        double vmax = (metric == Metric.TIME) ? vmaxMetersPerSec : 1.0;
 
-            ShortestPathAlgorithms.Astar sp =
-                    new ShortestPathAlgorithms.Astar(digraph, attrs, vertexStore, metric, start, goal, vmax);
+        SearchWorkspace ws = workspaces.acquire();
+        try {
+            ShortestPathAlgorithms.MultiEndpointAstar sp = (heuristic != null)
+                    ? new ShortestPathAlgorithms.MultiEndpointAstar(digraph, attrs, heuristic, metric,
+                            starts, startOffsets, goals, goalOffsets, ws)
+                    : new ShortestPathAlgorithms.MultiEndpointAstar(digraph, attrs, vertexStore, metric,
+                            starts, startOffsets, goals, goalOffsets, vmax, ws);
 
-            found = sp.hasPathToGoal();
-            totalCost = found ? sp.costToGoal() : Double.POSITIVE_INFINITY;
-            edgeIds = found ? toIntArray(sp.pathEdgeIdsToGoal()) : new int[0];
+            if (!sp.hasPath()) {
+                return new Route(false, starts[0], goals[0], metric, algorithm,
+                        Double.POSITIVE_INFINITY, new int[0], sp.settledCount());
+            }
+            return new Route(true, sp.source(), sp.target(), metric, algorithm,
+                    sp.cost(), sp.pathEdgeIdArray(), sp.settledCount());
+        } finally {
+            workspaces.release(ws);
         }
+    }
 
-        return new Route(found, start, goal, metric, algorithm, totalCost, edgeIds);
+    /**
+     * Computes a many-to-many cost matrix between snapped locations.
+     *
+     * <p>Uses bucket many-to-many on the hierarchy attached for {@code metric}
+     * if there is one, and one target-pruned Dijkstra per source otherwise
+     * (see {@link DistanceMatrix}). Searches run in parallel on {@code pool}
+     * and borrow this engine's workspaces.</p>
+     *
+     * @param sources the row locations (entries may be null)
+     * @param targets the column locations (entries may be null)
+     * @param metric  the cost metric
+     * @param pool    the pool running the searches
+     * @return the matrix
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public DistanceMatrix matrix(DistanceMatrix.Location[] sources, DistanceMatrix.Location[] targets,
+                                 Metric metric, ForkJoinPool pool) {
+        return DistanceMatrix.compute(digraph, attrs, metric, hierarchy(metric), workspaces,
+                sources, targets, pool);
+    }
+
+    /**
+     * Computes the part of the network reachable from {@code origin} within
+     * {@code limit} with a bounded Dijkstra on one of this engine's
+     * workspaces (see {@link Isochrone}).
+     *
+     * @param origin the start location
+     * @param limit  the largest cost to reach (meters or seconds)
+     * @param metric the cost metric
+     * @return the isochrone
+     * @throws IllegalArgumentException if an argument is null, or {@code limit} is negative or NaN
+     */
+    public Isochrone isochrone(DistanceMatrix.Location origin, double limit, Metric metric) {
+        return Isochrone.compute(digraph, attrs, metric, workspaces, origin, limit);
     }
 
     /**
-     * Converts an iterable of integers to a primitive int array.
+     * Core routing method that dispatches to the appropriate algorithm.
      *
-     * @param edgeIds the edge IDs as an iterable
-     * @return the edge IDs as a primitive array
+     * @param start     the source vertex
+     * @param goal      the destination vertex
+     * @param metric    the optimization metric (DISTANCE or TIME)
+     * @param algorithm the algorithm to use
+     * @return the computed route
+     * @throws IllegalArgumentException if either vertex is invalid
+     * @throws IllegalStateException    if A*, CH or ALT prerequisites are not met
      */
-    private static int[] toIntArray(Iterable<Integer> edgeIds) {
-        ArrayList<Integer> list = new ArrayList<>();
-        for (int id : edgeIds) list.add(id);
 
-        int[] out = new int[list.size()];
-        for (int i = 0; i < list.size(); i++) out[i] = list.get(i);
-        return out;
+    public Route route(int start, int goal, Metric metric, Algorithm algorithm) {
+        digraph.validateVertex(start);
+        digraph.validateVertex(goal);
+
+        if (start == goal) {
+            return new Route(true, start, goal, metric, algorithm, 0.0, new int[0]);
+        }
+
+        if (algorithm == Algorithm.ASTAR || algorithm == Algorithm.BIDIRECTIONAL_ASTAR) {
+            if (vertexStore == null) {
+                throw new IllegalStateException("A* requires a VertexStore (construct codes.RoutingEngine with VertexStore).");
+            }
+            if (metric == Metric.TIME && !(vmaxMetersPerSec > 0.0)) {
+                throw new IllegalStateException("TIME A* requires vmaxMetersPerSec > 0.");
+            }
+        }
+
+        if (algorithm == Algorithm.CH) {
+            ContractionHierarchy ch = hierarchy(metric);
+            if (ch == null) {
+                throw new IllegalStateException("CH requires a ContractionHierarchy for " + metric + " (see attachHierarchy).");
+            }
+            return ch.route(start, goal);
+        }
+
+        Landmarks lm = null;
+        if (algorithm == Algorithm.ALT) {
+            lm = landmarks(metric);
+            if (lm == null) {
+                throw new IllegalStateException("ALT requires Landmarks for " + metric + " (see attachLandmarks).");
+            }
+        }
+
+        double vmax = (metric == Metric.TIME) ? vmaxMetersPerSec : 1.0;
+
+        boolean found;
+        double totalCost;
+        int[] edgeIds;
+        int settled;
+
+        SearchWorkspace ws = workspaces.acquire();
+        SearchWorkspace bwd = null;
+        try {
+            switch (algorithm) {
+                case DIJKSTRA -> {
+                    ShortestPathAlgorithms.Dijkstra sp =
+                            new ShortestPathAlgorithms.Dijkstra(digraph, attrs, metric, start, new int[]{goal}, ws);
+
+                    found = sp.hasPathTo(goal);
+                    totalCost = found ? sp.distTo(goal) : Double.POSITIVE_INFINITY;
+                    edgeIds = found ? sp.pathEdgeIdArrayTo(goal) : new int[0];
+                    settled = sp.settledCount();
+                }
+                case ASTAR, ALT -> {
+                    ShortestPathAlgorithms.Astar sp = (algorithm == Algorithm.ALT)
+                            ? new ShortestPathAlgorithms.Astar(digraph, attrs, lm, metric, start, goal, ws)
+                            : new ShortestPathAlgorithms.Astar(digraph, attrs, vertexStore, metric, start, goal, vmax, ws);
+
+                    found = sp.hasPathToGoal();
+                    totalCost = found ? sp.costToGoal() : Double.POSITIVE_INFINITY;
+                    edgeIds = found ? sp.pathEdgeIdArrayToGoal() : new int[0];
+                    settled = sp.settledCount();
+                }
+                default -> { // BIDIRECTIONAL_DIJKSTRA, BIDIRECTIONAL_ASTAR
+                    bwd = workspaces.acquire();
+                    ShortestPathAlgorithms.BidirectionalDijkstra sp = (algorithm == Algorithm.BIDIRECTIONAL_ASTAR)
+                            ? new ShortestPathAlgorithms.BidirectionalAstar(digraph, attrs, vertexStore, metric, start, goal, vmax, ws, bwd)
+                            : new ShortestPathAlgorithms.BidirectionalDijkstra(digraph, attrs, metric, start, goal, ws, bwd);
+
+                    found = sp.hasPathToGoal();
+                    totalCost = sp.costToGoal();
+                    edgeIds = sp.pathEdgeIdArrayToGoal();
+                    settled = sp.settledCount();
+                }
+            }
+        } finally {
+            workspaces.release(ws);
+            workspaces.release(bwd);
+        }
+
+        return new Route(found, start, goal, metric, algorithm, totalCost, edgeIds, settled);
     }
 
     /**
@@ -244,6 +540,9 @@ public class RoutingEngine {
         /** codes.Edge IDs in traversal order from start to goal (empty if no path). */
         public final int[] edgeIds;
 
+        /** Number of vertices the search settled (-1 if not recorded). */
+        public final int settledVertices;
+
         /**
          * Constructs a route result.
          *
@@ -258,6 +557,24 @@ public class RoutingEngine {
         public Route(boolean found, int startVertex, int goalVertex,
                      Metric metric, Algorithm algorithm,
                      double totalCost, int[] edgeIds) {
+            this(found, startVertex, goalVertex, metric, algorithm, totalCost, edgeIds, -1);
+        }
+
+        /**
+         * Constructs a route result with search statistics.
+         *
+         * @param found           whether a path was found
+         * @param startVertex     the source vertex
+         * @param goalVertex      the destination vertex
+         * @param metric          the optimization metric
+         * @param algorithm       the algorithm used
+         * @param totalCost       the total path cost
+         * @param edgeIds         the edge IDs in traversal order
+         * @param settledVertices the number of vertices the search settled (-1 if unknown)
+         */
+        public Route(boolean found, int startVertex, int goalVertex,
+                     Metric metric, Algorithm algorithm,
+                     double totalCost, int[] edgeIds, int settledVertices) {
 
             this.found = found;
             this.startVertex = startVertex;
@@ -266,6 +583,7 @@ public class RoutingEngine {
             this.algorithm = algorithm;
             this.totalCost = totalCost;
             this.edgeIds = edgeIds;
+            this.settledVertices = settledVertices;
         }
 
         /**
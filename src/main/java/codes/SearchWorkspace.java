@@ -0,0 +1,250 @@
+package codes;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable per-query state for shortest path searches.
+ *
+ * <p>Holds the distance and parent-edge arrays a search writes, plus the
+ * priority queue it uses. Instead of refilling the arrays for every query, each
+ * entry carries a generation stamp: an entry whose stamp differs from the
+ * current generation reads as "untouched" (infinite distance, no parent).
+ * {@link #reset()} just bumps the generation and clears the heap, so starting a
+ * new query costs O(touched) instead of O(V).</p>
+ *
+ * <p>A workspace is not thread-safe; each concurrent search needs its own.
+ * {@link Pool} hands out workspaces so steady-state routing allocates none.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     SearchWorkspace.Pool pool = new SearchWorkspace.Pool(graph.V());
+ *     SearchWorkspace ws = pool.acquire();
+ *     try {
+ *         var sp = new ShortestPathAlgorithms.Dijkstra(graph, attrs, metric, s, ws);
+ *         ...
+ *     } finally {
+ *         pool.release(ws);
+ *     }
+ * </pre>
+ * </p>
+ */
+public final class SearchWorkspace {
+
+    /** Tentative distance (or g-score) of each vertex; valid only if stamped. */
+    private final double[] dist;
+
+    /** Parent edge ID of each vertex on the search tree; valid only if stamped. */
+    private final int[] parentEdgeId;
+
+    /** Generation in which each vertex was last written. */
+    private final int[] stamp;
+
+    /** Current generation; entries with a different stamp are untouched. */
+    private int generation;
+
+    /** Priority queue reused across queries. */
+    private final IndexedDaryHeap heap;
+
+    /**
+     * Creates a workspace for graphs with {@code V} vertices.
+     *
+     * @param V the number of vertices
+     * @throws IllegalArgumentException if {@code V < 0}
+     */
+    public SearchWorkspace(int V) {
+        if (V < 0) throw new IllegalArgumentException("V < 0");
+        this.dist = new double[V];
+        this.parentEdgeId = new int[V];
+        this.stamp = new int[V];
+        this.generation = 1;
+        this.heap = new IndexedDaryHeap(V);
+    }
+
+    /**
+     * Returns the number of vertices this workspace supports.
+     *
+     * @return vertex count
+     */
+    public int V() {
+        return dist.length;
+    }
+
+    /**
+     * Prepares the workspace for a new query.
+     *
+     * <p>O(1) apart from clearing whatever the previous query left in the heap.
+     * On the (rare) generation wrap-around the stamps are zeroed once.</p>
+     */
+    public void reset() {
+        heap.clear();
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Returns true if vertex {@code v} has been reached in the current query.
+     *
+     * @param v the vertex
+     * @return {@code true} if written since the last reset
+     */
+    public boolean reached(int v) {
+        return stamp[v] == generation;
+    }
+
+    /**
+     * Returns the tentative distance of vertex {@code v}.
+     *
+     * @param v the vertex
+     * @return the distance, or {@code Double.POSITIVE_INFINITY} if not reached
+     */
+    public double dist(int v) {
+        return stamp[v] == generation ? dist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the parent edge of vertex {@code v} on the search tree.
+     *
+     * @param v the vertex
+     * @return the parent edge ID, or -1 if not reached (or {@code v} is a source)
+     */
+    public int parentEdge(int v) {
+        return stamp[v] == generation ? parentEdgeId[v] : -1;
+    }
+
+    /**
+     * Records a new tentative distance and parent edge for vertex {@code v}.
+     *
+     * @param v            the vertex
+     * @param d            the distance
+     * @param parentEdgeId the edge used to reach {@code v} (-1 for a source)
+     */
+    public void set(int v, double d, int parentEdgeId) {
+        dist[v] = d;
+        this.parentEdgeId[v] = parentEdgeId;
+        stamp[v] = generation;
+    }
+
+    /**
+     * Returns the priority queue for this workspace.
+     *
+     * @return the heap (cleared by {@link #reset()})
+     */
+    public IndexedDaryHeap heap() {
+        return heap;
+    }
+
+    /**
+     * Returns the edge IDs on the search-tree path from the root to {@code t}.
+     *
+     * <p>Follows parent edges back from {@code t} until a vertex without a
+     * parent edge is reached, then returns the edges in travel order.</p>
+     *
+     * @param csr the graph the search ran on (used to find edge tails)
+     * @param t   the destination vertex
+     * @return edge IDs in order; empty if {@code t} is a root or unreached
+     */
+    public int[] pathEdgeIdsTo(CsrDigraph csr, int t) {
+        if (!reached(t)) return new int[0];
+
+        int len = 0;
+        for (int cur = t, eid; (eid = parentEdge(cur)) != -1; cur = csr.edgeTail(eid)) len++;
+
+        int[] out = new int[len];
+        int cur = t;
+        for (int i = len - 1; i >= 0; i--) {
+            int eid = parentEdge(cur);
+            out[i] = eid;
+            cur = csr.edgeTail(eid);
+        }
+        return out;
+    }
+
+    /**
+     * A thread-safe pool of workspaces for one graph size.
+     *
+     * <p>Workspaces are created on demand and returned after each query. At
+     * most {@code maxIdle} returned workspaces are kept; the rest are left to
+     * the garbage collector, so a burst of concurrent searches does not pin
+     * one O(V) workspace per search for the life of the process. Works the
+     * same for platform and virtual threads.</p>
+     */
+    public static final class Pool {
+
+        /** Vertex count of the workspaces handed out. */
+        private final int V;
+
+        /** Most idle workspaces kept. */
+        private final int maxIdle;
+
+        /** Idle workspaces. */
+        private final ConcurrentLinkedDeque<SearchWorkspace> idle = new ConcurrentLinkedDeque<>();
+
+        /** Size of {@link #idle} (the deque's own size() is linear). */
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        /**
+         * Creates an empty pool keeping at most one idle workspace per core.
+         *
+         * @param V the number of vertices each workspace must support
+         * @throws IllegalArgumentException if {@code V < 0}
+         */
+        public Pool(int V) {
+            this(V, Runtime.getRuntime().availableProcessors());
+        }
+
+        /**
+         * Creates an empty pool.
+         *
+         * @param V       the number of vertices each workspace must support
+         * @param maxIdle the most released workspaces to keep for reuse
+         * @throws IllegalArgumentException if {@code V < 0} or {@code maxIdle < 0}
+         */
+        public Pool(int V, int maxIdle) {
+            if (V < 0) throw new IllegalArgumentException("V < 0");
+            if (maxIdle < 0) throw new IllegalArgumentException("maxIdle < 0");
+            this.V = V;
+            this.maxIdle = maxIdle;
+        }
+
+        /**
+         * Takes a reset workspace from the pool, creating one if none is idle.
+         *
+         * @return a workspace ready for a new query
+         */
+        public SearchWorkspace acquire() {
+            SearchWorkspace ws = idle.pollFirst();
+            if (ws == null) return new SearchWorkspace(V);
+            idleCount.decrementAndGet();
+            ws.reset();
+            return ws;
+        }
+
+        /**
+         * Returns a workspace to the pool, dropping it if {@code maxIdle}
+         * workspaces are already idle.
+         *
+         * @param ws the workspace (ignored if null)
+         */
+        public void release(SearchWorkspace ws) {
+            if (ws == null) return;
+            if (idleCount.incrementAndGet() > maxIdle) {
+                idleCount.decrementAndGet();
+                return;
+            }
+            idle.offerFirst(ws);
+        }
+
+        /**
+         * Returns the number of workspaces waiting for reuse.
+         *
+         * @return the idle count
+         */
+        public int idle() {
+            return idleCount.get();
+        }
+    }
+}
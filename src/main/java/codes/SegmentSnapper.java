@@ -262,9 +262,8 @@ public final class SegmentSnapper {
                             // Convert segment-local segT to edge-normalized t in [0,1]
                             double tEdge = edgeNormalizedT(edgeId, idx, segT);
 
-                            var e = graph.edgeByID(edgeId);
                             best = new SegmentSnapResult(
-                                    edgeId, e.firstEnd(), e.otherEnd(), tEdge, dist
+                                    edgeId, graph.edgeTail(edgeId), graph.edgeHead(edgeId), tEdge, dist
                             );
                         }
                     }
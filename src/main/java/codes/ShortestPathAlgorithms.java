@@ -1,15 +1,19 @@
 package codes;
 
-import edu.princeton.cs.algs4.IndexMinPQ;
-
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Stack;
 
 /**
  * A collection of shortest path algorithms for weighted directed graphs.
  *
- * <p>Includes implementations of Dijkstra's algorithm and A* search algorithm
- * for finding shortest paths based on distance or time metrics.</p>
+ * <p>Includes implementations of Dijkstra's algorithm and A* search algorithm,
+ * plus their bidirectional variants, for finding shortest paths based on
+ * distance or time metrics, and a cost-bounded Dijkstra for isochrones.</p>
+ *
+ * <p>Searches run over the graph's {@link CsrDigraph} snapshot
+ * ({@link WeightedDigraph#csr()}), so neighbor iteration in the relaxation
+ * loops is a primitive index loop with no iterator or {@link Edge} access.</p>
  *
  * <p>Design inspired by Robert Sedgewick and Kevin Wayne's shortest path implementations
  * from <i>Algorithms, 4th Edition</i> (Addison-Wesley, 2011).</p>
@@ -22,10 +26,15 @@ public class ShortestPathAlgorithms {
     /**
      * Stores projected x/y coordinates for each vertex.
      *
-     * <p>Used by the A* algorithm to compute straight-line distance heuristics.</p>
+     * <p>Used by the A* algorithm to compute straight-line distance heuristics.
+     * Coordinates must be in meters for the heuristic to match edge costs;
+     * build stores from geographic coordinates with {@link #fromLatLon}.</p>
      */
 
     public static class VertexStore {
+        /** Shrink factor keeping projected distances strictly below road distances. */
+        private static final double LOWER_BOUND_SLACK = 1.0 - 1e-9;
+
         private final double[] x;
         private final double[] y;
 
@@ -44,6 +53,36 @@ public class ShortestPathAlgorithms {
             this.y = y;
         }
 
+        /**
+         * Projects geographic coordinates into a store whose straight-line
+         * distances are lower bounds on road distances (meters).
+         *
+         * <p>Uses {@link LocalProjection#lowerBound} and shrinks the result by
+         * one part in 10<sup>9</sup> so rounding cannot make the heuristic
+         * overestimate.</p>
+         *
+         * @param latDeg latitude of each vertex (degrees)
+         * @param lonDeg longitude of each vertex (degrees)
+         * @return the projected store
+         * @throws IllegalArgumentException if the arrays are null or differ in length
+         */
+
+        public static VertexStore fromLatLon(double[] latDeg, double[] lonDeg) {
+            if (latDeg == null || lonDeg == null) throw new IllegalArgumentException("lat/lon arrays are null");
+            if (latDeg.length != lonDeg.length) throw new IllegalArgumentException("lat and lon must have same length");
+            int n = latDeg.length;
+            double[] x = new double[n];
+            double[] y = new double[n];
+            if (n == 0) return new VertexStore(x, y);
+
+            LocalProjection.lowerBound(latDeg, lonDeg).projectAll(latDeg, lonDeg, x, y);
+            for (int v = 0; v < n; v++) {
+                x[v] *= LOWER_BOUND_SLACK;
+                y[v] *= LOWER_BOUND_SLACK;
+            }
+            return new VertexStore(x, y);
+        }
+
         /**
          * Returns the number of vertices.
          *
@@ -77,27 +116,59 @@ public class ShortestPathAlgorithms {
         }
     }
 
+    /**
+     * A lower bound on the remaining cost to a goal, used to guide {@link Astar}.
+     *
+     * <p>Implementations must never overestimate (admissible). They need not be
+     * consistent: {@link Astar} reopens a vertex whenever a cheaper path to it
+     * is found later.</p>
+     */
+
+    public interface Heuristic {
+
+        /**
+         * Returns a lower bound on the cost of the shortest path from {@code v} to {@code goal}.
+         *
+         * @param v    the vertex
+         * @param goal the destination vertex
+         * @return the bound, or {@code Double.POSITIVE_INFINITY} if {@code goal}
+         *         is known to be unreachable from {@code v}
+         */
+        double lowerBound(int v, int goal);
+    }
+
     /**
      * Computes shortest paths from a single source vertex to all other vertices
      * using Dijkstra's algorithm.
      *
      * <p>Supports both distance-based and time-based routing metrics. Uses an
-     * indexed priority queue for efficient relaxation operations.</p>
+     * {@link IndexedDaryHeap} with primitive keys for efficient relaxation operations.</p>
+     *
+     * <p>Search state lives in a {@link SearchWorkspace}. Results read through
+     * this object stay valid until that workspace is reset for another query.</p>
+     *
+     * <p>When given a set of target vertices, the search stops as soon as every
+     * target has been settled instead of exploring the whole reachable graph.
+     * Distances and paths are then exact for settled vertices (which include all
+     * reachable targets); other vertices may report an upper bound or no path.</p>
      *
      * <p>Time complexity: O(E log V) where E is the number of edges and V is
      * the number of vertices.</p>
      */
 
     public static class Dijkstra {
-        private final double[] distTo;
-        private final int[] parentEdgeId;
-        private final IndexMinPQ<Double> pq;
+        private final SearchWorkspace ws;
+        private final IndexedDaryHeap pq;
 
         private final WeightedDigraph G;
+        private final CsrDigraph csr;
         private final EdgeAttributes attrs;
         private final RoutingEngine.Metric metric;
         private final int s;
 
+        /** Number of vertices settled (removed from the queue). */
+        private int settledCount;
+
         /**
          * Computes shortest paths from source vertex {@code s} to all reachable vertices.
          *
@@ -109,28 +180,95 @@ public class ShortestPathAlgorithms {
          */
 
         public Dijkstra(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric, int s) {
+            this(G, attrs, metric, s, new SearchWorkspace(G.V()));
+        }
+
+        /**
+         * Computes shortest paths from source vertex {@code s} using a caller-supplied workspace.
+         *
+         * <p>The workspace is reset before the search starts.</p>
+         *
+         * @param G      the weighted directed graph
+         * @param attrs  edge attributes containing distance/time information
+         * @param metric the routing metric (DISTANCE or TIME)
+         * @param s      the source vertex
+         * @param ws     the workspace to run in (must support {@code G.V()} vertices)
+         * @throws IllegalArgumentException if {@code s} is not a valid vertex or the
+         *                                  workspace is too small
+         */
+
+        public Dijkstra(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric, int s,
+                        SearchWorkspace ws) {
+            this(G, attrs, metric, s, null, ws);
+        }
+
+        /**
+         * Computes shortest paths from source vertex {@code s}, stopping once every
+         * vertex in {@code targets} has been settled.
+         *
+         * @param G       the weighted directed graph
+         * @param attrs   edge attributes containing distance/time information
+         * @param metric  the routing metric (DISTANCE or TIME)
+         * @param s       the source vertex
+         * @param targets the vertices to settle (duplicates allowed)
+         * @throws IllegalArgumentException if {@code s} or any target is not a valid vertex
+         */
+
+        public Dijkstra(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric, int s,
+                        int[] targets) {
+            this(G, attrs, metric, s, targets, new SearchWorkspace(G.V()));
+        }
+
+        /**
+         * Computes shortest paths from source vertex {@code s} using a caller-supplied
+         * workspace, stopping once every vertex in {@code targets} has been settled.
+         *
+         * <p>The workspace is reset before the search starts. A {@code null}
+         * target array runs the full single-source search.</p>
+         *
+         * @param G       the weighted directed graph
+         * @param attrs   edge attributes containing distance/time information
+         * @param metric  the routing metric (DISTANCE or TIME)
+         * @param s       the source vertex
+         * @param targets the vertices to settle (duplicates allowed), or {@code null} for all
+         * @param ws      the workspace to run in (must support {@code G.V()} vertices)
+         * @throws IllegalArgumentException if {@code s} or any target is not a valid vertex,
+         *                                  or the workspace is too small
+         */
+
+        public Dijkstra(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric, int s,
+                        int[] targets, SearchWorkspace ws) {
             this.G = G;
+            this.csr = G.csr();
             this.attrs = attrs;
             this.metric = metric;
             this.s = s;
 
             G.validateVertex(s);
-
-            int V = G.V();
-            this.distTo = new double[V];
-            this.parentEdgeId = new int[V];
-            this.pq = new IndexMinPQ<>(V);
-
-            for (int v = 0; v < V; v++) {
-                distTo[v] = Double.POSITIVE_INFINITY;
-                parentEdgeId[v] = -1;
+            requireWorkspace(ws, G.V());
+
+            // Sorted, de-duplicated copy so settling can be matched with a binary search
+            int[] pending = null;
+            int remaining = 0;
+            if (targets != null) {
+                for (int t : targets) G.validateVertex(t);
+                pending = Arrays.stream(targets).distinct().sorted().toArray();
+                remaining = pending.length;
+                if (remaining == 0) pending = null;
             }
 
-            distTo[s] = 0.0;
+            this.ws = ws;
+            this.pq = ws.heap();
+            ws.reset();
+
+            ws.set(s, 0.0, -1);
             pq.insert(s, 0.0);
 
             while (!pq.isEmpty()) {
                 int v = pq.delMin();
+                settledCount++;
+
+                if (pending != null && Arrays.binarySearch(pending, v) >= 0 && --remaining == 0) break;
                 relax(v);
             }
         }
@@ -155,21 +293,44 @@ public class ShortestPathAlgorithms {
          */
 
         private void relax(int v) {
-            for (Edge e : G.outEdges(v)) {
-                int w = e.otherEnd();
-                int eid = e.edgeID();
+            double dv = ws.dist(v);
+            for (int i = csr.firstOut(v), end = csr.endOut(v); i < end; i++) {
+                int w = csr.head(i);
+                int eid = csr.edgeId(i);
 
-                double candidate = distTo[v] + edgeCost(eid);
-                if (candidate < distTo[w]) {
-                    distTo[w] = candidate;
-                    parentEdgeId[w] = eid;
+                double candidate = dv + edgeCost(eid);
+                if (candidate < ws.dist(w)) {
+                    ws.set(w, candidate, eid);
 
-                    if (pq.contains(w)) pq.decreaseKey(w, distTo[w]);
-                    else pq.insert(w, distTo[w]);
+                    if (pq.contains(w)) pq.decreaseKey(w, candidate);
+                    else pq.insert(w, candidate);
                 }
             }
         }
 
+        /**
+         * Returns true if vertex {@code v} was settled, i.e. its distance is final.
+         *
+         * @param v the vertex
+         * @return {@code true} if settled; {@code false} otherwise
+         * @throws IllegalArgumentException if {@code v} is not a valid vertex
+         */
+
+        public boolean isSettled(int v) {
+            G.validateVertex(v);
+            return ws.reached(v) && !pq.contains(v);
+        }
+
+        /**
+         * Returns the number of vertices the search settled.
+         *
+         * @return the settled vertex count
+         */
+
+        public int settledCount() {
+            return settledCount;
+        }
+
         /**
          * Returns the shortest path distance from source to vertex {@code v}.
          *
@@ -180,7 +341,7 @@ public class ShortestPathAlgorithms {
 
         public double distTo(int v) {
             G.validateVertex(v);
-            return distTo[v];
+            return ws.dist(v);
         }
 
         /**
@@ -193,7 +354,7 @@ public class ShortestPathAlgorithms {
 
         public boolean hasPathTo(int v) {
             G.validateVertex(v);
-            return distTo[v] < Double.POSITIVE_INFINITY;
+            return ws.dist(v) < Double.POSITIVE_INFINITY;
         }
 
         /**
@@ -214,19 +375,31 @@ public class ShortestPathAlgorithms {
             int cur = t;
 
             while (cur != s) {
-                int eid = parentEdgeId[cur];
+                int eid = ws.parentEdge(cur);
                 if (eid == -1) {
                     throw new IllegalStateException("Vertex " + t + " has parent edge id -1 despite being reachable");
                 }
                 stack.push(eid);
 
-                Edge e = G.edgeByID(eid);
-                cur = e.firstEnd();
+                cur = csr.edgeTail(eid);
             }
 
             Collections.reverse(stack);
             return stack;
         }
+
+        /**
+         * Returns the edge IDs on the shortest path from source to {@code t} as a primitive array.
+         *
+         * @param t the destination vertex
+         * @return edge IDs in order from source to destination; empty if unreachable or {@code t == s}
+         * @throws IllegalArgumentException if {@code t} is not a valid vertex
+         */
+
+        public int[] pathEdgeIdArrayTo(int t) {
+            G.validateVertex(t);
+            return ws.pathEdgeIdsTo(csr, t);
+        }
     }
 
     /**
@@ -234,28 +407,33 @@ public class ShortestPathAlgorithms {
      *
      * <p>A* uses a heuristic function to guide the search toward the goal, making it
      * more efficient than Dijkstra's algorithm for single-pair shortest path queries.
-     * The heuristic is based on Euclidean (straight-line) distance.</p>
+     * By default the heuristic is based on Euclidean (straight-line) distance; any
+     * {@link Heuristic}, such as {@link Landmarks}, can be supplied instead.</p>
      *
-     * <p>For the TIME metric, the heuristic divides distance by the maximum speed
-     * to ensure admissibility (never overestimates actual cost).</p>
+     * <p>For the TIME metric, the straight-line heuristic divides distance by the
+     * maximum speed to ensure admissibility (never overestimates actual cost).</p>
+     *
+     * <p>g-scores and parent edges live in a {@link SearchWorkspace}, exactly as
+     * for {@link Dijkstra}.</p>
      *
      * <p>Time complexity: O(E log V) worst case, but typically faster than Dijkstra
      * for point-to-point queries due to heuristic pruning.</p>
      */
 
     public static class Astar {
-        private final double[] gScore;
-        private final int[] parentEdgeId;
-        private final IndexMinPQ<Double> open;
+        private final SearchWorkspace ws;
+        private final IndexedDaryHeap open;
 
         private final WeightedDigraph G;
+        private final CsrDigraph csr;
         private final EdgeAttributes attrs;
-        private final VertexStore vs;
+        private final Heuristic heuristic;
         private final RoutingEngine.Metric metric;
         private final int s;
         private final int goal;
 
-        private final double vmaxMetersPerSec;
+        /** Number of vertices settled (removed from the open set). */
+        private int settledCount;
 
         /**
          * Computes the shortest path from source {@code s} to {@code goal}.
@@ -279,46 +457,147 @@ public class ShortestPathAlgorithms {
                      int s,
                      int goal,
                      double vmaxMetersPerSec) {
+            this(G, attrs, vs, metric, s, goal, vmaxMetersPerSec, new SearchWorkspace(G.V()));
+        }
+
+        /**
+         * Computes the shortest path from source {@code s} to {@code goal} using a
+         * caller-supplied workspace.
+         *
+         * <p>The workspace is reset before the search starts.</p>
+         *
+         * @param G                 the weighted directed graph
+         * @param attrs             edge attributes containing distance/time information
+         * @param vs                vertex coordinate store for heuristic computation
+         * @param metric            the routing metric (DISTANCE or TIME)
+         * @param s                 the source vertex
+         * @param goal              the destination vertex
+         * @param vmaxMetersPerSec  maximum speed in meters/second (used for TIME metric)
+         * @param ws                the workspace to run in (must support {@code G.V()} vertices)
+         * @throws IllegalArgumentException if vertices are invalid, VertexStore size
+         *                                  doesn't match graph, vmaxMetersPerSec is
+         *                                  non-positive when using TIME metric, or the
+         *                                  workspace is too small
+         */
+
+        public Astar(WeightedDigraph G,
+                     EdgeAttributes attrs,
+                     VertexStore vs,
+                     RoutingEngine.Metric metric,
+                     int s,
+                     int goal,
+                     double vmaxMetersPerSec,
+                     SearchWorkspace ws) {
+            this(G, attrs, straightLine(G, vs, metric, vmaxMetersPerSec), metric, s, goal, ws);
+        }
+
+        /**
+         * Computes the shortest path from source {@code s} to {@code goal} guided
+         * by the given heuristic.
+         *
+         * @param G         the weighted directed graph
+         * @param attrs     edge attributes containing distance/time information
+         * @param heuristic an admissible lower bound for {@code metric}
+         * @param metric    the routing metric (DISTANCE or TIME)
+         * @param s         the source vertex
+         * @param goal      the destination vertex
+         * @throws IllegalArgumentException if vertices are invalid or {@code heuristic} is null
+         */
+
+        public Astar(WeightedDigraph G,
+                     EdgeAttributes attrs,
+                     Heuristic heuristic,
+                     RoutingEngine.Metric metric,
+                     int s,
+                     int goal) {
+            this(G, attrs, heuristic, metric, s, goal, new SearchWorkspace(G.V()));
+        }
+
+        /**
+         * Computes the shortest path from source {@code s} to {@code goal} guided
+         * by the given heuristic, using a caller-supplied workspace.
+         *
+         * <p>The workspace is reset before the search starts.</p>
+         *
+         * @param G         the weighted directed graph
+         * @param attrs     edge attributes containing distance/time information
+         * @param heuristic an admissible lower bound for {@code metric}
+         * @param metric    the routing metric (DISTANCE or TIME)
+         * @param s         the source vertex
+         * @param goal      the destination vertex
+         * @param ws        the workspace to run in (must support {@code G.V()} vertices)
+         * @throws IllegalArgumentException if vertices are invalid, {@code heuristic} is
+         *                                  null, or the workspace is too small
+         */
+
+        public Astar(WeightedDigraph G,
+                     EdgeAttributes attrs,
+                     Heuristic heuristic,
+                     RoutingEngine.Metric metric,
+                     int s,
+                     int goal,
+                     SearchWorkspace ws) {
 
             this.G = G;
+            this.csr = G.csr();
             this.attrs = attrs;
-            this.vs = vs;
+            this.heuristic = heuristic;
             this.metric = metric;
             this.s = s;
             this.goal = goal;
-            this.vmaxMetersPerSec = vmaxMetersPerSec;
 
             G.validateVertex(s);
             G.validateVertex(goal);
 
-            if (vs.V() != G.V()) {
-                throw new IllegalArgumentException("VertexStore size (" + vs.V() + ") must equal graph.V() (" + G.V() + ")");
-            }
-
-            if (metric == RoutingEngine.Metric.TIME && !(vmaxMetersPerSec > 0.0)) {
-                throw new IllegalArgumentException("vmaxMetersPerSec must be > 0 for TIME heuristic");
-            }
+            if (heuristic == null) throw new IllegalArgumentException("heuristic cannot be null");
 
-            int V = G.V();
-            this.gScore = new double[V];
-            this.parentEdgeId = new int[V];
-            this.open = new IndexMinPQ<>(V);
+            requireWorkspace(ws, G.V());
 
-            for (int v = 0; v < V; v++) {
-                gScore[v] = Double.POSITIVE_INFINITY;
-                parentEdgeId[v] = -1;
-            }
+            this.ws = ws;
+            this.open = ws.heap();
+            ws.reset();
 
-            gScore[s] = 0.0;
+            ws.set(s, 0.0, -1);
             open.insert(s, fScore(s));
 
             while (!open.isEmpty()) {
                 int v = open.delMin();
+                settledCount++;
                 if (v == goal) break;
                 relax(v);
             }
         }
 
+        /**
+         * Builds the straight-line heuristic.
+         *
+         * <p>Uses Euclidean distance for DISTANCE metric, or Euclidean distance
+         * divided by maximum speed for TIME metric.</p>
+         *
+         * @param G                the graph the heuristic is for
+         * @param vs               vertex coordinate store
+         * @param metric           the routing metric
+         * @param vmaxMetersPerSec maximum speed in meters/second (used for TIME metric)
+         * @return the heuristic
+         * @throws IllegalArgumentException if VertexStore size doesn't match graph, or
+         *                                  vmaxMetersPerSec is non-positive when using
+         *                                  TIME metric
+         */
+
+        private static Heuristic straightLine(WeightedDigraph G, VertexStore vs,
+                                              RoutingEngine.Metric metric, double vmaxMetersPerSec) {
+            if (vs.V() != G.V()) {
+                throw new IllegalArgumentException("VertexStore size (" + vs.V() + ") must equal graph.V() (" + G.V() + ")");
+            }
+
+            if (metric == RoutingEngine.Metric.TIME && !(vmaxMetersPerSec > 0.0)) {
+                throw new IllegalArgumentException("vmaxMetersPerSec must be > 0 for TIME heuristic");
+            }
+
+            double scale = (metric == RoutingEngine.Metric.DISTANCE) ? 1.0 : 1.0 / vmaxMetersPerSec;
+            return (v, goal) -> Math.hypot(vs.x(v) - vs.x(goal), vs.y(v) - vs.y(goal)) * scale;
+        }
+
         /**
          * Returns the edge cost based on the current routing metric.
          *
@@ -332,25 +611,6 @@ public class ShortestPathAlgorithms {
                     : attrs.timeSeconds(edgeId);
         }
 
-        /**
-         * Computes the admissible heuristic estimate from vertex {@code v} to goal.
-         *
-         * <p>Uses Euclidean distance for DISTANCE metric, or Euclidean distance
-         * divided by maximum speed for TIME metric.</p>
-         *
-         * @param v the vertex
-         * @return the heuristic estimate
-         */
-
-        private double heuristic(int v) {
-            double dx = vs.x(v) - vs.x(goal);
-            double dy = vs.y(v) - vs.y(goal);
-            double straightLine = Math.hypot(dx, dy);
-
-            if (metric == RoutingEngine.Metric.DISTANCE) return straightLine;
-            return straightLine / vmaxMetersPerSec;
-        }
-
         /**
          * Computes the f-score for vertex {@code v}.
          *
@@ -362,7 +622,7 @@ public class ShortestPathAlgorithms {
          */
 
         private double fScore(int v) {
-            return gScore[v] + heuristic(v);
+            return ws.dist(v) + heuristic.lowerBound(v, goal);
         }
 
         /**
@@ -372,16 +632,18 @@ public class ShortestPathAlgorithms {
          */
 
         private void relax(int v) {
-            for (Edge e : G.outEdges(v)) {
-                int w = e.otherEnd();
-                int eid = e.edgeID();
+            double gv = ws.dist(v);
+            for (int i = csr.firstOut(v), end = csr.endOut(v); i < end; i++) {
+                int w = csr.head(i);
+                int eid = csr.edgeId(i);
 
-                double candidate = gScore[v] + edgeCost(eid);
-                if (candidate < gScore[w]) {
-                    gScore[w] = candidate;
-                    parentEdgeId[w] = eid;
+                double candidate = gv + edgeCost(eid);
+                if (candidate < ws.dist(w)) {
+                    ws.set(w, candidate, eid);
 
+                    // An infinite bound proves w cannot reach the goal
                     double f = fScore(w);
+                    if (f == Double.POSITIVE_INFINITY) continue;
                     if (open.contains(w)) open.decreaseKey(w, f);
                     else open.insert(w, f);
                 }
@@ -395,7 +657,7 @@ public class ShortestPathAlgorithms {
          */
 
         public boolean hasPathToGoal() {
-            return gScore[goal] < Double.POSITIVE_INFINITY;
+            return ws.dist(goal) < Double.POSITIVE_INFINITY;
         }
 
         /**
@@ -405,7 +667,17 @@ public class ShortestPathAlgorithms {
          */
 
         public double costToGoal() {
-            return gScore[goal];
+            return ws.dist(goal);
+        }
+
+        /**
+         * Returns the number of vertices the search settled.
+         *
+         * @return the settled vertex count
+         */
+
+        public int settledCount() {
+            return settledCount;
         }
 
         /**
@@ -423,18 +695,888 @@ public class ShortestPathAlgorithms {
             int cur = goal;
 
             while (cur != s) {
-                int eid = parentEdgeId[cur];
+                int eid = ws.parentEdge(cur);
                 if (eid == -1) {
                     throw new IllegalStateException("Goal has parent edge id -1 despite being reachable");
                 }
                 stack.push(eid);
 
-                Edge e = G.edgeByID(eid);
-                cur = e.firstEnd();
+                cur = csr.edgeTail(eid);
             }
 
             Collections.reverse(stack);
             return stack;
         }
+
+        /**
+         * Returns the edge IDs on the shortest path from source to goal as a primitive array.
+         *
+         * @return edge IDs in order from source to goal; empty if unreachable or goal equals source
+         */
+
+        public int[] pathEdgeIdArrayToGoal() {
+            return ws.pathEdgeIdsTo(csr, goal);
+        }
+    }
+
+    /**
+     * Computes the shortest path from any of several sources to any of several
+     * targets in a single A* search.
+     *
+     * <p>Each source starts with its own initial cost and each target adds its
+     * own final cost, as if a virtual source were joined to every source by an
+     * edge of that cost and every target to a virtual goal likewise. This is
+     * how a query point snapped onto the middle of an edge is routed: both
+     * endpoints of the start edge are seeded with the partial edge length to
+     * reach them, and each endpoint of the goal edge ends the route with the
+     * partial length left to the goal point.</p>
+     *
+     * <p>The heuristic for vertex {@code v} is the smallest
+     * {@code lowerBound(v, target) + targetOffset} over all targets, which is
+     * admissible (and consistent) whenever the underlying bound is. The search
+     * stops once the smallest f-score in the open set reaches the best complete
+     * cost found.</p>
+     */
+
+    public static class MultiEndpointAstar {
+        private final SearchWorkspace ws;
+        private final IndexedDaryHeap open;
+
+        private final CsrDigraph csr;
+        private final EdgeAttributes attrs;
+        private final Heuristic heuristic;
+        private final RoutingEngine.Metric metric;
+        private final int[] targets;
+        private final double[] targetOffsets;
+
+        /** Best complete cost (including the target offset) found so far. */
+        private double best = Double.POSITIVE_INFINITY;
+
+        /** Target the best path ends at (-1 if none). */
+        private int bestTarget = -1;
+
+        /** Number of vertices settled (removed from the open set). */
+        private int settledCount;
+
+        /**
+         * Computes the shortest path between the endpoint sets guided by the
+         * straight-line heuristic.
+         *
+         * @param G                 the weighted directed graph
+         * @param attrs             edge attributes containing distance/time information
+         * @param vs                vertex coordinate store for heuristic computation
+         * @param metric            the routing metric (DISTANCE or TIME)
+         * @param sources           the source vertices
+         * @param sourceOffsets     the initial cost of each source
+         * @param targets           the target vertices
+         * @param targetOffsets     the final cost added at each target
+         * @param vmaxMetersPerSec  maximum speed in meters/second (used for TIME metric)
+         * @param ws                the workspace to run in (must support {@code G.V()} vertices)
+         * @throws IllegalArgumentException if an endpoint array is null, empty, or its
+         *                                  offsets differ in length, a vertex is invalid,
+         *                                  an offset is negative or NaN, VertexStore size
+         *                                  doesn't match graph, vmaxMetersPerSec is
+         *                                  non-positive when using TIME metric, or the
+         *                                  workspace is too small
+         */
+
+        public MultiEndpointAstar(WeightedDigraph G,
+                                  EdgeAttributes attrs,
+                                  VertexStore vs,
+                                  RoutingEngine.Metric metric,
+                                  int[] sources, double[] sourceOffsets,
+                                  int[] targets, double[] targetOffsets,
+                                  double vmaxMetersPerSec,
+                                  SearchWorkspace ws) {
+            this(G, attrs, Astar.straightLine(G, vs, metric, vmaxMetersPerSec), metric,
+                    sources, sourceOffsets, targets, targetOffsets, ws);
+        }
+
+        /**
+         * Computes the shortest path between the endpoint sets guided by the
+         * given heuristic. A heuristic that always returns {@code 0} makes this
+         * a multi-source Dijkstra.
+         *
+         * <p>The workspace is reset before the search starts.</p>
+         *
+         * @param G             the weighted directed graph
+         * @param attrs         edge attributes containing distance/time information
+         * @param heuristic     an admissible lower bound for {@code metric}
+         * @param metric        the routing metric (DISTANCE or TIME)
+         * @param sources       the source vertices
+         * @param sourceOffsets the initial cost of each source
+         * @param targets       the target vertices
+         * @param targetOffsets the final cost added at each target
+         * @param ws            the workspace to run in (must support {@code G.V()} vertices)
+         * @throws IllegalArgumentException if an endpoint array is null, empty, or its
+         *                                  offsets differ in length, a vertex is invalid,
+         *                                  an offset is negative or NaN, {@code heuristic}
+         *                                  is null, or the workspace is too small
+         */
+
+        public MultiEndpointAstar(WeightedDigraph G,
+                                  EdgeAttributes attrs,
+                                  Heuristic heuristic,
+                                  RoutingEngine.Metric metric,
+                                  int[] sources, double[] sourceOffsets,
+                                  int[] targets, double[] targetOffsets,
+                                  SearchWorkspace ws) {
+
+            this.csr = G.csr();
+            this.attrs = attrs;
+            this.heuristic = heuristic;
+            this.metric = metric;
+            this.targets = targets;
+            this.targetOffsets = targetOffsets;
+
+            validateEndpoints(G, sources, sourceOffsets, "sources");
+            validateEndpoints(G, targets, targetOffsets, "targets");
+
+            if (heuristic == null) throw new IllegalArgumentException("heuristic cannot be null");
+
+            requireWorkspace(ws, G.V());
+
+            this.ws = ws;
+            this.open = ws.heap();
+            ws.reset();
+
+            for (int i = 0; i < sources.length; i++) {
+                int s = sources[i];
+                if (sourceOffsets[i] >= ws.dist(s)) continue;
+                ws.set(s, sourceOffsets[i], -1);
+
+                double f = fScore(s);
+                if (f == Double.POSITIVE_INFINITY) continue;
+                if (open.contains(s)) open.decreaseKey(s, f);
+                else open.insert(s, f);
+            }
+
+            while (!open.isEmpty() && open.minKey() < best) {
+                int v = open.delMin();
+                settledCount++;
+
+                double gv = ws.dist(v);
+                for (int j = 0; j < targets.length; j++) {
+                    if (targets[j] == v && gv + targetOffsets[j] < best) {
+                        best = gv + targetOffsets[j];
+                        bestTarget = v;
+                    }
+                }
+                relax(v);
+            }
+        }
+
+        /**
+         * Checks one endpoint set.
+         *
+         * @param G        the graph
+         * @param vertices the endpoint vertices
+         * @param offsets  their offsets
+         * @param what     name used in error messages
+         * @throws IllegalArgumentException if the set is malformed
+         */
+
+        private static void validateEndpoints(WeightedDigraph G, int[] vertices, double[] offsets, String what) {
+            if (vertices == null || offsets == null) throw new IllegalArgumentException(what + " cannot be null");
+            if (vertices.length == 0) throw new IllegalArgumentException(what + " cannot be empty");
+            if (vertices.length != offsets.length) {
+                throw new IllegalArgumentException(what + " and their offsets must have the same length");
+            }
+            for (int i = 0; i < vertices.length; i++) {
+                G.validateVertex(vertices[i]);
+                if (!(offsets[i] >= 0.0)) throw new IllegalArgumentException(what + " offsets must be non-negative");
+            }
+        }
+
+        /**
+         * Returns the edge cost based on the current routing metric.
+         *
+         * @param edgeId the edge ID
+         * @return the cost (distance in meters or time in seconds)
+         */
+
+        private double edgeCost(int edgeId) {
+            return (metric == RoutingEngine.Metric.DISTANCE)
+                    ? attrs.distanceMeters(edgeId)
+                    : attrs.timeSeconds(edgeId);
+        }
+
+        /**
+         * Computes the f-score for vertex {@code v} against the closest target.
+         *
+         * @param v the vertex
+         * @return the f-score, or {@code Double.POSITIVE_INFINITY} if no target is reachable
+         */
+
+        private double fScore(int v) {
+            double h = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < targets.length; j++) {
+                h = Math.min(h, heuristic.lowerBound(v, targets[j]) + targetOffsets[j]);
+            }
+            return ws.dist(v) + h;
+        }
+
+        /**
+         * Relaxes all outgoing edges from vertex {@code v}.
+         *
+         * @param v the vertex to relax from
+         */
+
+        private void relax(int v) {
+            double gv = ws.dist(v);
+            for (int i = csr.firstOut(v), end = csr.endOut(v); i < end; i++) {
+                int w = csr.head(i);
+                int eid = csr.edgeId(i);
+
+                double candidate = gv + edgeCost(eid);
+                if (candidate < ws.dist(w)) {
+                    ws.set(w, candidate, eid);
+
+                    double f = fScore(w);
+                    if (f == Double.POSITIVE_INFINITY || f >= best) continue;
+                    if (open.contains(w)) open.decreaseKey(w, f);
+                    else open.insert(w, f);
+                }
+            }
+        }
+
+        /**
+         * Returns true if some target is reachable from some source.
+         *
+         * @return {@code true} if a path exists; {@code false} otherwise
+         */
+
+        public boolean hasPath() {
+            return bestTarget != -1;
+        }
+
+        /**
+         * Returns the cost of the best path, including both offsets.
+         *
+         * @return the path cost (or {@code Double.POSITIVE_INFINITY} if unreachable)
+         */
+
+        public double cost() {
+            return best;
+        }
+
+        /**
+         * Returns the source the best path starts at.
+         *
+         * @return the source vertex, or -1 if no path exists
+         */
+
+        public int source() {
+            if (!hasPath()) return -1;
+            int cur = bestTarget;
+            for (int eid; (eid = ws.parentEdge(cur)) != -1; ) cur = csr.edgeTail(eid);
+            return cur;
+        }
+
+        /**
+         * Returns the target the best path ends at.
+         *
+         * @return the target vertex, or -1 if no path exists
+         */
+
+        public int target() {
+            return bestTarget;
+        }
+
+        /**
+         * Returns the number of vertices the search settled.
+         *
+         * @return the settled vertex count
+         */
+
+        public int settledCount() {
+            return settledCount;
+        }
+
+        /**
+         * Returns the edge IDs on the best path as a primitive array.
+         *
+         * @return edge IDs in order from {@link #source()} to {@link #target()};
+         *         empty if no path exists or they coincide
+         */
+
+        public int[] pathEdgeIdArray() {
+            return hasPath() ? ws.pathEdgeIdsTo(csr, bestTarget) : new int[0];
+        }
+    }
+
+    /**
+     * Settles every vertex whose cost from a set of seeded sources is within a
+     * limit, as needed for isochrones ("everything within 10 minutes").
+     *
+     * <p>Sources are entered at their own initial cost, exactly as in
+     * {@link MultiEndpointAstar}, so a point snapped onto the middle of an
+     * edge seeds both endpoints with the partial edge cost. Vertices whose
+     * tentative cost exceeds the limit are never written to the workspace or
+     * queued, so once the search ends every reached vertex is settled and
+     * the work done is proportional to the area inside the limit.</p>
+     *
+     * <p>Search state lives in a {@link SearchWorkspace}. Results read through
+     * this object stay valid until that workspace is reset for another query.</p>
+     */
+
+    public static class BoundedDijkstra {
+        private final SearchWorkspace ws;
+        private final IndexedDaryHeap pq;
+
+        private final WeightedDigraph G;
+        private final CsrDigraph csr;
+        private final EdgeAttributes attrs;
+        private final RoutingEngine.Metric metric;
+        private final double limit;
+
+        /** Settled vertices in order of cost. */
+        private int[] settled = new int[64];
+
+        /** Number of vertices settled (removed from the queue). */
+        private int settledCount;
+
+        /**
+         * Settles every vertex within {@code limit} of the sources.
+         *
+         * <p>The workspace is reset before the search starts. Sources whose
+         * offset exceeds the limit are ignored.</p>
+         *
+         * @param G             the weighted directed graph
+         * @param attrs         edge attributes containing distance/time information
+         * @param metric        the routing metric (DISTANCE or TIME)
+         * @param sources       the source vertices
+         * @param sourceOffsets the initial cost of each source
+         * @param limit         the largest cost to settle (meters or seconds)
+         * @param ws            the workspace to run in (must support {@code G.V()} vertices)
+         * @throws IllegalArgumentException if the sources are null, empty, or their offsets
+         *                                  differ in length, a vertex is invalid, an offset
+         *                                  or {@code limit} is negative or NaN, or the
+         *                                  workspace is too small
+         */
+
+        public BoundedDijkstra(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric,
+                               int[] sources, double[] sourceOffsets, double limit, SearchWorkspace ws) {
+            this.G = G;
+            this.csr = G.csr();
+            this.attrs = attrs;
+            this.metric = metric;
+            this.limit = limit;
+
+            MultiEndpointAstar.validateEndpoints(G, sources, sourceOffsets, "sources");
+            if (!(limit >= 0.0)) throw new IllegalArgumentException("limit must be non-negative");
+            requireWorkspace(ws, G.V());
+
+            this.ws = ws;
+            this.pq = ws.heap();
+            ws.reset();
+
+            for (int i = 0; i < sources.length; i++) {
+                int s = sources[i];
+                double d = sourceOffsets[i];
+                if (d > limit || d >= ws.dist(s)) continue;
+                ws.set(s, d, -1);
+                if (pq.contains(s)) pq.decreaseKey(s, d);
+                else pq.insert(s, d);
+            }
+
+            while (!pq.isEmpty()) {
+                int v = pq.delMin();
+                if (settledCount == settled.length) settled = Arrays.copyOf(settled, settledCount * 2);
+                settled[settledCount++] = v;
+                relax(v);
+            }
+        }
+
+        /**
+         * Returns the edge cost based on the current routing metric.
+         *
+         * @param edgeId the edge ID
+         * @return the cost (distance in meters or time in seconds)
+         */
+
+        private double edgeCost(int edgeId) {
+            return (metric == RoutingEngine.Metric.DISTANCE)
+                    ? attrs.distanceMeters(edgeId)
+                    : attrs.timeSeconds(edgeId);
+        }
+
+        /**
+         * Relaxes all outgoing edges from vertex {@code v}, skipping heads
+         * that would end up beyond the limit.
+         *
+         * @param v the vertex to relax from
+         */
+
+        private void relax(int v) {
+            double dv = ws.dist(v);
+            for (int i = csr.firstOut(v), end = csr.endOut(v); i < end; i++) {
+                int w = csr.head(i);
+                int eid = csr.edgeId(i);
+
+                double candidate = dv + edgeCost(eid);
+                if (candidate <= limit && candidate < ws.dist(w)) {
+                    ws.set(w, candidate, eid);
+
+                    if (pq.contains(w)) pq.decreaseKey(w, candidate);
+                    else pq.insert(w, candidate);
+                }
+            }
+        }
+
+        /**
+         * Returns the cost limit of the search.
+         *
+         * @return the limit (meters or seconds)
+         */
+
+        public double limit() {
+            return limit;
+        }
+
+        /**
+         * Returns true if vertex {@code v} is within the limit.
+         *
+         * @param v the vertex
+         * @return {@code true} if settled; {@code false} otherwise
+         * @throws IllegalArgumentException if {@code v} is not a valid vertex
+         */
+
+        public boolean isSettled(int v) {
+            G.validateVertex(v);
+            return ws.reached(v);
+        }
+
+        /**
+         * Returns the number of vertices within the limit.
+         *
+         * @return the settled vertex count
+         */
+
+        public int settledCount() {
+            return settledCount;
+        }
+
+        /**
+         * Returns the vertices within the limit in order of cost.
+         *
+         * @return a new array of settled vertices
+         */
+
+        public int[] settledVertices() {
+            return Arrays.copyOf(settled, settledCount);
+        }
+
+        /**
+         * Returns the cost from the sources to vertex {@code v}.
+         *
+         * @param v the vertex
+         * @return the cost, or {@code Double.POSITIVE_INFINITY} if beyond the limit
+         * @throws IllegalArgumentException if {@code v} is not a valid vertex
+         */
+
+        public double distTo(int v) {
+            G.validateVertex(v);
+            return ws.dist(v);
+        }
+    }
+
+    /**
+     * Computes the shortest path between two vertices with bidirectional Dijkstra.
+     *
+     * <p>Runs a forward search from the source over out-edges and a backward
+     * search from the goal over in-edges ({@link CsrDigraph#firstIn}), always
+     * expanding the side whose queue minimum is smaller. Every relaxation that
+     * touches a vertex already reached by the other side updates the best
+     * known s-t cost {@code mu}; the search stops once the two queue minima
+     * add up to at least {@code mu}. Two balls of half the radius settle
+     * roughly half as many vertices as one full-radius ball.</p>
+     *
+     * <p>Each direction keeps its state in its own {@link SearchWorkspace}.</p>
+     */
+
+    public static class BidirectionalDijkstra {
+        private final SearchWorkspace fwd;
+        private final SearchWorkspace bwd;
+
+        private final WeightedDigraph G;
+        private final CsrDigraph csr;
+        private final EdgeAttributes attrs;
+        private final RoutingEngine.Metric metric;
+        private final int s;
+        private final int goal;
+
+        /** Vertex coordinates for potentials, or {@code null} for plain Dijkstra. */
+        private final VertexStore vs;
+
+        /** Multiplier turning straight-line meters into a cost lower bound. */
+        private final double heuristicScale;
+
+        /** Best s-t cost found so far. */
+        private double mu = Double.POSITIVE_INFINITY;
+
+        /** Vertex where the best forward and backward paths join (-1 if none). */
+        private int meet = -1;
+
+        /** Number of vertices settled by both directions together. */
+        private int settledCount;
+
+        /**
+         * Computes the shortest path from source {@code s} to {@code goal}.
+         *
+         * @param G      the weighted directed graph
+         * @param attrs  edge attributes containing distance/time information
+         * @param metric the routing metric (DISTANCE or TIME)
+         * @param s      the source vertex
+         * @param goal   the destination vertex
+         * @throws IllegalArgumentException if {@code s} or {@code goal} is not a valid vertex
+         */
+
+        public BidirectionalDijkstra(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric,
+                                     int s, int goal) {
+            this(G, attrs, metric, s, goal, new SearchWorkspace(G.V()), new SearchWorkspace(G.V()));
+        }
+
+        /**
+         * Computes the shortest path from source {@code s} to {@code goal} using
+         * caller-supplied workspaces.
+         *
+         * @param G      the weighted directed graph
+         * @param attrs  edge attributes containing distance/time information
+         * @param metric the routing metric (DISTANCE or TIME)
+         * @param s      the source vertex
+         * @param goal   the destination vertex
+         * @param fwd    the workspace for the forward search
+         * @param bwd    the workspace for the backward search (distinct from {@code fwd})
+         * @throws IllegalArgumentException if a vertex is invalid, a workspace is too
+         *                                  small, or both workspaces are the same object
+         */
+
+        public BidirectionalDijkstra(WeightedDigraph G, EdgeAttributes attrs, RoutingEngine.Metric metric,
+                                     int s, int goal, SearchWorkspace fwd, SearchWorkspace bwd) {
+            this(G, attrs, null, metric, s, goal, 1.0, fwd, bwd);
+        }
+
+        /**
+         * Shared constructor; a non-null {@code vs} turns on A* potentials.
+         *
+         * @param G                the weighted directed graph
+         * @param attrs            edge attributes containing distance/time information
+         * @param vs               vertex coordinates for potentials, or {@code null}
+         * @param metric           the routing metric (DISTANCE or TIME)
+         * @param s                the source vertex
+         * @param goal             the destination vertex
+         * @param vmaxMetersPerSec maximum speed in meters/second (used for TIME potentials)
+         * @param fwd              the workspace for the forward search
+         * @param bwd              the workspace for the backward search
+         */
+
+        BidirectionalDijkstra(WeightedDigraph G, EdgeAttributes attrs, VertexStore vs,
+                              RoutingEngine.Metric metric, int s, int goal, double vmaxMetersPerSec,
+                              SearchWorkspace fwd, SearchWorkspace bwd) {
+            this.G = G;
+            this.csr = G.csr();
+            this.attrs = attrs;
+            this.vs = vs;
+            this.metric = metric;
+            this.s = s;
+            this.goal = goal;
+
+            G.validateVertex(s);
+            G.validateVertex(goal);
+
+            if (vs != null) {
+                if (vs.V() != G.V()) {
+                    throw new IllegalArgumentException("VertexStore size (" + vs.V() + ") must equal graph.V() (" + G.V() + ")");
+                }
+                if (metric == RoutingEngine.Metric.TIME && !(vmaxMetersPerSec > 0.0)) {
+                    throw new IllegalArgumentException("vmaxMetersPerSec must be > 0 for TIME heuristic");
+                }
+            }
+            this.heuristicScale = (metric == RoutingEngine.Metric.TIME) ? 1.0 / vmaxMetersPerSec : 1.0;
+
+            requireWorkspace(fwd, G.V());
+            requireWorkspace(bwd, G.V());
+            if (fwd == bwd) throw new IllegalArgumentException("forward and backward workspaces must differ");
+
+            this.fwd = fwd;
+            this.bwd = bwd;
+
+            search();
+        }
+
+        /**
+         * Runs the two searches until the stopping criterion holds.
+         */
+
+        private void search() {
+            IndexedDaryHeap pf = fwd.heap();
+            IndexedDaryHeap pr = bwd.heap();
+            fwd.reset();
+            bwd.reset();
+
+            fwd.set(s, 0.0, -1);
+            pf.insert(s, potential(s));
+            bwd.set(goal, 0.0, -1);
+            pr.insert(goal, -potential(goal));
+
+            if (s == goal) {
+                mu = 0.0;
+                meet = s;
+                return;
+            }
+
+            // Keys are d(v) + p(v) forward and d(v) - p(v) backward, so the sum of
+            // the two minima bounds every s-t path not yet seen from below.
+            while (!pf.isEmpty() && !pr.isEmpty()) {
+                double topF = pf.minKey();
+                double topR = pr.minKey();
+                if (topF + topR >= mu) break;
+
+                settledCount++;
+                if (topF <= topR) scanForward(pf.delMin(), pf);
+                else scanBackward(pr.delMin(), pr);
+            }
+        }
+
+        /**
+         * Relaxes the out-edges of {@code v} in the forward search.
+         *
+         * @param v  the settled vertex
+         * @param pf the forward queue
+         */
+
+        private void scanForward(int v, IndexedDaryHeap pf) {
+            double dv = fwd.dist(v);
+            for (int i = csr.firstOut(v), end = csr.endOut(v); i < end; i++) {
+                int w = csr.head(i);
+                int eid = csr.edgeId(i);
+
+                double candidate = dv + edgeCost(eid);
+                if (candidate < fwd.dist(w)) {
+                    fwd.set(w, candidate, eid);
+
+                    double key = candidate + potential(w);
+                    if (pf.contains(w)) pf.decreaseKey(w, key);
+                    else pf.insert(w, key);
+                }
+
+                if (bwd.reached(w)) updateMeeting(w);
+            }
+        }
+
+        /**
+         * Relaxes the in-edges of {@code v} in the backward search.
+         *
+         * @param v  the settled vertex
+         * @param pr the backward queue
+         */
+
+        private void scanBackward(int v, IndexedDaryHeap pr) {
+            double dv = bwd.dist(v);
+            for (int i = csr.firstIn(v), end = csr.endIn(v); i < end; i++) {
+                int u = csr.tail(i);
+                int eid = csr.inEdgeId(i);
+
+                double candidate = dv + edgeCost(eid);
+                if (candidate < bwd.dist(u)) {
+                    bwd.set(u, candidate, eid);
+
+                    double key = candidate - potential(u);
+                    if (pr.contains(u)) pr.decreaseKey(u, key);
+                    else pr.insert(u, key);
+                }
+
+                if (fwd.reached(u)) updateMeeting(u);
+            }
+        }
+
+        /**
+         * Records {@code v} as the meeting vertex if it improves the best s-t cost.
+         *
+         * @param v a vertex reached by both searches
+         */
+
+        private void updateMeeting(int v) {
+            double through = fwd.dist(v) + bwd.dist(v);
+            if (through < mu) {
+                mu = through;
+                meet = v;
+            }
+        }
+
+        /**
+         * Returns the forward potential of vertex {@code v}.
+         *
+         * <p>Zero for plain Dijkstra. With coordinates, the average
+         * {@code (h_goal(v) - h_source(v)) / 2} of the two straight-line bounds,
+         * which is consistent for both directions (the backward search uses its
+         * negation).</p>
+         *
+         * @param v the vertex
+         * @return the potential
+         */
+
+        private double potential(int v) {
+            if (vs == null) return 0.0;
+
+            double toGoal = Math.hypot(vs.x(v) - vs.x(goal), vs.y(v) - vs.y(goal));
+            double fromSource = Math.hypot(vs.x(v) - vs.x(s), vs.y(v) - vs.y(s));
+            return 0.5 * (toGoal - fromSource) * heuristicScale;
+        }
+
+        /**
+         * Returns the edge cost based on the current routing metric.
+         *
+         * @param edgeId the edge ID
+         * @return the cost (distance in meters or time in seconds)
+         */
+
+        private double edgeCost(int edgeId) {
+            return (metric == RoutingEngine.Metric.DISTANCE)
+                    ? attrs.distanceMeters(edgeId)
+                    : attrs.timeSeconds(edgeId);
+        }
+
+        /**
+         * Returns true if a path exists from source to goal.
+         *
+         * @return {@code true} if a path exists; {@code false} otherwise
+         */
+
+        public boolean hasPathToGoal() {
+            return meet != -1;
+        }
+
+        /**
+         * Returns the total cost of the shortest path to the goal.
+         *
+         * @return the path cost (or {@code Double.POSITIVE_INFINITY} if unreachable)
+         */
+
+        public double costToGoal() {
+            return mu;
+        }
+
+        /**
+         * Returns the number of vertices settled by both searches together.
+         *
+         * @return the settled vertex count
+         */
+
+        public int settledCount() {
+            return settledCount;
+        }
+
+        /**
+         * Returns the edge IDs on the shortest path from source to goal.
+         *
+         * <p>Joins the forward search tree path {@code s → meet} with the
+         * backward tree path {@code meet → goal}.</p>
+         *
+         * @return edge IDs in order from source to goal; empty if unreachable or goal equals source
+         */
+
+        public int[] pathEdgeIdArrayToGoal() {
+            if (meet == -1) return new int[0];
+
+            int[] head = fwd.pathEdgeIdsTo(csr, meet);
+
+            int len = 0;
+            for (int cur = meet, eid; (eid = bwd.parentEdge(cur)) != -1; cur = csr.edgeHead(eid)) len++;
+
+            int[] out = Arrays.copyOf(head, head.length + len);
+            int k = head.length;
+            for (int cur = meet, eid; (eid = bwd.parentEdge(cur)) != -1; cur = csr.edgeHead(eid)) out[k++] = eid;
+            return out;
+        }
+    }
+
+    /**
+     * Computes the shortest path between two vertices with bidirectional A*.
+     *
+     * <p>Same search as {@link BidirectionalDijkstra}, but both directions are
+     * guided by the average potential {@code p(v) = (h_goal(v) - h_source(v)) / 2}
+     * built from straight-line distances (divided by the maximum speed for
+     * TIME). Using {@code p} forward and {@code -p} backward keeps the reduced
+     * edge costs non-negative in both directions, so the usual
+     * "sum of queue minima ≥ mu" stopping rule stays exact.</p>
+     */
+
+    public static class BidirectionalAstar extends BidirectionalDijkstra {
+
+        /**
+         * Computes the shortest path from source {@code s} to {@code goal}.
+         *
+         * @param G                the weighted directed graph
+         * @param attrs            edge attributes containing distance/time information
+         * @param vs               vertex coordinate store for potentials
+         * @param metric           the routing metric (DISTANCE or TIME)
+         * @param s                the source vertex
+         * @param goal             the destination vertex
+         * @param vmaxMetersPerSec maximum speed in meters/second (used for TIME metric)
+         * @throws IllegalArgumentException if vertices are invalid, VertexStore size
+         *                                  doesn't match graph, or vmaxMetersPerSec is
+         *                                  non-positive when using TIME metric
+         */
+
+        public BidirectionalAstar(WeightedDigraph G, EdgeAttributes attrs, VertexStore vs,
+                                  RoutingEngine.Metric metric, int s, int goal, double vmaxMetersPerSec) {
+            this(G, attrs, vs, metric, s, goal, vmaxMetersPerSec,
+                    new SearchWorkspace(G.V()), new SearchWorkspace(G.V()));
+        }
+
+        /**
+         * Computes the shortest path from source {@code s} to {@code goal} using
+         * caller-supplied workspaces.
+         *
+         * @param G                the weighted directed graph
+         * @param attrs            edge attributes containing distance/time information
+         * @param vs               vertex coordinate store for potentials
+         * @param metric           the routing metric (DISTANCE or TIME)
+         * @param s                the source vertex
+         * @param goal             the destination vertex
+         * @param vmaxMetersPerSec maximum speed in meters/second (used for TIME metric)
+         * @param fwd              the workspace for the forward search
+         * @param bwd              the workspace for the backward search (distinct from {@code fwd})
+         * @throws IllegalArgumentException if vertices are invalid, VertexStore is null or
+         *                                  its size doesn't match graph, vmaxMetersPerSec is
+         *                                  non-positive when using TIME metric, or the
+         *                                  workspaces are invalid
+         */
+
+        public BidirectionalAstar(WeightedDigraph G, EdgeAttributes attrs, VertexStore vs,
+                                  RoutingEngine.Metric metric, int s, int goal, double vmaxMetersPerSec,
+                                  SearchWorkspace fwd, SearchWorkspace bwd) {
+            super(G, attrs, requireVertexStore(vs), metric, s, goal, vmaxMetersPerSec, fwd, bwd);
+        }
+
+        /**
+         * Rejects a missing vertex store before the search starts.
+         *
+         * @param vs the vertex store
+         * @return {@code vs}
+         * @throws IllegalArgumentException if {@code vs} is null
+         */
+
+        private static VertexStore requireVertexStore(VertexStore vs) {
+            if (vs == null) throw new IllegalArgumentException("VertexStore cannot be null");
+            return vs;
+        }
+    }
+
+    /**
+     * Checks that a workspace is present and large enough for a graph.
+     *
+     * @param ws the workspace
+     * @param V  the graph's vertex count
+     * @throws IllegalArgumentException if {@code ws} is null or smaller than {@code V}
+     */
+
+    private static void requireWorkspace(SearchWorkspace ws, int V) {
+        if (ws == null) throw new IllegalArgumentException("workspace cannot be null");
+        if (ws.V() < V) {
+            throw new IllegalArgumentException("SearchWorkspace size (" + ws.V() + ") must be at least graph.V() (" + V + ")");
+        }
     }
-}
\ No newline at end of file
+}
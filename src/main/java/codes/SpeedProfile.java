@@ -0,0 +1,153 @@
+package codes;
+
+/**
+ * Car speeds used to turn edge lengths into travel times.
+ *
+ * <p>A way's speed is its {@code maxspeed} tag when that can be parsed, and
+ * otherwise a default for its {@code highway} class. Accepted {@code maxspeed}
+ * forms:
+ * <ul>
+ *   <li>a number, in km/h ({@code "50"}, {@code "50 km/h"}, {@code "50kmh"})</li>
+ *   <li>a number in miles per hour ({@code "30 mph"})</li>
+ *   <li>{@code "walk"}: walking pace</li>
+ *   <li>{@code "none"}, {@code "signals"}, {@code "variable"}: no fixed limit, so the
+ *       highway default applies</li>
+ *   <li>implicit limits such as {@code "CA:urban"} and {@code "DE:rural"}</li>
+ *   <li>several values separated by {@code ;}: the first usable one wins</li>
+ * </ul>
+ * Anything else falls back to the highway default.</p>
+ *
+ * <p>Every speed is capped at {@link #MAX_SPEED_KMH}, so
+ * {@code MAX_SPEED_KMH / 3.6} m/s is a valid top speed for the straight-line
+ * TIME heuristic on any compiled graph;
+ * {@link EdgeAttributes#maxSpeedMetersPerSec()} gives the tighter bound a
+ * particular graph actually reaches.</p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     double kmh = SpeedProfile.speedKmh("residential", "30 mph");  // 48.28
+ *     double seconds = SpeedProfile.travelSeconds(250.0, kmh);
+ * </pre>
+ * </p>
+ */
+public final class SpeedProfile {
+
+    /** Highest speed any way is given (km/h). */
+    public static final double MAX_SPEED_KMH = 140.0;
+
+    /** Speed for {@code maxspeed=walk} (km/h). */
+    static final double WALK_KMH = 6.0;
+
+    /** Kilometres per mile. */
+    private static final double KM_PER_MILE = 1.609344;
+
+    private SpeedProfile() { }
+
+    /**
+     * Returns the default speed of a highway class.
+     *
+     * @param highway the {@code highway} tag value (may be null)
+     * @return speed in km/h
+     */
+    public static double defaultKmh(String highway) {
+        if (highway == null) return 50.0;
+        return switch (highway) {
+            case "motorway" -> 110.0;
+            case "trunk" -> 90.0;
+            case "primary" -> 80.0;
+            case "secondary" -> 70.0;
+            case "tertiary" -> 60.0;
+            case "motorway_link" -> 60.0;
+            case "trunk_link", "primary_link", "unclassified" -> 50.0;
+            case "secondary_link", "residential" -> 40.0;
+            case "tertiary_link" -> 30.0;
+            case "service" -> 20.0;
+            case "living_street" -> 10.0;
+            default -> 50.0;
+        };
+    }
+
+    /**
+     * Returns the speed for a way.
+     *
+     * @param highway  the {@code highway} tag value (may be null)
+     * @param maxspeed the {@code maxspeed} tag value (may be null)
+     * @return speed in km/h, in {@code (0, MAX_SPEED_KMH]}
+     */
+    public static double speedKmh(String highway, String maxspeed) {
+        double kmh = parseMaxspeedKmh(maxspeed);
+        if (Double.isNaN(kmh)) kmh = defaultKmh(highway);
+        return Math.min(kmh, MAX_SPEED_KMH);
+    }
+
+    /**
+     * Parses a {@code maxspeed} tag value.
+     *
+     * @param maxspeed the tag value (may be null)
+     * @return the limit in km/h, or {@code NaN} if the value gives no usable limit
+     */
+    public static double parseMaxspeedKmh(String maxspeed) {
+        if (maxspeed == null) return Double.NaN;
+        for (String part : maxspeed.split(";")) {
+            double kmh = parseSingle(part.trim());
+            if (!Double.isNaN(kmh)) return kmh;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the time to travel a distance at a speed.
+     *
+     * @param meters the distance in meters
+     * @param kmh    the speed in km/h (positive)
+     * @return travel time in seconds
+     */
+    public static double travelSeconds(double meters, double kmh) {
+        return meters * 3.6 / kmh;
+    }
+
+    /**
+     * Parses one {@code maxspeed} value (no {@code ;}).
+     *
+     * @param s the trimmed value
+     * @return the limit in km/h, or {@code NaN}
+     */
+    private static double parseSingle(String s) {
+        if (s.isEmpty()) return Double.NaN;
+        if (s.equals("walk")) return WALK_KMH;
+
+        // Implicit limits, e.g. "CA:urban", "DE:rural", "FR:zone30"
+        int colon = s.indexOf(':');
+        if (colon >= 0) {
+            String kind = s.substring(colon + 1);
+            return switch (kind) {
+                case "urban" -> 50.0;
+                case "rural" -> 80.0;
+                case "living_street" -> 10.0;
+                case "walk" -> WALK_KMH;
+                default -> kind.startsWith("zone") ? parseSingle(kind.substring(4)) : Double.NaN;
+            };
+        }
+
+        // Leading number, then an optional unit
+        int end = 0;
+        while (end < s.length() && (Character.isDigit(s.charAt(end)) || s.charAt(end) == '.')) end++;
+        if (end == 0) return Double.NaN;
+
+        double value;
+        try {
+            value = Double.parseDouble(s.substring(0, end));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+        if (!(value > 0.0)) return Double.NaN;
+
+        String unit = s.substring(end).trim();
+        return switch (unit) {
+            case "", "km/h", "kmh", "kph" -> value;
+            case "mph" -> value * KM_PER_MILE;
+            case "knots" -> value * 1.852;
+            default -> Double.NaN;
+        };
+    }
+}
@@ -7,16 +7,19 @@ import static java.lang.Math.max;
 /**
  * A validation harness for testing routing algorithm correctness.
  *
- * <p>Runs randomized tests comparing Dijkstra's algorithm against A* search
- * to verify they produce equivalent results. Also validates path integrity
- * by checking edge connectivity and cost consistency.</p>
+ * <p>Runs randomized tests comparing Dijkstra's algorithm against A* search and
+ * the bidirectional variants of both to verify they produce equivalent results.
+ * Also validates path integrity by checking edge connectivity and cost
+ * consistency, and reports how many vertices each algorithm settles. A second
+ * pass repeats the comparison for the TIME metric, where the straight-line
+ * heuristic is weakest and landmark-guided A* (ALT) pays off most.</p>
  *
  * <p>Validation checks performed:
  * <ul>
  *   <li><b>Reachability:</b> Both algorithms agree on whether a path exists</li>
  *   <li><b>Cost equality:</b> Both algorithms produce the same optimal cost</li>
  *   <li><b>Path integrity:</b> Edges form a valid connected path from start to goal</li>
- *   <li><b>Cost consistency:</b> Sum of edge distances equals reported total cost</li>
+ *   <li><b>Cost consistency:</b> Sum of edge costs equals reported total cost</li>
  * </ul>
  * </p>
  *
@@ -73,6 +76,35 @@ public class ValidationHarness {
     /** Maximum edge count seen in a single route. */
     private int maxEdgeCount;
 
+    /** Algorithms whose settled vertex counts are reported, in print order. */
+    private static final RoutingEngine.Algorithm[] COMPARED = {
+            RoutingEngine.Algorithm.DIJKSTRA,
+            RoutingEngine.Algorithm.ASTAR,
+            RoutingEngine.Algorithm.BIDIRECTIONAL_DIJKSTRA,
+            RoutingEngine.Algorithm.BIDIRECTIONAL_ASTAR,
+            RoutingEngine.Algorithm.CH,
+            RoutingEngine.Algorithm.ALT
+    };
+
+    /** Algorithms compared for the TIME metric, in print order. */
+    private static final RoutingEngine.Algorithm[] TIME_COMPARED = {
+            RoutingEngine.Algorithm.DIJKSTRA,
+            RoutingEngine.Algorithm.ASTAR,
+            RoutingEngine.Algorithm.ALT
+    };
+
+    /** Sum of settled vertices per algorithm (indexed like {@link #COMPARED}). */
+    private long[] sumSettled = new long[COMPARED.length];
+
+    /** Sum of query times per algorithm in nanoseconds (indexed like {@link #COMPARED}). */
+    private long[] sumNanos = new long[COMPARED.length];
+
+    /** Sum of settled vertices per TIME algorithm (indexed like {@link #TIME_COMPARED}). */
+    private long[] sumSettledTime = new long[TIME_COMPARED.length];
+
+    /** Sum of TIME query times in nanoseconds (indexed like {@link #TIME_COMPARED}). */
+    private long[] sumNanosTime = new long[TIME_COMPARED.length];
+
     /**
      * Constructs a validation harness for the given graph.
      *
@@ -86,7 +118,45 @@ public class ValidationHarness {
         vStore = vstore;
         starts = new int[NUM_TESTS];
         goals = new int[NUM_TESTS];
-        rEngine = new RoutingEngine(graph, eAttrs, vStore, 100);
+        double vmax = attrs.maxSpeedMetersPerSec();
+        rEngine = new RoutingEngine(graph, eAttrs, vStore, vmax > 0.0 ? vmax : SpeedProfile.MAX_SPEED_KMH / 3.6);
+    }
+
+    /**
+     * Attaches a contraction hierarchy so CH routes are validated as well.
+     *
+     * <p>Without a hierarchy, CH is skipped.</p>
+     *
+     * @param ch a hierarchy built from this harness's graph for the DISTANCE metric
+     */
+    public void useHierarchy(ContractionHierarchy ch) {
+        rEngine.attachHierarchy(ch);
+    }
+
+    /**
+     * Attaches landmark tables so ALT routes are validated for their metric.
+     *
+     * <p>Without landmarks for a metric, ALT is skipped for it.</p>
+     *
+     * @param lm landmark tables built from this harness's graph
+     */
+    public void useLandmarks(Landmarks lm) {
+        rEngine.attachLandmarks(lm);
+    }
+
+    /**
+     * Returns true if {@code algorithm} can run on this harness's engine.
+     *
+     * @param algorithm the algorithm
+     * @param metric    the metric
+     * @return {@code false} for CH or ALT without preprocessing for {@code metric}
+     */
+    private boolean available(RoutingEngine.Algorithm algorithm, RoutingEngine.Metric metric) {
+        return switch (algorithm) {
+            case CH -> rEngine.hierarchy(metric) != null;
+            case ALT -> rEngine.landmarks(metric) != null;
+            default -> true;
+        };
     }
 
     /**
@@ -96,9 +166,13 @@ public class ValidationHarness {
      * <ol>
      *   <li>Computes route using Dijkstra's algorithm</li>
      *   <li>Computes route using A* search</li>
+     *   <li>Computes routes using bidirectional Dijkstra and bidirectional A*</li>
+     *   <li>Computes route using Contraction Hierarchies (if a hierarchy is attached)</li>
+     *   <li>Computes route using ALT (if landmarks are attached)</li>
      *   <li>Validates reachability agreement</li>
      *   <li>Validates cost equality (within epsilon)</li>
-     *   <li>Validates path integrity for both routes</li>
+     *   <li>Validates path integrity for every route</li>
+     *   <li>Repeats Dijkstra, A* and ALT for the TIME metric</li>
      *   <li>Accumulates statistics</li>
      * </ol>
      * </p>
@@ -115,20 +189,18 @@ public class ValidationHarness {
         maxRouteMeters = 0.0;
         sumEdgeCount = 0;
         maxEdgeCount = 0;
+        sumSettled = new long[COMPARED.length];
+        sumNanos = new long[COMPARED.length];
+        sumSettledTime = new long[TIME_COMPARED.length];
+        sumNanosTime = new long[TIME_COMPARED.length];
 
         for (int i = 0; i < NUM_TESTS; i++) {
             int s = starts[i];
             int t = goals[i];
 
-            // Run both algorithms
-            RoutingEngine.Route dijkstraRoute = rEngine.routeDistanceDijkstra(s, t);
-            RoutingEngine.Route astarRoute = rEngine.routeDistanceAStar(s, t);
-
-            // Validate correctness
-            validateReachability(dijkstraRoute, astarRoute);
-            validateCostEquality(dijkstraRoute, astarRoute);
-            validatePathIntegrity(dijkstraRoute);
-            validatePathIntegrity(astarRoute);
+            RoutingEngine.Route dijkstraRoute =
+                    compare(s, t, RoutingEngine.Metric.DISTANCE, COMPARED, sumSettled, sumNanos);
+            compare(s, t, RoutingEngine.Metric.TIME, TIME_COMPARED, sumSettledTime, sumNanosTime);
 
             totalQueries++;
 
@@ -145,6 +217,40 @@ public class ValidationHarness {
         printSummary();
     }
 
+    /**
+     * Runs every available algorithm on one pair and validates each route
+     * against the first one (Dijkstra, the reference).
+     *
+     * @param s          the start vertex
+     * @param t          the goal vertex
+     * @param metric     the metric to route by
+     * @param algorithms the algorithms to run; the first is the reference
+     * @param settled    accumulates settled vertices per algorithm
+     * @param nanos      accumulates query time per algorithm
+     * @return the reference route
+     * @throws IllegalStateException if any validation check fails
+     */
+    private RoutingEngine.Route compare(int s, int t, RoutingEngine.Metric metric,
+                                        RoutingEngine.Algorithm[] algorithms, long[] settled, long[] nanos) {
+        RoutingEngine.Route reference = null;
+        for (int k = 0; k < algorithms.length; k++) {
+            if (!available(algorithms[k], metric)) continue;
+
+            long t0 = System.nanoTime();
+            RoutingEngine.Route route = rEngine.route(s, t, metric, algorithms[k]);
+            nanos[k] += System.nanoTime() - t0;
+            if (k == 0) reference = route;
+
+            // Validate correctness (reachability must agree both ways)
+            validateCostEquality(reference, route);
+            validateReachability(route, reference);
+            validatePathIntegrity(route);
+
+            settled[k] += route.settledVertices;
+        }
+        return reference;
+    }
+
     /**
      * Generates random start/goal vertex pairs for testing.
      *
@@ -179,8 +285,8 @@ public class ValidationHarness {
      */
     public void validateReachability(RoutingEngine.Route d, RoutingEngine.Route a) {
         if (d.found && !a.found) {
-            throw new IllegalStateException(
-                    "Reachability mismatch: Dijkstra found path but A* did not");
+            throw new IllegalStateException(String.format(
+                    "Reachability mismatch: %s found path but %s did not", d.algorithm, a.algorithm));
         }
     }
 
@@ -199,8 +305,8 @@ public class ValidationHarness {
 
         if (Math.abs(d.totalCost - a.totalCost) > COST_EPS) {
             throw new IllegalStateException(String.format(
-                    "Cost mismatch: Dijkstra=%.6f, A*=%.6f (diff=%.9f)",
-                    d.totalCost, a.totalCost, Math.abs(d.totalCost - a.totalCost)));
+                    "Cost mismatch: %s=%.6f, %s=%.6f (diff=%.9f)",
+                    d.algorithm, d.totalCost, a.algorithm, a.totalCost, Math.abs(d.totalCost - a.totalCost)));
         }
     }
 
@@ -212,7 +318,7 @@ public class ValidationHarness {
      *   <li>First edge starts at the route's start vertex</li>
      *   <li>Consecutive edges are connected (end of edge i = start of edge i+1)</li>
      *   <li>Last edge ends at the route's goal vertex</li>
-     *   <li>Sum of edge distances equals the reported total cost</li>
+     *   <li>Sum of edge costs (for the route's metric) equals the reported total cost</li>
      * </ul>
      * </p>
      *
@@ -262,7 +368,9 @@ public class ValidationHarness {
         // Check cost consistency
         double sum = 0;
         for (int edgeId : route.edgeIds) {
-            sum += eAttrs.distanceMeters(edgeId);
+            sum += (route.metric == RoutingEngine.Metric.DISTANCE)
+                    ? eAttrs.distanceMeters(edgeId)
+                    : eAttrs.timeSeconds(edgeId);
         }
 
         if (Math.abs(route.totalCost - sum) > COST_EPS) {
@@ -280,6 +388,7 @@ public class ValidationHarness {
      *   <li>Reachability percentage</li>
      *   <li>Average and maximum route distances</li>
      *   <li>Average and maximum edge counts</li>
+     *   <li>Average settled vertices and query time per algorithm</li>
      * </ul>
      * </p>
      */
@@ -301,18 +410,43 @@ public class ValidationHarness {
         System.out.printf("Max distance: %.1f m%n", maxRouteMeters);
         System.out.printf("Average edges: %.1f%n", avgEdges);
         System.out.printf("Max edges: %d%n", maxEdgeCount);
+
+        System.out.println("Average settled vertices / query time (DISTANCE):");
+        printSettled(RoutingEngine.Metric.DISTANCE, COMPARED, sumSettled, sumNanos);
+        System.out.println("Average settled vertices / query time (TIME):");
+        printSettled(RoutingEngine.Metric.TIME, TIME_COMPARED, sumSettledTime, sumNanosTime);
         System.out.println("All validations passed ✓");
     }
 
+    /**
+     * Prints average settled vertices and query time per available algorithm.
+     *
+     * @param metric     the metric the counts were collected for
+     * @param algorithms the algorithms; the first is the reference
+     * @param settled    settled vertex sums per algorithm
+     * @param nanos      query time sums per algorithm
+     */
+    private void printSettled(RoutingEngine.Metric metric, RoutingEngine.Algorithm[] algorithms,
+                              long[] settled, long[] nanos) {
+        for (int k = 0; k < algorithms.length; k++) {
+            if (!available(algorithms[k], metric)) continue;
+
+            double avg = (double) settled[k] / totalQueries;
+            double pct = 100.0 * settled[k] / max(1, settled[0]);
+            double ms = nanos[k] / 1e6 / totalQueries;
+            System.out.printf("  %-24s %10.1f (%5.1f%% of Dijkstra) %8.3f ms%n", algorithms[k], avg, pct, ms);
+        }
+    }
+
     /**
      * Runs the validation harness on a compiled OSM file.
      *
-     * @param args command-line arguments (ignored)
+     * @param args optional OSM path (default {@code data/pei.osm})
      */
     public static void main(String[] args) {
-        System.out.println("Compiling OSM...");
-        Main.OSMCompiler compiler = new Main.OSMCompiler();
-        Main.OSMCompiler.BuildResult result = compiler.compile(Path.of("data/pei.osm"));
+        System.out.println("Loading graph...");
+        Path osmFile = Path.of(args.length > 0 ? args[0] : "data/pei.osm");
+        Main.OSMCompiler.BuildResult result = GraphSnapshot.loadOrCompile(osmFile, GraphSnapshot.defaultPathFor(osmFile));
 
         System.out.printf("Graph: V=%d, E=%d%n", result.graph.V(), result.graph.E());
         System.out.println("Running validation...\n");
@@ -320,11 +454,27 @@ public class ValidationHarness {
         ValidationHarness harness = new ValidationHarness(
                 result.graph,
                 result.attrs,
-                new ShortestPathAlgorithms.VertexStore(
+                ShortestPathAlgorithms.VertexStore.fromLatLon(
                         result.vertexStore.lat,
                         result.vertexStore.lon)
         );
 
+        System.out.println("Building contraction hierarchy...");
+        long t0 = System.nanoTime();
+        ContractionHierarchy ch = new ContractionHierarchy(result.graph, result.attrs, RoutingEngine.Metric.DISTANCE);
+        System.out.printf("%s in %.1f s%n%n", ch, (System.nanoTime() - t0) / 1e9);
+        harness.useHierarchy(ch);
+
+        System.out.println("Selecting landmarks...");
+        for (RoutingEngine.Metric metric : RoutingEngine.Metric.values()) {
+            t0 = System.nanoTime();
+            Landmarks lm = new Landmarks(result.graph, result.attrs, metric,
+                    Landmarks.DEFAULT_COUNT, Landmarks.Selection.AVOID);
+            System.out.printf("%s in %.1f s%n", lm, (System.nanoTime() - t0) / 1e9);
+            harness.useLandmarks(lm);
+        }
+        System.out.println();
+
         harness.run();
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package codes;
 
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 
 /**
@@ -9,28 +10,35 @@ import java.util.NoSuchElementException;
  *     <li>Edges have non-negative weights.</li>
  *     <li>Each edge receives a unique sequential ID assigned by the graph
  *         when added (0..E-1).</li>
- *     <li>Adjacency lists store outgoing edges.</li>
- *     <li>Indegrees are tracked explicitly.</li>
+ *     <li>Edges are stored as primitive columns (tail, head and weight by
+ *         edge ID); adjacency comes from the {@link CsrDigraph} built over them.</li>
+ *     <li>In- and outdegrees are tracked explicitly.</li>
  * </ul>
  *
  * <p>
  * The graph supports efficient iteration over:
  * <ul>
- *     <li>Outgoing edges of a vertex</li>
+ *     <li>Outgoing edges of a vertex, in edge ID order</li>
  *     <li>All edges by sequential edge ID</li>
  * </ul>
  *
  * <p>
  * The graph also supports dynamic edge-array growth; the edge-ID mapping
- * is always valid for {@code 0 <= id < E}.
+ * is always valid for {@code 0 <= id < E}. No {@link Edge} objects are kept:
+ * {@link #edgeByID}, {@link #outEdges} and {@link #edges} return fresh
+ * read-only views, and {@link #edgeTail}, {@link #edgeHead} and
+ * {@link #edgeWeight} read the columns without allocating.
  */
 
 public class WeightedDigraph {
     private int V;
     private int E; // number of edges
-    private Bag<Edge>[] edgeAdj; // adjacency list representation
+    private int[] tail; // tail vertex by edge ID (capacity >= E)
+    private int[] head; // head vertex by edge ID
+    private double[] weight; // weight by edge ID
+    private int[] outdegree; // outdegree[v] = number of edges leaving v
     private int[] indegree; //  indegree[v] = number of edges pointing to v
-    private Edge[] edgesById; // edges mapped by ID
+    private volatile CsrDigraph csr; // cached CSR adjacency, cleared whenever an edge is added
 
     /**
      * Creates an empty weighted digraph with {@code V} vertices and no edges.
@@ -39,20 +47,57 @@ public class WeightedDigraph {
      * @throws IllegalArgumentException if {@code V < 0}
      */
 
-    @SuppressWarnings("unchecked")
     public WeightedDigraph(int V){
         if (V < 0) throw new IllegalArgumentException("Number of vertices in a codes.WeightedDigraph cannot be less than zero");
         this.V = V;
         this.E = 0;
         indegree = new int[V];
-        edgeAdj = (Bag<Edge>[]) new Bag[V];
-        for (int i=0; i<V; i++)
-            edgeAdj[i] = new Bag<Edge>();
+        outdegree = new int[V];
 
-        this.edgesById = new Edge[Math.max(4, V)];
+        int cap = Math.max(4, V);
+        this.tail = new int[cap];
+        this.head = new int[cap];
+        this.weight = new double[cap];
     }
 
 
+    /**
+     * Builds a graph from parallel edge arrays, as if
+     * {@code addEdge(tail[e], head[e], weight[e])} were called for every
+     * {@code e} in order: edge {@code e} gets ID {@code e}.
+     *
+     * <p>Used by {@link GraphSnapshot#read} to load a whole network. The
+     * arrays become the graph's edge columns as they are, without copying,
+     * and must not be modified afterwards.</p>
+     *
+     * @param V      number of vertices
+     * @param tail   tail vertex per edge
+     * @param head   head vertex per edge
+     * @param weight weight per edge
+     * @return the graph
+     * @throws IllegalArgumentException if {@code V < 0}, the arrays differ in length,
+     *                                  or an edge has an invalid vertex or weight
+     */
+
+    static WeightedDigraph fromEdgeArrays(int V, int[] tail, int[] head, double[] weight) {
+        int n = tail.length;
+        if (head.length != n || weight.length != n) throw new IllegalArgumentException("edge arrays differ in length");
+
+        WeightedDigraph g = new WeightedDigraph(V);
+        for (int e = 0; e < n; e++) {
+            g.validateVertex(tail[e]);
+            g.validateVertex(head[e]);
+            validateWeight(weight[e]);
+            g.outdegree[tail[e]]++;
+            g.indegree[head[e]]++;
+        }
+        g.tail = tail;
+        g.head = head;
+        g.weight = weight;
+        g.E = n;
+        return g;
+    }
+
     /**
      * Returns the number of vertices in the graph.
      */
@@ -93,6 +138,18 @@ public class WeightedDigraph {
         }
     }
 
+    /**
+     * Validates that an edge weight is usable for Dijkstra-style routing.
+     *
+     * @param weight the weight
+     * @throws IllegalArgumentException if {@code weight} is NaN or negative
+     */
+
+    private static void validateWeight(double weight) {
+        if (Double.isNaN(weight)) throw new IllegalArgumentException("weight is NaN");
+        if (weight < 0.0) throw new IllegalArgumentException("weight must be non-negative for Dijkstra-style routing");
+    }
+
 
     /**
      * Adds an edge to the graph and assigns it a unique sequential ID.
@@ -104,49 +161,61 @@ public class WeightedDigraph {
      *     <li>codes.Edge must not already belong to any graph (ID must be -1).</li>
      * </ul>
      *
+     * <p>The graph copies the edge's endpoints and weight; {@code edge} itself
+     * only receives its ID and is not kept.</p>
+     *
      * @param edge an {@link Edge} whose endpoints and weight define a directed edge
      * @throws IllegalArgumentException if edge is invalid per above conditions
      */
 
     public void addEdge(Edge edge) {
         if (edge == null) throw new IllegalArgumentException("edge is null");
-        if (Double.isNaN(edge.weight())) throw new IllegalArgumentException("weight is NaN");
-        if (edge.weight() < 0.0) throw new IllegalArgumentException("weight must be non-negative for Dijkstra-style routing");
+        validateWeight(edge.weight());
 
         // Ensure this edge hasn't already been assigned to some graph
         if (edge.edgeID() != -1) {
             throw new IllegalArgumentException("edge already has an id (" + edge.edgeID() + "); graph must assign ids sequentially");
         }
 
-        int v = edge.firstEnd();
-        int w = edge.otherEnd();
+        validateVertex(edge.firstEnd());
+        validateVertex(edge.otherEnd());
+        edge.setiD(append(edge.firstEnd(), edge.otherEnd(), edge.weight()));
+    }
+
+    /**
+     * Convenience method to add an edge using vertex indices and a weight,
+     * without creating an {@link Edge}.
+     *
+     * @return the edge ID assigned to the new edge
+     * @throws IllegalArgumentException if a vertex is invalid or the weight is negative or NaN
+     */
+
+    public int addEdge(int v, int w, double weight) {
+        validateWeight(weight);
         validateVertex(v);
         validateVertex(w);
+        return append(v, w, weight);
+    }
+
+    /**
+     * Stores a validated edge under the next sequential ID.
+     *
+     * @return the new edge ID
+     */
 
+    private int append(int v, int w, double wt) {
         int id = E;                 // sequential id: 0..E-1
         ensureEdgeCapacity(id + 1);
 
-        edge.setiD(id);
-        edgesById[id] = edge;
-
-        edgeAdj[v].add(edge);
+        tail[id] = v;
+        head[id] = w;
+        weight[id] = wt;
+        outdegree[v]++;
         indegree[w]++;
 
         E++;
-    }
-
-    /**
-     * Convenience method to add an edge using vertex indices and a weight.
-     * A new {@link Edge} is constructed and then added through {@link #addEdge(Edge)}.
-     *
-     * @return the edge ID assigned to the new edge
-     */
-
-    public int addEdge(int v, int w, double weight) {
-        // You can validate here or let addEdge(codes.Edge) validate via endpoints+weight.
-        Edge e = new Edge(v, w, weight);
-        addEdge(e);          // this assigns id, stores in edgesById, updates indegree, etc.
-        return e.edgeID();   // now guaranteed to be the sequential id
+        csr = null;
+        return id;
     }
 
     /**
@@ -173,11 +242,13 @@ public class WeightedDigraph {
 
     public int outdegree(int v){
         validateVertex(v);
-        return edgeAdj[v].size();
+        return outdegree[v];
     }
 
     /**
-     * Returns an iterable over all outgoing edges of vertex {@code v}.
+     * Returns an iterable over all outgoing edges of vertex {@code v}, in
+     * edge ID order. Each call to {@code next()} creates a fresh view; hot
+     * loops should walk {@link #csr()} instead.
      *
      * @param v vertex
      * @return iterable over outgoing edges
@@ -186,55 +257,158 @@ public class WeightedDigraph {
 
     public Iterable<Edge> outEdges(int v){
         validateVertex(v);
-        return edgeAdj[v];
+        CsrDigraph c = csr();
+        return () -> new java.util.Iterator<>() {
+            private int slot = c.firstOut(v);
+
+            @Override
+            public boolean hasNext() {
+                return slot < c.endOut(v);
+            }
+
+            @Override
+            public Edge next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return view(c.edgeId(slot++));
+            }
+        };
     }
 
     /**
      * Retrieves an edge by its globally assigned ID.
      *
      * @param edgeId the ID of the edge
-     * @return the corresponding {@code codes.Edge} object
+     * @return a new {@code codes.Edge} view of the edge, with its ID set
      * @throws IllegalArgumentException if the ID is out of range
      */
 
     public Edge edgeByID(int edgeId){
         validateEdge(edgeId);
-        return edgesById[edgeId];
+        return view(edgeId);
+    }
+
+    /**
+     * Returns the tail (source) vertex of an edge.
+     *
+     * @param edgeId the ID of the edge
+     * @return the tail vertex
+     * @throws IllegalArgumentException if the ID is out of range
+     */
+
+    public int edgeTail(int edgeId) {
+        validateEdge(edgeId);
+        return tail[edgeId];
+    }
+
+    /**
+     * Returns the head (target) vertex of an edge.
+     *
+     * @param edgeId the ID of the edge
+     * @return the head vertex
+     * @throws IllegalArgumentException if the ID is out of range
+     */
+
+    public int edgeHead(int edgeId) {
+        validateEdge(edgeId);
+        return head[edgeId];
+    }
+
+    /**
+     * Returns the weight of an edge.
+     *
+     * @param edgeId the ID of the edge
+     * @return the weight
+     * @throws IllegalArgumentException if the ID is out of range
+     */
+
+    public double edgeWeight(int edgeId) {
+        validateEdge(edgeId);
+        return weight[edgeId];
+    }
+
+    /**
+     * Returns the tail column for {@link CsrDigraph}. Not a copy; entries
+     * {@code 0..E-1} never change, later ones may.
+     */
+
+    int[] tailColumn() {
+        return tail;
+    }
+
+    /**
+     * Returns the head column for {@link CsrDigraph}. Not a copy; entries
+     * {@code 0..E-1} never change, later ones may.
+     */
+
+    int[] headColumn() {
+        return head;
+    }
+
+    /**
+     * Creates an {@link Edge} view of a valid edge ID.
+     */
+
+    private Edge view(int id) {
+        Edge e = new Edge(tail[id], head[id], weight[id]);
+        e.setiD(id);
+        return e;
+    }
+
+    /**
+     * Returns the CSR adjacency of this graph, used by shortest path searches
+     * and by {@link #outEdges}.
+     *
+     * <p>The CSR is built on first use and cached until the next
+     * {@link #addEdge(Edge)}, so a finished graph pays the O(V + E) build once.</p>
+     *
+     * @return the CSR representation of the current graph
+     */
+
+    public CsrDigraph csr() {
+        CsrDigraph c = csr;
+        if (c == null) {
+            synchronized (this) {
+                c = csr;
+                if (c == null) {
+                    c = new CsrDigraph(this);
+                    csr = c;
+                }
+            }
+        }
+        return c;
     }
 
     /**
      * Returns a new {@code codes.WeightedDigraph} representing the reverse of this graph:
-     * each edge {@code v -> w} becomes {@code w -> v} with the same weight.
+     * each edge {@code v -> w} becomes {@code w -> v} with the same weight and ID.
      *
      * @return reversed digraph
      */
 
     public WeightedDigraph reverse(){
         WeightedDigraph wd = new WeightedDigraph(V);
-        for (int v = 0; v <V; v++){
-            for (Edge e : edgeAdj[v]) {
-                wd.addEdge(e.otherEnd(), e.firstEnd(), e.weight());
-            }
+        for (int e = 0; e < E; e++) {
+            wd.addEdge(head[e], tail[e], weight[e]);
         }
         return wd;
     }
 
     /**
-     * Ensures the internal {@code edgesById} array has capacity for at least
+     * Ensures the edge columns have capacity for at least
      * {@code minCapacity} edges. Grows using powers of two.
      *
      * @param minCapacity required minimum capacity
      */
 
     private void ensureEdgeCapacity(int minCapacity) {
-        if (minCapacity <= edgesById.length) return;
+        if (minCapacity <= tail.length) return;
 
-        int newCap = edgesById.length;
+        int newCap = Math.max(4, tail.length);
         while (newCap < minCapacity) newCap *= 2;
 
-        Edge[] next = new Edge[newCap];
-        System.arraycopy(edgesById, 0, next, 0, edgesById.length);
-        edgesById = next;
+        tail = Arrays.copyOf(tail, newCap);
+        head = Arrays.copyOf(head, newCap);
+        weight = Arrays.copyOf(weight, newCap);
     }
 
     public Iterable<Edge> edges() {
@@ -249,7 +423,7 @@ public class WeightedDigraph {
             @Override
             public Edge next() {
                 if (!hasNext()) throw new NoSuchElementException();
-                return edgesById[i++];
+                return view(i++);
             }
         };
     }
@@ -258,12 +432,14 @@ public class WeightedDigraph {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(V).append(" vertices, ").append(E).append(" edges\n");
+        CsrDigraph c = csr();
         for (int v = 0; v < V; v++) {
             sb.append(v).append(": ");
-            for (Edge e : edgeAdj[v]) {
-                sb.append(e.edgeID()).append("(")
-                        .append(e.otherEnd()).append(", ")
-                        .append(e.weight()).append(") ");
+            for (int i = c.firstOut(v); i < c.endOut(v); i++) {
+                int e = c.edgeId(i);
+                sb.append(e).append("(")
+                        .append(head[e]).append(", ")
+                        .append(weight[e]).append(") ");
             }
             sb.append("\n");
         }
@@ -0,0 +1,201 @@
+package codes;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded, thread-safe LRU cache of results computed on one network.
+ *
+ * <p>Eviction is by weight: each value is charged an estimate of its heap
+ * footprint by the weigher, and least recently used entries are dropped once
+ * the total exceeds the configured budget. Hit, miss and eviction counts are
+ * kept for monitoring.</p>
+ *
+ * <p>The cache empties itself when the graph gains edges or any edge
+ * attribute changes (see {@link EdgeAttributes#version()}), and
+ * {@link #invalidate()} clears it explicitly.</p>
+ *
+ * <p>{@link RouteCache} and {@link Isochrone.Cache} wrap one each, adding
+ * their keys and the weights of their entries.</p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class WeightedLruCache<K, V> {
+
+    /** The graph cached values were computed on. */
+    private final WeightedDigraph graph;
+
+    /** The attributes cached values were computed with. */
+    private final EdgeAttributes attrs;
+
+    /** Total weight the cache may hold (bytes). */
+    private final long maxWeightBytes;
+
+    /** Charges each value against the budget (bytes). */
+    private final ToLongFunction<? super V> weigher;
+
+    /** Values in access order, eldest first. */
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Sum of the weights of all values. */
+    private long weightBytes;
+
+    /** Graph edge count the values were computed at. */
+    private int seenEdgeCount;
+
+    /** Attribute version the values were computed at. */
+    private long seenAttrsVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an empty cache for values computed on {@code graph}.
+     *
+     * @param graph          the graph values are computed on
+     * @param attrs          the edge attributes values are computed with
+     * @param maxWeightBytes the weight budget (bytes)
+     * @param weigher        the weight of a value (bytes); must not change while cached
+     * @throws IllegalArgumentException if {@code graph}, {@code attrs} or {@code weigher} is null,
+     *                                  or {@code maxWeightBytes < 0}
+     */
+    public WeightedLruCache(WeightedDigraph graph, EdgeAttributes attrs, long maxWeightBytes,
+                            ToLongFunction<? super V> weigher) {
+        if (graph == null || attrs == null) throw new IllegalArgumentException("graph and attrs cannot be null");
+        if (weigher == null) throw new IllegalArgumentException("weigher cannot be null");
+        if (maxWeightBytes < 0) throw new IllegalArgumentException("maxWeightBytes < 0");
+        this.graph = graph;
+        this.attrs = attrs;
+        this.maxWeightBytes = maxWeightBytes;
+        this.weigher = weigher;
+        this.seenEdgeCount = graph.E();
+        this.seenAttrsVersion = attrs.version();
+    }
+
+    /**
+     * Returns the value cached for {@code key}, marking it most recently used.
+     *
+     * @param key the key
+     * @return the value, or {@code null} on a miss
+     */
+    public V get(K key) {
+        V v;
+        synchronized (this) {
+            dropIfStale();
+            v = entries.get(key);
+        }
+        if (v != null) hits.increment();
+        else misses.increment();
+        return v;
+    }
+
+    /**
+     * Caches a value, replacing any value for {@code key}, then evicts least
+     * recently used entries until the cache fits its budget. A value heavier
+     * than the whole budget is not kept.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return {@code value}
+     * @throws IllegalArgumentException if {@code key} or {@code value} is null
+     */
+    public V put(K key, V value) {
+        if (key == null || value == null) throw new IllegalArgumentException("key and value cannot be null");
+
+        long w = weigher.applyAsLong(value);
+        if (w > maxWeightBytes) return value;
+
+        synchronized (this) {
+            dropIfStale();
+            V old = entries.put(key, value);
+            if (old != null) weightBytes -= weigher.applyAsLong(old);
+            weightBytes += w;
+
+            Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+            while (weightBytes > maxWeightBytes && it.hasNext()) {
+                V eldest = it.next().getValue();
+                it.remove();
+                weightBytes -= weigher.applyAsLong(eldest);
+                evictions.increment();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        weightBytes = 0;
+        seenEdgeCount = graph.E();
+        seenAttrsVersion = attrs.version();
+    }
+
+    /**
+     * Clears the cache if the graph or its attributes changed since the
+     * values were computed. Caller holds the lock.
+     */
+    private void dropIfStale() {
+        if (graph.E() != seenEdgeCount || attrs.version() != seenAttrsVersion) invalidate();
+    }
+
+    /**
+     * Returns the number of cached values.
+     *
+     * @return the entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached values.
+     *
+     * @return the weight in bytes
+     */
+    public synchronized long weightBytes() {
+        return weightBytes;
+    }
+
+    /**
+     * Returns the weight budget.
+     *
+     * @return the budget in bytes
+     */
+    public long maxWeightBytes() {
+        return maxWeightBytes;
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the hit count
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that found nothing.
+     *
+     * @return the miss count
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of values dropped to stay within the budget.
+     *
+     * @return the eviction count
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+}
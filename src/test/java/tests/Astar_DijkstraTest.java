@@ -7,6 +7,7 @@ import codes.WeightedDigraph;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -57,6 +58,40 @@ class DijkstraTest {
         assertArrayEquals(new int[]{e01, e12}, timePath);
     }
 
+    @Test
+    void targets_stopSearchOnceAllSettled() {
+        // Chain 0->1->2->3->4, unit costs
+        WeightedDigraph g = new WeightedDigraph(5);
+        EdgeAttributes attrs = new EdgeAttributes();
+
+        int[] e = new int[4];
+        for (int v = 0; v < 4; v++) e[v] = g.addEdge(v, v + 1, 0.0);
+
+        attrs.setEdgeCount(g.E());
+        for (int id : e) attrs.setDistanceMeters(id, 1);
+
+        ShortestPathAlgorithms.Dijkstra one =
+                new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, 0, new int[]{2});
+
+        assertTrue(one.isSettled(2));
+        assertFalse(one.isSettled(3));
+        assertEquals(3, one.settledCount());
+        assertEquals(2.0, one.distTo(2), 1e-9);
+        assertArrayEquals(new int[]{e[0], e[1]}, one.pathEdgeIdArrayTo(2));
+
+        ShortestPathAlgorithms.Dijkstra many =
+                new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, 0, new int[]{3, 1, 3});
+
+        assertEquals(4, many.settledCount());
+        assertEquals(1.0, many.distTo(1), 1e-9);
+        assertEquals(3.0, many.distTo(3), 1e-9);
+        assertFalse(many.hasPathTo(4));
+
+        ShortestPathAlgorithms.Dijkstra full =
+                new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, 0);
+        assertEquals(5, full.settledCount());
+    }
+
     private static int[] toIntArray(Iterable<Integer> ids) {
         ArrayList<Integer> list = new ArrayList<>();
         for (int x : ids) list.add(x);
@@ -136,6 +171,41 @@ class AstarTest {
         assertArrayEquals(new int[]{e01, e12}, path);
     }
 
+    @Test
+    void fromLatLon_straightLinesNeverExceedGreatCircleDistances() {
+        // Points spread over ~300 km at high latitude, where equirectangular stretch is largest
+        Random rnd = new Random(5);
+        int n = 200;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 62.0 + rnd.nextDouble() * 2.5;
+            lon[i] = -150.0 + rnd.nextDouble() * 5.0;
+        }
+
+        ShortestPathAlgorithms.VertexStore vs = ShortestPathAlgorithms.VertexStore.fromLatLon(lat, lon);
+        double worst = 0.0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j) continue;
+                double straight = Math.hypot(vs.x(i) - vs.x(j), vs.y(i) - vs.y(j));
+                double gc = haversineMeters(lat[i], lon[i], lat[j], lon[j]);
+                assertTrue(straight <= gc, straight + " > " + gc);
+                worst = Math.max(worst, straight / gc);
+            }
+        }
+        // ...and they are meters, not degrees: the bound stays tight
+        assertTrue(worst > 0.95, "bound too loose: " + worst);
+    }
+
+    private static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dPhi = Math.toRadians(lat2 - lat1);
+        double dLam = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dPhi / 2) * Math.sin(dPhi / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLam / 2) * Math.sin(dLam / 2);
+        return 6371000.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
     private static int[] toIntArray(Iterable<Integer> ids) {
         ArrayList<Integer> list = new ArrayList<>();
         for (int x : ids) list.add(x);
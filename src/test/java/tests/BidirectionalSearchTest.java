@@ -0,0 +1,99 @@
+package tests;
+
+import codes.EdgeAttributes;
+import codes.RoutingEngine;
+import codes.ShortestPathAlgorithms;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BidirectionalSearchTest {
+
+    @Test
+    void randomGrid_costsMatchDijkstra() {
+        // 10x10 grid with 100 m spacing; edges are at least as long as the straight line
+        int n = 10;
+        WeightedDigraph g = new WeightedDigraph(n * n);
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(7);
+
+        double[] x = new double[n * n];
+        double[] y = new double[n * n];
+        for (int v = 0; v < n * n; v++) {
+            x[v] = (v % n) * 100.0;
+            y[v] = (v / n) * 100.0;
+        }
+
+        attrs.setEdgeCount(4 * n * n);
+        for (int v = 0; v < n * n; v++) {
+            int[] nbrs = {v % n < n - 1 ? v + 1 : -1, v / n < n - 1 ? v + n : -1};
+            for (int w : nbrs) {
+                if (w < 0) continue;
+                // Drop some directions so the graph is not symmetric
+                if (rnd.nextInt(5) > 0) addRoad(g, attrs, v, w, 100.0 + rnd.nextInt(50));
+                if (rnd.nextInt(5) > 0) addRoad(g, attrs, w, v, 100.0 + rnd.nextInt(50));
+            }
+        }
+        attrs.setEdgeCount(g.E());
+
+        ShortestPathAlgorithms.VertexStore vs = new ShortestPathAlgorithms.VertexStore(x, y);
+
+        for (int q = 0; q < 50; q++) {
+            int s = rnd.nextInt(n * n);
+            int t = rnd.nextInt(n * n);
+
+            ShortestPathAlgorithms.Dijkstra ref =
+                    new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, s);
+            ShortestPathAlgorithms.BidirectionalDijkstra bd =
+                    new ShortestPathAlgorithms.BidirectionalDijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, s, t);
+            ShortestPathAlgorithms.BidirectionalAstar ba =
+                    new ShortestPathAlgorithms.BidirectionalAstar(g, attrs, vs, RoutingEngine.Metric.DISTANCE, s, t, 0.0);
+
+            assertEquals(ref.hasPathTo(t), bd.hasPathToGoal());
+            assertEquals(ref.hasPathTo(t), ba.hasPathToGoal());
+            if (!ref.hasPathTo(t)) continue;
+
+            assertEquals(ref.distTo(t), bd.costToGoal(), 1e-9);
+            assertEquals(ref.distTo(t), ba.costToGoal(), 1e-6);
+            assertEquals(ref.distTo(t), pathCost(g, attrs, s, t, bd.pathEdgeIdArrayToGoal()), 1e-9);
+            assertEquals(ref.distTo(t), pathCost(g, attrs, s, t, ba.pathEdgeIdArrayToGoal()), 1e-6);
+        }
+    }
+
+    @Test
+    void unreachableGoal_reportsNoPath() {
+        WeightedDigraph g = new WeightedDigraph(3);
+        EdgeAttributes attrs = new EdgeAttributes();
+        int e = g.addEdge(1, 0, 0.0);
+        attrs.setEdgeCount(g.E());
+        attrs.setDistanceMeters(e, 1);
+
+        ShortestPathAlgorithms.BidirectionalDijkstra bd =
+                new ShortestPathAlgorithms.BidirectionalDijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, 0, 1);
+
+        assertFalse(bd.hasPathToGoal());
+        assertEquals(Double.POSITIVE_INFINITY, bd.costToGoal(), 0.0);
+        assertArrayEquals(new int[0], bd.pathEdgeIdArrayToGoal());
+    }
+
+    private static void addRoad(WeightedDigraph g, EdgeAttributes attrs, int from, int to, double meters) {
+        int id = g.addEdge(from, to, 0.0);
+        attrs.setDistanceMeters(id, meters);
+    }
+
+    /** Checks the edges chain from s to t and returns their summed distance. */
+    private static double pathCost(WeightedDigraph g, EdgeAttributes attrs, int s, int t, int[] edgeIds) {
+        int cur = s;
+        double sum = 0.0;
+        for (int id : edgeIds) {
+            assertEquals(cur, g.edgeByID(id).firstEnd());
+            cur = g.edgeByID(id).otherEnd();
+            sum += attrs.distanceMeters(id);
+        }
+        assertEquals(t, cur);
+        return sum;
+    }
+}
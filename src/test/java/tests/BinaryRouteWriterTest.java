@@ -0,0 +1,83 @@
+package tests;
+
+import codes.BinaryRouteWriter;
+import codes.GeoJsonWriter;
+import codes.Instruction;
+import codes.Point;
+import codes.RouteServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryRouteWriterTest {
+
+    @Test
+    void roundTripsPointsAndInstructionsWithStreetDictionary() throws IOException {
+        List<Point> pts = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) pts.add(new Point(-63.1311 + i * 3e-5, 46.2382 - i * 2e-5));
+        List<Instruction> ins = List.of(
+                new Instruction(Instruction.Type.START, "Rue Québec", 0),
+                new Instruction(Instruction.Type.LEFT, "Main St", 120.4),
+                new Instruction(Instruction.Type.KEEP_RIGHT, "Rue Québec", 35.6),
+                new Instruction(Instruction.Type.CONTINUE, null, 10),
+                new Instruction(Instruction.Type.ARRIVE, null, 0));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        new BinaryRouteWriter(out, 6, copy).writeRoute(pts, ins);
+        byte[] data = out.toByteArray();
+        assertArrayEquals(data, copy.toByteArray());
+
+        BinaryRouteWriter.Decoded d = BinaryRouteWriter.decode(data);
+        assertEquals(6, d.decimals());
+        assertEquals(pts.size(), d.points().size());
+        for (int i = 0; i < pts.size(); i++) {
+            assertEquals(pts.get(i).x, d.points().get(i).x, 1e-6);
+            assertEquals(pts.get(i).y, d.points().get(i).y, 1e-6);
+        }
+        assertEquals(ins.size(), d.instructions().size());
+        for (int i = 0; i < ins.size(); i++) {
+            assertEquals(ins.get(i).type, d.instructions().get(i).type);
+            assertEquals(ins.get(i).street, d.instructions().get(i).street);
+            assertEquals(Math.round(ins.get(i).distanceMeters), d.instructions().get(i).distanceMeters);
+        }
+
+        // Small steps cost a few bytes each, an order of magnitude below GeoJSON
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        new GeoJsonWriter(json, 6).writeRoute(pts, ins);
+        assertTrue(data.length * 8 < json.size(), data.length + " vs " + json.size());
+    }
+
+    @Test
+    void rejectsCorruptData() {
+        assertThrows(IllegalArgumentException.class, () -> BinaryRouteWriter.decode(new byte[]{'X', 'T', 1, 6}));
+        assertThrows(IllegalArgumentException.class, () -> BinaryRouteWriter.decode(new byte[]{'R', 'T', 1, 6, 5, 2}));
+    }
+
+    @Test
+    void polylineResponseEscapesBackslash() throws IOException {
+        // A latitude delta of -15 units encodes as a single '\'
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GeoJsonWriter(out, 6).writePolylineRoute(List.of(new Point(0, -0.00015)), 5,
+                List.of(new Instruction(Instruction.Type.ARRIVE, null, 0)));
+
+        assertEquals("{\"polyline\":\"\\\\?\",\"precision\":5,\"instructions\":[\"You have arrived\"]}",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void selectsFormatFromParameterThenAccept() {
+        assertEquals(RouteServer.Format.GEOJSON, RouteServer.Format.select(null, null));
+        assertEquals(RouteServer.Format.GEOJSON, RouteServer.Format.select(null, "application/json, */*"));
+        assertEquals(RouteServer.Format.POLYLINE6,
+                RouteServer.Format.select(null, "text/html, application/vnd.polyline6+json;q=0.9"));
+        assertEquals(RouteServer.Format.BINARY, RouteServer.Format.select("BINARY", "application/json"));
+        assertThrows(IllegalArgumentException.class, () -> RouteServer.Format.select("xml", null));
+    }
+}
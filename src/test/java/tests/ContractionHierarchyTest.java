@@ -0,0 +1,141 @@
+package tests;
+
+import codes.ContractionHierarchy;
+import codes.EdgeAttributes;
+import codes.RoutingEngine;
+import codes.ShortestPathAlgorithms;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void randomGrid_matchesDijkstraAndUnpacksToOriginalEdges() {
+        int n = 12;
+        WeightedDigraph g = new WeightedDigraph(n * n);
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(3);
+
+        attrs.setEdgeCount(4 * n * n);
+        for (int v = 0; v < n * n; v++) {
+            int[] nbrs = {v % n < n - 1 ? v + 1 : -1, v / n < n - 1 ? v + n : -1};
+            for (int w : nbrs) {
+                if (w < 0) continue;
+                if (rnd.nextInt(6) > 0) addRoad(g, attrs, v, w, 1 + rnd.nextInt(20));
+                if (rnd.nextInt(6) > 0) addRoad(g, attrs, w, v, 1 + rnd.nextInt(20));
+            }
+        }
+        attrs.setEdgeCount(g.E());
+
+        for (RoutingEngine.Metric metric : RoutingEngine.Metric.values()) {
+            ContractionHierarchy ch = new ContractionHierarchy(g, attrs, metric);
+
+            for (int q = 0; q < 100; q++) {
+                int s = rnd.nextInt(n * n);
+                int t = rnd.nextInt(n * n);
+
+                ShortestPathAlgorithms.Dijkstra ref = new ShortestPathAlgorithms.Dijkstra(g, attrs, metric, s);
+                RoutingEngine.Route r = ch.route(s, t);
+
+                assertEquals(RoutingEngine.Algorithm.CH, r.algorithm);
+                assertEquals(ref.hasPathTo(t), r.found);
+                if (!r.found) continue;
+
+                assertEquals(ref.distTo(t), r.totalCost, 1e-9);
+
+                // Unpacked path must be a chain of original edges with the same cost
+                int cur = s;
+                double sum = 0.0;
+                for (int id : r.edgeIds) {
+                    assertTrue(id >= 0 && id < g.E());
+                    assertEquals(cur, g.edgeByID(id).firstEnd());
+                    cur = g.edgeByID(id).otherEnd();
+                    sum += (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(id) : attrs.timeSeconds(id);
+                }
+                assertEquals(t, cur);
+                assertEquals(r.totalCost, sum, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void routingEngine_requiresAttachedHierarchy() {
+        WeightedDigraph g = new WeightedDigraph(2);
+        EdgeAttributes attrs = new EdgeAttributes();
+        addRoad(g, attrs, 0, 1, 5);
+
+        RoutingEngine engine = new RoutingEngine(g, attrs);
+        assertThrows(IllegalStateException.class,
+                () -> engine.route(0, 1, RoutingEngine.Metric.DISTANCE, RoutingEngine.Algorithm.CH));
+
+        engine.attachHierarchy(new ContractionHierarchy(g, attrs, RoutingEngine.Metric.DISTANCE));
+        RoutingEngine.Route r = engine.route(0, 1, RoutingEngine.Metric.DISTANCE, RoutingEngine.Algorithm.CH);
+        assertTrue(r.found);
+        assertEquals(5.0, r.totalCost, 1e-9);
+    }
+
+    @Test
+    void writeThenRead_answersLikeTheBuiltHierarchy() throws IOException {
+        int n = 8;
+        WeightedDigraph g = new WeightedDigraph(n * n);
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(5);
+        for (int v = 0; v < n * n; v++) {
+            if (v % n < n - 1) {
+                addRoad(g, attrs, v, v + 1, 1 + rnd.nextInt(20));
+                addRoad(g, attrs, v + 1, v, 1 + rnd.nextInt(20));
+            }
+            if (v / n < n - 1) addRoad(g, attrs, v, v + n, 1 + rnd.nextInt(20));
+        }
+
+        Path file = dir.resolve("net.gsnap.time.ch");
+        ContractionHierarchy built = ContractionHierarchy.loadOrBuild(g, attrs, RoutingEngine.Metric.TIME, file);
+        assertTrue(Files.isRegularFile(file));
+
+        ContractionHierarchy loaded = ContractionHierarchy.read(file, g, attrs, RoutingEngine.Metric.TIME);
+        assertEquals(built.shortcutCount(), loaded.shortcutCount());
+        for (int s = 0; s < n * n; s += 3) {
+            for (int t = 0; t < n * n; t += 5) {
+                RoutingEngine.Route a = built.route(s, t);
+                RoutingEngine.Route b = loaded.route(s, t);
+                assertEquals(a.found, b.found);
+                assertEquals(a.totalCost, b.totalCost);
+                assertArrayEquals(a.edgeIds, b.edgeIds);
+            }
+        }
+
+        // Wrong metric, a changed graph and a damaged file are all rejected
+        assertThrows(IOException.class, () -> ContractionHierarchy.read(file, g, attrs, RoutingEngine.Metric.DISTANCE));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Path corrupt = dir.resolve("corrupt.ch");
+        Files.write(corrupt, bytes);
+        assertThrows(IOException.class, () -> ContractionHierarchy.read(corrupt, g, attrs, RoutingEngine.Metric.TIME));
+
+        attrs.setTimeSeconds(0, attrs.timeSeconds(0) + 100);
+        assertThrows(IOException.class, () -> ContractionHierarchy.read(file, g, attrs, RoutingEngine.Metric.TIME));
+
+        // ... and loadOrBuild replaces the stale file
+        ContractionHierarchy rebuilt = ContractionHierarchy.loadOrBuild(g, attrs, RoutingEngine.Metric.TIME, file);
+        assertEquals(rebuilt.shortcutCount(),
+                ContractionHierarchy.read(file, g, attrs, RoutingEngine.Metric.TIME).shortcutCount());
+    }
+
+    private static void addRoad(WeightedDigraph g, EdgeAttributes attrs, int from, int to, double cost) {
+        int id = g.addEdge(from, to, 0.0);
+        if (attrs.edgeCount() <= id) attrs.setEdgeCount(id + 1);
+        attrs.setDistanceMeters(id, cost);
+        attrs.setTimeSeconds(id, cost * 2 + (id % 3));
+    }
+}
@@ -0,0 +1,81 @@
+package tests;
+
+import codes.CsrDigraph;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsrDigraphTest {
+
+    @Test
+    void slots_matchOutEdgesInInsertionOrder() {
+        WeightedDigraph g = new WeightedDigraph(4);
+        int e0 = g.addEdge(2, 3, 0.0);
+        int e1 = g.addEdge(0, 1, 0.0);
+        int e2 = g.addEdge(0, 2, 0.0);
+        int e3 = g.addEdge(2, 0, 0.0);
+
+        CsrDigraph csr = g.csr();
+        assertEquals(4, csr.V());
+        assertEquals(4, csr.E());
+
+        assertEquals(2, csr.outdegree(0));
+        assertEquals(0, csr.outdegree(1));
+        assertEquals(2, csr.outdegree(2));
+        assertEquals(0, csr.outdegree(3));
+
+        int i = csr.firstOut(0);
+        assertEquals(e1, csr.edgeId(i));
+        assertEquals(1, csr.head(i));
+        assertEquals(e2, csr.edgeId(i + 1));
+        assertEquals(2, csr.head(i + 1));
+
+        int j = csr.firstOut(2);
+        assertEquals(e0, csr.edgeId(j));
+        assertEquals(3, csr.head(j));
+        assertEquals(e3, csr.edgeId(j + 1));
+        assertEquals(0, csr.head(j + 1));
+
+        assertEquals(2, csr.edgeTail(e3));
+        assertEquals(0, csr.edgeHead(e3));
+    }
+
+    @Test
+    void inSlots_listIncomingEdgesPerHead() {
+        WeightedDigraph g = new WeightedDigraph(3);
+        int e0 = g.addEdge(0, 2, 0.0);
+        int e1 = g.addEdge(1, 2, 0.0);
+        int e2 = g.addEdge(2, 0, 0.0);
+
+        CsrDigraph csr = g.csr();
+        assertEquals(1, csr.indegree(0));
+        assertEquals(0, csr.indegree(1));
+        assertEquals(2, csr.indegree(2));
+
+        int i = csr.firstIn(2);
+        assertEquals(e0, csr.inEdgeId(i));
+        assertEquals(0, csr.tail(i));
+        assertEquals(e1, csr.inEdgeId(i + 1));
+        assertEquals(1, csr.tail(i + 1));
+        assertEquals(csr.endIn(2), i + 2);
+
+        assertEquals(e2, csr.inEdgeId(csr.firstIn(0)));
+        assertEquals(2, csr.tail(csr.firstIn(0)));
+    }
+
+    @Test
+    void csr_isCachedAndRebuiltAfterAddEdge() {
+        WeightedDigraph g = new WeightedDigraph(3);
+        g.addEdge(0, 1, 0.0);
+
+        CsrDigraph first = g.csr();
+        assertSame(first, g.csr());
+
+        g.addEdge(1, 2, 0.0);
+        CsrDigraph second = g.csr();
+        assertNotSame(first, second);
+        assertEquals(2, second.E());
+        assertEquals(1, second.outdegree(1));
+    }
+}
@@ -0,0 +1,167 @@
+package tests;
+
+import codes.BinaryRouteWriter;
+import codes.ContractionHierarchy;
+import codes.DistanceMatrix;
+import codes.EdgeAttributes;
+import codes.GeoJsonWriter;
+import codes.RoutingEngine;
+import codes.SearchWorkspace;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceMatrixTest {
+
+    @Test
+    void dijkstraAndBucketsMatchPairwiseRoutes() {
+        int n = 12;
+        WeightedDigraph g = new WeightedDigraph(n * n);
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(5);
+
+        for (int v = 0; v < n * n; v++) {
+            int[] nbrs = {v % n < n - 1 ? v + 1 : -1, v / n < n - 1 ? v + n : -1};
+            for (int w : nbrs) {
+                if (w < 0) continue;
+                double cost = 1 + rnd.nextInt(20);
+                boolean forward = rnd.nextInt(6) > 0, backward = rnd.nextInt(6) > 0;
+                if (forward) addRoad(g, attrs, v, w, cost);
+                if (backward) addRoad(g, attrs, w, v, cost);
+            }
+        }
+
+        // Random points along edges, a few sharing an edge, one unsnapped
+        List<DistanceMatrix.Location> locs = new ArrayList<>();
+        for (int k = 0; k < 14; k++) locs.add(at(g, rnd.nextInt(g.E()), rnd.nextDouble()));
+        locs.add(at(g, locs.get(0).edgeId(), Math.min(1, locs.get(0).t() + 0.3)));
+        locs.add(at(g, locs.get(0).edgeId(), Math.max(0, locs.get(0).t() - 0.3)));
+        locs.add(null);
+        DistanceMatrix.Location[] sources = locs.toArray(new DistanceMatrix.Location[0]);
+        DistanceMatrix.Location[] targets = locs.subList(3, locs.size()).toArray(new DistanceMatrix.Location[0]);
+
+        RoutingEngine plain = new RoutingEngine(g, attrs);
+        RoutingEngine withCh = new RoutingEngine(g, attrs);
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        for (RoutingEngine.Metric metric : RoutingEngine.Metric.values()) {
+            withCh.attachHierarchy(new ContractionHierarchy(g, attrs, metric));
+            DistanceMatrix dij = plain.matrix(sources, targets, metric, pool);
+            DistanceMatrix ch = withCh.matrix(sources, targets, metric, pool);
+            assertFalse(dij.hierarchical());
+            assertTrue(ch.hierarchical());
+            assertEquals(sources.length, ch.rows());
+            assertEquals(targets.length, ch.cols());
+
+            for (int i = 0; i < sources.length; i++) {
+                for (int j = 0; j < targets.length; j++) {
+                    double expected = expected(plain, g, attrs, metric, sources[i], targets[j]);
+                    String cell = metric + " (" + i + ", " + j + ")";
+                    assertEquals((float) expected, dij.get(i, j), 1e-3, cell);
+                    assertEquals((float) expected, ch.get(i, j), 1e-3, cell);
+                }
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void emptyAndMismatchedInputs() {
+        WeightedDigraph g = new WeightedDigraph(2);
+        EdgeAttributes attrs = new EdgeAttributes();
+        addRoad(g, attrs, 0, 1, 5);
+        RoutingEngine engine = new RoutingEngine(g, attrs);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        DistanceMatrix m = engine.matrix(new DistanceMatrix.Location[0], new DistanceMatrix.Location[]{at(g, 0, 0.5)},
+                RoutingEngine.Metric.DISTANCE, pool);
+        assertEquals(0, m.rows());
+        assertEquals(1, m.cols());
+        assertThrows(IndexOutOfBoundsException.class, () -> m.get(0, 0));
+
+        // Same one-way edge: only forward along it
+        DistanceMatrix.Location[] pts = {at(g, 0, 0.2), at(g, 0, 0.8)};
+        DistanceMatrix one = engine.matrix(pts, pts, RoutingEngine.Metric.DISTANCE, pool);
+        assertEquals(3.0f, one.get(0, 1), 1e-6);
+        assertEquals(Float.POSITIVE_INFINITY, one.get(1, 0));
+        assertEquals(0.0f, one.get(0, 0));
+
+        ContractionHierarchy time = new ContractionHierarchy(g, attrs, RoutingEngine.Metric.TIME);
+        assertThrows(IllegalArgumentException.class, () -> engine.matrix(null, pts, RoutingEngine.Metric.DISTANCE, pool));
+        assertThrows(IllegalArgumentException.class, () -> DistanceMatrix.compute(g, attrs, RoutingEngine.Metric.DISTANCE,
+                time, new SearchWorkspace.Pool(2), pts, pts, pool));
+    }
+
+    @Test
+    void serializesAsJsonAndBinary() throws IOException {
+        WeightedDigraph g = new WeightedDigraph(3);
+        EdgeAttributes attrs = new EdgeAttributes();
+        addRoad(g, attrs, 0, 1, 10);
+        addRoad(g, attrs, 1, 2, 20.25);
+        RoutingEngine engine = new RoutingEngine(g, attrs);
+        DistanceMatrix.Location[] pts = {at(g, 0, 0.5), at(g, 1, 0.5), null};
+        DistanceMatrix m = engine.matrix(pts, pts, RoutingEngine.Metric.DISTANCE, ForkJoinPool.commonPool());
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        new GeoJsonWriter(json, 1).writeMatrix(m);
+        assertEquals("{\"metric\":\"distance\",\"rows\":3,\"cols\":3,"
+                        + "\"values\":[[0,15.1,null],[null,0,null],[null,null,null]]}",
+                json.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream bin = new ByteArrayOutputStream();
+        new BinaryRouteWriter(bin, 6).writeMatrix(m);
+        float[][] back = BinaryRouteWriter.decodeMatrix(bin.toByteArray());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) assertEquals(m.get(i, j), back[i][j]);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryRouteWriter.decodeMatrix(Arrays.copyOf(bin.toByteArray(), bin.size() - 1)));
+    }
+
+    /** Best of routeBetween over the location's endpoints and a direct run along a shared edge. */
+    private static double expected(RoutingEngine engine, WeightedDigraph g, EdgeAttributes attrs,
+                                   RoutingEngine.Metric metric, DistanceMatrix.Location s, DistanceMatrix.Location t) {
+        if (s == null || t == null) return Double.POSITIVE_INFINITY;
+        double sl = cost(attrs, metric, s.edgeId()), tl = cost(attrs, metric, t.edgeId());
+
+        int[] starts = s.reversible() ? new int[]{s.toVertex(), s.fromVertex()} : new int[]{s.toVertex()};
+        double[] so = s.reversible() ? new double[]{(1 - s.t()) * sl, s.t() * sl} : new double[]{(1 - s.t()) * sl};
+        int[] goals = t.reversible() ? new int[]{t.fromVertex(), t.toVertex()} : new int[]{t.fromVertex()};
+        double[] go = t.reversible() ? new double[]{t.t() * tl, (1 - t.t()) * tl} : new double[]{t.t() * tl};
+
+        RoutingEngine.Route r = engine.routeBetween(starts, so, goals, go, metric, RoutingEngine.Algorithm.DIJKSTRA);
+        double best = r.found ? r.totalCost : Double.POSITIVE_INFINITY;
+        if (s.edgeId() == t.edgeId() && (t.t() >= s.t() || s.reversible())) {
+            best = Math.min(best, Math.abs(t.t() - s.t()) * sl);
+        }
+        return best;
+    }
+
+    private static DistanceMatrix.Location at(WeightedDigraph g, int edgeId, double t) {
+        int from = g.edgeByID(edgeId).firstEnd(), to = g.edgeByID(edgeId).otherEnd();
+        boolean reversible = false;
+        for (var e : g.outEdges(to)) reversible |= e.otherEnd() == from;
+        return new DistanceMatrix.Location(edgeId, t, from, to, reversible);
+    }
+
+    private static double cost(EdgeAttributes attrs, RoutingEngine.Metric metric, int id) {
+        return (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(id) : attrs.timeSeconds(id);
+    }
+
+    private static void addRoad(WeightedDigraph g, EdgeAttributes attrs, int from, int to, double cost) {
+        int id = g.addEdge(from, to, 0.0);
+        if (attrs.edgeCount() <= id) attrs.setEdgeCount(id + 1);
+        attrs.setDistanceMeters(id, cost);
+        attrs.setTimeSeconds(id, cost * 2 + (id % 3));
+    }
+}
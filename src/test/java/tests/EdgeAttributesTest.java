@@ -0,0 +1,64 @@
+package tests;
+
+import codes.EdgeAttributes;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeAttributesTest {
+
+    @Test
+    void streetNamesShareOneDictionaryEntry() {
+        EdgeAttributes attrs = new EdgeAttributes();
+        int E = 3000;
+        attrs.setEdgeCount(E);
+        for (int e = 0; e < E; e++) {
+            // Fresh strings, as a parser hands them over; every tenth edge unnamed
+            attrs.setStreetName(e, e % 10 == 0 ? null : new String("Rue " + (e % 700) + " Saint-Émilion"));
+        }
+
+        assertEquals(630, attrs.streetNameCount());
+        for (int e = 0; e < E; e++) {
+            if (e % 10 == 0) {
+                assertNull(attrs.streetName(e));
+                assertEquals(-1, attrs.streetNameId(e));
+                continue;
+            }
+            assertEquals("Rue " + (e % 700) + " Saint-Émilion", attrs.streetName(e));
+            int twin = e + 700 < E ? e + 700 : e - 700;
+            if (twin % 10 != 0) {
+                assertEquals(attrs.streetNameId(e), attrs.streetNameId(twin));
+                assertSame(attrs.streetName(e), attrs.streetName(twin));
+            }
+            assertEquals(attrs.streetName(e), attrs.streetNameById(attrs.streetNameId(e)));
+        }
+        assertNotEquals(attrs.streetNameId(1), attrs.streetNameId(2));
+        assertNotEquals(attrs.internStreetName("rue 1 saint-émilion"), attrs.streetNameId(1));
+    }
+
+    @Test
+    void namesSurviveGrowthAndCanBeSetById() {
+        EdgeAttributes attrs = new EdgeAttributes();
+        attrs.setEdgeCount(2);
+        int main = attrs.internStreetName("Main Street");
+        assertEquals(main, attrs.internStreetName("Main Street"));
+        assertEquals(-1, attrs.internStreetName(null));
+
+        attrs.setStreetNameId(0, main);
+        attrs.setStreetName(1, "Main Street");
+        attrs.setEdgeCount(1000);
+        assertEquals(main, attrs.streetNameId(1));
+        assertEquals("Main Street", attrs.streetName(0));
+        assertNull(attrs.streetName(999));
+
+        long before = attrs.version();
+        attrs.setStreetNameId(0, -1);
+        assertNull(attrs.streetName(0));
+        assertTrue(attrs.version() > before);
+
+        assertThrows(IllegalArgumentException.class, () -> attrs.setStreetNameId(0, attrs.streetNameCount()));
+        assertThrows(IllegalArgumentException.class, () -> attrs.setStreetNameId(0, -2));
+        assertThrows(IllegalArgumentException.class, () -> attrs.streetNameById(-1));
+        assertThrows(IllegalArgumentException.class, () -> attrs.streetNameId(1000));
+    }
+}
@@ -0,0 +1,105 @@
+package tests;
+
+import codes.GeoJsonWriter;
+import codes.Instruction;
+import codes.Point;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoJsonWriterTest {
+
+    @Test
+    void writesCompactFeatureWithTrimmedCoordinates() throws IOException {
+        List<Point> pts = List.of(new Point(-63.1311, 46.2382), new Point(-63.12, 46.25), new Point(0, 1));
+        List<Instruction> ins = List.of(
+                new Instruction(Instruction.Type.START, "Main St", 0),
+                new Instruction(Instruction.Type.ARRIVE, null, 0));
+
+        assertEquals("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":"
+                        + "[[-63.1311,46.2382],[-63.12,46.25],[0,1]]},"
+                        + "\"properties\":{\"instructions\":[\"Start on Main St\",\"You have arrived\"]}}",
+                write(pts, ins, GeoJsonWriter.DEFAULT_DECIMALS));
+    }
+
+    @Test
+    void roundsToConfiguredDecimals() throws IOException {
+        List<Point> pts = List.of(new Point(-63.1311049, 46.23825), new Point(-0.0000004, 0.9999996));
+
+        assertTrue(write(pts, List.of(), 6).contains("[[-63.131105,46.23825],[0,1]]"));
+        assertTrue(write(pts, List.of(), 3).contains("[[-63.131,46.238],[0,1]]"));
+        assertTrue(write(pts, List.of(), 0).contains("[[-63,46],[0,1]]"));
+    }
+
+    @Test
+    void escapesAndEncodesInstructionText() throws IOException {
+        String street = "Rue \"Québec\" \\ 𝄞\t\u0001";
+        List<Instruction> ins = List.of(new Instruction(Instruction.Type.START, street, 0));
+
+        assertTrue(write(List.of(), ins, 6)
+                .contains("[\"Start on Rue \\\"Québec\\\" \\\\ 𝄞\\t\\u0001\"]"));
+    }
+
+    @Test
+    void streamsRoutesLargerThanTheBufferAndKeepsACopy() throws IOException {
+        List<Point> pts = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) pts.add(new Point(-63 - i * 1e-5, 46 + i * 1e-5));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        GeoJsonWriter w = new GeoJsonWriter(out, 5, copy);
+        w.writeRoute(pts, List.of());
+
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertEquals(out.size(), w.bytesWritten());
+        assertArrayEquals(out.toByteArray(), copy.toByteArray());
+        assertTrue(json.startsWith("{\"type\":\"Feature\""));
+        assertTrue(json.endsWith("]},\"properties\":{\"instructions\":[]}}"));
+        assertTrue(json.contains("[-63.04999,46.04999]"));
+        assertEquals(5000, json.split("\\],\\[").length);
+    }
+
+    @Test
+    void writerStaysUsableAfterAFailedStream() throws IOException {
+        List<Point> pts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) pts.add(new Point(-63 - i * 1e-5, 46 + i * 1e-5));
+        String expected = write(pts, List.of(), 5);
+
+        // Fails on its first flush, with most of the route still buffered
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("client went away");
+            }
+        };
+        assertThrows(IOException.class, () -> new GeoJsonWriter(broken, 5).writeRoute(pts, List.of()));
+
+        // Buffers handed back by the failed writer carry nothing over
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GeoJsonWriter w = new GeoJsonWriter(out, 5);
+        w.writeRoute(pts, List.of());
+        w.writeRoute(pts, List.of());
+        assertEquals(expected + expected, out.toString(StandardCharsets.UTF_8));
+        assertEquals(out.size(), w.bytesWritten());
+    }
+
+    @Test
+    void rejectsOutOfRangeDecimals() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> new GeoJsonWriter(out, -1));
+        assertThrows(IllegalArgumentException.class, () -> new GeoJsonWriter(out, GeoJsonWriter.MAX_DECIMALS + 1));
+    }
+
+    private static String write(List<Point> pts, List<Instruction> ins, int decimals) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GeoJsonWriter(out, decimals).writeRoute(pts, ins);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package tests;
+
+import codes.EdgeAttributes;
+import codes.EdgeGeometry;
+import codes.GraphSnapshot;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeThenRead_roundTripsEveryPart() throws IOException {
+        GraphSnapshot snap = sample();
+        Path file = dir.resolve("net.gsnap");
+        snap.write(file);
+
+        GraphSnapshot loaded = GraphSnapshot.read(file);
+        WeightedDigraph g = loaded.graph();
+        EdgeAttributes attrs = loaded.attrs();
+
+        assertEquals(3, g.V());
+        assertEquals(3, g.E());
+        for (int e = 0; e < 3; e++) {
+            assertEquals(snap.graph().edgeByID(e).firstEnd(), g.edgeByID(e).firstEnd());
+            assertEquals(snap.graph().edgeByID(e).otherEnd(), g.edgeByID(e).otherEnd());
+            assertEquals(snap.graph().edgeByID(e).weight(), g.edgeByID(e).weight());
+            assertEquals(snap.attrs().distanceMeters(e), attrs.distanceMeters(e));
+            assertEquals(snap.attrs().timeSeconds(e), attrs.timeSeconds(e));
+            assertEquals(snap.attrs().streetName(e), attrs.streetName(e));
+        }
+
+        // Shared names come back as one dictionary entry
+        assertSame(attrs.streetName(0), attrs.streetName(1));
+        assertNull(attrs.streetName(2));
+
+        assertArrayEquals(snap.lat(), loaded.lat());
+        assertArrayEquals(snap.lon(), loaded.lon());
+        assertArrayEquals(snap.edgeGeometry().edgeStart(), loaded.edgeGeometry().edgeStart());
+        for (int i = 0; i < snap.edgeGeometry().size(); i++) {
+            assertEquals(snap.edgeGeometry().x(i), loaded.edgeGeometry().x(i));
+            assertEquals(snap.edgeGeometry().y(i), loaded.edgeGeometry().y(i));
+        }
+    }
+
+    @Test
+    void read_rejectsCorruptOrForeignFiles() throws IOException {
+        Path file = dir.resolve("net.gsnap");
+        sample().write(file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Path corrupt = dir.resolve("corrupt.gsnap");
+        Files.write(corrupt, bytes);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(corrupt));
+
+        Path truncated = dir.resolve("truncated.gsnap");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(file), 60));
+        assertThrows(IOException.class, () -> GraphSnapshot.read(truncated));
+
+        Path foreign = dir.resolve("foreign.gsnap");
+        Files.writeString(foreign, "<osm version=\"0.6\"></osm> plus enough padding for a header");
+        assertThrows(IOException.class, () -> GraphSnapshot.read(foreign));
+
+        // A name offset past the name bytes, behind a valid checksum
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int nameBytes = buf.getInt(24);
+        buf.putInt(buf.capacity() - nameBytes - 4, nameBytes + 1);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 48, buf.capacity() - 48);
+        buf.putLong(40, crc.getValue());
+        Path badOffsets = dir.resolve("offsets.gsnap");
+        Files.write(badOffsets, buf.array());
+        assertThrows(IOException.class, () -> GraphSnapshot.read(badOffsets));
+    }
+
+    @Test
+    void read_loadedNetworkKeepsGrowing() throws IOException {
+        Path file = dir.resolve("net.gsnap");
+        sample().write(file);
+        GraphSnapshot loaded = GraphSnapshot.read(file);
+        WeightedDigraph g = loaded.graph();
+        EdgeAttributes attrs = loaded.attrs();
+
+        assertEquals(0, attrs.internStreetName("Grafton Street"));
+        int queen = attrs.internStreetName("Queen Street");
+        assertEquals(1, queen);
+
+        g.addEdge(0, 2, 5.0);
+        attrs.setEdgeCount(g.E());
+        attrs.setStreetNameId(3, queen);
+        assertEquals(3, g.edgeByID(3).edgeID());
+        assertEquals("Queen Street", attrs.streetName(3));
+        assertEquals("Grafton Street", attrs.streetName(1));
+        assertEquals(4, g.csr().E());
+    }
+
+    private static GraphSnapshot sample() {
+        WeightedDigraph g = new WeightedDigraph(3);
+        EdgeAttributes attrs = new EdgeAttributes();
+        attrs.setEdgeCount(3);
+
+        int[][] ends = {{0, 1}, {1, 2}, {2, 0}};
+        String[] names = {"Grafton Street", "Grafton Street", null};
+        for (int e = 0; e < 3; e++) {
+            g.addEdge(ends[e][0], ends[e][1], 10.5 * (e + 1));
+            attrs.setDistanceMeters(e, 10.5 * (e + 1));
+            attrs.setTimeSeconds(e, 1.25 * (e + 1));
+            attrs.setStreetName(e, names[e] == null ? null : new String(names[e]));
+        }
+
+        EdgeGeometry geom = new EdgeGeometry(new int[]{0, 2, 5, 7},
+                new double[]{-63.1, -63.2, -63.2, -63.25, -63.3, -63.3, -63.1},
+                new double[]{46.2, 46.21, 46.21, 46.215, 46.22, 46.22, 46.2});
+        return new GraphSnapshot(g, attrs, new double[]{46.2, 46.21, 46.22}, new double[]{-63.1, -63.2, -63.3}, geom);
+    }
+}
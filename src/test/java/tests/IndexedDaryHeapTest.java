@@ -0,0 +1,73 @@
+package tests;
+
+import codes.IndexedDaryHeap;
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedDaryHeapTest {
+
+    @Test
+    void delMin_returnsIndicesInKeyOrder() {
+        for (int arity = 2; arity <= 8; arity++) {
+            IndexedDaryHeap pq = new IndexedDaryHeap(100, arity);
+            Random rnd = new Random(arity);
+            double[] keys = new double[100];
+
+            for (int i = 0; i < 100; i++) {
+                keys[i] = rnd.nextDouble() * 1000;
+                pq.insert(i, keys[i]);
+            }
+
+            // Decrease a few keys
+            for (int i = 0; i < 100; i += 7) {
+                keys[i] = keys[i] / 2;
+                pq.decreaseKey(i, keys[i]);
+            }
+
+            double prev = Double.NEGATIVE_INFINITY;
+            while (!pq.isEmpty()) {
+                double min = pq.minKey();
+                int i = pq.delMin();
+                assertEquals(keys[i], min, 0.0);
+                assertTrue(min >= prev);
+                assertFalse(pq.contains(i));
+                prev = min;
+            }
+        }
+    }
+
+    @Test
+    void insertDuplicateAndIncreaseKey_throw() {
+        IndexedDaryHeap pq = new IndexedDaryHeap(4);
+        pq.insert(1, 5.0);
+
+        assertThrows(IllegalArgumentException.class, () -> pq.insert(1, 3.0));
+        assertThrows(IllegalArgumentException.class, () -> pq.decreaseKey(1, 6.0));
+        assertThrows(NoSuchElementException.class, () -> pq.decreaseKey(2, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> pq.insert(4, 1.0));
+    }
+
+    @Test
+    void clear_allowsReuse() {
+        IndexedDaryHeap pq = new IndexedDaryHeap(5);
+        pq.insert(0, 3.0);
+        pq.insert(3, 1.0);
+        pq.insert(4, 2.0);
+        assertEquals(3, pq.delMin());
+
+        pq.clear();
+        assertTrue(pq.isEmpty());
+        assertFalse(pq.contains(0));
+        assertFalse(pq.contains(4));
+
+        pq.insert(0, 9.0);
+        pq.insert(4, 8.0);
+        assertEquals(4, pq.delMin());
+        assertEquals(0, pq.delMin());
+        assertThrows(NoSuchElementException.class, pq::delMin);
+    }
+}
@@ -0,0 +1,222 @@
+package tests;
+
+import codes.DistanceMatrix;
+import codes.EdgeAttributes;
+import codes.EdgeGeometry;
+import codes.GeoJsonWriter;
+import codes.Isochrone;
+import codes.LocalProjection;
+import codes.Point;
+import codes.RoutingEngine;
+import codes.SearchWorkspace;
+import codes.ShortestPathAlgorithms;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsochroneTest {
+
+    /** Corners of a 100 m square, counter-clockwise from the origin. */
+    private static final double[][] CORNERS = {{0, 0}, {100, 0}, {100, 100}, {0, 100}};
+
+    @Test
+    void boundedDijkstraSettlesExactlyTheVerticesWithinTheLimit() {
+        int n = 15;
+        WeightedDigraph g = new WeightedDigraph(n * n);
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(11);
+        for (int v = 0; v < n * n; v++) {
+            if (v % n < n - 1) {
+                addRoad(g, attrs, v, v + 1, 1 + rnd.nextInt(30));
+                addRoad(g, attrs, v + 1, v, 1 + rnd.nextInt(30));
+            }
+            if (v / n < n - 1) {
+                addRoad(g, attrs, v, v + n, 1 + rnd.nextInt(30));
+                if (rnd.nextBoolean()) addRoad(g, attrs, v + n, v, 1 + rnd.nextInt(30));
+            }
+        }
+
+        int s = n * n / 2;
+        double limit = 80;
+        var full = new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, s);
+        var bounded = new ShortestPathAlgorithms.BoundedDijkstra(g, attrs, RoutingEngine.Metric.DISTANCE,
+                new int[]{s}, new double[]{0.0}, limit, new SearchWorkspace(g.V()));
+
+        int inside = 0;
+        for (int v = 0; v < g.V(); v++) {
+            boolean within = full.distTo(v) <= limit;
+            assertEquals(within, bounded.isSettled(v), "vertex " + v);
+            if (within) {
+                inside++;
+                assertEquals(full.distTo(v), bounded.distTo(v), 1e-9);
+            } else {
+                assertEquals(Double.POSITIVE_INFINITY, bounded.distTo(v));
+            }
+        }
+        assertEquals(inside, bounded.settledCount());
+        assertTrue(inside > 1 && inside < g.V());
+
+        int[] order = bounded.settledVertices();
+        for (int i = 1; i < order.length; i++) {
+            assertTrue(bounded.distTo(order[i - 1]) <= bounded.distTo(order[i]));
+        }
+    }
+
+    @Test
+    void boundedDijkstraRejectsBadLimits() {
+        WeightedDigraph g = new WeightedDigraph(1);
+        EdgeAttributes attrs = new EdgeAttributes();
+        SearchWorkspace ws = new SearchWorkspace(1);
+        for (double limit : new double[]{-1, Double.NaN}) {
+            assertThrows(IllegalArgumentException.class, () -> new ShortestPathAlgorithms.BoundedDijkstra(
+                    g, attrs, RoutingEngine.Metric.DISTANCE, new int[]{0}, new double[]{0}, limit, ws));
+        }
+    }
+
+    @Test
+    void cutsEdgesAtTheLimitAndMergesTwoWayRoads() {
+        RoutingEngine engine = new RoutingEngine(square(), squareAttrs());
+        DistanceMatrix.Location origin = new DistanceMatrix.Location(0, 0.5, 0, 1, true);
+
+        // Both ways round the square meet on the far side: every road is whole
+        Isochrone all = engine.isochrone(origin, 210, RoutingEngine.Metric.DISTANCE);
+        assertEquals(4, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(0.0, all.from(i));
+            assertEquals(1.0, all.to(i));
+        }
+        assertEquals(4, all.settledCount());
+
+        // Short of meeting: the far road is reached 30 m from each end
+        Isochrone part = engine.isochrone(origin, 180, RoutingEngine.Metric.DISTANCE);
+        assertEquals(5, part.size());
+        assertEquals(List.of("0:0.0-1.0", "2:0.0-1.0", "4:0.0-0.3", "5:0.0-0.3", "6:0.0-1.0"), fragments(part));
+
+        // Within the origin edge only
+        Isochrone tiny = engine.isochrone(origin, 20, RoutingEngine.Metric.DISTANCE);
+        assertEquals(List.of("0:0.3-0.7"), fragments(tiny));
+        assertEquals(0, tiny.settledCount());
+
+        // One-way origin edge: only forward from the snap point
+        DistanceMatrix.Location oneWay = new DistanceMatrix.Location(0, 0.5, 0, 1, false);
+        assertEquals(List.of("0:0.5-0.7"), fragments(engine.isochrone(oneWay, 20, RoutingEngine.Metric.DISTANCE)));
+    }
+
+    @Test
+    void shapeCutsGeometryAndOutlinesTheReachedRoads() throws IOException {
+        WeightedDigraph g = square();
+        RoutingEngine engine = new RoutingEngine(g, squareAttrs());
+        Isochrone iso = engine.isochrone(new DistanceMatrix.Location(0, 0.5, 0, 1, true), 180,
+                RoutingEngine.Metric.DISTANCE);
+
+        // Edge e runs between CORNERS[e / 2] and the next corner, odd IDs backwards
+        int[] start = new int[g.E() + 1];
+        double[] x = new double[2 * g.E()], y = new double[2 * g.E()];
+        for (int e = 0; e < g.E(); e++) {
+            double[] a = CORNERS[e / 2], b = CORNERS[(e / 2 + 1) % 4];
+            if (e % 2 == 1) { double[] tmp = a; a = b; b = tmp; }
+            start[e + 1] = 2 * (e + 1);
+            x[2 * e] = a[0]; y[2 * e] = a[1];
+            x[2 * e + 1] = b[0]; y[2 * e + 1] = b[1];
+        }
+        LocalProjection projection = new LocalProjection(46.0, -63.0);
+        Isochrone.Shape shape = iso.shape(new EdgeGeometry(start, x, y), projection, 8);
+
+        assertEquals(iso.size(), shape.lines().size());
+        int i4 = 0;
+        while (iso.edgeId(i4) != 4) i4++;
+        List<Point> far = shape.lines().get(i4);                  // 30 m from (100, 100) towards (0, 100)
+        double[] xy = new double[2];
+        projection.project(far.get(1).y, far.get(1).x, xy);
+        assertEquals(70.0, xy[0], 1e-6);
+        assertEquals(100.0, xy[1], 1e-6);
+
+        List<Point> hull = shape.hull();
+        assertTrue(hull.size() >= 4);
+        assertEquals(hull.get(0).x, hull.get(hull.size() - 1).x);
+        assertEquals(hull.get(0).y, hull.get(hull.size() - 1).y);
+        assertTrue(iso.shape(new EdgeGeometry(start, x, y), projection, 0).hull().isEmpty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GeoJsonWriter(out, 5).writeIsochrone(iso, shape);
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\","
+                + "\"geometry\":{\"type\":\"MultiLineString\",\"coordinates\":[[["));
+        assertTrue(json.contains("\"properties\":{\"metric\":\"distance\",\"limit\":180}"));
+        assertTrue(json.contains("{\"type\":\"Polygon\",\"coordinates\":[[["));
+        assertTrue(json.endsWith("}}]}"));
+    }
+
+    @Test
+    void cacheKeysOnOriginLimitAndOutline() {
+        WeightedDigraph g = square();
+        EdgeAttributes attrs = squareAttrs();
+        RoutingEngine engine = new RoutingEngine(g, attrs);
+        DistanceMatrix.Location origin = new DistanceMatrix.Location(0, 0.5, 0, 1, true);
+        Isochrone iso = engine.isochrone(origin, 100, RoutingEngine.Metric.DISTANCE);
+
+        Isochrone.Cache cache = new Isochrone.Cache(g, attrs, 1 << 20);
+        Isochrone.Key key = Isochrone.Key.of(origin, RoutingEngine.Metric.DISTANCE, 100, false);
+        assertNull(cache.get(key));
+        cache.put(key, iso, new byte[]{1, 2, 3});
+
+        assertSame(iso, cache.get(Isochrone.Key.of(new DistanceMatrix.Location(0, 0.50001, 0, 1, true),
+                RoutingEngine.Metric.DISTANCE, 100, false)).isochrone());
+        assertNull(cache.get(Isochrone.Key.of(origin, RoutingEngine.Metric.DISTANCE, 101, false)));
+        assertNull(cache.get(Isochrone.Key.of(origin, RoutingEngine.Metric.DISTANCE, 100, true)));
+        assertNull(cache.get(Isochrone.Key.of(origin, RoutingEngine.Metric.TIME, 100, false)));
+        assertEquals(1, cache.hits());
+
+        // Changing an edge cost invalidates
+        attrs.setDistanceMeters(0, 50);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * A two-way square 0-1-2-3-0 with 100 m sides; edge {@code 2k} runs
+     * from corner {@code k} to corner {@code k+1}, edge {@code 2k+1} back.
+     */
+    private static WeightedDigraph square() {
+        WeightedDigraph g = new WeightedDigraph(4);
+        for (int k = 0; k < 4; k++) {
+            g.addEdge(k, (k + 1) % 4, 0.0);
+            g.addEdge((k + 1) % 4, k, 0.0);
+        }
+        return g;
+    }
+
+    private static EdgeAttributes squareAttrs() {
+        EdgeAttributes attrs = new EdgeAttributes();
+        attrs.setEdgeCount(8);
+        for (int e = 0; e < 8; e++) {
+            attrs.setDistanceMeters(e, 100);
+            attrs.setTimeSeconds(e, 10);
+        }
+        return attrs;
+    }
+
+    private static List<String> fragments(Isochrone iso) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < iso.size(); i++) {
+            out.add(String.format("%d:%.1f-%.1f", iso.edgeId(i), iso.from(i), iso.to(i)));
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private static void addRoad(WeightedDigraph g, EdgeAttributes attrs, int from, int to, double cost) {
+        int id = g.addEdge(from, to, 0.0);
+        if (attrs.edgeCount() <= id) attrs.setEdgeCount(id + 1);
+        attrs.setDistanceMeters(id, cost);
+        attrs.setTimeSeconds(id, cost);
+    }
+}
@@ -0,0 +1,111 @@
+package tests;
+
+import codes.EdgeAttributes;
+import codes.Landmarks;
+import codes.RoutingEngine;
+import codes.ShortestPathAlgorithms;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LandmarksTest {
+
+    @Test
+    void randomGrid_altMatchesDijkstraWithAdmissibleBounds() {
+        int n = 15;
+        WeightedDigraph g = new WeightedDigraph(n * n);
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(11);
+
+        for (int v = 0; v < n * n; v++) {
+            int[] nbrs = {v % n < n - 1 ? v + 1 : -1, v / n < n - 1 ? v + n : -1};
+            for (int w : nbrs) {
+                if (w < 0) continue;
+                if (rnd.nextInt(6) > 0) addRoad(g, attrs, v, w, 1 + rnd.nextInt(20));
+                if (rnd.nextInt(6) > 0) addRoad(g, attrs, w, v, 1 + rnd.nextInt(20));
+            }
+        }
+
+        for (Landmarks.Selection selection : Landmarks.Selection.values()) {
+            Landmarks lm = new Landmarks(g, attrs, RoutingEngine.Metric.TIME, 6, selection);
+            assertEquals(6, lm.count());
+
+            long dijkstraSettled = 0;
+            long altSettled = 0;
+            for (int q = 0; q < 60; q++) {
+                int s = rnd.nextInt(n * n);
+                int t = rnd.nextInt(n * n);
+
+                ShortestPathAlgorithms.Dijkstra ref =
+                        new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.TIME, s, new int[]{t});
+                ShortestPathAlgorithms.Astar alt =
+                        new ShortestPathAlgorithms.Astar(g, attrs, lm, RoutingEngine.Metric.TIME, s, t);
+
+                assertEquals(ref.hasPathTo(t), alt.hasPathToGoal());
+                if (!ref.hasPathTo(t)) {
+                    assertEquals(Double.POSITIVE_INFINITY, lm.lowerBound(s, t));
+                    continue;
+                }
+
+                assertEquals(ref.distTo(t), alt.costToGoal(), 1e-9);
+                assertTrue(lm.lowerBound(s, t) <= ref.distTo(t));
+                dijkstraSettled += ref.settledCount();
+                altSettled += alt.settledCount();
+            }
+            assertTrue(altSettled < dijkstraSettled, selection + ": " + altSettled + " vs " + dijkstraSettled);
+        }
+    }
+
+    @Test
+    void chosenLandmarks_tablesHoldExactDistances() {
+        // 0 -> 1 -> 2, plus a one-way shortcut 0 -> 2 that costs more
+        WeightedDigraph g = new WeightedDigraph(3);
+        EdgeAttributes attrs = new EdgeAttributes();
+        addRoad(g, attrs, 0, 1, 4);
+        addRoad(g, attrs, 1, 2, 3);
+        addRoad(g, attrs, 0, 2, 10);
+
+        Landmarks lm = new Landmarks(g, attrs, RoutingEngine.Metric.DISTANCE, new int[]{2});
+        assertEquals(2, lm.landmark(0));
+        assertEquals(7.0, lm.toLandmark(0, 0), 1e-6);
+        assertEquals(3.0, lm.toLandmark(0, 1), 1e-6);
+        assertEquals(Double.POSITIVE_INFINITY, lm.fromLandmark(0, 0));
+
+        // d(0, 2) - d(1, 2) bounds the cost 0 -> 1 from below
+        assertEquals(4.0, lm.lowerBound(0, 1), 1e-5);
+        assertTrue(lm.lowerBound(0, 1) <= 4.0);
+        // 2 reaches nothing, while 0 reaches the landmark: no path 2 -> 0
+        assertEquals(Double.POSITIVE_INFINITY, lm.lowerBound(2, 0));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new Landmarks(g, attrs, RoutingEngine.Metric.DISTANCE, new int[]{1, 1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Landmarks(g, attrs, RoutingEngine.Metric.DISTANCE, 0, Landmarks.Selection.FARTHEST));
+    }
+
+    @Test
+    void routingEngine_requiresAttachedLandmarks() {
+        WeightedDigraph g = new WeightedDigraph(2);
+        EdgeAttributes attrs = new EdgeAttributes();
+        addRoad(g, attrs, 0, 1, 5);
+
+        RoutingEngine engine = new RoutingEngine(g, attrs);
+        assertThrows(IllegalStateException.class, () -> engine.routeTimeAlt(0, 1));
+
+        engine.attachLandmarks(new Landmarks(g, attrs, RoutingEngine.Metric.TIME, 1, Landmarks.Selection.AVOID));
+        RoutingEngine.Route r = engine.routeTimeAlt(0, 1);
+        assertTrue(r.found);
+        assertEquals(RoutingEngine.Algorithm.ALT, r.algorithm);
+        assertEquals(attrs.timeSeconds(0), r.totalCost, 1e-9);
+    }
+
+    private static void addRoad(WeightedDigraph g, EdgeAttributes attrs, int from, int to, double cost) {
+        int id = g.addEdge(from, to, 0.0);
+        if (attrs.edgeCount() <= id) attrs.setEdgeCount(id + 1);
+        attrs.setDistanceMeters(id, cost);
+        attrs.setTimeSeconds(id, cost * 2 + (id % 3));
+    }
+}
@@ -0,0 +1,153 @@
+package tests;
+
+import codes.OsmPbfReader;
+import codes.OsmXmlScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsmPbfReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void read_decodesDenseNodesPlainNodesAndWays() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        writeBlob(file, "OSMHeader", cat(bytes(4, str("OsmSchema-V0.6")), bytes(4, str("DenseNodes"))), true);
+
+        // Dense nodes 10, 11, 12 with a lat offset and granularity 100, zlib-compressed
+        byte[] dense = cat(packedSInt(1, 10, 1, 1), packedSInt(8, 462345678, 100, -50), packedSInt(9, -631234567, -10, 0));
+        writeBlob(file, "OSMData", cat(bytes(1, bytes(1, str(""))), bytes(2, bytes(2, dense)), varint(17, 100)), true);
+
+        // A plain node in an uncompressed blob, with a granularity of 1000 and an offset
+        byte[] node = cat(sint(1, 13), sint(8, 46_300_000), sint(9, -63_400_000));
+        writeBlob(file, "OSMData", cat(bytes(2, bytes(1, node)), varint(17, 1000), varint(19, 1_000_000)), false);
+
+        // Ways: a named one-way residential street, a footway and a single-node road
+        byte[] strings = cat(bytes(1, str("")), bytes(1, str("highway")), bytes(1, str("residential")),
+                bytes(1, str("name")), bytes(1, str("Queen Street")), bytes(1, str("oneway")), bytes(1, str("yes")),
+                bytes(1, str("footway")));
+        byte[] way1 = cat(varint(1, 100), packedUInt(2, 1, 3, 5), packedUInt(3, 2, 4, 6), packedSInt(8, 10, 2, 1));
+        byte[] way2 = cat(varint(1, 101), packedUInt(2, 1), packedUInt(3, 7), packedSInt(8, 11, 1));
+        byte[] way3 = cat(varint(1, 102), packedUInt(2, 1), packedUInt(3, 2), packedSInt(8, 13));
+        writeBlob(file, "OSMData", cat(bytes(1, strings), bytes(2, cat(bytes(3, way1), bytes(3, way2), bytes(3, way3)))), true);
+
+        Path pbf = dir.resolve("tiny.osm.pbf");
+        Files.write(pbf, file.toByteArray());
+        assertTrue(OsmPbfReader.isPbf(pbf));
+
+        List<OsmXmlScanner.Chunk> chunks = OsmPbfReader.read(pbf);
+        assertEquals(3, chunks.size());
+
+        OsmXmlScanner.Chunk nodes = chunks.get(0);
+        assertEquals(3, nodes.nodeCount());
+        assertEquals(11, nodes.nodeId(1));
+        assertEquals(46.2345678, nodes.lat(0));
+        assertEquals(-63.1234567, nodes.lon(0));
+        assertEquals(46.2345778, nodes.lat(1));
+        assertEquals(46.2345728, nodes.lat(2));
+        assertEquals(-63.1234577, nodes.lon(2));
+
+        OsmXmlScanner.Chunk plain = chunks.get(1);
+        assertEquals(13, plain.nodeId(0));
+        assertEquals(46.301, plain.lat(0));
+        assertEquals(-63.4, plain.lon(0));
+
+        OsmXmlScanner.Chunk ways = chunks.get(2);
+        assertEquals(1, ways.wayCount());
+        assertArrayEquals(new long[]{10, 12, 13}, ways.wayRefs(0));
+        assertEquals("Queen Street", ways.name(0));
+        assertEquals(1, ways.oneway(0));
+    }
+
+    @Test
+    void read_rejectsUnsupportedFeaturesAndForeignFiles() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        writeBlob(file, "OSMHeader", cat(bytes(4, str("OsmSchema-V0.6")), bytes(4, str("HistoricalInformation"))), true);
+        Path history = dir.resolve("history.osm.pbf");
+        Files.write(history, file.toByteArray());
+        assertThrows(IllegalArgumentException.class, () -> OsmPbfReader.read(history));
+
+        Path xml = dir.resolve("renamed.osm.pbf");
+        Files.writeString(xml, "<?xml version=\"1.0\"?><osm version=\"0.6\"></osm>");
+        assertThrows(IllegalArgumentException.class, () -> OsmPbfReader.read(xml));
+    }
+
+    // ---- Minimal protobuf encoder ----
+
+    private static void writeBlob(ByteArrayOutputStream out, String type, byte[] data, boolean compress) throws IOException {
+        byte[] blob;
+        if (compress) {
+            Deflater deflater = new Deflater();
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buf = new byte[data.length + 64];
+            int n = deflater.deflate(buf);
+            deflater.end();
+            blob = cat(varint(2, data.length), bytes(3, Arrays.copyOf(buf, n)));
+        } else {
+            blob = bytes(1, data);
+        }
+        byte[] header = cat(bytes(1, str(type)), varint(3, blob.length));
+        DataOutputStream d = new DataOutputStream(out);
+        d.writeInt(header.length);
+        d.write(header);
+        d.write(blob);
+    }
+
+    private static byte[] rawVarint(long v) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+        return out.toByteArray();
+    }
+
+    private static byte[] varint(int field, long v) {
+        return cat(rawVarint((long) field << 3), rawVarint(v));
+    }
+
+    private static byte[] sint(int field, long v) {
+        return varint(field, (v << 1) ^ (v >> 63));
+    }
+
+    private static byte[] bytes(int field, byte[] b) {
+        return cat(rawVarint(((long) field << 3) | 2), rawVarint(b.length), b);
+    }
+
+    private static byte[] packedSInt(int field, long... deltas) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long v : deltas) out.writeBytes(rawVarint((v << 1) ^ (v >> 63)));
+        return bytes(field, out.toByteArray());
+    }
+
+    private static byte[] packedUInt(int field, long... values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long v : values) out.writeBytes(rawVarint(v));
+        return bytes(field, out.toByteArray());
+    }
+
+    private static byte[] str(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] cat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.writeBytes(p);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package tests;
+
+import codes.OsmXmlScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsmXmlScannerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void scan_decodesNodesWaysAndTagsLikeAnXmlParser() throws IOException {
+        Path file = dir.resolve("small.osm");
+        Files.writeString(file, """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!-- exported for a test -->
+                <osm version="0.6">
+                  <bounds minlat="46.0" minlon="-63.5" maxlat="46.5" maxlon="-63.0"/>
+                  <node id="1" lat="46.2345678" lon="-63.1234567" version="2"/>
+                  <node lon='-63.2' version="1" lat='46.25' id='2'>
+                    <tag k="highway" v="traffic_signals"/>
+                  </node>
+                  <node id="-3" lat="4.62e1" lon="-63.30"/>
+                  <way id="10">
+                    <nd ref="1"/>
+                    <nd ref="2"/>
+                    <nd ref="-3"/>
+                    <tag k="highway" v="residential"/>
+                    <tag k="name" v="Rue &amp; Allée &#233;t&#xE9;&#10;"/>
+                    <tag k="oneway" v="-1"/>
+                  </way>
+                  <way id="11">
+                    <nd ref="1"/>
+                    <nd ref="2"/>
+                    <tag k="highway" v="footway"/>
+                  </way>
+                  <way id="12">
+                    <nd ref="2"/>
+                    <tag k="highway" v="primary"/>
+                  </way>
+                  <way id="13"/>
+                  <way id="14">
+                    <nd ref="2"/>
+                    <nd ref="1"/>
+                    <tag k="name" v="Line
+                break"/>
+                    <tag k="highway" v="primary"/>
+                  </way>
+                  <relation id="20"><member type="way" ref="10" role=""/></relation>
+                </osm>
+                """);
+
+        List<OsmXmlScanner.Chunk> chunks = OsmXmlScanner.scan(file, 1);
+        assertEquals(1, chunks.size());
+        OsmXmlScanner.Chunk c = chunks.get(0);
+
+        assertEquals(3, c.nodeCount());
+        assertEquals(1, c.nodeId(0));
+        assertEquals(46.2345678, c.lat(0));
+        assertEquals(-63.1234567, c.lon(0));
+        assertEquals(2, c.nodeId(1));
+        assertEquals(46.25, c.lat(1));
+        assertEquals(-63.2, c.lon(1));
+        assertEquals(-3, c.nodeId(2));
+        assertEquals(46.2, c.lat(2));
+
+        // Footway, single-node and empty ways are dropped
+        assertEquals(2, c.wayCount());
+        assertArrayEquals(new long[]{1, 2, -3}, c.wayRefs(0));
+        assertEquals(-1, c.oneway(0));
+        assertEquals("Rue & Allée été\n", c.name(0));
+        assertArrayEquals(new long[]{2, 1}, c.wayRefs(1));
+        assertEquals(0, c.oneway(1));
+        assertEquals("Line break", c.name(1));
+    }
+
+    @Test
+    void scan_chunksConcatenateToTheSequentialResult() throws IOException {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<osm version=\"0.6\">\n");
+        int nodes = 40_000;
+        for (int i = 0; i < nodes; i++) {
+            xml.append("  <node id=\"").append(i + 1).append("\" lat=\"").append(46 + i * 1e-5)
+                    .append("\" lon=\"").append(-63 - i * 1e-5).append("\" version=\"1\" timestamp=\"2024-01-01\"/>\n");
+            if (i % 10 == 9) {
+                xml.append("  <way id=\"").append(i).append("\">\n");
+                for (int j = i - 9; j <= i; j++) xml.append("    <nd ref=\"").append(j + 1).append("\"/>\n");
+                xml.append("    <tag k=\"highway\" v=\"service\"/>\n    <tag k=\"name\" v=\"W")
+                        .append(i).append("\"/>\n  </way>\n");
+            }
+        }
+        xml.append("</osm>\n");
+        Path file = dir.resolve("large.osm");
+        Files.writeString(file, xml);
+
+        List<OsmXmlScanner.Chunk> one = OsmXmlScanner.scan(file, 1);
+        List<OsmXmlScanner.Chunk> many = OsmXmlScanner.scan(file, 4);
+        assertEquals(1, one.size());
+        assertTrue(many.size() > 1, "expected several chunks for a " + Files.size(file) + " byte file");
+
+        OsmXmlScanner.Chunk ref = one.get(0);
+        assertEquals(nodes, ref.nodeCount());
+        assertEquals(nodes / 10, ref.wayCount());
+
+        List<long[]> nodesSeen = new ArrayList<>();
+        List<String> waysSeen = new ArrayList<>();
+        for (OsmXmlScanner.Chunk c : many) {
+            for (int i = 0; i < c.nodeCount(); i++) {
+                nodesSeen.add(new long[]{c.nodeId(i), Double.doubleToLongBits(c.lat(i)), Double.doubleToLongBits(c.lon(i))});
+            }
+            for (int w = 0; w < c.wayCount(); w++) waysSeen.add(c.name(w) + ":" + c.wayRefs(w).length);
+        }
+
+        assertEquals(nodes, nodesSeen.size());
+        for (int i = 0; i < nodes; i++) {
+            assertEquals(ref.nodeId(i), nodesSeen.get(i)[0]);
+            assertEquals(Double.parseDouble(String.valueOf(46 + i * 1e-5)), ref.lat(i));
+            assertEquals(Double.doubleToLongBits(ref.lat(i)), nodesSeen.get(i)[1]);
+            assertEquals(Double.doubleToLongBits(ref.lon(i)), nodesSeen.get(i)[2]);
+        }
+        assertEquals(ref.wayCount(), waysSeen.size());
+        for (int w = 0; w < ref.wayCount(); w++) {
+            assertEquals(ref.name(w) + ":10", waysSeen.get(w));
+        }
+    }
+}
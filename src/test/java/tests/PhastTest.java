@@ -0,0 +1,91 @@
+package tests;
+
+import codes.ContractionHierarchy;
+import codes.EdgeAttributes;
+import codes.Phast;
+import codes.RoutingEngine;
+import codes.ShortestPathAlgorithms;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhastTest {
+
+    @Test
+    void sweepsMatchDijkstraForSingleAndBatchedSources() {
+        int n = 14;
+        WeightedDigraph g = new WeightedDigraph(n * n + 1);     // last vertex is isolated
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(21);
+        for (int v = 0; v < n * n; v++) {
+            int[] nbrs = {v % n < n - 1 ? v + 1 : -1, v / n < n - 1 ? v + n : -1};
+            for (int w : nbrs) {
+                if (w < 0) continue;
+                if (rnd.nextInt(5) > 0) addRoad(g, attrs, v, w, 1 + rnd.nextInt(40));
+                if (rnd.nextInt(5) > 0) addRoad(g, attrs, w, v, 1 + rnd.nextInt(40));
+            }
+        }
+
+        for (RoutingEngine.Metric metric : RoutingEngine.Metric.values()) {
+            Phast phast = new Phast(new ContractionHierarchy(g, attrs, metric));
+            Phast.Workspace one = phast.newWorkspace(1);
+            Phast.Workspace four = phast.newWorkspace(4);
+
+            // Reused workspaces must not leak distances between queries
+            for (int round = 0; round < 3; round++) {
+                int[] sources = {rnd.nextInt(g.V()), rnd.nextInt(g.V()), g.V() - 1};
+                phast.manyToAll(sources, four);
+                for (int j = 0; j < sources.length; j++) {
+                    phast.oneToAll(sources[j], one);
+                    var sp = new ShortestPathAlgorithms.Dijkstra(g, attrs, metric, sources[j]);
+                    for (int v = 0; v < g.V(); v++) {
+                        String at = metric + " source " + sources[j] + " vertex " + v;
+                        assertEquals(sp.distTo(v), one.dist(0, v), 1e-9, at);
+                        assertEquals(sp.distTo(v), four.dist(j, v), 1e-9, at);
+                    }
+                }
+                for (int v = 0; v < g.V(); v++) assertEquals(Double.POSITIVE_INFINITY, four.dist(3, v));
+            }
+
+            // Position order visits every vertex once
+            boolean[] seen = new boolean[g.V()];
+            for (int p = 0; p < phast.V(); p++) {
+                int v = phast.vertexAt(p);
+                assertFalse(seen[v]);
+                seen[v] = true;
+                assertEquals(p, phast.position(v));
+                assertEquals(one.dist(0, v), one.distAtPosition(0, p));
+            }
+        }
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        WeightedDigraph g = new WeightedDigraph(3);
+        EdgeAttributes attrs = new EdgeAttributes();
+        addRoad(g, attrs, 0, 1, 5);
+        ContractionHierarchy ch = new ContractionHierarchy(g, attrs, RoutingEngine.Metric.DISTANCE);
+        Phast phast = new Phast(ch);
+        Phast.Workspace ws = phast.newWorkspace(2);
+
+        assertThrows(IllegalArgumentException.class, () -> new Phast(null));
+        assertThrows(IllegalArgumentException.class, () -> phast.newWorkspace(0));
+        assertThrows(IllegalArgumentException.class, () -> phast.oneToAll(3, ws));
+        assertThrows(IllegalArgumentException.class, () -> phast.manyToAll(new int[]{0, 1, 2}, ws));
+        assertThrows(IllegalArgumentException.class, () -> phast.oneToAll(0, new Phast(ch).newWorkspace(1)));
+
+        phast.oneToAll(0, ws);
+        assertEquals(5.0, ws.dist(0, 1));
+        assertEquals(Double.POSITIVE_INFINITY, ws.dist(0, 2));
+    }
+
+    private static void addRoad(WeightedDigraph g, EdgeAttributes attrs, int from, int to, double cost) {
+        int id = g.addEdge(from, to, 0.0);
+        if (attrs.edgeCount() <= id) attrs.setEdgeCount(id + 1);
+        attrs.setDistanceMeters(id, cost);
+        attrs.setTimeSeconds(id, cost * 0.7 + (id % 4));
+    }
+}
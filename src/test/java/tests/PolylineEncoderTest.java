@@ -0,0 +1,47 @@
+package tests;
+
+import codes.Point;
+import codes.PolylineEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolylineEncoderTest {
+
+    /** The example from Google's format description. */
+    private static final List<Point> GOOGLE = List.of(
+            new Point(-120.2, 38.5), new Point(-120.95, 40.7), new Point(-126.453, 43.252));
+
+    @Test
+    void encodesGoogleReferenceExample() {
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", PolylineEncoder.encode(GOOGLE, 5));
+    }
+
+    @Test
+    void roundTripsAtPrecisionFiveAndSix() {
+        Random rnd = new Random(7);
+        List<Point> pts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) pts.add(new Point(-180 + rnd.nextDouble() * 360, -90 + rnd.nextDouble() * 180));
+
+        for (int precision : new int[]{5, 6}) {
+            List<Point> back = PolylineEncoder.decode(PolylineEncoder.encode(pts, precision), precision);
+            assertEquals(pts.size(), back.size());
+            double tol = 0.51 / Math.pow(10, precision);
+            for (int i = 0; i < pts.size(); i++) {
+                assertEquals(pts.get(i).x, back.get(i).x, tol);
+                assertEquals(pts.get(i).y, back.get(i).y, tol);
+            }
+        }
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> PolylineEncoder.decode("_p~iF~ps|", 5));
+        assertThrows(IllegalArgumentException.class, () -> PolylineEncoder.decode("_p~iF ", 5));
+        assertThrows(IllegalArgumentException.class, () -> PolylineEncoder.encode(GOOGLE, 8));
+    }
+}
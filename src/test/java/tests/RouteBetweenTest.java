@@ -0,0 +1,119 @@
+package tests;
+
+import codes.ContractionHierarchy;
+import codes.EdgeAttributes;
+import codes.RoutingEngine;
+import codes.ShortestPathAlgorithms;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteBetweenTest {
+
+    @Test
+    void randomGrid_matchesBestOfAllEndpointPairs() {
+        int n = 10;
+        WeightedDigraph g = new WeightedDigraph(n * n);
+        EdgeAttributes attrs = new EdgeAttributes();
+        Random rnd = new Random(11);
+
+        double[] x = new double[n * n];
+        double[] y = new double[n * n];
+        for (int v = 0; v < n * n; v++) {
+            x[v] = v % n;
+            y[v] = v / n;
+            int[] nbrs = {v % n < n - 1 ? v + 1 : -1, v / n < n - 1 ? v + n : -1};
+            for (int w : nbrs) {
+                if (w < 0) continue;
+                if (rnd.nextInt(5) > 0) addRoad(g, attrs, v, w, 1 + rnd.nextInt(20));
+                if (rnd.nextInt(5) > 0) addRoad(g, attrs, w, v, 1 + rnd.nextInt(20));
+            }
+        }
+
+        // Unit-spaced coordinates and costs >= 1 keep the straight-line bound admissible
+        RoutingEngine engine = new RoutingEngine(g, attrs, new ShortestPathAlgorithms.VertexStore(x, y), 1.0);
+        for (RoutingEngine.Metric metric : RoutingEngine.Metric.values()) {
+            engine.attachHierarchy(new ContractionHierarchy(g, attrs, metric));
+        }
+
+        RoutingEngine.Algorithm[] algorithms = {
+                RoutingEngine.Algorithm.DIJKSTRA, RoutingEngine.Algorithm.ASTAR, RoutingEngine.Algorithm.CH
+        };
+
+        for (RoutingEngine.Metric metric : RoutingEngine.Metric.values()) {
+            for (int q = 0; q < 60; q++) {
+                int[] starts = {rnd.nextInt(n * n), rnd.nextInt(n * n)};
+                int[] goals = {rnd.nextInt(n * n), rnd.nextInt(n * n)};
+                double[] startOffsets = {rnd.nextDouble() * 10, rnd.nextDouble() * 10};
+                double[] goalOffsets = {rnd.nextDouble() * 10, rnd.nextDouble() * 10};
+
+                double expected = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < 2; i++) {
+                    ShortestPathAlgorithms.Dijkstra ref = new ShortestPathAlgorithms.Dijkstra(g, attrs, metric, starts[i]);
+                    for (int j = 0; j < 2; j++) {
+                        expected = Math.min(expected, startOffsets[i] + ref.distTo(goals[j]) + goalOffsets[j]);
+                    }
+                }
+
+                for (RoutingEngine.Algorithm algorithm : algorithms) {
+                    RoutingEngine.Route r = engine.routeBetween(starts, startOffsets, goals, goalOffsets, metric, algorithm);
+                    assertEquals(expected < Double.POSITIVE_INFINITY, r.found, algorithm + " " + metric);
+                    if (!r.found) continue;
+
+                    assertEquals(expected, r.totalCost, 1e-9, algorithm + " " + metric);
+
+                    // The path runs between the chosen endpoints and costs the rest
+                    int si = (r.startVertex == starts[0]) ? 0 : 1;
+                    int gi = (r.goalVertex == goals[0]) ? 0 : 1;
+                    assertEquals(starts[si], r.startVertex);
+                    assertEquals(goals[gi], r.goalVertex);
+
+                    int cur = r.startVertex;
+                    double sum = 0.0;
+                    for (int id : r.edgeIds) {
+                        assertEquals(cur, g.edgeByID(id).firstEnd());
+                        cur = g.edgeByID(id).otherEnd();
+                        sum += (metric == RoutingEngine.Metric.DISTANCE) ? attrs.distanceMeters(id) : attrs.timeSeconds(id);
+                    }
+                    assertEquals(r.goalVertex, cur);
+                    assertTrue(startOffsets[si] + sum + goalOffsets[gi] <= expected + 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void routeBetween_rejectsMalformedEndpoints() {
+        WeightedDigraph g = new WeightedDigraph(2);
+        EdgeAttributes attrs = new EdgeAttributes();
+        addRoad(g, attrs, 0, 1, 5);
+        RoutingEngine engine = new RoutingEngine(g, attrs);
+
+        RoutingEngine.Metric d = RoutingEngine.Metric.DISTANCE;
+        RoutingEngine.Algorithm dij = RoutingEngine.Algorithm.DIJKSTRA;
+
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.routeBetween(new int[0], new double[0], new int[]{1}, new double[1], d, dij));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.routeBetween(new int[]{0}, new double[2], new int[]{1}, new double[1], d, dij));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.routeBetween(new int[]{0}, new double[]{-1}, new int[]{1}, new double[1], d, dij));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.routeBetween(new int[]{0}, new double[1], new int[]{1}, new double[1], d,
+                        RoutingEngine.Algorithm.BIDIRECTIONAL_DIJKSTRA));
+
+        RoutingEngine.Route r = engine.routeBetween(new int[]{0}, new double[]{1.5}, new int[]{1}, new double[]{2.0}, d, dij);
+        assertTrue(r.found);
+        assertEquals(8.5, r.totalCost, 1e-9);
+    }
+
+    private static void addRoad(WeightedDigraph g, EdgeAttributes attrs, int from, int to, double cost) {
+        int id = g.addEdge(from, to, 0.0);
+        if (attrs.edgeCount() <= id) attrs.setEdgeCount(id + 1);
+        attrs.setDistanceMeters(id, cost);
+        attrs.setTimeSeconds(id, cost * 2 + (id % 3));
+    }
+}
@@ -0,0 +1,58 @@
+package tests;
+
+import codes.Main;
+import codes.RouteCLI;
+import codes.RoutingResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCLITest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameEdge_costsOnlyTheSpanBetweenThePoints() throws IOException {
+        // Two parallel north-south streets about 1.1 km long, far apart: one one-way, one two-way
+        Path file = dir.resolve("streets.osm");
+        Files.writeString(file, """
+                <?xml version="1.0"?>
+                <osm version="0.6">
+                  <node id="1" lat="46.00" lon="-63.00"/>
+                  <node id="2" lat="46.01" lon="-63.00"/>
+                  <node id="3" lat="46.00" lon="-62.90"/>
+                  <node id="4" lat="46.01" lon="-62.90"/>
+                  <way id="10">
+                    <nd ref="1"/><nd ref="2"/>
+                    <tag k="highway" v="residential"/><tag k="oneway" v="yes"/>
+                  </way>
+                  <way id="11">
+                    <nd ref="3"/><nd ref="4"/>
+                    <tag k="highway" v="residential"/>
+                  </way>
+                </osm>
+                """);
+        var network = new Main.OSMCompiler().compile(file);
+        double span = 0.004 * Math.toRadians(1) * 6_371_000;     // 0.004 degrees of latitude
+
+        // Along the one-way street: the span, not the whole edge
+        RoutingResult ahead = RouteCLI.routeLatLonWithRoute(46.002, -63.0, 46.006, -63.0, network);
+        assertNotNull(ahead);
+        assertEquals(span, ahead.route().totalCost, 5.0);
+        assertFalse(ahead.geometry().isEmpty());
+
+        // Against it there is no way round, so no route rather than a wrong-way one
+        assertNull(RouteCLI.routeLatLonWithRoute(46.006, -63.0, 46.002, -63.0, network));
+
+        // Backwards on the two-way street is fine
+        RoutingResult back = RouteCLI.routeLatLonWithRoute(46.006, -62.9, 46.002, -62.9, network);
+        assertNotNull(back);
+        assertEquals(span, back.route().totalCost, 5.0);
+    }
+}
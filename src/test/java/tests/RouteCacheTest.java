@@ -0,0 +1,100 @@
+package tests;
+
+import codes.EdgeAttributes;
+import codes.Point;
+import codes.RouteCache;
+import codes.RoutingEngine;
+import codes.RoutingResult;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedOnceOverBudget() {
+        WeightedDigraph g = new WeightedDigraph(2);
+        EdgeAttributes attrs = road(g);
+
+        // Room for about three small entries
+        RouteCache cache = new RouteCache(g, attrs, 3 * 300);
+        RouteCache.Key a = key(0), b = key(1), c = key(2), d = key(3);
+
+        cache.put(a, result(1), null);
+        cache.put(b, result(1), null);
+        cache.put(c, result(1), null);
+        assertNotNull(cache.get(a));          // a is now most recently used
+        cache.put(d, result(1), null);        // evicts b
+
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(a));
+        assertNotNull(cache.get(c));
+        assertNotNull(cache.get(d));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictions());
+        assertEquals(4, cache.hits());
+        assertEquals(1, cache.misses());
+        assertTrue(cache.weightBytes() <= cache.maxWeightBytes());
+
+        // An entry heavier than the whole budget is not kept
+        RouteCache.Entry huge = cache.put(key(4), result(1000), null);
+        assertNotNull(huge.result());
+        assertNull(cache.get(key(4)));
+
+        // Cached geometry is shared, so it must be read-only
+        assertThrows(UnsupportedOperationException.class,
+                () -> cache.get(a).result().geometry().add(new Point(0, 0)));
+    }
+
+    @Test
+    void keysQuantizeSnapPositionsAndGraphChangesInvalidate() {
+        assertEquals(new RouteCache.Key(7, 2048, 9, 0, RoutingEngine.Metric.DISTANCE),
+                new RouteCache.Key(7, 2048, 9, 0, RoutingEngine.Metric.DISTANCE));
+        assertNotEquals(new RouteCache.Key(7, 2048, 9, 0, RoutingEngine.Metric.DISTANCE),
+                new RouteCache.Key(7, 2048, 9, 0, RoutingEngine.Metric.TIME));
+
+        WeightedDigraph g = new WeightedDigraph(2);
+        EdgeAttributes attrs = road(g);
+        RouteCache cache = new RouteCache(g, attrs, 1 << 20);
+
+        cache.put(key(0), result(2), new byte[10]);
+        assertNotNull(cache.get(key(0)));
+
+        attrs.setTimeSeconds(0, 99.0);        // weights changed
+        assertNull(cache.get(key(0)));
+
+        cache.put(key(0), result(2), null);
+        g.addEdge(1, 0, 1.0);                 // graph changed
+        assertNull(cache.get(key(0)));
+
+        cache.put(key(0), result(2), null);
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightBytes());
+    }
+
+    private static EdgeAttributes road(WeightedDigraph g) {
+        EdgeAttributes attrs = new EdgeAttributes();
+        int id = g.addEdge(0, 1, 1.0);
+        attrs.setEdgeCount(id + 1);
+        attrs.setDistanceMeters(id, 10.0);
+        attrs.setTimeSeconds(id, 1.0);
+        return attrs;
+    }
+
+    private static RouteCache.Key key(int edge) {
+        return new RouteCache.Key(edge, 0, edge, RouteCache.T_STEPS, RoutingEngine.Metric.DISTANCE);
+    }
+
+    private static RoutingResult result(int points) {
+        List<Point> geometry = new ArrayList<>();
+        for (int i = 0; i < points; i++) geometry.add(new Point(i, i));
+        RoutingEngine.Route route = new RoutingEngine.Route(true, 0, 1, RoutingEngine.Metric.DISTANCE,
+                RoutingEngine.Algorithm.ASTAR, 10.0, new int[]{0});
+        return new RoutingResult(geometry, route);
+    }
+}
@@ -0,0 +1,98 @@
+package tests;
+
+import codes.LocalProjection;
+import codes.Point;
+import codes.RouteSimplifier;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteSimplifierTest {
+
+    private static final LocalProjection PROJECTION = new LocalProjection(46.0, -63.0);
+
+    /** Degrees of latitude per meter, near enough for building test shapes. */
+    private static final double DEG_PER_M = 1 / 111_195.0;
+
+    @Test
+    void dropsPointsWithinToleranceAndKeepsEnds() {
+        // A 1 km straight line with 0.5 m wobble, then a 90 degree corner
+        List<Point> pts = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) pts.add(at(i * 10, (i % 2 == 0) ? 0 : 0.5));
+        for (int i = 1; i <= 50; i++) pts.add(at(1000, i * 10));
+
+        List<Point> out = RouteSimplifier.simplify(pts, null, 2.0, PROJECTION);
+
+        assertEquals(List.of(pts.get(0), pts.get(100), pts.get(pts.size() - 1)), out);
+        assertSame(pts, RouteSimplifier.simplify(pts, null, 0, PROJECTION));
+        // Below the wobble only the collinear second leg collapses
+        assertEquals(102, RouteSimplifier.simplify(pts, null, 0.1, PROJECTION).size());
+    }
+
+    @Test
+    void keepsPinnedPointsExactly() {
+        List<Point> pts = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) pts.add(at(i * 10, 0));
+        boolean[] pinned = new boolean[pts.size()];
+        pinned[37] = true;
+        pinned[38] = true;
+
+        List<Point> out = RouteSimplifier.simplify(pts, pinned, 50, PROJECTION);
+
+        assertEquals(List.of(pts.get(0), pts.get(37), pts.get(38), pts.get(100)), out);
+    }
+
+    @Test
+    void staysWithinToleranceOnRandomWalk() {
+        Random rnd = new Random(3);
+        List<Point> pts = new ArrayList<>();
+        double x = 0, y = 0;
+        for (int i = 0; i < 5000; i++) {
+            x += rnd.nextDouble() * 10;
+            y += rnd.nextGaussian() * 5;
+            pts.add(at(x, y));
+        }
+
+        double tol = 8;
+        List<Point> out = RouteSimplifier.simplify(pts, null, tol, PROJECTION);
+        assertTrue(out.size() < pts.size() / 3, "kept " + out.size());
+
+        // Every dropped point lies within tolerance of the kept segment spanning it
+        int k = 0;
+        double[] a = new double[2], b = new double[2], p = new double[2];
+        for (Point q : pts) {
+            if (q == out.get(k + 1) && k + 2 < out.size()) k++;
+            project(out.get(k), a);
+            project(out.get(k + 1), b);
+            project(q, p);
+            assertTrue(segmentDistance(p, a, b) <= tol + 1e-6);
+        }
+    }
+
+    @Test
+    void toleranceForZoomHalvesPerLevel() {
+        assertEquals(156_543.03, RouteSimplifier.toleranceForZoom(0, 0), 0.01);
+        assertEquals(RouteSimplifier.toleranceForZoom(10, 46) / 2, RouteSimplifier.toleranceForZoom(11, 46), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> RouteSimplifier.toleranceForZoom(23, 0));
+        assertThrows(IllegalArgumentException.class, () -> RouteSimplifier.simplify(List.of(), null, -1, PROJECTION));
+    }
+
+    private static Point at(double eastMeters, double northMeters) {
+        return new Point(-63.0 + eastMeters * DEG_PER_M / Math.cos(Math.toRadians(46)), 46.0 + northMeters * DEG_PER_M);
+    }
+
+    private static void project(Point q, double[] out) {
+        PROJECTION.project(q.y, q.x, out);
+    }
+
+    private static double segmentDistance(double[] p, double[] a, double[] b) {
+        double dx = b[0] - a[0], dy = b[1] - a[1];
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((p[0] - a[0]) * dx + (p[1] - a[1]) * dy) / len2));
+        return Math.hypot(p[0] - a[0] - t * dx, p[1] - a[1] - t * dy);
+    }
+}
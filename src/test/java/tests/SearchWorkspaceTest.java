@@ -0,0 +1,103 @@
+package tests;
+
+import codes.EdgeAttributes;
+import codes.RoutingEngine;
+import codes.SearchWorkspace;
+import codes.ShortestPathAlgorithms;
+import codes.WeightedDigraph;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchWorkspaceTest {
+
+    @Test
+    void reset_forgetsPreviousQuery() {
+        SearchWorkspace ws = new SearchWorkspace(3);
+        ws.set(1, 4.0, 7);
+        assertTrue(ws.reached(1));
+        assertEquals(4.0, ws.dist(1), 0.0);
+        assertEquals(7, ws.parentEdge(1));
+
+        ws.reset();
+        assertFalse(ws.reached(1));
+        assertEquals(Double.POSITIVE_INFINITY, ws.dist(1), 0.0);
+        assertEquals(-1, ws.parentEdge(1));
+    }
+
+    @Test
+    void reusedWorkspace_matchesFreshSearch() {
+        // 0->1->2->3 chain plus a direct 0->3 shortcut and an island 4
+        WeightedDigraph g = new WeightedDigraph(5);
+        EdgeAttributes attrs = new EdgeAttributes();
+
+        int e01 = g.addEdge(0, 1, 0.0);
+        int e12 = g.addEdge(1, 2, 0.0);
+        int e23 = g.addEdge(2, 3, 0.0);
+        int e03 = g.addEdge(0, 3, 0.0);
+
+        attrs.setEdgeCount(g.E());
+        attrs.setDistanceMeters(e01, 1);
+        attrs.setDistanceMeters(e12, 1);
+        attrs.setDistanceMeters(e23, 1);
+        attrs.setDistanceMeters(e03, 10);
+
+        SearchWorkspace ws = new SearchWorkspace(g.V());
+
+        ShortestPathAlgorithms.Dijkstra first =
+                new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, 0, ws);
+        assertEquals(3.0, first.distTo(3), 1e-9);
+        assertArrayEquals(new int[]{e01, e12, e23}, first.pathEdgeIdArrayTo(3));
+
+        // Second query from 2 must not see distances left over from source 0
+        ShortestPathAlgorithms.Dijkstra second =
+                new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, 2, ws);
+        assertFalse(second.hasPathTo(0));
+        assertFalse(second.hasPathTo(4));
+        assertEquals(1.0, second.distTo(3), 1e-9);
+        assertArrayEquals(new int[]{e23}, second.pathEdgeIdArrayTo(3));
+        assertArrayEquals(new int[0], second.pathEdgeIdArrayTo(2));
+    }
+
+    @Test
+    void pool_reusesReleasedWorkspaces() {
+        SearchWorkspace.Pool pool = new SearchWorkspace.Pool(4);
+        SearchWorkspace a = pool.acquire();
+        a.set(2, 1.0, 0);
+        pool.release(a);
+
+        SearchWorkspace b = pool.acquire();
+        assertSame(a, b);
+        assertFalse(b.reached(2));
+
+        assertNotSame(b, pool.acquire());
+    }
+
+    @Test
+    void pool_keepsAtMostMaxIdleWorkspaces() {
+        SearchWorkspace.Pool pool = new SearchWorkspace.Pool(4, 2);
+        SearchWorkspace a = pool.acquire(), b = pool.acquire(), c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        assertEquals(2, pool.idle());
+
+        // Most recently released first; the third was dropped
+        assertSame(b, pool.acquire());
+        assertSame(a, pool.acquire());
+        assertEquals(0, pool.idle());
+        assertNotSame(c, pool.acquire());
+
+        assertThrows(IllegalArgumentException.class, () -> new SearchWorkspace.Pool(4, -1));
+    }
+
+    @Test
+    void undersizedWorkspace_throws() {
+        WeightedDigraph g = new WeightedDigraph(3);
+        EdgeAttributes attrs = new EdgeAttributes();
+        attrs.setEdgeCount(0);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                new ShortestPathAlgorithms.Dijkstra(g, attrs, RoutingEngine.Metric.DISTANCE, 0, new SearchWorkspace(2)));
+    }
+}
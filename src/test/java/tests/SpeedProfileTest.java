@@ -0,0 +1,59 @@
+package tests;
+
+import codes.EdgeAttributes;
+import codes.SpeedProfile;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpeedProfileTest {
+
+    @Test
+    void parseMaxspeed_acceptsCommonForms() {
+        assertEquals(50.0, SpeedProfile.parseMaxspeedKmh("50"));
+        assertEquals(50.0, SpeedProfile.parseMaxspeedKmh("50 km/h"));
+        assertEquals(60.0, SpeedProfile.parseMaxspeedKmh("60kmh"));
+        assertEquals(30 * 1.609344, SpeedProfile.parseMaxspeedKmh("30 mph"), 1e-12);
+        assertEquals(6.0, SpeedProfile.parseMaxspeedKmh("walk"));
+        assertEquals(50.0, SpeedProfile.parseMaxspeedKmh("CA:urban"));
+        assertEquals(80.0, SpeedProfile.parseMaxspeedKmh("DE:rural"));
+        assertEquals(30.0, SpeedProfile.parseMaxspeedKmh("FR:zone30"));
+        assertEquals(70.0, SpeedProfile.parseMaxspeedKmh("signals;70"));
+
+        assertTrue(Double.isNaN(SpeedProfile.parseMaxspeedKmh(null)));
+        assertTrue(Double.isNaN(SpeedProfile.parseMaxspeedKmh("none")));
+        assertTrue(Double.isNaN(SpeedProfile.parseMaxspeedKmh("variable")));
+        assertTrue(Double.isNaN(SpeedProfile.parseMaxspeedKmh("0")));
+        assertTrue(Double.isNaN(SpeedProfile.parseMaxspeedKmh("fast")));
+    }
+
+    @Test
+    void speedKmh_fallsBackToHighwayDefaultsAndIsCapped() {
+        assertEquals(SpeedProfile.defaultKmh("motorway"), SpeedProfile.speedKmh("motorway", "none"));
+        assertEquals(SpeedProfile.defaultKmh("residential"), SpeedProfile.speedKmh("residential", null));
+        assertEquals(30.0, SpeedProfile.speedKmh("primary", "30"));
+        assertEquals(SpeedProfile.MAX_SPEED_KMH, SpeedProfile.speedKmh("motorway", "200"));
+        assertTrue(SpeedProfile.defaultKmh("living_street") < SpeedProfile.defaultKmh("residential"));
+
+        assertEquals(36.0, SpeedProfile.travelSeconds(500.0, 50.0), 1e-12);
+    }
+
+    @Test
+    void maxSpeed_boundsEveryEdgeFromAbove() {
+        EdgeAttributes attrs = new EdgeAttributes();
+        attrs.setEdgeCount(3);
+        double[] meters = {120.0, 987.6, 5.0};
+        double[] kmh = {30 * 1.609344, 90.0, 10.0};
+        for (int e = 0; e < 3; e++) {
+            attrs.setDistanceMeters(e, meters[e]);
+            attrs.setTimeSeconds(e, SpeedProfile.travelSeconds(meters[e], kmh[e]));
+        }
+
+        double vmax = attrs.maxSpeedMetersPerSec();
+        assertEquals(25.0, vmax, 1e-9);
+        for (int e = 0; e < 3; e++) {
+            assertTrue(attrs.distanceMeters(e) / vmax <= attrs.timeSeconds(e));
+        }
+        assertEquals(0.0, new EdgeAttributes().maxSpeedMetersPerSec());
+    }
+}
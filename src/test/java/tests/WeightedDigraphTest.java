@@ -5,6 +5,7 @@ import codes.WeightedDigraph;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -60,7 +61,13 @@ class WeightedDigraphTest {
 
         assertEquals(1, g.E());
         assertEquals(0, e.edgeID());
-        assertSame(e, g.edgeByID(0));
+        Edge view = g.edgeByID(0);    // a view of the stored edge, not the added object
+        assertEquals(0, view.edgeID());
+        assertEquals(0, view.firstEnd());
+        assertEquals(1, view.otherEnd());
+        assertEquals(0.0, view.weight());
+        assertEquals(0, g.edgeTail(0));
+        assertEquals(1, g.edgeHead(0));
         assertEquals(1, g.outdegree(0));
         assertEquals(1, g.indegree(1));
     }
@@ -92,6 +99,29 @@ class WeightedDigraphTest {
         assertEquals(2, ids.get(2));
     }
 
+    @Test
+    void outEdges_followEdgeIdOrder() {
+        WeightedDigraph g = new WeightedDigraph(3);
+        g.addEdge(0, 2, 1.5);
+        g.addEdge(1, 2, 0.0);
+        g.addEdge(0, 1, 2.5);
+
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (Edge e : g.outEdges(0)) {
+            assertEquals(0, e.firstEnd());
+            assertEquals(g.edgeWeight(e.edgeID()), e.weight());
+            ids.add(e.edgeID());
+        }
+        assertEquals(List.of(0, 2), ids);
+
+        // Adding an edge shows up in the next iteration
+        g.addEdge(0, 0, 0.0);
+        int n = 0;
+        for (Edge ignored : g.outEdges(0)) n++;
+        assertEquals(3, n);
+        assertEquals(3, g.outdegree(0));
+    }
+
     @Test
     void reverse_reversesDirections() {
         WeightedDigraph g = new WeightedDigraph(4);
@@ -0,0 +1,45 @@
+package tests;
+
+import codes.EdgeAttributes;
+import codes.WeightedDigraph;
+import codes.WeightedLruCache;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedLruCacheTest {
+
+    @Test
+    void chargesValuesByWeightAndEvictsEldest() {
+        WeightedDigraph g = new WeightedDigraph(2);
+        EdgeAttributes attrs = new EdgeAttributes();
+        WeightedLruCache<Integer, String> cache = new WeightedLruCache<>(g, attrs, 10, String::length);
+
+        cache.put(1, "aaaa");
+        cache.put(2, "bbbb");
+        cache.put(1, "aa");                     // replacing re-charges the key
+        assertEquals(6, cache.weightBytes());
+
+        cache.put(3, "cccc");                   // 10 bytes: still fits
+        assertEquals(0, cache.evictions());
+        assertEquals("aa", cache.get(1));       // 2 is now eldest
+        cache.put(4, "d");
+        assertNull(cache.get(2));
+        assertEquals(1, cache.evictions());
+        assertEquals(7, cache.weightBytes());
+
+        assertEquals("too heavy!!", cache.put(5, "too heavy!!"));
+        assertNull(cache.get(5));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+
+        // Graph changes drop everything
+        g.addEdge(0, 1, 1.0);
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> cache.put(null, "x"));
+        assertThrows(IllegalArgumentException.class, () -> new WeightedLruCache<Integer, String>(g, attrs, 10, null));
+    }
+}